@@ -203,6 +203,20 @@ public class Polygon2D {
         return path;
     }
 
+    /**
+     * Converts the inner polygons of this instance to Path2D.Double instances
+     */
+    public Path2D.Double[] toPath2DArray() {
+        if (polygons == null) {
+            return new Path2D.Double[0];
+        }
+        final Path2D.Double[] paths = new Path2D.Double[polygons.length];
+        for (int i = 0; i < polygons.length; i++) {
+            paths[i] = polygons[i] != null ? (Path2D.Double) polygons[i].clone() : null;
+        }
+        return paths;
+    }
+
     /**
      * Produces a WKT representation of this polygon.
      * Default decimal precision is 4.
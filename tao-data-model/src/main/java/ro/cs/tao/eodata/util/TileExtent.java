@@ -19,23 +19,27 @@ import ro.cs.tao.eodata.Polygon2D;
 
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
+ * Holds the footprints of the tiles of a tiling grid.
+ * The queries for the tiles intersecting an area of interest are answered from a spatial index, which is rebuilt
+ * (on first use) after the tiles were changed.
+ *
  * @author Cosmin Cara
  */
 public abstract class TileExtent {
     protected final Map<String, Path2D.Double> tiles;
+    private volatile TileIndex index;
 
     protected TileExtent() {
-        tiles = new TreeMap<>();
+        tiles = new TileMap();
     }
 
     public void read(InputStream inputStream) throws IOException {
@@ -55,6 +59,7 @@ public abstract class TileExtent {
                     tiles.put(new String(buffer), polygon2D.toPath2D());
                 }
             } catch (EOFException ignored) { }
+            index = new TileIndex(tiles);
         }
     }
 
@@ -77,13 +82,80 @@ public abstract class TileExtent {
         }
     }
 
+    /**
+     * Loads the tiles from a file in the binary grid format (see {@link TileGrid}).
+     * The file is memory-mapped and the tile footprints are created directly from the stored coordinates.
+     *
+     * @param file  The grid file
+     */
+    public void readGrid(Path file) throws IOException {
+        final TileGrid grid = TileGrid.open(file);
+        synchronized (tiles) {
+            final int count = grid.size();
+            for (int i = 0; i < count; i++) {
+                tiles.put(grid.getCode(i), grid.getFootprint(i));
+            }
+            index = new TileIndex(tiles);
+        }
+    }
+
+    /**
+     * Writes the tiles to a file in the binary grid format (see {@link TileGrid}).
+     *
+     * @param file  The grid file
+     */
+    public void writeGrid(Path file) throws IOException {
+        synchronized (tiles) {
+            TileGrid.write(tiles, file);
+        }
+    }
+
+    /**
+     * Loads the tiles from a KML file. The parsed tiles are cached next to the KML file, in the binary grid format
+     * (see {@link TileGrid}), and subsequent loads map the cached grid instead of parsing the KML file again,
+     * as long as the cache is not older than the KML file. If the cache cannot be written (for example, the folder
+     * is read-only), the KML file is parsed every time.
+     *
+     * @param file  The KML file
+     */
     public void fromKmlFile(String file) throws IOException {
         Path kmlFile = Paths.get(file);
         if (Files.exists(kmlFile)) {
+            final Path gridFile = gridFile(kmlFile);
+            if (Files.exists(gridFile) &&
+                    Files.getLastModifiedTime(gridFile).compareTo(Files.getLastModifiedTime(kmlFile)) >= 0) {
+                try {
+                    readGrid(gridFile);
+                    return;
+                } catch (IOException e) {
+                    // invalid or incompatible cache, it is rewritten below
+                    tiles.clear();
+                }
+            }
             fromKml(Files.newBufferedReader(kmlFile));
+            index();
+            // the cache is written aside and moved in place, so that a partial file is never read
+            final Path tempFile = gridFile.resolveSibling(gridFile.getFileName() + ".tmp");
+            try {
+                writeGrid(tempFile);
+                Files.move(tempFile, gridFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+            }
         }
     }
 
+    /**
+     * Returns the file in which the tiles of the given KML file are cached.
+     *
+     * @param kmlFile   The KML file
+     */
+    public static Path gridFile(Path kmlFile) {
+        final String name = kmlFile.getFileName().toString();
+        final int idx = name.lastIndexOf('.');
+        return kmlFile.resolveSibling((idx > 0 ? name.substring(0, idx) : name) + ".grid");
+    }
+
     public abstract void fromKml(BufferedReader bufferedReader) throws IOException;
 
     public List<String> getTileNames() {
@@ -138,7 +210,7 @@ public abstract class TileExtent {
      * @param lry   The lower right corner latitude (in degrees)
      */
     public Set<String> intersectingTiles(double ulx, double uly, double lrx, double lry) {
-        return intersectingTiles(new Rectangle2D.Double(ulx, uly, ulx - lrx, uly - lry));
+        return intersectingTiles(new Rectangle2D.Double(ulx, lry, lrx - ulx, uly - lry));
     }
     /**
      * Computes the list of tiles that intersect the given area of interest (rectangle).
@@ -146,13 +218,7 @@ public abstract class TileExtent {
      * @param aoi   The area of interest bounding box
      */
     public Set<String> intersectingTiles(Rectangle2D aoi) {
-        Set<String> tileCodes;
-        synchronized (tiles) {
-            tileCodes = tiles.entrySet().stream()
-                    .filter(entry -> entry.getValue().intersects(aoi))
-                    .map(Map.Entry::getKey).collect(Collectors.toSet());
-        }
-        return tileCodes;
+        return index().intersecting(aoi);
     }
     /**
      * Computes the list of tiles that intersect the given area of interest (polygon).
@@ -160,18 +226,10 @@ public abstract class TileExtent {
      * @param aoi   The area of interest polygon
      */
     public Set<String> intersectingTiles(Polygon2D aoi) {
-        Set<String> tileCodes = new TreeSet<>();
-        if (aoi != null && aoi.getNumPoints() > 0) {
-            synchronized (tiles) {
-                List<Point2D> points = aoi.getPoints();
-                tileCodes.addAll(
-                        tiles.entrySet().stream()
-                                .filter(entry -> points.stream().anyMatch(p -> entry.getValue().contains(p)))
-                                .map(Map.Entry::getKey)
-                                .collect(Collectors.toSet()));
-            }
+        if (aoi == null || aoi.getNumPoints() == 0) {
+            return new TreeSet<>();
         }
-        return tileCodes;
+        return index().intersecting(aoi);
     }
 
     protected Rectangle2D boundingBox(Rectangle2D...rectangles) {
@@ -191,4 +249,130 @@ public abstract class TileExtent {
 
     protected abstract int tileCodeSize();
 
+    private TileIndex index() {
+        TileIndex current = index;
+        if (current == null) {
+            synchronized (tiles) {
+                current = index;
+                if (current == null) {
+                    current = new TileIndex(tiles);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Sorted map that discards the spatial index whenever the tiles are changed, either directly or through
+     * its views and their iterators. The default {@link Map} operations (<code>compute</code>, <code>merge</code>,
+     * <code>replaceAll</code> and so on) are implemented on top of these, hence they discard the index as well.
+     * The index is discarded after the change, while holding the lock under which it is built, so that an index
+     * built from the previous tiles cannot be published after the change.
+     */
+    private class TileMap extends AbstractMap<String, Path2D.Double> {
+        private final TreeMap<String, Path2D.Double> map = new TreeMap<>();
+        private final Set<Map.Entry<String, Path2D.Double>> entrySet = new EntrySet();
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public Path2D.Double get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Path2D.Double put(String key, Path2D.Double value) {
+            synchronized (this) {
+                final Path2D.Double previous = map.put(key, value);
+                index = null;
+                return previous;
+            }
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends Path2D.Double> map) {
+            synchronized (this) {
+                this.map.putAll(map);
+                index = null;
+            }
+        }
+
+        @Override
+        public Path2D.Double remove(Object key) {
+            synchronized (this) {
+                final Path2D.Double previous = map.remove(key);
+                index = null;
+                return previous;
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (this) {
+                map.clear();
+                index = null;
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<String, Path2D.Double>> entrySet() {
+            return entrySet;
+        }
+
+        private class EntrySet extends AbstractSet<Map.Entry<String, Path2D.Double>> {
+            @Override
+            public int size() {
+                return map.size();
+            }
+
+            @Override
+            public void clear() {
+                TileMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Path2D.Double>> iterator() {
+                final Iterator<Map.Entry<String, Path2D.Double>> iterator = map.entrySet().iterator();
+                return new Iterator<Map.Entry<String, Path2D.Double>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Path2D.Double> next() {
+                        final Map.Entry<String, Path2D.Double> entry = iterator.next();
+                        return new SimpleEntry<String, Path2D.Double>(entry) {
+                            @Override
+                            public Path2D.Double setValue(Path2D.Double value) {
+                                synchronized (TileMap.this) {
+                                    super.setValue(value);
+                                    final Path2D.Double previous = entry.setValue(value);
+                                    index = null;
+                                    return previous;
+                                }
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        synchronized (TileMap.this) {
+                            iterator.remove();
+                            index = null;
+                        }
+                    }
+                };
+            }
+        }
+    }
 }
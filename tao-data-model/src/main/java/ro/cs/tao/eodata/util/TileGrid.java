@@ -0,0 +1,241 @@
+package ro.cs.tao.eodata.util;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Read-only view of a tile grid stored in a compact binary file, which is memory-mapped rather than parsed.
+ * The file layout (big endian) is:
+ * <ul>
+ *     <li>header: magic (int), version (int), tile count (int), tile code size (int)</li>
+ *     <li>tile codes, sorted, each of <i>code size</i> ASCII bytes, followed by padding to a multiple of 8 bytes</li>
+ *     <li>vertex offsets: <i>count + 1</i> ints (the vertices of the tile <i>i</i> are between offset[i] and
+ *     offset[i + 1]), followed by padding to a multiple of 8 bytes</li>
+ *     <li>tile bounds: <i>count</i> quadruplets of doubles (minX, minY, maxX, maxY)</li>
+ *     <li>vertex coordinates: pairs of doubles (x, y)</li>
+ * </ul>
+ *
+ * @since   1.5.2
+ */
+public final class TileGrid {
+    private static final int MAGIC = 0x54475244; // "TGRD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private final int count;
+    private final int codeSize;
+    private final ByteBuffer codes;
+    private final IntBuffer offsets;
+    private final DoubleBuffer bounds;
+    private final DoubleBuffer coordinates;
+
+    /**
+     * Maps a tile grid file in memory.
+     *
+     * @param file  The grid file
+     */
+    public static TileGrid open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            return new TileGrid(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the given tiles in the grid format.
+     *
+     * @param tiles The tile footprints, by tile code
+     * @param file  The grid file
+     */
+    public static void write(Map<String, Path2D.Double> tiles, Path file) throws IOException {
+        final TreeMap<String, Path2D.Double> sorted = new TreeMap<>(tiles);
+        sorted.values().removeIf(Objects::isNull);
+        final int count = sorted.size();
+        final int codeSize = sorted.keySet().stream().mapToInt(String::length).max().orElse(0);
+        final List<double[]> vertices = new ArrayList<>(count);
+        int totalVertices = 0;
+        for (Path2D.Double path : sorted.values()) {
+            final double[] points = vertices(path);
+            vertices.add(points);
+            totalVertices += points.length / 2;
+        }
+        final int codesSize = align(count * codeSize);
+        final int offsetsSize = align((count + 1) * Integer.BYTES);
+        final long size = HEADER_SIZE + codesSize + offsetsSize + (long) count * 4 * Double.BYTES
+                + (long) totalVertices * 2 * Double.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Tile grid too large");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(codeSize);
+        for (String code : sorted.keySet()) {
+            final byte[] bytes = code.getBytes(StandardCharsets.US_ASCII);
+            buffer.put(bytes);
+            for (int i = bytes.length; i < codeSize; i++) {
+                buffer.put((byte) ' ');
+            }
+        }
+        buffer.position(HEADER_SIZE + codesSize);
+        int offset = 0;
+        for (double[] points : vertices) {
+            buffer.putInt(offset);
+            offset += points.length / 2;
+        }
+        buffer.putInt(offset);
+        buffer.position(HEADER_SIZE + codesSize + offsetsSize);
+        for (Path2D.Double path : sorted.values()) {
+            final Rectangle2D rectangle = path.getBounds2D();
+            buffer.putDouble(rectangle.getMinX()).putDouble(rectangle.getMinY())
+                  .putDouble(rectangle.getMaxX()).putDouble(rectangle.getMaxY());
+        }
+        for (double[] points : vertices) {
+            for (double value : points) {
+                buffer.putDouble(value);
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private TileGrid(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tile grid file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported tile grid version " + buffer.getInt(4));
+        }
+        this.count = buffer.getInt(8);
+        this.codeSize = buffer.getInt(12);
+        final int codesSize = align(this.count * this.codeSize);
+        final int offsetsSize = align((this.count + 1) * Integer.BYTES);
+        this.codes = slice(buffer, HEADER_SIZE, this.count * this.codeSize);
+        this.offsets = slice(buffer, HEADER_SIZE + codesSize, (this.count + 1) * Integer.BYTES).asIntBuffer();
+        final int boundsStart = HEADER_SIZE + codesSize + offsetsSize;
+        this.bounds = slice(buffer, boundsStart, this.count * 4 * Double.BYTES).asDoubleBuffer();
+        final int coordinatesStart = boundsStart + this.count * 4 * Double.BYTES;
+        this.coordinates = slice(buffer, coordinatesStart, this.offsets.get(this.count) * 2 * Double.BYTES).asDoubleBuffer();
+    }
+
+    /**
+     * Returns the number of tiles of the grid
+     */
+    public int size() { return this.count; }
+
+    /**
+     * Returns the code of a tile.
+     *
+     * @param index The tile index
+     */
+    public String getCode(int index) {
+        final byte[] bytes = new byte[this.codeSize];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.codes.get(index * this.codeSize + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * Returns the index of a tile, or a negative value if the grid doesn't contain the tile.
+     *
+     * @param code  The tile code
+     */
+    public int indexOf(String code) {
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = getCode(middle).compareTo(code);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the bounding box of a tile.
+     *
+     * @param index The tile index
+     */
+    public Rectangle2D getBounds(int index) {
+        final int i = index * 4;
+        final double minX = this.bounds.get(i);
+        final double minY = this.bounds.get(i + 1);
+        return new Rectangle2D.Double(minX, minY, this.bounds.get(i + 2) - minX, this.bounds.get(i + 3) - minY);
+    }
+
+    /**
+     * Creates the footprint of a tile. The returned path has no spare capacity.
+     *
+     * @param index The tile index
+     */
+    public Path2D.Double getFootprint(int index) {
+        final int start = this.offsets.get(index);
+        final int end = this.offsets.get(index + 1);
+        final Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, Math.max(1, end - start));
+        for (int i = start; i < end; i++) {
+            final double x = this.coordinates.get(2 * i);
+            final double y = this.coordinates.get(2 * i + 1);
+            if (i == start) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        return path;
+    }
+
+    private static double[] vertices(Path2D.Double path) {
+        final List<double[]> points = new ArrayList<>();
+        final PathIterator iterator = path.getPathIterator(null);
+        final double[] segment = new double[6];
+        while (!iterator.isDone()) {
+            // the same as TileExtent.write(), only the first point of each segment is kept
+            if (iterator.currentSegment(segment) != PathIterator.SEG_CLOSE) {
+                points.add(new double[] { segment[0], segment[1] });
+            }
+            iterator.next();
+        }
+        final double[] values = new double[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            values[2 * i] = points.get(i)[0];
+            values[2 * i + 1] = points.get(i)[1];
+        }
+        return values;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) throws IOException {
+        if (position + length > buffer.limit()) {
+            throw new IOException("Truncated tile grid file");
+        }
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position).limit(position + length);
+        return duplicate.slice();
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -0,0 +1,52 @@
+package ro.cs.tao.eodata.util;
+
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts the tile grid of a sensor, from either a KML file or the legacy binary format of
+ * {@link TileExtent#write(Path)}, to the memory-mappable format of {@link TileGrid}.
+ * Usage: TileGridConverter &lt;TileExtent implementation class&gt; &lt;input file (.kml or binary)&gt; &lt;output file&gt;
+ *
+ * @since   1.5.2
+ */
+public class TileGridConverter {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.out.println("Usage: TileGridConverter <TileExtent implementation class> <input file (.kml or binary)> <output file>");
+            System.exit(1);
+        }
+        final Path input = Paths.get(args[1]);
+        final Path output = Paths.get(args[2]);
+        if (!Files.exists(input)) {
+            System.err.println("File not found: " + input);
+            System.exit(1);
+        }
+        final TileExtent extent = newInstance(args[0]);
+        if (input.getFileName().toString().toLowerCase().endsWith(".kml")) {
+            extent.fromKmlFile(input.toString());
+        } else {
+            try (InputStream stream = Files.newInputStream(input)) {
+                extent.read(stream);
+            }
+        }
+        extent.writeGrid(output);
+        System.out.printf("%d tiles written to %s (%d bytes, input was %d bytes)%n",
+                          extent.getCount(), output, Files.size(output), Files.size(input));
+    }
+
+    private static TileExtent newInstance(String className) throws Exception {
+        final Class<?> clazz = Class.forName(className);
+        if (!TileExtent.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException(className + " is not a TileExtent");
+        }
+        // tile extents are usually singletons, with a non-public constructor
+        final Constructor<?> constructor = clazz.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return (TileExtent) constructor.newInstance();
+    }
+}
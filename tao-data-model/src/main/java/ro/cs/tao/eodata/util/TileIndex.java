@@ -0,0 +1,257 @@
+package ro.cs.tao.eodata.util;
+
+import ro.cs.tao.eodata.Polygon2D;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable spatial index of tile footprints, packed as an R-tree using the Sort-Tile-Recursive algorithm.
+ * The bounding boxes of the tree nodes are used to select the candidate tiles of a query, and only these
+ * candidates are tested against the exact tile footprint.
+ * Since the index is not modified after creation, it can be queried concurrently without locking.
+ *
+ * @since   1.5.2
+ */
+final class TileIndex {
+    private static final int NODE_CAPACITY = 16;
+    private final String[] names;
+    private final Path2D.Double[] paths;
+    private final double[][] segments;
+    private final Node root;
+
+    /**
+     * Creates the index of the given tiles.
+     *
+     * @param tiles The tile footprints, by tile name
+     */
+    TileIndex(Map<String, Path2D.Double> tiles) {
+        final int count = tiles.size();
+        this.names = new String[count];
+        this.paths = new Path2D.Double[count];
+        this.segments = new double[count][];
+        final List<Node> leaves = new ArrayList<>(count);
+        int i = 0;
+        for (Map.Entry<String, Path2D.Double> entry : tiles.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            this.names[i] = entry.getKey();
+            this.paths[i] = entry.getValue();
+            this.segments[i] = segments(entry.getValue());
+            leaves.add(new Node(i, entry.getValue().getBounds2D()));
+            i++;
+        }
+        this.root = leaves.isEmpty() ? null : pack(leaves);
+    }
+
+    /**
+     * Returns the names of the tiles whose footprint intersects the given rectangle.
+     *
+     * @param aoi   The area of interest
+     */
+    Set<String> intersecting(Rectangle2D aoi) {
+        final Set<String> result = new TreeSet<>();
+        if (aoi != null) {
+            search(aoi.getMinX(), aoi.getMinY(), aoi.getMaxX(), aoi.getMaxY(), idx -> {
+                if (this.paths[idx].intersects(aoi)) {
+                    result.add(this.names[idx]);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the tiles whose footprint intersects the given polygon.
+     * A tile intersects the polygon if either of them contains a vertex of the other or if their edges cross.
+     *
+     * @param aoi   The area of interest
+     */
+    Set<String> intersecting(Polygon2D aoi) {
+        final Set<String> result = new TreeSet<>();
+        final Rectangle2D bounds = aoi != null ? aoi.getBounds2D() : null;
+        if (bounds == null) {
+            return result;
+        }
+        final Path2D.Double aoiPath = new Path2D.Double();
+        for (Path2D.Double ring : aoi.toPath2DArray()) {
+            if (ring != null) {
+                aoiPath.append(ring, false);
+            }
+        }
+        final double[] aoiSegments = segments(aoiPath);
+        search(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), idx -> {
+            if (intersects(this.paths[idx], this.segments[idx], aoiPath, aoiSegments)) {
+                result.add(this.names[idx]);
+            }
+        });
+        return result;
+    }
+
+    private void search(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+        if (this.root == null || !this.root.intersects(minX, minY, maxX, maxY)) {
+            return;
+        }
+        final Deque<Node> stack = new ArrayDeque<>();
+        stack.push(this.root);
+        while (!stack.isEmpty()) {
+            final Node node = stack.pop();
+            if (node.children == null) {
+                consumer.accept(node.item);
+            } else {
+                for (Node child : node.children) {
+                    if (child.intersects(minX, minY, maxX, maxY)) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean intersects(Path2D.Double tile, double[] tileSegments,
+                                      Path2D.Double aoi, double[] aoiSegments) {
+        // segments are stored as (x1, y1, x2, y2), hence every 4th pair of values is a vertex
+        for (int i = 0; i < aoiSegments.length; i += 4) {
+            if (tile.contains(aoiSegments[i], aoiSegments[i + 1])) {
+                return true;
+            }
+        }
+        for (int i = 0; i < tileSegments.length; i += 4) {
+            if (aoi.contains(tileSegments[i], tileSegments[i + 1])) {
+                return true;
+            }
+        }
+        if (isPoint(aoiSegments)) {
+            return false;
+        }
+        for (int i = 0; i < tileSegments.length; i += 4) {
+            for (int j = 0; j < aoiSegments.length; j += 4) {
+                if (Line2D.linesIntersect(tileSegments[i], tileSegments[i + 1], tileSegments[i + 2], tileSegments[i + 3],
+                                          aoiSegments[j], aoiSegments[j + 1], aoiSegments[j + 2], aoiSegments[j + 3])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPoint(double[] segments) {
+        return segments.length == 4 && segments[0] == segments[2] && segments[1] == segments[3];
+    }
+
+    /**
+     * Extracts the edges of the (possibly not explicitly closed) rings of a path.
+     */
+    private static double[] segments(Path2D.Double path) {
+        final List<double[]> list = new ArrayList<>();
+        final PathIterator iterator = path.getPathIterator(null);
+        final double[] coords = new double[6];
+        double startX = 0, startY = 0, lastX = 0, lastY = 0;
+        boolean open = false;
+        while (!iterator.isDone()) {
+            final int type = iterator.currentSegment(coords);
+            if (type == PathIterator.SEG_MOVETO) {
+                if (open) {
+                    list.add(new double[] { lastX, lastY, startX, startY });
+                }
+                startX = lastX = coords[0];
+                startY = lastY = coords[1];
+                open = true;
+            } else if (type == PathIterator.SEG_CLOSE) {
+                if (open) {
+                    list.add(new double[] { lastX, lastY, startX, startY });
+                }
+                lastX = startX;
+                lastY = startY;
+                open = false;
+            } else {
+                // tile footprints are made of straight lines, curves are approximated by their end points
+                final int last = type == PathIterator.SEG_QUADTO ? 2 : type == PathIterator.SEG_CUBICTO ? 4 : 0;
+                list.add(new double[] { lastX, lastY, coords[last], coords[last + 1] });
+                lastX = coords[last];
+                lastY = coords[last + 1];
+            }
+            iterator.next();
+        }
+        if (open) {
+            list.add(new double[] { lastX, lastY, startX, startY });
+        }
+        // zero-length edges (repeated points) would be reported as crossing any collinear edge, but a path reduced
+        // to a single point keeps one, so that the point is still tested
+        final double[] first = list.isEmpty() ? null : list.get(0);
+        list.removeIf(s -> s[0] == s[2] && s[1] == s[3]);
+        if (list.isEmpty() && first != null) {
+            list.add(first);
+        }
+        final double[] segments = new double[list.size() * 4];
+        for (int i = 0; i < list.size(); i++) {
+            System.arraycopy(list.get(i), 0, segments, i * 4, 4);
+        }
+        return segments;
+    }
+
+    /**
+     * Builds the tree bottom-up: at each level, the nodes are sorted by the x of their center, split in vertical
+     * slices, then each slice is sorted by the y of their center and split in groups that become the parent nodes.
+     */
+    private static Node pack(List<Node> nodes) {
+        List<Node> level = nodes;
+        while (level.size() > NODE_CAPACITY) {
+            final int count = level.size();
+            final int parentCount = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            final int sliceSize = (int) Math.ceil(Math.sqrt(parentCount)) * NODE_CAPACITY;
+            level.sort(Comparator.comparingDouble(n -> n.minX + n.maxX));
+            final List<Node> parents = new ArrayList<>(parentCount);
+            for (int i = 0; i < count; i += sliceSize) {
+                final List<Node> slice = level.subList(i, Math.min(i + sliceSize, count));
+                slice.sort(Comparator.comparingDouble(n -> n.minY + n.maxY));
+                for (int j = 0; j < slice.size(); j += NODE_CAPACITY) {
+                    parents.add(new Node(slice.subList(j, Math.min(j + NODE_CAPACITY, slice.size()))));
+                }
+            }
+            level = parents;
+        }
+        return new Node(level);
+    }
+
+    private static final class Node {
+        private final double minX, minY, maxX, maxY;
+        private final Node[] children;
+        private final int item;
+
+        private Node(int item, Rectangle2D bounds) {
+            this.minX = bounds.getMinX();
+            this.minY = bounds.getMinY();
+            this.maxX = bounds.getMaxX();
+            this.maxY = bounds.getMaxY();
+            this.children = null;
+            this.item = item;
+        }
+
+        private Node(List<Node> children) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                minX = Math.min(minX, child.minX);
+                minY = Math.min(minY, child.minY);
+                maxX = Math.max(maxX, child.maxX);
+                maxY = Math.max(maxY, child.maxY);
+            }
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.children = children.toArray(new Node[0]);
+            this.item = -1;
+        }
+
+        private boolean intersects(double minX, double minY, double maxX, double maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+    }
+}
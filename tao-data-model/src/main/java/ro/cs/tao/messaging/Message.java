@@ -37,6 +37,7 @@ public class Message extends LongIdentifiable {
     public static final String SOURCE_KEY = "Source";
     public static final String TOPIC_KEY = "Topic";
     public static final String MESSAGE_KEY = "Message";
+    public static final String JOB_KEY = "Job";
     private static Serializer<Message, String> serializer;
     private static MapAdapter mapAdapter;
     private long timestamp;
@@ -11,5 +11,15 @@ public interface MessageProvider extends EntityProvider<Message, Long> {
     Message get(String userId, long timestamp);
     void acknowledge(List<Long> messageIds, String userId);
     void clear(String userId);
+    /**
+     * Saves several messages at once. Implementations should save them in a single transaction.
+     *
+     * @param messages  The messages to be saved
+     */
+    default void saveAll(List<Message> messages) throws PersistenceException {
+        for (Message message : messages) {
+            save(message);
+        }
+    }
 
 }
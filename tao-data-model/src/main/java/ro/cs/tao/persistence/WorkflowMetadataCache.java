@@ -0,0 +1,260 @@
+package ro.cs.tao.persistence;
+
+import ro.cs.tao.component.TaoComponent;
+import ro.cs.tao.docker.Container;
+import ro.cs.tao.workflow.WorkflowDescriptor;
+import ro.cs.tao.workflow.WorkflowNodeDescriptor;
+import ro.cs.tao.workflow.enums.ComponentType;
+import ro.cs.tao.workflow.enums.TransitionBehavior;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the workflow metadata needed while jobs are executed: workflow nodes (with their links),
+ * the components and containers they refer, and the terminal flag and transition behavior of each node.
+ * This metadata doesn't change while a job runs, hence only the first lookup goes to the database.
+ * The entries of a workflow are discarded when the workflow or any of its nodes is changed, and the entry
+ * of a component or container when that component or container is changed (see the persistence managers, which
+ * invalidate the entries both when the change is made and after the transaction making it is committed).
+ * The loaders are supplied by the callers, and <code>null</code> results are not cached.
+ *
+ * @since   1.5.2
+ */
+public final class WorkflowMetadataCache {
+    private static final int MAX_ENTRIES = 20000;
+    private static final WorkflowMetadataCache instance = new WorkflowMetadataCache();
+
+    private final Map<Long, WorkflowNodeDescriptor> nodes;
+    // node id -> workflow id, to find the nodes of a changed workflow
+    private final Map<Long, Long> nodeWorkflows;
+    private final Map<Long, Boolean> terminalNodes;
+    private final Map<Long, TransitionBehavior> behaviors;
+    private final Map<String, TaoComponent> components;
+    private final Map<String, Container> containers;
+    // incremented on every invalidation, so that a value loaded before an invalidation is not cached
+    private final AtomicLong generation;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder invalidations;
+
+    public static WorkflowMetadataCache getInstance() { return instance; }
+
+    private WorkflowMetadataCache() {
+        this.nodes = new ConcurrentHashMap<>();
+        this.nodeWorkflows = new ConcurrentHashMap<>();
+        this.terminalNodes = new ConcurrentHashMap<>();
+        this.behaviors = new ConcurrentHashMap<>();
+        this.components = new ConcurrentHashMap<>();
+        this.containers = new ConcurrentHashMap<>();
+        this.generation = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.invalidations = new LongAdder();
+    }
+
+    /**
+     * Returns the workflow node with the given identifier.
+     * @param nodeId    The node identifier
+     * @param loader    The function that retrieves the node from the database
+     */
+    public WorkflowNodeDescriptor getNode(Long nodeId, Function<Long, WorkflowNodeDescriptor> loader) {
+        if (nodeId == null) {
+            return null;
+        }
+        WorkflowNodeDescriptor node = this.nodes.get(nodeId);
+        if (node != null) {
+            this.hits.increment();
+            return node;
+        }
+        this.misses.increment();
+        final long current = this.generation.get();
+        node = loader.apply(nodeId);
+        if (node != null) {
+            final WorkflowDescriptor workflow = node.getWorkflow();
+            if (workflow != null && workflow.getId() != null) {
+                this.nodeWorkflows.put(nodeId, workflow.getId());
+            }
+            put(this.nodes, nodeId, node, current);
+        }
+        return node;
+    }
+
+    /**
+     * Returns <code>true</code> if the given node has no successor in its workflow.
+     * @param nodeId    The node identifier
+     * @param loader    The function that determines if the node is terminal
+     */
+    public boolean isTerminalNode(Long nodeId, Supplier<Boolean> loader) {
+        final Boolean value = get(this.terminalNodes, nodeId, k -> loader.get());
+        return value != null && value;
+    }
+
+    /**
+     * Returns the transition behavior of the given node.
+     * @param nodeId    The node identifier
+     * @param loader    The function that retrieves the behavior of the node
+     */
+    public TransitionBehavior getTransitionBehavior(Long nodeId, Supplier<TransitionBehavior> loader) {
+        return get(this.behaviors, nodeId, k -> loader.get());
+    }
+
+    /**
+     * Returns the component of the given type and identifier.
+     * @param type  The component type
+     * @param id    The component identifier
+     * @param loader    The function that retrieves the component from the database
+     */
+    @SuppressWarnings("unchecked")
+    public <C extends TaoComponent> C getComponent(ComponentType type, String id, Function<String, C> loader) {
+        if (id == null) {
+            return null;
+        }
+        return (C) get(this.components, type.name() + ":" + id, k -> loader.apply(id));
+    }
+
+    /**
+     * Returns the container with the given identifier.
+     * @param id        The container identifier
+     * @param loader    The function that retrieves the container from the database
+     */
+    public Container getContainer(String id, Function<String, Container> loader) {
+        return id != null ? get(this.containers, id, k -> loader.apply(id)) : null;
+    }
+
+    /**
+     * Discards the cached nodes of a workflow. Since the terminal flags of the nodes depend on the links of
+     * other nodes, and the nodes of a workflow are not always known, all of them are discarded as well.
+     * @param workflowId    The workflow identifier
+     */
+    public void invalidateWorkflow(Long workflowId) {
+        if (workflowId == null) {
+            return;
+        }
+        this.generation.incrementAndGet();
+        this.invalidations.increment();
+        this.nodeWorkflows.entrySet().removeIf(e -> {
+            if (workflowId.equals(e.getValue())) {
+                this.nodes.remove(e.getKey());
+                return true;
+            }
+            return false;
+        });
+        // nodes loaded without their workflow cannot be attributed
+        this.nodes.keySet().removeIf(k -> !this.nodeWorkflows.containsKey(k));
+        this.terminalNodes.clear();
+        this.behaviors.clear();
+    }
+
+    /**
+     * Discards the cached entries of the workflow to which the given node belongs.
+     * @param nodeId    The node identifier
+     */
+    public void invalidateNode(Long nodeId) {
+        if (nodeId == null) {
+            return;
+        }
+        final Long workflowId = this.nodeWorkflows.get(nodeId);
+        if (workflowId != null) {
+            invalidateWorkflow(workflowId);
+        } else {
+            this.generation.incrementAndGet();
+            this.invalidations.increment();
+            this.nodes.remove(nodeId);
+            this.terminalNodes.clear();
+            this.behaviors.clear();
+        }
+    }
+
+    /**
+     * Discards the cached component(s) with the given identifier, regardless of their type.
+     * @param id    The component identifier
+     */
+    public void invalidateComponent(String id) {
+        if (id == null) {
+            return;
+        }
+        this.generation.incrementAndGet();
+        this.invalidations.increment();
+        for (ComponentType type : ComponentType.values()) {
+            this.components.remove(type.name() + ":" + id);
+        }
+    }
+
+    /**
+     * Discards the cached container with the given identifier.
+     * @param id    The container identifier
+     */
+    public void invalidateContainer(String id) {
+        if (id == null) {
+            return;
+        }
+        this.generation.incrementAndGet();
+        this.invalidations.increment();
+        this.containers.remove(id);
+    }
+
+    /**
+     * Discards all the cached entries.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.invalidations.increment();
+        this.nodes.clear();
+        this.nodeWorkflows.clear();
+        this.terminalNodes.clear();
+        this.behaviors.clear();
+        this.components.clear();
+        this.containers.clear();
+    }
+
+    public int size() {
+        return this.nodes.size() + this.terminalNodes.size() + this.behaviors.size() +
+                this.components.size() + this.containers.size();
+    }
+
+    public long getHitCount() { return this.hits.sum(); }
+
+    public long getMissCount() { return this.misses.sum(); }
+
+    public long getInvalidationCount() { return this.invalidations.sum(); }
+
+    public double getHitRatio() {
+        final long hits = this.hits.sum();
+        final long total = hits + this.misses.sum();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    private <K, V> V get(Map<K, V> map, K key, Function<K, V> loader) {
+        if (key == null) {
+            return null;
+        }
+        V value = map.get(key);
+        if (value != null) {
+            this.hits.increment();
+            return value;
+        }
+        this.misses.increment();
+        // the value is loaded outside any lock: two threads may load the same key, which is harmless
+        final long current = this.generation.get();
+        value = loader.apply(key);
+        if (value != null) {
+            put(map, key, value, current);
+        }
+        return value;
+    }
+
+    private <K, V> void put(Map<K, V> map, K key, V value, long loadedAt) {
+        if (map.size() >= MAX_ENTRIES) {
+            // the executed workflows are usually few, so this only happens after a very long uptime
+            map.clear();
+        }
+        if (this.generation.get() == loadedAt) {
+            map.putIfAbsent(key, value);
+        }
+    }
+}
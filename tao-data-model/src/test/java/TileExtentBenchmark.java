@@ -0,0 +1,119 @@
+import ro.cs.tao.eodata.Polygon2D;
+import ro.cs.tao.eodata.util.TileExtent;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedReader;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the indexed {@link TileExtent#intersectingTiles} queries with a full scan of the tiles, on a grid
+ * comparable in size with the Sentinel-2 MGRS grid (about 59,000 slightly overlapping tiles of roughly 1 degree,
+ * between 80S and 84N), for random rectangular and polygonal areas of interest of various sizes.
+ * The results of the indexed queries are verified against the full scan ones.
+ * Usage: TileExtentBenchmark [queries] [max AOI size in degrees]
+ */
+public class TileExtentBenchmark {
+
+    public static void main(String[] args) {
+        final int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        final double maxSize = args.length > 1 ? Double.parseDouble(args[1]) : 20;
+        final GridExtent grid = new GridExtent();
+        final Random random = new Random(42);
+        final List<Rectangle2D> rectangles = new ArrayList<>(queries);
+        final List<Polygon2D> polygons = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            final double width = random.nextDouble() * maxSize;
+            final double height = random.nextDouble() * maxSize;
+            final double x = -180 + random.nextDouble() * (360 - width);
+            final double y = -80 + random.nextDouble() * (164 - height);
+            rectangles.add(new Rectangle2D.Double(x, y, width, height));
+            // a triangle inscribed in the rectangle
+            final Polygon2D polygon = new Polygon2D();
+            polygon.append(x, y);
+            polygon.append(x + width, y + height * random.nextDouble());
+            polygon.append(x + width * random.nextDouble(), y + height);
+            polygon.append(x, y);
+            polygons.add(polygon);
+        }
+        final long buildStart = System.nanoTime();
+        grid.intersectingTiles(rectangles.get(0));
+        System.out.printf("tiles=%d index build=%.1f ms%n", grid.getCount(), (System.nanoTime() - buildStart) / 1e6);
+
+        long start = System.nanoTime();
+        final List<Set<String>> scanned = new ArrayList<>(queries);
+        for (Rectangle2D aoi : rectangles) {
+            scanned.add(grid.scan(aoi));
+        }
+        final double scanTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        final List<Set<String>> indexed = new ArrayList<>(queries);
+        for (Rectangle2D aoi : rectangles) {
+            indexed.add(grid.intersectingTiles(aoi));
+        }
+        final double indexTime = (System.nanoTime() - start) / 1e6;
+        System.out.printf("rectangle: scan=%.3f ms/query index=%.3f ms/query speed-up=%.1fx results %s%n",
+                          scanTime / queries, indexTime / queries, scanTime / indexTime,
+                          scanned.equals(indexed) ? "match" : "DIFFER");
+
+        start = System.nanoTime();
+        scanned.clear();
+        for (Polygon2D aoi : polygons) {
+            scanned.add(grid.scan(aoi));
+        }
+        final double polygonScanTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        indexed.clear();
+        for (Polygon2D aoi : polygons) {
+            indexed.add(grid.intersectingTiles(aoi));
+        }
+        final double polygonIndexTime = (System.nanoTime() - start) / 1e6;
+        System.out.printf("polygon: scan (Area)=%.3f ms/query index=%.3f ms/query speed-up=%.1fx results %s%n",
+                          polygonScanTime / queries, polygonIndexTime / queries, polygonScanTime / polygonIndexTime,
+                          scanned.equals(indexed) ? "match" : "DIFFER");
+    }
+
+    private static class GridExtent extends TileExtent {
+
+        GridExtent() {
+            int code = 0;
+            for (int lat = -80; lat < 84; lat++) {
+                for (int lon = -180; lon < 180; lon++) {
+                    // MGRS tiles overlap their neighbours by about 10 km
+                    final Path2D.Double tile = new Path2D.Double();
+                    tile.moveTo(lon - 0.05, lat - 0.05);
+                    tile.lineTo(lon + 1.05, lat - 0.05);
+                    tile.lineTo(lon + 1.05, lat + 1.05);
+                    tile.lineTo(lon - 0.05, lat + 1.05);
+                    tile.lineTo(lon - 0.05, lat - 0.05);
+                    tiles.put(String.format("%05d", code++), tile);
+                }
+            }
+        }
+
+        @Override
+        public void fromKml(BufferedReader bufferedReader) {
+        }
+
+        @Override
+        protected int tileCodeSize() {
+            return 5;
+        }
+
+        Set<String> scan(Rectangle2D aoi) {
+            return tiles.entrySet().stream().filter(e -> e.getValue().intersects(aoi))
+                        .map(Map.Entry::getKey).collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        Set<String> scan(Polygon2D aoi) {
+            final Area area = new Area(aoi.toPath2D());
+            return tiles.entrySet().stream().filter(e -> {
+                final Area tile = new Area(e.getValue());
+                tile.intersect(area);
+                return !tile.isEmpty();
+            }).map(Map.Entry::getKey).collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+}
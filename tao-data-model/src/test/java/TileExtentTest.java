@@ -0,0 +1,157 @@
+import org.junit.Test;
+import ro.cs.tao.eodata.Polygon2D;
+import ro.cs.tao.eodata.util.TileExtent;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedReader;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileExtentTest {
+
+    @Test
+    public void testRectangleQueries() {
+        final GridExtent grid = new GridExtent();
+        final Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            final Rectangle2D aoi = randomRectangle(random);
+            assertEquals(aoi.toString(), grid.scan(aoi), grid.intersectingTiles(aoi));
+        }
+        // an area outside the grid
+        assertTrue(grid.intersectingTiles(new Rectangle2D.Double(100, 60, 5, 5)).isEmpty());
+    }
+
+    @Test
+    public void testPolygonQueries() {
+        final GridExtent grid = new GridExtent();
+        final Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            final Rectangle2D bounds = randomRectangle(random);
+            // a triangle inscribed in the rectangle
+            final Polygon2D aoi = new Polygon2D();
+            aoi.append(bounds.getMinX(), bounds.getMinY());
+            aoi.append(bounds.getMaxX(), bounds.getMinY() + bounds.getHeight() * random.nextDouble());
+            aoi.append(bounds.getMinX() + bounds.getWidth() * random.nextDouble(), bounds.getMaxY());
+            aoi.append(bounds.getMinX(), bounds.getMinY());
+            assertEquals(grid.scan(aoi), grid.intersectingTiles(aoi));
+        }
+    }
+
+    @Test
+    public void testIndexIsDiscardedOnChange() {
+        final GridExtent grid = new GridExtent();
+        final Rectangle2D aoi = new Rectangle2D.Double(0.2, 0.2, 0.5, 0.5);
+        final String code = grid.code(0, 0);
+        assertTrue(grid.intersectingTiles(aoi).contains(code));
+        final Path2D.Double footprint = grid.tiles().get(code);
+        // removal through the entry set iterator
+        final Iterator<Map.Entry<String, Path2D.Double>> iterator = grid.tiles().entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey().equals(code)) {
+                iterator.remove();
+            }
+        }
+        assertFalse(grid.intersectingTiles(aoi).contains(code));
+        grid.tiles().put(code, footprint);
+        assertTrue(grid.intersectingTiles(aoi).contains(code));
+        // removal through the key set and the values
+        grid.tiles().keySet().remove(code);
+        assertFalse(grid.intersectingTiles(aoi).contains(code));
+        grid.tiles().putIfAbsent(code, footprint);
+        assertTrue(grid.intersectingTiles(aoi).contains(code));
+        grid.tiles().values().removeIf(p -> p == footprint);
+        assertFalse(grid.intersectingTiles(aoi).contains(code));
+        // compute and merge
+        grid.tiles().compute(code, (k, v) -> footprint);
+        assertTrue(grid.intersectingTiles(aoi).contains(code));
+        grid.tiles().computeIfPresent(code, (k, v) -> null);
+        assertFalse(grid.intersectingTiles(aoi).contains(code));
+        grid.tiles().merge(code, footprint, (v1, v2) -> v2);
+        assertTrue(grid.intersectingTiles(aoi).contains(code));
+        // replacing the footprint through an entry
+        final Path2D.Double moved = GridExtent.tile(50, 50);
+        for (Map.Entry<String, Path2D.Double> entry : grid.tiles().entrySet()) {
+            if (entry.getKey().equals(code)) {
+                entry.setValue(moved);
+            }
+        }
+        assertFalse(grid.intersectingTiles(aoi).contains(code));
+        assertEquals(moved, grid.getTileExtent(code));
+        grid.tiles().replaceAll((k, v) -> k.equals(code) ? footprint : v);
+        assertTrue(grid.intersectingTiles(aoi).contains(code));
+        // all the changes were reflected by the index
+        final Rectangle2D all = new Rectangle2D.Double(-40, -30, 80, 60);
+        assertEquals(grid.scan(all), grid.intersectingTiles(all));
+    }
+
+    private static Rectangle2D randomRectangle(Random random) {
+        final double width = random.nextDouble() * 10;
+        final double height = random.nextDouble() * 10;
+        final double x = -35 + random.nextDouble() * (70 - width);
+        final double y = -25 + random.nextDouble() * (50 - height);
+        return new Rectangle2D.Double(x, y, width, height);
+    }
+
+    private static class GridExtent extends TileExtent {
+
+        GridExtent() {
+            for (int lat = -20; lat < 20; lat++) {
+                for (int lon = -30; lon < 30; lon++) {
+                    tiles.put(code(lon, lat), tile(lon, lat));
+                }
+            }
+        }
+
+        static Path2D.Double tile(int lon, int lat) {
+            // the tiles overlap their neighbours, as the MGRS tiles do
+            final Path2D.Double tile = new Path2D.Double();
+            tile.moveTo(lon - 0.05, lat - 0.05);
+            tile.lineTo(lon + 1.05, lat - 0.05);
+            tile.lineTo(lon + 1.05, lat + 1.05);
+            tile.lineTo(lon - 0.05, lat + 1.05);
+            tile.lineTo(lon - 0.05, lat - 0.05);
+            return tile;
+        }
+
+        String code(int lon, int lat) {
+            return String.format("%03d%03d", lon + 100, lat + 100);
+        }
+
+        Map<String, Path2D.Double> tiles() {
+            return tiles;
+        }
+
+        @Override
+        public void fromKml(BufferedReader bufferedReader) {
+        }
+
+        @Override
+        protected int tileCodeSize() {
+            return 6;
+        }
+
+        Set<String> scan(Rectangle2D aoi) {
+            return tiles.entrySet().stream().filter(e -> e.getValue().intersects(aoi))
+                        .map(Map.Entry::getKey).collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        Set<String> scan(Polygon2D aoi) {
+            final Area area = new Area(aoi.toPath2D());
+            return tiles.entrySet().stream().filter(e -> {
+                final Area tile = new Area(e.getValue());
+                tile.intersect(area);
+                return !tile.isEmpty();
+            }).map(Map.Entry::getKey).collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+}
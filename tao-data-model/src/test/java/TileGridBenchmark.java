@@ -0,0 +1,95 @@
+import ro.cs.tao.eodata.util.TileExtent;
+
+import java.awt.geom.Path2D;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the loading time and the retained heap of a tile grid read from the legacy binary format
+ * ({@link TileExtent#read(InputStream)}) and from the memory-mapped grid format ({@link TileExtent#readGrid(Path)}),
+ * for a grid comparable in size with the Sentinel-2 MGRS grid.
+ * Usage: TileGridBenchmark [iterations]
+ */
+public class TileGridBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final Path legacyFile = Files.createTempFile("tiles", ".bin");
+        final Path gridFile = Files.createTempFile("tiles", ".grid");
+        try {
+            final GridExtent source = new GridExtent();
+            source.generate();
+            source.write(legacyFile);
+            source.writeGrid(gridFile);
+            System.out.printf("tiles=%d legacy file=%d bytes grid file=%d bytes%n",
+                              source.getCount(), Files.size(legacyFile), Files.size(gridFile));
+            GridExtent legacy = null;
+            GridExtent grid = null;
+            for (int i = 0; i < iterations; i++) {
+                // release the previous iteration instances before measuring
+                legacy = null;
+                grid = null;
+                long heap = usedHeap();
+                long start = System.nanoTime();
+                legacy = new GridExtent();
+                try (InputStream stream = Files.newInputStream(legacyFile)) {
+                    legacy.read(stream);
+                }
+                final double legacyTime = (System.nanoTime() - start) / 1e6;
+                final long legacyHeap = usedHeap() - heap;
+                heap = usedHeap();
+                start = System.nanoTime();
+                grid = new GridExtent();
+                grid.readGrid(gridFile);
+                final double gridTime = (System.nanoTime() - start) / 1e6;
+                final long gridHeap = usedHeap() - heap;
+                System.out.printf("legacy: %.1f ms, %.1f MB   grid: %.1f ms, %.1f MB%n",
+                                  legacyTime, legacyHeap / 1048576.0, gridTime, gridHeap / 1048576.0);
+            }
+            final String tile = source.getTileNames().get(source.getCount() / 2);
+            System.out.printf("tiles read: legacy=%d grid=%d, tile %s bounds equal: %s%n", legacy.getCount(), grid.getCount(),
+                              tile, legacy.getTileExtent(tile).getBounds2D().equals(grid.getTileExtent(tile).getBounds2D()));
+        } finally {
+            Files.deleteIfExists(legacyFile);
+            Files.deleteIfExists(gridFile);
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class GridExtent extends TileExtent {
+
+        void generate() {
+            int code = 0;
+            for (int lat = -80; lat < 84; lat++) {
+                for (int lon = -180; lon < 180; lon++) {
+                    final Path2D.Double tile = new Path2D.Double();
+                    tile.moveTo(lon - 0.05, lat - 0.05);
+                    tile.lineTo(lon + 1.05, lat - 0.05);
+                    tile.lineTo(lon + 1.05, lat + 1.05);
+                    tile.lineTo(lon - 0.05, lat + 1.05);
+                    tile.lineTo(lon - 0.05, lat - 0.05);
+                    tiles.put(String.format("%05d", code++), tile);
+                }
+            }
+        }
+
+        @Override
+        public void fromKml(BufferedReader bufferedReader) {
+        }
+
+        @Override
+        protected int tileCodeSize() {
+            return 5;
+        }
+    }
+}
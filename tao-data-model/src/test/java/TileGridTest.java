@@ -0,0 +1,127 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.cs.tao.eodata.util.TileExtent;
+import ro.cs.tao.eodata.util.TileGrid;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TileGridTest {
+    private Path legacyFile;
+    private Path gridFile;
+
+    @Before
+    public void setUp() throws IOException {
+        legacyFile = Files.createTempFile("tiles", ".bin");
+        gridFile = Files.createTempFile("tiles", ".grid");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(legacyFile);
+        Files.deleteIfExists(gridFile);
+    }
+
+    @Test
+    public void testGridMatchesLegacyFormat() throws IOException {
+        final GridExtent source = new GridExtent();
+        source.generate();
+        source.write(legacyFile);
+        source.writeGrid(gridFile);
+        final GridExtent legacy = new GridExtent();
+        try (InputStream stream = Files.newInputStream(legacyFile)) {
+            legacy.read(stream);
+        }
+        final GridExtent grid = new GridExtent();
+        grid.readGrid(gridFile);
+        assertEquals(source.getCount(), grid.getCount());
+        assertEquals(legacy.getTileNames(), grid.getTileNames());
+        for (String tile : source.getTileNames()) {
+            assertEquals(tile, legacy.getTileExtent(tile).getBounds2D(), grid.getTileExtent(tile).getBounds2D());
+        }
+        final Rectangle2D aoi = new Rectangle2D.Double(-3.5, 2.2, 7.1, 4.4);
+        assertEquals(legacy.intersectingTiles(aoi), grid.intersectingTiles(aoi));
+    }
+
+    @Test
+    public void testGridAccess() throws IOException {
+        final GridExtent source = new GridExtent();
+        source.generate();
+        source.writeGrid(gridFile);
+        final TileGrid grid = TileGrid.open(gridFile);
+        assertEquals(source.getCount(), grid.size());
+        for (int i = 0; i < grid.size(); i++) {
+            final String code = grid.getCode(i);
+            assertEquals(i, grid.indexOf(code));
+            assertEquals(source.getTileExtent(code).getBounds2D(), grid.getBounds(i));
+            assertEquals(source.getTileExtent(code).getBounds2D(), grid.getFootprint(i).getBounds2D());
+        }
+        assertTrue(grid.indexOf("99999") < 0);
+    }
+
+    @Test
+    public void testKmlFileCache() throws IOException {
+        final Path kmlFile = Files.createTempFile("tiles", ".kml");
+        final Path cacheFile = TileExtent.gridFile(kmlFile);
+        try {
+            final GridExtent first = new GridExtent();
+            first.fromKmlFile(kmlFile.toString());
+            assertEquals(1, first.parsed);
+            assertTrue(Files.exists(cacheFile));
+            // the next load maps the cached grid
+            final GridExtent second = new GridExtent();
+            second.fromKmlFile(kmlFile.toString());
+            assertEquals(0, second.parsed);
+            assertEquals(first.getTileNames(), second.getTileNames());
+            // an invalid cache is replaced
+            Files.write(cacheFile, new byte[] { 1, 2, 3 });
+            final GridExtent third = new GridExtent();
+            third.fromKmlFile(kmlFile.toString());
+            assertEquals(1, third.parsed);
+            assertEquals(first.getTileNames(), third.getTileNames());
+            assertEquals(first.getCount(), TileGrid.open(cacheFile).size());
+        } finally {
+            Files.deleteIfExists(cacheFile);
+            Files.deleteIfExists(kmlFile);
+        }
+    }
+
+    private static class GridExtent extends TileExtent {
+        private int parsed;
+
+        void generate() {
+            int code = 0;
+            for (int lat = -10; lat < 10; lat++) {
+                for (int lon = -20; lon < 20; lon++) {
+                    final Path2D.Double tile = new Path2D.Double();
+                    tile.moveTo(lon - 0.05, lat - 0.05);
+                    tile.lineTo(lon + 1.05, lat - 0.05);
+                    tile.lineTo(lon + 1.05, lat + 1.05);
+                    tile.lineTo(lon - 0.05, lat + 1.05);
+                    tile.lineTo(lon - 0.05, lat - 0.05);
+                    tiles.put(String.format("%05d", code++), tile);
+                }
+            }
+        }
+
+        @Override
+        public void fromKml(BufferedReader bufferedReader) {
+            parsed++;
+            generate();
+        }
+
+        @Override
+        protected int tileCodeSize() {
+            return 5;
+        }
+    }
+}
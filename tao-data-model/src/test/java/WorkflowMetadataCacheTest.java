@@ -0,0 +1,100 @@
+import org.junit.Before;
+import org.junit.Test;
+import ro.cs.tao.docker.Container;
+import ro.cs.tao.persistence.WorkflowMetadataCache;
+import ro.cs.tao.workflow.WorkflowDescriptor;
+import ro.cs.tao.workflow.WorkflowNodeDescriptor;
+import ro.cs.tao.workflow.enums.TransitionBehavior;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WorkflowMetadataCacheTest {
+    private WorkflowMetadataCache cache;
+
+    @Before
+    public void setUp() {
+        cache = WorkflowMetadataCache.getInstance();
+        cache.clear();
+    }
+
+    @Test
+    public void testReadThrough() {
+        final WorkflowNodeDescriptor node = node(1L, 10L);
+        final AtomicInteger loads = new AtomicInteger();
+        assertSame(node, cache.getNode(1L, id -> { loads.incrementAndGet(); return node; }));
+        assertSame(node, cache.getNode(1L, id -> { loads.incrementAndGet(); return node; }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testValueLoadedDuringInvalidationIsNotCached() {
+        final WorkflowNodeDescriptor node = node(1L, 10L);
+        final AtomicInteger loads = new AtomicInteger();
+        // the workflow is changed while the node is being loaded, hence the loaded node may be stale
+        assertSame(node, cache.getNode(1L, id -> {
+            loads.incrementAndGet();
+            cache.invalidateWorkflow(10L);
+            return node;
+        }));
+        assertSame(node, cache.getNode(1L, id -> { loads.incrementAndGet(); return node; }));
+        assertEquals(2, loads.get());
+        // the same for the other entries
+        final Container container = new Container();
+        cache.getContainer("c1", id -> { cache.invalidateContainer("other"); return container; });
+        final AtomicInteger containerLoads = new AtomicInteger();
+        cache.getContainer("c1", id -> { containerLoads.incrementAndGet(); return container; });
+        assertEquals(1, containerLoads.get());
+    }
+
+    @Test
+    public void testInvalidateNodeDiscardsWorkflow() {
+        final WorkflowNodeDescriptor node1 = node(1L, 10L);
+        final WorkflowNodeDescriptor node2 = node(2L, 10L);
+        final WorkflowNodeDescriptor other = node(3L, 20L);
+        cache.getNode(1L, id -> node1);
+        cache.getNode(2L, id -> node2);
+        cache.getNode(3L, id -> other);
+        cache.isTerminalNode(3L, () -> true);
+        cache.getTransitionBehavior(3L, () -> TransitionBehavior.FAIL_ON_ERROR);
+        cache.invalidateNode(1L);
+        final AtomicInteger loads = new AtomicInteger();
+        // all the nodes of the workflow are discarded, since changing a node may change the links of the others
+        cache.getNode(2L, id -> { loads.incrementAndGet(); return node2; });
+        assertEquals(1, loads.get());
+        // the nodes of other workflows are kept, but not the terminal flags and behaviors
+        cache.getNode(3L, id -> { loads.incrementAndGet(); return other; });
+        assertEquals(1, loads.get());
+        assertTrue(cache.isTerminalNode(3L, () -> { loads.incrementAndGet(); return true; }));
+        cache.getTransitionBehavior(3L, () -> { loads.incrementAndGet(); return TransitionBehavior.FAIL_ON_ERROR; });
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testNullIsNotCached() {
+        final AtomicInteger loads = new AtomicInteger();
+        assertNull(cache.getNode(1L, id -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.getNode(1L, id -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.getContainer("c1", id -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.getContainer("c1", id -> { loads.incrementAndGet(); return null; }));
+        assertEquals(4, loads.get());
+        assertEquals(0, cache.size());
+        // the node is cached once it exists
+        final WorkflowNodeDescriptor node = node(1L, 10L);
+        assertSame(node, cache.getNode(1L, id -> node));
+        assertSame(node, cache.getNode(1L, id -> null));
+    }
+
+    private static WorkflowNodeDescriptor node(Long id, Long workflowId) {
+        final WorkflowDescriptor workflow = new WorkflowDescriptor();
+        workflow.setId(workflowId);
+        final WorkflowNodeDescriptor node = new WorkflowNodeDescriptor();
+        node.setId(id);
+        node.setWorkflow(workflow);
+        return node;
+    }
+}
@@ -159,6 +159,8 @@ public class SimpleArchiveDownloadStrategy extends DownloadStrategy {
                                 productFile = archivePath;
                             }
                             if (productFile != null) {
+                                // keeps the size of the download folder up to date for the next checks
+                                FolderSizeTracker.getInstance().update(productFile);
                                 try {
                                     product.setLocation(productFile.toUri().toString());
                                 } catch (URISyntaxException e) {
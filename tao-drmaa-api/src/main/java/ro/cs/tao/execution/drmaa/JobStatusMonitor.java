@@ -0,0 +1,31 @@
+package ro.cs.tao.execution.drmaa;
+
+import org.ggf.drmaa.DrmaaException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Extension interface for {@link org.ggf.drmaa.Session}.
+ * Defines methods for querying the status of several jobs in a single DRM call and, optionally, for being notified
+ * when the status of a job changes, so that callers do not have to poll the jobs one by one.
+ *
+ * @since 1.5.2
+ */
+public interface JobStatusMonitor {
+    /**
+     * Returns the program status (as defined by {@link org.ggf.drmaa.Session#getJobProgramStatus(String)})
+     * of the given jobs. Jobs for which the status could not be determined are not included in the result.
+     *
+     * @param jobIds    The job identifiers
+     */
+    Map<String, Integer> getJobProgramStatus(Collection<String> jobIds) throws DrmaaException;
+    /**
+     * Registers a listener to be invoked (with the job identifier) when the status of a job changes.
+     * Sessions that cannot detect status changes by themselves will ignore the listener.
+     *
+     * @param listener  The listener
+     */
+    default void setStatusChangeListener(Consumer<String> listener) { }
+}
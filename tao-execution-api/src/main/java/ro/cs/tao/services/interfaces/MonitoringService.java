@@ -16,6 +16,7 @@
 package ro.cs.tao.services.interfaces;
 
 import ro.cs.tao.execution.monitor.RuntimeInfo;
+import ro.cs.tao.persistence.managers.SimpleCache;
 
 import java.util.List;
 import java.util.Map;
@@ -43,4 +44,11 @@ public interface MonitoringService<T> extends TAOService {
 
     Map<String, Boolean> getNodesOnlineStatus();
 
+    /**
+     * Returns the statistics of the entity caches of the persistence layer, by entity type.
+     */
+    default Map<String, SimpleCache.Statistics> getCacheStatistics() {
+        return SimpleCache.statistics();
+    }
+
 }
@@ -119,7 +119,8 @@ public class ExecutionGroup extends ExecutionTask {
         if (contains(task)) {
             Iterator<ExecutionTask> iterator = this.tasks.iterator();
             while (iterator.hasNext()) {
-                if (iterator.next().getId().equals(task.getId())) {
+                final ExecutionTask current = iterator.next();
+                if (current == task || (task.getId() != null && task.getId().equals(current.getId()))) {
                     iterator.remove();
                     break;
                 }
@@ -167,11 +168,12 @@ public class ExecutionGroup extends ExecutionTask {
     private boolean contains(ExecutionTask task) {
         // TASK ID is NULL until save, so no comparison by ID should be made in this case, because it will allow only adding the first sub-task on the group, the other are seen as duplicates, since all have identical ID null
         if (task != null && task.getId() == null) {
-            return this.tasks != null && this.tasks.contains(task);
+            // ... nor by equals(), which also compares the ids
+            return this.tasks != null && this.tasks.stream().anyMatch(t -> t == task);
         }
 
         if (task != null && task.getId() != null) {
-            return this.tasks != null && this.tasks.stream().anyMatch(t -> t.getId().equals(task.getId()));
+            return this.tasks != null && this.tasks.stream().anyMatch(t -> task.getId().equals(t.getId()));
         }
 
         return false;
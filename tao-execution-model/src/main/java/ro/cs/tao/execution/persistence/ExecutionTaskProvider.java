@@ -5,6 +5,7 @@ import ro.cs.tao.persistence.EntityProvider;
 import ro.cs.tao.persistence.PersistenceException;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ExecutionTaskProvider extends EntityProvider<ExecutionTask, Long> {
 
@@ -22,6 +23,15 @@ public interface ExecutionTaskProvider extends EntityProvider<ExecutionTask, Lon
     ExecutionTask updateStatus(ExecutionTask task, ExecutionStatus newStatus, String reason) throws PersistenceException;
     ExecutionTask save(ExecutionTask task, ExecutionGroup taskGroup) throws PersistenceException;
     ExecutionTask saveWithSubTasks(ExecutionGroup taskGroup, ExecutionJob job) throws PersistenceException;
+    /**
+     * Saves the new tasks of a job at once, updating the job (its tasks and their dependencies) only once.
+     * The job is updated even if there are no new tasks, since its existing tasks may have new dependencies.
+     */
+    List<ExecutionTask> saveAll(List<ExecutionTask> tasks, ExecutionJob job) throws PersistenceException;
+    /**
+     * Returns the identifiers of the parent tasks of each task of a job
+     */
+    Map<Long, List<Long>> getParentIdsByJob(long jobId);
     int getCPUsForUser(String userName);
     int getMemoryForUser(String userName);
     void updateComponentTime(String id, int duration);
@@ -105,8 +105,8 @@ public abstract class Executor<T extends ExecutionTask> extends StringIdentifiab
             // mark the executor as initialized
             isInitialized.set(true);
         }
-        // once the session was created, start the timer
-        executionsCheckTimer.schedule(new ExecutionsCheckTimer(this), 0, pollingInterval);
+        // once the session was created, start monitoring the executions
+        startMonitoring(pollingInterval);
     }
 
     /**
@@ -123,7 +123,7 @@ public abstract class Executor<T extends ExecutionTask> extends StringIdentifiab
                 return;
             isInitialized.set(false);
         }
-        executionsCheckTimer.cancel();
+        stopMonitoring();
     }
 
     /**
@@ -172,6 +172,24 @@ public abstract class Executor<T extends ExecutionTask> extends StringIdentifiab
      */
     public abstract void monitorExecutions() throws ExecutionException;
 
+    /**
+     * Starts the periodic monitoring of the executions.
+     * The default implementation invokes {@link #monitorExecutions()} at a fixed interval.
+     * Inheritors that can detect status changes in a different manner may override this method.
+     *
+     * @param pollingInterval   The polling interval, in milliseconds
+     */
+    protected void startMonitoring(int pollingInterval) {
+        executionsCheckTimer.schedule(new ExecutionsCheckTimer(this), 0, pollingInterval);
+    }
+
+    /**
+     * Stops the monitoring of the executions.
+     */
+    protected void stopMonitoring() {
+        executionsCheckTimer.cancel();
+    }
+
     protected void markTaskFinished(ExecutionTask task, ExecutionStatus status) {
         task.setEndTime(LocalDateTime.now());
         changeTaskStatus(task, status, status.friendlyName());
@@ -269,6 +287,7 @@ public abstract class Executor<T extends ExecutionTask> extends StringIdentifiab
             final Message msg = Message.create(job.getUserId(), task.getId(), message, status.name(), true);
             msg.setTopic(Topic.EXECUTION.value());
             msg.addItem("host", task.getExecutionNodeHostName());
+            msg.addItem(Message.JOB_KEY, String.valueOf(job.getId()));
             Messaging.send(msg);
         }
     }
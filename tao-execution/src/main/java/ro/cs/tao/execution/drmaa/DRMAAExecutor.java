@@ -22,6 +22,7 @@ import ro.cs.tao.component.SourceDescriptor;
 import ro.cs.tao.component.TargetDescriptor;
 import ro.cs.tao.component.Variable;
 import ro.cs.tao.component.enums.ProcessingComponentType;
+import ro.cs.tao.configuration.ConfigurationManager;
 import ro.cs.tao.docker.Application;
 import ro.cs.tao.docker.Container;
 import ro.cs.tao.docker.DockerVolumeMap;
@@ -37,6 +38,7 @@ import ro.cs.tao.execution.monitor.NodeManager;
 import ro.cs.tao.execution.util.TaskUtilities;
 import ro.cs.tao.persistence.ContainerProvider;
 import ro.cs.tao.persistence.PersistenceException;
+import ro.cs.tao.quota.QuotaException;
 import ro.cs.tao.quota.UserQuotaManager;
 import ro.cs.tao.security.UserPrincipal;
 import ro.cs.tao.spi.ServiceRegistryManager;
@@ -60,8 +62,8 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
@@ -76,6 +78,8 @@ import java.util.stream.Collectors;
  * @author Cosmin Udroiu
  */
 public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
+    private static final String MAX_POLLING_INTERVAL_KEY = "tao.drmaa.polling.max.interval";
+    private static final String RESERVATION_RETRY_INTERVAL_KEY = "tao.drmaa.reservation.retry.interval";
     private static String masterHost;
     private static ContainerProvider containerProvider;
     private static DRMAAExecutor instance;
@@ -86,6 +90,9 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
     private final BlockingQueueWorker<Tuple<JobTemplate, ProcessingExecutionTask>> queueWorker;
     private final List<TaskListener> taskListeners;
     private final Map<String, Tuple<NodeDescription, AtomicLong>> hostMemoryRequests;
+    private final NodeReservationScheduler reservationScheduler;
+    private final Runnable capacityListener;
+    private volatile DRMAAStatusTracker statusTracker;
 
     public static void setContainerProvider(ContainerProvider provider) { containerProvider = provider; }
 
@@ -122,7 +129,10 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
             this.taskListeners.addAll(services);
         }
         this.sessions = new HashMap<>();
-        this.hostMemoryRequests = Collections.synchronizedMap(new HashMap<>());
+        this.hostMemoryRequests = new ConcurrentHashMap<>();
+        this.reservationScheduler = new NodeReservationScheduler(this::submitPending,
+                                                                 1000L * Integer.parseInt(ConfigurationManager.getInstance().getValue(RESERVATION_RETRY_INTERVAL_KEY, "15")));
+        this.capacityListener = this.reservationScheduler::wakeUp;
         instance = this;
     }
 
@@ -147,6 +157,12 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
             isInitialized.set(sessions.size() > 0);
             if (isInitialized.get()) {
                 this.queueWorker.start();
+                if (this.reservationScheduler.getState() == Thread.State.NEW) {
+                    this.reservationScheduler.start();
+                }
+                if (NodeManager.isAvailable()) {
+                    NodeManager.getInstance().addCapacityListener(this.capacityListener);
+                }
             }
         }
     }
@@ -154,6 +170,10 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
     @Override
     public void close() throws ExecutionException {
         super.close();
+        if (NodeManager.isAvailable()) {
+            NodeManager.getInstance().removeCapacityListener(this.capacityListener);
+        }
+        this.reservationScheduler.interrupt();
         for (Session session : this.sessions.values()) {
             try {
                 session.exit();
@@ -177,10 +197,9 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
                     sendMessage(task, message);
                 }
             }
-            JobTemplate jt = createJobTemplate(task);
-            changeTaskStatus(task, ExecutionStatus.QUEUED_ACTIVE, true, ExecutionStatus.QUEUED_ACTIVE.friendlyName());
-            this.queue.put(new Tuple<>(jt, task));
-            logger.finest(String.format("Task %s has been added to the wait queue", task.getId()));
+            if (!submit(task)) {
+                logger.finest(String.format("Task %s is waiting for resources", task.getId()));
+            }
         } catch (InterruptedException | DrmaaException | IOException | PersistenceException | TopologyException e) {
             logger.severe(String.format("Error submitting task with id %s: %s", task.getId(), e.getMessage()));
             throw new ExecutionException("Error executing DRMAA session operation", e);
@@ -197,6 +216,10 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
         } catch (DrmaaException e) {
             throw new ExecutionException("Error executing DRMAA session terminate for task with id " + task.getId(), e);
         } finally {
+            this.reservationScheduler.remove(task);
+            if (this.statusTracker != null) {
+                this.statusTracker.untrack(task.getResourceId());
+            }
             markTaskFinished(task, ExecutionStatus.CANCELLED, ExecutionStatus.CANCELLED.friendlyName());
         }
     }
@@ -222,6 +245,9 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
                 session.control(task.getResourceId(), Session.RESUME);
             }
             changeTaskStatus(task, ExecutionStatus.QUEUED_ACTIVE, "Resumed");
+            if (task.getResourceId() != null && this.statusTracker != null) {
+                this.statusTracker.track(task);
+            }
         } catch (DrmaaException e) {
             // maybe we got here because the task came from an interrupted job
             if (e instanceof NoActiveSessionException) {
@@ -234,127 +260,189 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
 
     @Override
     public void monitorExecutions() {
-        if(!isInitialized.get()) {
+        if (!isInitialized.get() || this.statusTracker == null) {
             return;
         }
-        final List<ExecutionTask> tasks = taskProvider.listExecuting(appId);
-        if (tasks != null) {
-            // For each job, get its status from DRMAA
-            for (ExecutionTask task : tasks) {
-                final String taskName = TaskUtilities.getTaskDescriptiveName(task);
-                try {
-                    Session session = getSession(task.getJob().getEnvironment());
-                    int jobStatus = session.getJobProgramStatus(task.getResourceId());
-                    logger.finest("DRMAA session returned " + jobStatus + " for task " + taskName);
-                    final String userId = task.getJob().getUserId();
-                    switch (jobStatus) {
-                        case Session.SYSTEM_ON_HOLD:
-                        case Session.USER_ON_HOLD:
-                        case Session.USER_SYSTEM_ON_HOLD:
-                        case Session.SYSTEM_SUSPENDED:
-                        case Session.USER_SUSPENDED:
-                        case Session.USER_SYSTEM_SUSPENDED:
-                            decrementMemory(task.getExecutionNodeHostName(), task.getUsedRAM());
-                            try {
-                                notifyStatusListener(task, ExecutionStatus.SUSPENDED, ExecutionStatus.SUSPENDED.friendlyName());
-                            } catch (Exception e) {
-                                logger.severe(String.format("Status update for task %s failed. Reason: %s",
-                                                            taskName, e.getMessage()));
-                            }
-                            String out = getJobOutput(task.getResourceId());
-                            task.setLog(out);
-                            if (task instanceof ProcessingExecutionTask) {
-                                notifyExternalListeners((ProcessingExecutionTask) task, ExecutionStatus.SUSPENDED.friendlyName(), -1, out);
-                            }
-                            break;
-                        case Session.UNDETERMINED:
-                        case Session.QUEUED_ACTIVE:
-                            // nothing to do
-                            break;
-                        case Session.RUNNING:
-                            task.setLastUpdated(LocalDateTime.now());
-                            taskProvider.update(task);
-                            if (task.getExecutionStatus() != ExecutionStatus.RUNNING) {
-                                try {
-                                    notifyStatusListener(task, ExecutionStatus.RUNNING, null);
-                                } catch (Exception e) {
-                                    logger.severe(String.format("Status update for task %s failed. Reason: %s",
-                                                                taskName, e.getMessage()));
-                                }
-                            }
-                            sendProgressMessage(task);
-                            UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(userId));
-                            break;
-                        case Session.DONE:
-                            if (!(task instanceof ScriptTask)) {
-                                decrementMemory(task.getExecutionNodeHostName(), task.getUsedRAM());
-                            }
-                            task.setLog(getJobOutput(task.getResourceId()));
-                            // Just mark the task as finished with success status
-                            if (task.getExecutionStatus() == ExecutionStatus.RUNNING) {
-                                // Only a running task can complete
-                                markTaskFinished(task, ExecutionStatus.PENDING_FINALISATION, ExecutionStatus.PENDING_FINALISATION.friendlyName());
-                            }
-                            if (task instanceof ProcessingExecutionTask) {
-                                ProcessingExecutionTask executionTask = (ProcessingExecutionTask) task;
-                                notifyExternalListeners(executionTask, ExecutionStatus.PENDING_FINALISATION.friendlyName(), 0, null);
-                            }
-                            if (masterHost.equals(task.getExecutionNodeHostName()) && !SystemUtils.IS_OS_WINDOWS) {
-                                String taskOutputLocation = task.getInstanceTargetOutput();
-                                if (taskOutputLocation != null) {
-                                    DockerVolumeMap volumeMap = ExecutionConfiguration.getMasterContainerVolumeMap();
-                                    String location = taskOutputLocation;
-                                    if (!location.startsWith(volumeMap.getHostWorkspaceFolder()) &&
-                                        taskOutputLocation.startsWith(volumeMap.getContainerWorkspaceFolder())) {
-                                        location = taskOutputLocation.replace(volumeMap.getContainerWorkspaceFolder(),
-                                                                              volumeMap.getHostWorkspaceFolder());
-                                    }
-                                    FileUtilities.takeOwnership(Paths.get(location).getParent());
-                                }
-                            }
-                            if (session instanceof JobExitHandler) {
-                                final JobExitHandler handler = (JobExitHandler) session;
-                                String resourceId = task.getResourceId();
-                                handler.cleanupJob(resourceId);
-                            }
-                            UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(userId));
-                            break;
-                        case Session.FAILED:
-                            String error;
-                            int code;
-                            decrementMemory(task.getExecutionNodeHostName(), task.getUsedRAM());
-                            if (session instanceof JobExitHandler) {
-                                final JobExitHandler handler = (JobExitHandler) session;
-                                String resourceId = task.getResourceId();
-                                error = handler.getJobOutput(resourceId);
-                                code = handler.getJobExitCode(resourceId);
-                                handler.cleanupJob(resourceId);
-                            } else {
-                                error = "n/a";
-                                code = -255;
-                            }
-                            task.setLog(error);
-                            taskProvider.update(task);
-                            markTaskFinished(task, ExecutionStatus.FAILED, error);
-                            logger.warning(String.format("Task %s FAILED. Process output: %s", taskName, error));
-                            if (task instanceof ProcessingExecutionTask) {
-                                ProcessingExecutionTask executionTask = (ProcessingExecutionTask) task;
-                                notifyExternalListeners(executionTask, ExecutionStatus.FAILED.friendlyName(), code, error);
+        this.statusTracker.check();
+    }
+
+    @Override
+    protected void startMonitoring(int pollingInterval) {
+        final int maxInterval = 1000 * Integer.parseInt(ConfigurationManager.getInstance().getValue(MAX_POLLING_INTERVAL_KEY,
+                                                                                                    String.valueOf(pollingInterval * 6 / 1000)));
+        this.statusTracker = new DRMAAStatusTracker(this, () -> taskProvider.listExecuting(appId), pollingInterval, maxInterval);
+        this.statusTracker.start();
+    }
+
+    @Override
+    protected void stopMonitoring() {
+        if (this.statusTracker != null) {
+            this.statusTracker.interrupt();
+        }
+    }
+
+    /**
+     * Handles the change of the DRM status of a task.
+     *
+     * @param trackedTask   The task, as known when it was submitted
+     * @param session       The session that executes the task
+     * @param jobStatus     The new DRM status
+     */
+    void onJobStatusChanged(ExecutionTask trackedTask, Session session, int jobStatus) {
+        final String taskName = TaskUtilities.getTaskDescriptiveName(trackedTask);
+        logger.finest("DRMAA session returned " + jobStatus + " for task " + taskName);
+        // The task may have been changed since it was submitted, hence use its latest persisted state
+        final ExecutionTask task = taskProvider.get(trackedTask.getId());
+        if (task == null) {
+            logger.warning(String.format("Task %s no longer exists", taskName));
+            return;
+        }
+        try {
+            final String userId = task.getJob().getUserId();
+            switch (jobStatus) {
+                case Session.SYSTEM_ON_HOLD:
+                case Session.USER_ON_HOLD:
+                case Session.USER_SYSTEM_ON_HOLD:
+                case Session.SYSTEM_SUSPENDED:
+                case Session.USER_SUSPENDED:
+                case Session.USER_SYSTEM_SUSPENDED:
+                    decrementMemory(task.getExecutionNodeHostName(), task.getUsedRAM());
+                    try {
+                        notifyStatusListener(task, ExecutionStatus.SUSPENDED, ExecutionStatus.SUSPENDED.friendlyName());
+                    } catch (Exception e) {
+                        logger.severe(String.format("Status update for task %s failed. Reason: %s",
+                                                    taskName, e.getMessage()));
+                    }
+                    String out = getJobOutput(task.getResourceId());
+                    task.setLog(out);
+                    if (task instanceof ProcessingExecutionTask) {
+                        notifyExternalListeners((ProcessingExecutionTask) task, ExecutionStatus.SUSPENDED.friendlyName(), -1, out);
+                    }
+                    break;
+                case Session.UNDETERMINED:
+                case Session.QUEUED_ACTIVE:
+                    // nothing to do
+                    break;
+                case Session.RUNNING:
+                    task.setLastUpdated(LocalDateTime.now());
+                    taskProvider.update(task);
+                    if (task.getExecutionStatus() != ExecutionStatus.RUNNING) {
+                        try {
+                            notifyStatusListener(task, ExecutionStatus.RUNNING, null);
+                        } catch (Exception e) {
+                            logger.severe(String.format("Status update for task %s failed. Reason: %s",
+                                                        taskName, e.getMessage()));
+                        }
+                    }
+                    sendProgressMessage(task);
+                    UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(userId));
+                    break;
+                case Session.DONE:
+                    if (!(task instanceof ScriptTask)) {
+                        decrementMemory(task.getExecutionNodeHostName(), task.getUsedRAM());
+                    }
+                    task.setLog(getJobOutput(task.getResourceId()));
+                    // Just mark the task as finished with success status
+                    if (task.getExecutionStatus() == ExecutionStatus.RUNNING ||
+                        task.getExecutionStatus() == ExecutionStatus.QUEUED_ACTIVE) {
+                        // Only a started task can complete (it may finish between two checks, while still seen as queued)
+                        markTaskFinished(task, ExecutionStatus.PENDING_FINALISATION, ExecutionStatus.PENDING_FINALISATION.friendlyName());
+                    }
+                    if (task instanceof ProcessingExecutionTask) {
+                        ProcessingExecutionTask executionTask = (ProcessingExecutionTask) task;
+                        notifyExternalListeners(executionTask, ExecutionStatus.PENDING_FINALISATION.friendlyName(), 0, null);
+                    }
+                    if (masterHost.equals(task.getExecutionNodeHostName()) && !SystemUtils.IS_OS_WINDOWS) {
+                        String taskOutputLocation = task.getInstanceTargetOutput();
+                        if (taskOutputLocation != null) {
+                            DockerVolumeMap volumeMap = ExecutionConfiguration.getMasterContainerVolumeMap();
+                            String location = taskOutputLocation;
+                            if (!location.startsWith(volumeMap.getHostWorkspaceFolder()) &&
+                                taskOutputLocation.startsWith(volumeMap.getContainerWorkspaceFolder())) {
+                                location = taskOutputLocation.replace(volumeMap.getContainerWorkspaceFolder(),
+                                                                      volumeMap.getHostWorkspaceFolder());
                             }
-                            UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(userId));
-                            break;
+                            FileUtilities.takeOwnership(Paths.get(location).getParent());
+                        }
                     }
-                } catch (Exception  e) {
-                    logger.severe(String.format("%s: Cannot get the status for the task %s [%s]",
-                                                e.getClass().getName(), taskName, e.getMessage()));
-                    markTaskFinished(task, ExecutionStatus.FAILED, e.getMessage());
-                }
+                    if (session instanceof JobExitHandler) {
+                        final JobExitHandler handler = (JobExitHandler) session;
+                        String resourceId = task.getResourceId();
+                        handler.cleanupJob(resourceId);
+                    }
+                    UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(userId));
+                    break;
+                case Session.FAILED:
+                    String error;
+                    int code;
+                    decrementMemory(task.getExecutionNodeHostName(), task.getUsedRAM());
+                    if (session instanceof JobExitHandler) {
+                        final JobExitHandler handler = (JobExitHandler) session;
+                        String resourceId = task.getResourceId();
+                        error = handler.getJobOutput(resourceId);
+                        code = handler.getJobExitCode(resourceId);
+                        handler.cleanupJob(resourceId);
+                    } else {
+                        error = "n/a";
+                        code = -255;
+                    }
+                    task.setLog(error);
+                    taskProvider.update(task);
+                    markTaskFinished(task, ExecutionStatus.FAILED, error);
+                    logger.warning(String.format("Task %s FAILED. Process output: %s", taskName, error));
+                    if (task instanceof ProcessingExecutionTask) {
+                        ProcessingExecutionTask executionTask = (ProcessingExecutionTask) task;
+                        notifyExternalListeners(executionTask, ExecutionStatus.FAILED.friendlyName(), code, error);
+                    }
+                    UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(userId));
+                    break;
             }
-        } else {
-            logger.finest("No tasks are currently executing");
+        } catch (Exception  e) {
+            onJobStatusError(task, e);
         }
     }
 
+    /**
+     * Periodic notification for a task that continues to run.
+     * The last update time of the task is persisted, since it tells that the task (and its node) is still alive.
+     *
+     * @param trackedTask  The running task
+     */
+    void onJobHeartbeat(ExecutionTask trackedTask) {
+        // The task may have been changed since it was submitted, hence use its latest persisted state
+        final ExecutionTask task = taskProvider.get(trackedTask.getId());
+        if (task == null) {
+            logger.warning(String.format("Task %s no longer exists", TaskUtilities.getTaskDescriptiveName(trackedTask)));
+            return;
+        }
+        task.setLastUpdated(LocalDateTime.now());
+        try {
+            taskProvider.update(task);
+        } catch (PersistenceException e) {
+            logger.warning(String.format("Cannot update task %s. Reason: %s",
+                                         TaskUtilities.getTaskDescriptiveName(task), e.getMessage()));
+        }
+        sendProgressMessage(task);
+        try {
+            UserQuotaManager.getInstance().updateUserCPU(new UserPrincipal(task.getJob().getUserId()));
+        } catch (QuotaException e) {
+            logger.warning(String.format("Cannot update the CPU quota of user %s. Reason: %s",
+                                         task.getJob().getUserId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Handles the failure of retrieving the DRM status of a task.
+     *
+     * @param task  The task
+     * @param e     The cause of the failure
+     */
+    void onJobStatusError(ExecutionTask task, Exception e) {
+        logger.severe(String.format("%s: Cannot get the status for the task %s [%s]",
+                                    e.getClass().getName(), TaskUtilities.getTaskDescriptiveName(task), e.getMessage()));
+        markTaskFinished(task, ExecutionStatus.FAILED, e.getMessage());
+    }
+
     @Override
     public String defaultId() { return "DRMAAExecutor"; }
 
@@ -386,14 +474,32 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
         return out;
     }
 
-    private void incrementMemory(NodeDescription node, long amount) {
-        String host = node.getId();
-        if (!this.hostMemoryRequests.containsKey(host)) {
-            this.hostMemoryRequests.put(host, new Tuple<>(node, new AtomicLong(amount)));
-        } else {
-            this.hostMemoryRequests.get(host).getKeyTwo().addAndGet(amount);
+    /**
+     * Adds the given amount to the memory requested on a node, if the node has enough memory for it.
+     * The check and the increment are done atomically.
+     *
+     * @param node      The node
+     * @param amount    The memory to add to the requested memory of the node
+     * @return  <code>true</code> if the memory was reserved
+     */
+    private boolean reserveMemory(NodeDescription node, long amount) {
+        final String host = node.getId();
+        final boolean[] reserved = new boolean[1];
+        final Tuple<NodeDescription, AtomicLong> hostData = this.hostMemoryRequests.compute(host, (h, data) -> {
+            if (data == null) {
+                reserved[0] = true;
+                return new Tuple<>(node, new AtomicLong(amount));
+            }
+            if (canSubmitTask(data, h, amount)) {
+                data.getKeyTwo().addAndGet(amount);
+                reserved[0] = true;
+            }
+            return data;
+        });
+        if (reserved[0]) {
+            logger.fine("Host " + host + " has " + hostData.getKeyTwo().get() + "MB requested memory");
         }
-        logger.fine("Host " + host + " has " + this.hostMemoryRequests.get(host).getKeyTwo().get() + "MB requested memory");
+        return reserved[0];
     }
 
     private void decrementMemory(String host, long amount) {
@@ -402,10 +508,14 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
             tuple.getKeyTwo().getAndAdd(-amount);
             logger.fine("Host " + host + " has " + this.hostMemoryRequests.get(host).getKeyTwo().get() + "MB requested memory");
         }
+        this.reservationScheduler.wakeUp();
     }
 
     private boolean canSubmitTask(String host, long newMemory) {
-        final Tuple<NodeDescription, AtomicLong> hostData = this.hostMemoryRequests.get(host);
+        return canSubmitTask(this.hostMemoryRequests.get(host), host, newMemory);
+    }
+
+    private boolean canSubmitTask(Tuple<NodeDescription, AtomicLong> hostData, String host, long newMemory) {
         final boolean canSubmit;
         if (hostData != null) {
             long installed = hostData.getKeyOne().getFlavor().getMemory() * MemoryUnit.KB.value();
@@ -423,6 +533,65 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
         return canSubmit;
     }
 
+    /**
+     * Selects a node for a task, creates the job template of the task and puts it in the wait queue.
+     *
+     * @param task  The task
+     * @return  <code>false</code> if there were no resources to run the task (in which case the task waits for
+     *          resources to be released)
+     */
+    private boolean submit(ProcessingExecutionTask task) throws InterruptedException, DrmaaException, IOException, PersistenceException {
+        final Container container = containerProvider.get(task.getComponent().getContainerId());
+        final long memory = getMemoryRequirements(container, task.getComponent());
+        NodeData nodeData = null;
+        if (task.getJob().getEnvironment() == Environment.DEFAULT) {
+            nodeData = reserveNode(task, memory);
+            if (nodeData == null) {
+                // Do not hold the calling thread until resources are released, the task will be retried then
+                final Integer parallelism = task.getComponent().getParallelism();
+                this.reservationScheduler.park(task, memory, parallelism != null ? parallelism : 0);
+                return false;
+            }
+        }
+        enqueue(task, container, memory, nodeData);
+        return true;
+    }
+
+    /**
+     * Retries the submission of a task that was waiting for resources.
+     * Only the node selection is retried with the memory computed at the first attempt; the job template is
+     * created (and the task reloaded) only when a node was found.
+     *
+     * @param task      The task
+     * @param memory    The memory required by the task
+     * @return  <code>true</code> if the task no longer waits (it was submitted, failed, or is no longer active)
+     */
+    private boolean submitPending(ProcessingExecutionTask task, long memory) {
+        NodeData nodeData = null;
+        try {
+            if (task.getJob().getEnvironment() == Environment.DEFAULT) {
+                nodeData = reserveNode(task, memory);
+                if (nodeData == null) {
+                    return false;
+                }
+            }
+            final ExecutionTask current = taskProvider.get(task.getId());
+            if (current == null || current.getExecutionStatus() == ExecutionStatus.CANCELLED ||
+                    current.getExecutionStatus() == ExecutionStatus.FAILED) {
+                releaseNode(task, nodeData, memory);
+                return true;
+            }
+            enqueue(task, containerProvider.get(task.getComponent().getContainerId()), memory, nodeData);
+            return true;
+        } catch (Exception e) {
+            final String message = String.format("Error submitting task with id %s: %s", task.getId(), e.getMessage());
+            logger.severe(message);
+            changeTaskStatus(task, ExecutionStatus.FAILED, message);
+            notifyExternalListeners(task, message, -1, null);
+            return true;
+        }
+    }
+
     private Void executeImpl(Tuple<JobTemplate, ProcessingExecutionTask> pair) {
         final JobTemplate jt = pair.getKeyOne();
         final ProcessingExecutionTask task = pair.getKeyTwo();
@@ -453,6 +622,9 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
                                           ? ExecutionStatus.QUEUED_ACTIVE
                                           : ExecutionStatus.RUNNING;
             changeTaskStatus(task, newStatus, newStatus.friendlyName());
+            if (newStatus != ExecutionStatus.DONE && this.statusTracker != null) {
+                this.statusTracker.track(task);
+            }
             notifyExternalListeners(task, null, -1, null);
         } catch (Exception e) {
             final String message = String.format("Error submitting task with id %s: %s", task.getId(), e.getMessage());
@@ -463,7 +635,77 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
         return null;
     }
 
-    private JobTemplate createJobTemplate(ProcessingExecutionTask task) throws DrmaaException, IOException, PersistenceException {
+    /**
+     * Creates the job template of a task for which a node was selected and puts it in the wait queue.
+     */
+    private void enqueue(ProcessingExecutionTask task, Container container, long memory, NodeData nodeData)
+            throws InterruptedException, DrmaaException, IOException, PersistenceException {
+        final JobTemplate jt;
+        try {
+            jt = createJobTemplate(task, container, memory, nodeData);
+        } catch (Exception e) {
+            releaseNode(task, nodeData, memory);
+            throw e;
+        }
+        changeTaskStatus(task, ExecutionStatus.QUEUED_ACTIVE, true, ExecutionStatus.QUEUED_ACTIVE.friendlyName());
+        this.queue.put(new Tuple<>(jt, task));
+        logger.finest(String.format("Task %s has been added to the wait queue", task.getId()));
+    }
+
+    /**
+     * Selects a node with the given memory for a task and reserves that memory on it.
+     *
+     * @param task      The task
+     * @param memory    The memory required by the task
+     * @return  The selected node or <code>null</code> if no node can run the task now
+     */
+    private NodeData reserveNode(ProcessingExecutionTask task, long memory) throws DrmaaException {
+        final NodeData nodeData = ExecutionStrategy.getExecutionStrategy(task).tryGetNode(memory);
+        if (nodeData == null) {
+            return null;
+        }
+        if (nodeData.getNode() == null) {
+            throw new TryLaterException("Cannot obtain an available node [null]");
+        }
+        if (task instanceof ScriptTask
+            ? !canSubmitTask(nodeData.getNode().getId(), memory)
+            : !reserveMemory(nodeData.getNode(), memory)) {
+            // the memory taken from the node when it was selected is given back, since the task is not submitted
+            NodeManager.getInstance().release(nodeData.getNode().getId(), nodeData.getReservedMemory());
+            return null;
+        }
+        return nodeData;
+    }
+
+    /**
+     * Gives back the memory reserved on a node for a task that is not submitted after all.
+     */
+    private void releaseNode(ProcessingExecutionTask task, NodeData nodeData, long memory) {
+        if (nodeData != null) {
+            final String host = nodeData.getNode().getId();
+            NodeManager.getInstance().release(host, nodeData.getReservedMemory());
+            if (!(task instanceof ScriptTask)) {
+                decrementMemory(host, memory);
+            }
+        }
+    }
+
+    private static Application getApplication(Container container, ProcessingComponent component) {
+        return container.getApplications()
+                .stream()
+                .filter(a -> component.getId().endsWith(a.getName().toLowerCase()))
+                .findFirst().orElse(null);
+    }
+
+    private static long getMemoryRequirements(Container container, ProcessingComponent component) {
+        final Application app = getApplication(container, component);
+        return app != null
+               ? app.getMemoryRequirements()
+               : container.getApplications().stream().mapToLong(Application::getMemoryRequirements).min().orElse(0L);
+    }
+
+    private JobTemplate createJobTemplate(ProcessingExecutionTask task, Container container, long memory, NodeData nodeData)
+            throws DrmaaException, IOException, PersistenceException {
         // Get from the component the execution command
         JobTemplate jt;
         try {
@@ -471,11 +713,7 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
             final String taskName = TaskUtilities.getTaskDescriptiveName(task);
             String[] pArgs = null;
             final ProcessingComponent component = task.getComponent();
-            final Container container = containerProvider.get(component.getContainerId());
-            final Application app = container.getApplications()
-                    .stream()
-                    .filter(a -> component.getId().endsWith(a.getName().toLowerCase()))
-                    .findFirst().orElse(null);
+            final Application app = getApplication(container, component);
             Session session = getSession(task.getJob().getEnvironment());
             jt = session.createJobTemplate();
             if (jt == null) {
@@ -525,36 +763,15 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
                 }
                 template.setAttribute(DrmaaJobExtensions.IS_TERMINAL_TASK, TaskUtilities.isTerminalTask(task));
             }
-            final long memory = app != null
-                                ? app.getMemoryRequirements()
-                                : container.getApplications().stream().mapToLong(Application::getMemoryRequirements).min().orElse(0L);
             setMemoryConstraint(jt, memory);
 
             NodeDescription node;
             final int cpu;
             final long mem;
             if(job.getEnvironment() == Environment.DEFAULT) {
-                NodeData nodeData;
                 final Integer parallelism = component.getParallelism();
-                final ExecutionStrategy strategy = ExecutionStrategy.getExecutionStrategy(task);
-                nodeData = strategy.getNode(memory);
-                while (nodeData == null || !canSubmitTask(nodeData.getNode().getId(), memory)) {
-                    try {
-                        TimeUnit.SECONDS.sleep(15);
-                    } catch (InterruptedException ignored) { }
-                    if (nodeData == null) {
-                        nodeData = strategy.getNode(memory);
-                    }
-                }
                 node = nodeData.getNode();
-                if (node == null) {
-                    throw new TryLaterException("Cannot obtain an available node [null]");
-                } else {
-                    if (!(task instanceof ScriptTask)) {
-                        incrementMemory(node, memory);
-                    }
-                    logger.info("Task " + taskName + " will be submitted to host " + node.getId());
-                }
+                logger.info("Task " + taskName + " will be submitted to host " + node.getId());
                 setHost(jt, node.getId());
                 task.setExecutionNodeHostName(node.getId());
                 cpu = Math.min(nodeData.getCpu(), parallelism != null ? parallelism : 4);
@@ -976,7 +1193,7 @@ public class DRMAAExecutor extends Executor<ProcessingExecutionTask> {
         }
     }
 
-    private Session getSession(Environment environment) throws DrmaaException {
+    Session getSession(Environment environment) throws DrmaaException {
         if (environment == null) {
             environment = Environment.DEFAULT;
         }
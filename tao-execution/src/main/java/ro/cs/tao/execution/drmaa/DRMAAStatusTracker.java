@@ -0,0 +1,252 @@
+package ro.cs.tao.execution.drmaa;
+
+import org.ggf.drmaa.DrmaaException;
+import org.ggf.drmaa.Session;
+import ro.cs.tao.drmaa.Environment;
+import ro.cs.tao.execution.model.ExecutionTask;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps in memory the tasks submitted to the DRMAA sessions and detects the changes of their status.
+ * Sessions implementing {@link JobStatusMonitor} are queried in a single call per check and may wake up the tracker
+ * as soon as a job changes its status. The other sessions are queried job by job.
+ * The interval between two checks grows (up to a maximum) while no change is detected and is reset to the minimum
+ * when a change occurs or a new task is tracked.
+ * Only actual status changes and, for running tasks, a heartbeat are handed over to the executor.
+ * The heartbeat is sent at most once per maximum check interval and persists the last update time of the task,
+ * hence a running task is written at that rate, while the other tasks whose status did not change are not written.
+ *
+ * @since   1.5.2
+ */
+class DRMAAStatusTracker extends Thread {
+    /* Interval at which the tracked tasks are reconciled with the executing tasks from the database */
+    private static final long RESYNC_INTERVAL = 60000;
+    private static final int UNKNOWN = -1;
+    private final DRMAAExecutor executor;
+    private final Supplier<List<ExecutionTask>> executingTasks;
+    private final long minInterval;
+    private final long maxInterval;
+    private final Map<String, TrackedTask> tasks;
+    private final Set<Session> monitoredSessions;
+    private final Object signal;
+    private final Logger logger = Logger.getLogger(DRMAAStatusTracker.class.getName());
+    private boolean signalled;
+    private volatile boolean stopped;
+    private volatile long interval;
+    private volatile long lastCheck;
+    private long lastResync;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param executor          The executor to which status changes are reported
+     * @param executingTasks    Supplier of the tasks that are executing according to the database
+     * @param minInterval       The minimum interval between two checks (in milliseconds)
+     * @param maxInterval       The maximum interval between two checks (in milliseconds)
+     */
+    DRMAAStatusTracker(DRMAAExecutor executor, Supplier<List<ExecutionTask>> executingTasks,
+                       long minInterval, long maxInterval) {
+        super("drmaa-monitor");
+        setDaemon(true);
+        this.executor = executor;
+        this.executingTasks = executingTasks;
+        this.minInterval = Math.max(100, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.interval = this.minInterval;
+        this.tasks = new ConcurrentHashMap<>();
+        this.monitoredSessions = ConcurrentHashMap.newKeySet();
+        this.signal = new Object();
+    }
+
+    /**
+     * Starts tracking a task that was submitted to a DRMAA session.
+     *
+     * @param task  The task (it must have the DRM job identifier set)
+     */
+    void track(ExecutionTask task) {
+        if (task.getResourceId() == null) {
+            return;
+        }
+        this.tasks.putIfAbsent(task.getResourceId(), new TrackedTask(task));
+        this.interval = this.minInterval;
+        synchronized (this.signal) {
+            // let the waiting tracker re-evaluate its deadline with the reset interval
+            this.signal.notifyAll();
+        }
+    }
+
+    /**
+     * Stops tracking a task.
+     *
+     * @param resourceId    The DRM job identifier of the task
+     */
+    void untrack(String resourceId) {
+        if (resourceId != null) {
+            this.tasks.remove(resourceId);
+        }
+    }
+
+    /**
+     * Requests an immediate check of the tracked tasks.
+     */
+    void wakeUp() {
+        synchronized (this.signal) {
+            this.signalled = true;
+            this.signal.notifyAll();
+        }
+    }
+
+    int getTrackedCount() { return this.tasks.size(); }
+
+    long getCurrentInterval() { return this.interval; }
+
+    @Override
+    public void interrupt() {
+        this.stopped = true;
+        super.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (!this.stopped) {
+            try {
+                awaitNextCheck();
+                check();
+            } catch (InterruptedException e) {
+                if (this.stopped) {
+                    break;
+                }
+            } catch (Exception e) {
+                logger.severe("Error during monitoring executions: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queries the status of the tracked tasks and reports the changes to the executor.
+     */
+    synchronized void check() {
+        final long now = System.currentTimeMillis();
+        this.lastCheck = now;
+        if (now - this.lastResync >= RESYNC_INTERVAL) {
+            resync(now);
+        }
+        if (this.tasks.isEmpty()) {
+            this.interval = this.maxInterval;
+            return;
+        }
+        boolean changed = false;
+        final Map<Environment, List<TrackedTask>> byEnvironment =
+                this.tasks.values().stream().collect(Collectors.groupingBy(t -> t.environment));
+        for (Map.Entry<Environment, List<TrackedTask>> entry : byEnvironment.entrySet()) {
+            final Session session;
+            try {
+                session = this.executor.getSession(entry.getKey());
+            } catch (DrmaaException e) {
+                logger.warning(e.getMessage());
+                continue;
+            }
+            final Map<String, Integer> statuses = queryBatch(session, entry.getValue());
+            for (TrackedTask trackedTask : entry.getValue()) {
+                Integer status = statuses.get(trackedTask.resourceId);
+                if (status == null) {
+                    try {
+                        status = session.getJobProgramStatus(trackedTask.resourceId);
+                    } catch (Exception e) {
+                        untrack(trackedTask.resourceId);
+                        this.executor.onJobStatusError(trackedTask.task, e);
+                        changed = true;
+                        continue;
+                    }
+                }
+                changed |= update(trackedTask, session, status, now);
+            }
+        }
+        this.interval = changed ? this.minInterval : Math.min(this.interval * 2, this.maxInterval);
+    }
+
+    private void awaitNextCheck() throws InterruptedException {
+        synchronized (this.signal) {
+            long remaining;
+            while (!this.signalled && (remaining = this.lastCheck + this.interval - System.currentTimeMillis()) > 0) {
+                this.signal.wait(remaining);
+            }
+            this.signalled = false;
+        }
+    }
+
+    private Map<String, Integer> queryBatch(Session session, List<TrackedTask> trackedTasks) {
+        if (!(session instanceof JobStatusMonitor)) {
+            return Collections.emptyMap();
+        }
+        final JobStatusMonitor monitor = (JobStatusMonitor) session;
+        if (this.monitoredSessions.add(session)) {
+            monitor.setStatusChangeListener(jobId -> wakeUp());
+        }
+        try {
+            return monitor.getJobProgramStatus(trackedTasks.stream().map(t -> t.resourceId).collect(Collectors.toList()));
+        } catch (DrmaaException e) {
+            logger.warning(String.format("Batch status query failed for %s, jobs will be queried individually. Reason: %s",
+                                         session.serviceName(), e.getMessage()));
+            return Collections.emptyMap();
+        }
+    }
+
+    private boolean update(TrackedTask trackedTask, Session session, int status, long now) {
+        if (status == trackedTask.lastStatus) {
+            if (status == Session.RUNNING && now - trackedTask.lastHeartbeat >= this.maxInterval) {
+                trackedTask.lastHeartbeat = now;
+                this.executor.onJobHeartbeat(trackedTask.task);
+            }
+            return false;
+        }
+        trackedTask.lastStatus = status;
+        trackedTask.lastHeartbeat = now;
+        if (status == Session.DONE || status == Session.FAILED) {
+            untrack(trackedTask.resourceId);
+        }
+        this.executor.onJobStatusChanged(trackedTask.task, session, status);
+        return true;
+    }
+
+    private void resync(long now) {
+        this.lastResync = now;
+        final List<ExecutionTask> executing = this.executingTasks.get();
+        final Set<String> current = new HashSet<>();
+        if (executing != null) {
+            for (ExecutionTask task : executing) {
+                if (task.getResourceId() != null) {
+                    current.add(task.getResourceId());
+                    this.tasks.putIfAbsent(task.getResourceId(), new TrackedTask(task));
+                }
+            }
+        }
+        // Tasks registered while the database was queried may not be visible yet, and tasks still queued
+        // in the DRM are not reported as executing
+        this.tasks.values().removeIf(t -> t.trackedSince < now && !current.contains(t.resourceId) &&
+                                          t.lastStatus != UNKNOWN && t.lastStatus != Session.QUEUED_ACTIVE);
+    }
+
+    private static final class TrackedTask {
+        private final ExecutionTask task;
+        private final String resourceId;
+        private final Environment environment;
+        private final long trackedSince;
+        private int lastStatus;
+        private long lastHeartbeat;
+
+        private TrackedTask(ExecutionTask task) {
+            this.task = task;
+            this.resourceId = task.getResourceId();
+            final Environment env = task.getJob() != null ? task.getJob().getEnvironment() : null;
+            this.environment = env != null ? env : Environment.DEFAULT;
+            this.trackedSince = System.currentTimeMillis();
+            this.lastStatus = UNKNOWN;
+        }
+    }
+}
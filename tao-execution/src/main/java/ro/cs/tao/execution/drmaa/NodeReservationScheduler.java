@@ -0,0 +1,189 @@
+package ro.cs.tao.execution.drmaa;
+
+import ro.cs.tao.execution.model.ProcessingExecutionTask;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Holds the tasks for which no node (or not enough node memory) was available at submission time, so that the
+ * submitting threads do not have to wait for resources.
+ * The pending tasks are kept ordered by their memory and CPU requirements and are retried when resources may have
+ * been freed (a task ended or the nodes were refreshed) or, at the latest, after a fixed interval.
+ * A retry only looks for a node with the memory recorded when the task was put on hold; the rest of the submission
+ * (which reads the task details from the database) is done only once a node was found.
+ * Since all the pending tasks are retried, smaller tasks can be placed on the resources that are not enough for
+ * the larger ones. To prevent the larger tasks from starving, the longest waiting task is always retried first.
+ *
+ * @since   1.5.2
+ */
+class NodeReservationScheduler extends Thread {
+    private final BiPredicate<ProcessingExecutionTask, Long> submitter;
+    private final long retryInterval;
+    private final PriorityQueue<PendingTask> pending;
+    private final Map<Long, PendingTask> pendingById;
+    private final AtomicLong sequence;
+    private final Object signal;
+    private final Logger logger = Logger.getLogger(NodeReservationScheduler.class.getName());
+    private boolean signalled;
+    private volatile boolean stopped;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param submitter     Function that tries to submit a pending task, given its required memory.
+     *                      It returns <code>true</code> if the task no longer has to wait (it was either submitted or rejected)
+     * @param retryInterval The maximum interval between two retries (in milliseconds)
+     */
+    NodeReservationScheduler(BiPredicate<ProcessingExecutionTask, Long> submitter, long retryInterval) {
+        super("drmaa-reservation");
+        setDaemon(true);
+        this.submitter = submitter;
+        this.retryInterval = Math.max(100, retryInterval);
+        this.pending = new PriorityQueue<>(Comparator.comparingLong((PendingTask t) -> t.memory)
+                                                     .thenComparingInt(t -> t.cpus)
+                                                     .thenComparingLong(t -> t.sequence));
+        this.pendingById = new HashMap<>();
+        this.sequence = new AtomicLong(0);
+        this.signal = new Object();
+    }
+
+    /**
+     * Puts a task on hold until resources become available.
+     * If the task is already waiting, it keeps its original position.
+     *
+     * @param task      The task
+     * @param memory    The memory required by the task
+     * @param cpus      The number of CPUs required by the task
+     */
+    void park(ProcessingExecutionTask task, long memory, int cpus) {
+        synchronized (this.pending) {
+            if (!this.pendingById.containsKey(task.getId())) {
+                final PendingTask pendingTask = new PendingTask(task, memory, cpus, this.sequence.incrementAndGet());
+                this.pendingById.put(task.getId(), pendingTask);
+                this.pending.offer(pendingTask);
+                logger.fine(String.format("Task %s is waiting for resources [memory: %d, cpus: %d]",
+                                          task.getId(), memory, cpus));
+            }
+        }
+    }
+
+    /**
+     * Removes a task from the waiting ones.
+     *
+     * @param task  The task
+     * @return  <code>true</code> if the task was waiting
+     */
+    boolean remove(ProcessingExecutionTask task) {
+        synchronized (this.pending) {
+            final PendingTask pendingTask = this.pendingById.remove(task.getId());
+            if (pendingTask != null) {
+                this.pending.remove(pendingTask);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Signals that resources may have been released, so the waiting tasks should be retried.
+     */
+    void wakeUp() {
+        synchronized (this.signal) {
+            this.signalled = true;
+            this.signal.notifyAll();
+        }
+    }
+
+    int getPendingCount() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        this.stopped = true;
+        super.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (!this.stopped) {
+            try {
+                synchronized (this.signal) {
+                    if (!this.signalled) {
+                        this.signal.wait(this.retryInterval);
+                    }
+                    this.signalled = false;
+                }
+                retry();
+            } catch (InterruptedException e) {
+                if (this.stopped) {
+                    break;
+                }
+            } catch (Exception e) {
+                logger.severe("Error while scheduling the waiting tasks: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tries to submit the waiting tasks, the longest waiting first and then by increasing requirements.
+     */
+    void retry() {
+        final List<PendingTask> candidates;
+        synchronized (this.pending) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            candidates = new ArrayList<>(this.pending.size());
+            final PendingTask oldest = this.pending.stream().min(Comparator.comparingLong(t -> t.sequence)).get();
+            candidates.add(oldest);
+            final PriorityQueue<PendingTask> ordered = new PriorityQueue<>(this.pending);
+            PendingTask next;
+            while ((next = ordered.poll()) != null) {
+                if (next != oldest) {
+                    candidates.add(next);
+                }
+            }
+        }
+        for (PendingTask candidate : candidates) {
+            if (this.stopped) {
+                break;
+            }
+            synchronized (this.pending) {
+                // it may have been cancelled meanwhile
+                if (!this.pendingById.containsKey(candidate.task.getId())) {
+                    continue;
+                }
+            }
+            boolean done;
+            try {
+                done = this.submitter.test(candidate.task, candidate.memory);
+            } catch (Exception e) {
+                logger.severe(String.format("Cannot submit task %s: %s", candidate.task.getId(), e.getMessage()));
+                done = true;
+            }
+            if (done) {
+                remove(candidate.task);
+            }
+        }
+    }
+
+    private static final class PendingTask {
+        private final ProcessingExecutionTask task;
+        private final long memory;
+        private final int cpus;
+        private final long sequence;
+
+        private PendingTask(ProcessingExecutionTask task, long memory, int cpus, long sequence) {
+            this.task = task;
+            this.memory = memory;
+            this.cpus = cpus;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import ro.cs.tao.configuration.ConfigurationManager;
 import ro.cs.tao.docker.ExecutionConfiguration;
 import ro.cs.tao.execution.DrmaaJobExtensions;
 import ro.cs.tao.execution.drmaa.JobExitHandler;
+import ro.cs.tao.execution.drmaa.JobStatusMonitor;
 import ro.cs.tao.execution.monitor.NodeManager;
 import ro.cs.tao.spi.ServiceRegistry;
 import ro.cs.tao.spi.ServiceRegistryManager;
@@ -38,6 +39,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -46,7 +48,7 @@ import java.util.stream.Collectors;
  *
  * @author Cosmin Cara
  */
-public class DefaultSession implements Session, JobExitHandler {
+public class DefaultSession implements Session, JobExitHandler, JobStatusMonitor {
     private static final String SSH_ASYNC_KEY = "tao.ssh.async";
     private final String localHost;
     private final String localIp;
@@ -60,6 +62,7 @@ public class DefaultSession implements Session, JobExitHandler {
     private Set<String> cmdsToRunAsSu = new HashSet<String>() {{add("docker");}};
     private final Logger logger = Logger.getLogger(DefaultSession.class.getName());
     private boolean canHaveNodeList;
+    private volatile Consumer<String> statusChangeListener;
     //private final boolean isDevMode = ExecutionConfiguration.developmentModeEnabled();
 
 
@@ -270,8 +273,10 @@ public class DefaultSession implements Session, JobExitHandler {
             }
             final String jobId = jt.getJobName() + ":" + System.nanoTime();
             final OutputAccumulator consumer = new OutputAccumulator();
-            this.runningJobs.put(jobId, Executor.execute(consumer, unit));
+            final Executor<?> runner = Executor.execute(consumer, unit);
+            this.runningJobs.put(jobId, runner);
             this.jobOutputs.put(jobId, consumer);
+            runner.setCompletionCallback(() -> notifyStatusChange(jobId));
             return jobId;
         }
     }
@@ -329,6 +334,7 @@ public class DefaultSession implements Session, JobExitHandler {
                 runner.resume();
                 break;
         }
+        notifyStatusChange(jobId);
     }
 
     @Override
@@ -405,11 +411,25 @@ public class DefaultSession implements Session, JobExitHandler {
         if (runner == null) {
             throw new InvalidJobException();
         }
-        return runner.isRunning() ? RUNNING :
-                runner.isSuspended() ? USER_SYSTEM_SUSPENDED :
-                    runner.hasCompleted() ?
-                            runner.getReturnCode() != 0 ? FAILED : DONE
-                : UNDETERMINED;
+        return statusOf(runner);
+    }
+
+    @Override
+    public Map<String, Integer> getJobProgramStatus(Collection<String> jobIds) throws DrmaaException {
+        checkSession();
+        final Map<String, Integer> statuses = new HashMap<>();
+        for (String jobId : jobIds) {
+            final Executor<?> runner = this.runningJobs.get(jobId);
+            if (runner != null) {
+                statuses.put(jobId, statusOf(runner));
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public void setStatusChangeListener(Consumer<String> listener) {
+        this.statusChangeListener = listener;
     }
 
     @Override
@@ -460,6 +480,21 @@ public class DefaultSession implements Session, JobExitHandler {
         return String.join(",", drmFactories);
     }
 
+    private int statusOf(Executor<?> runner) {
+        return runner.isRunning() ? RUNNING :
+                runner.isSuspended() ? USER_SYSTEM_SUSPENDED :
+                    runner.hasCompleted() ?
+                            runner.getReturnCode() != 0 ? FAILED : DONE
+                : UNDETERMINED;
+    }
+
+    private void notifyStatusChange(String jobId) {
+        final Consumer<String> listener = this.statusChangeListener;
+        if (listener != null) {
+            listener.accept(jobId);
+        }
+    }
+
     private boolean isLocalHost(String name) {
         return this.localHost.equalsIgnoreCase(name) || this.localIp.equals(name);
     }
@@ -55,6 +55,20 @@ public class ExecutionStrategy {
     }
 
     public NodeData getNode(long memory) throws DrmaaException {
+        return getNode(memory, true);
+    }
+
+    /**
+     * Returns the node on which the task can be executed, without waiting for a node to become available.
+     *
+     * @param memory    The memory required by the task
+     * @return  The node data or <code>null</code> if no node is available at this moment
+     */
+    public NodeData tryGetNode(long memory) throws DrmaaException {
+        return getNode(memory, false);
+    }
+
+    private NodeData getNode(long memory, boolean wait) throws DrmaaException {
         NodeData nodeData = null;
         if (this.hostName != null) {
             if (NodeManager.isAvailable() && NodeManager.getInstance() != null) {
@@ -67,22 +81,24 @@ public class ExecutionStrategy {
             if (task instanceof ScriptTask) {
                 nodeData = NodeManager.getInstance().getMasterNode();
             } else {
-                // the next call blocks until a node is available
+                // if waiting, the next call blocks until a node is available
                 nodeData = getAvailableNode(task.getJob().getUserId(), ((ProcessingExecutionTask) task).getComponent().getParallelism(),
-                        ExecutionConfiguration.forceMemoryConstraint() ? memory : 0L);
+                        ExecutionConfiguration.forceMemoryConstraint() ? memory : 0L, wait);
             }
         }
         return nodeData;
     }
 
-    private NodeData getAvailableNode(String user, int cpus, long memory) throws DrmaaException {
+    private NodeData getAvailableNode(String user, int cpus, long memory, boolean wait) throws DrmaaException {
         NodeData nodeData;
         if (NodeManager.isAvailable()) {
-            nodeData = NodeManager.getInstance().getAvailableNode(user, cpus, memory, this);
+            nodeData = wait
+                       ? NodeManager.getInstance().getAvailableNode(user, cpus, memory, this)
+                       : NodeManager.getInstance().tryGetAvailableNode(user, cpus, memory, this);
         } else {
             nodeData = NodeManager.getInstance().getMasterNode();
         }
-        if (nodeData == null) {
+        if (nodeData == null && wait) {
             throw new DeniedByDrmException("No node was found for execution");
         }
         return nodeData;
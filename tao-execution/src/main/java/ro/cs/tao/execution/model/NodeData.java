@@ -12,6 +12,7 @@ public class NodeData {
     private final NodeDescription node;
     private final int cpu;
     private final long memory;
+    private final long reservedMemory;
 
     /**
      * Constructor.
@@ -21,9 +22,22 @@ public class NodeData {
      * @param memory the memory
      */
     public NodeData(NodeDescription node, int cpu, long memory) {
+        this(node, cpu, memory, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param node the node descriptor
+     * @param cpu the number of cpus
+     * @param memory the memory
+     * @param reservedMemory the memory that was reserved on the node when it was selected
+     */
+    public NodeData(NodeDescription node, int cpu, long memory, long reservedMemory) {
         this.node = node;
         this.cpu = cpu;
         this.memory = memory;
+        this.reservedMemory = reservedMemory;
     }
 
     public NodeDescription getNode() {
@@ -37,4 +51,12 @@ public class NodeData {
     public long getMemory() {
         return memory;
     }
+
+    /**
+     * Returns the memory reserved on the node when it was selected, which has to be released if the task
+     * is not submitted to the node.
+     */
+    public long getReservedMemory() {
+        return reservedMemory;
+    }
 }
\ No newline at end of file
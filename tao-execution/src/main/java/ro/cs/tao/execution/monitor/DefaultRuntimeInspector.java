@@ -34,9 +34,13 @@ public class DefaultRuntimeInspector implements NodeRuntimeInspector {
         this.authenticationType = authType;
         String localhost = InetAddress.getLocalHost().getHostName();
         if (localhost.equals(host)) {
-            this.inspector = SystemUtils.IS_OS_WINDOWS
-                   ? new WindowsRuntimeInspector(host, authType, user, password, false)
-                   : new LinuxRuntimeInspector(host, authType, user, password, false);
+            if (SystemUtils.IS_OS_WINDOWS) {
+                this.inspector = new WindowsRuntimeInspector(host, authType, user, password, false);
+            } else {
+                this.inspector = ProcRuntimeInspector.isSupported()
+                                 ? ProcRuntimeInspector.getInstance()
+                                 : new LinuxRuntimeInspector(host, authType, user, password, false);
+            }
         } else {
             this.inspector = new LinuxRuntimeInspector(host, authType, user, password, true);
         }
@@ -83,56 +83,7 @@ class LinuxRuntimeInspector implements NodeRuntimeInspector {
             executor.setOutputConsumer(consumer);
             final int code = executor.execute(false);
             if (code == 0) {
-                List<String> messages = consumer.getMessages();
-                final String mountPointOne = SystemVariable.ROOT.value().substring(0, SystemVariable.ROOT.value().lastIndexOf("/"));
-                final String mountPointTwo = mountPointOne.substring(0, mountPointOne.lastIndexOf("/"));
-                for (String message : messages) {
-                    if (!message.isEmpty()) {
-                        if (message.startsWith("MemTotal")) {
-                            message = message.replace("MemTotal:", "").trim();
-                            String value = message.substring(0, message.indexOf(" kB"));
-                            runtimeInfo.setTotalMemory(Long.parseLong(value) / MemoryUnit.KB.value());
-                        } else if (message.startsWith("MemAvailable")) {
-                            message = message.replace("MemAvailable:", "").trim();
-                            String value = message.substring(0, message.indexOf(" kB"));
-                            runtimeInfo.setAvailableMemory(Long.parseLong(value) / MemoryUnit.KB.value());
-                            runtimeInfo.setMemoryUnit(MemoryUnit.KB);
-                        } else if (message.startsWith("/dev/mapper/centos-home") ||
-                                message.contains(mountPointOne) || message.contains(mountPointTwo)) {
-                            List<String> values = Arrays.stream(message.replace(message.substring(0, message.indexOf(' ')), "").trim().split(" ")).filter(v -> !v.isEmpty()).collect(Collectors.toList());
-                            runtimeInfo.setDiskTotal(runtimeInfo.getDiskTotal() + Long.parseLong(values.get(0)) / MemoryUnit.MB.value());
-                            runtimeInfo.setDiskUsed(runtimeInfo.getDiskUsed() + Long.parseLong(values.get(1)) / MemoryUnit.MB.value());
-                            runtimeInfo.setDiskUnit(MemoryUnit.MB);
-                        } else if (message.contains("load average")) {
-                            int idx = message.indexOf("load average");
-                            String value = message.substring(idx + 14, message.indexOf(",", idx));
-                            runtimeInfo.setCpuTotal(Double.parseDouble(value));
-                        }
-                        //if (runtimeInfo instanceof RuntimeInfoEx) {
-                            //RuntimeInfoEx rex = (RuntimeInfoEx) runtimeInfo;
-                            if (message.startsWith("Buffers")) {
-                                message = message.replace("Buffers:", "").trim();
-                                String value = message.substring(0, message.indexOf(" kB"));
-                                runtimeInfo.setBuffers(Long.parseLong(value) / MemoryUnit.KB.value());
-                            } else if (message.startsWith("Cached")) {
-                                message = message.replace("Cached:", "").trim();
-                                String value = message.substring(0, message.indexOf(" kB"));
-                                runtimeInfo.setCached(Long.parseLong(value) / MemoryUnit.KB.value());
-                                //break;
-                            } else if (message.startsWith("SwapTotal")) {
-                                message = message.replace("SwapTotal:", "").trim();
-                                String value = message.substring(0, message.indexOf(" kB"));
-                                runtimeInfo.setSwapTotal(Long.parseLong(value) / MemoryUnit.KB.value());
-                                //break;
-                            } else if (message.startsWith("SwapFree")) {
-                                message = message.replace("SwapFree:", "").trim();
-                                String value = message.substring(0, message.indexOf(" kB"));
-                                runtimeInfo.setSwapFree(Long.parseLong(value) / MemoryUnit.KB.value());
-                                //break;
-                            }
-                        //}
-                    }
-                }
+                parseOutput(consumer.getMessages(), runtimeInfo);
             } else {
                 logger.warning(String.format("Could not retrieve node information. Request returned code %d. Output:\n%s",
                                              code, String.join("\n", consumer.getMessages())));
@@ -148,6 +99,62 @@ class LinuxRuntimeInspector implements NodeRuntimeInspector {
         return runtimeInfo;
     }
 
+    /**
+     * Fills the runtime information from the output of <code>uptime</code>, <code>cat /proc/meminfo</code>
+     * and <code>df -k --total</code>.
+     */
+    static void parseOutput(List<String> messages, RuntimeInfoEx runtimeInfo) {
+        final String mountPointOne = SystemVariable.ROOT.value().substring(0, SystemVariable.ROOT.value().lastIndexOf("/"));
+        final String mountPointTwo = mountPointOne.substring(0, mountPointOne.lastIndexOf("/"));
+        for (String message : messages) {
+            if (!message.isEmpty()) {
+                if (message.startsWith("MemTotal")) {
+                    message = message.replace("MemTotal:", "").trim();
+                    String value = message.substring(0, message.indexOf(" kB"));
+                    runtimeInfo.setTotalMemory(Long.parseLong(value) / MemoryUnit.KB.value());
+                } else if (message.startsWith("MemAvailable")) {
+                    message = message.replace("MemAvailable:", "").trim();
+                    String value = message.substring(0, message.indexOf(" kB"));
+                    runtimeInfo.setAvailableMemory(Long.parseLong(value) / MemoryUnit.KB.value());
+                    runtimeInfo.setMemoryUnit(MemoryUnit.KB);
+                } else if (message.startsWith("/dev/mapper/centos-home") ||
+                        message.contains(mountPointOne) || message.contains(mountPointTwo)) {
+                    List<String> values = Arrays.stream(message.replace(message.substring(0, message.indexOf(' ')), "").trim().split(" ")).filter(v -> !v.isEmpty()).collect(Collectors.toList());
+                    runtimeInfo.setDiskTotal(runtimeInfo.getDiskTotal() + Long.parseLong(values.get(0)) / MemoryUnit.MB.value());
+                    runtimeInfo.setDiskUsed(runtimeInfo.getDiskUsed() + Long.parseLong(values.get(1)) / MemoryUnit.MB.value());
+                    runtimeInfo.setDiskUnit(MemoryUnit.MB);
+                } else if (message.contains("load average")) {
+                    int idx = message.indexOf("load average");
+                    String value = message.substring(idx + 14, message.indexOf(",", idx));
+                    runtimeInfo.setCpuTotal(Double.parseDouble(value));
+                }
+                //if (runtimeInfo instanceof RuntimeInfoEx) {
+                    //RuntimeInfoEx rex = (RuntimeInfoEx) runtimeInfo;
+                    if (message.startsWith("Buffers")) {
+                        message = message.replace("Buffers:", "").trim();
+                        String value = message.substring(0, message.indexOf(" kB"));
+                        runtimeInfo.setBuffers(Long.parseLong(value) / MemoryUnit.KB.value());
+                    } else if (message.startsWith("Cached")) {
+                        message = message.replace("Cached:", "").trim();
+                        String value = message.substring(0, message.indexOf(" kB"));
+                        runtimeInfo.setCached(Long.parseLong(value) / MemoryUnit.KB.value());
+                        //break;
+                    } else if (message.startsWith("SwapTotal")) {
+                        message = message.replace("SwapTotal:", "").trim();
+                        String value = message.substring(0, message.indexOf(" kB"));
+                        runtimeInfo.setSwapTotal(Long.parseLong(value) / MemoryUnit.KB.value());
+                        //break;
+                    } else if (message.startsWith("SwapFree")) {
+                        message = message.replace("SwapFree:", "").trim();
+                        String value = message.substring(0, message.indexOf(" kB"));
+                        runtimeInfo.setSwapFree(Long.parseLong(value) / MemoryUnit.KB.value());
+                        //break;
+                    }
+                //}
+            }
+        }
+    }
+
     @Override
     public double getProcessorUsage() throws IOException {
         double cpu = 0.0;
@@ -0,0 +1,261 @@
+package ro.cs.tao.execution.monitor;
+
+import ro.cs.tao.topology.NodeDescription;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Index of the managed nodes, grouped in load bands and ordered by available memory within a band
+ * (and partitioned by owner), used to select a node for a task.
+ * The selection of a node and the reservation of the memory for the task on that node are done atomically,
+ * hence concurrent requests cannot choose the same node based on the same available memory.
+ * The index has to be updated whenever the runtime information of a node changes.
+ * The memory reserved for a task that is not submitted after all has to be released, otherwise it remains subtracted
+ * until the runtime information of the node is refreshed.
+ * Adding, updating and removing a node are O(log n). The selection visits the load bands from the least loaded one
+ * and, in each band, looks up the node having the least available memory that is still enough for the task, hence
+ * it is O(b log n), b being the number of load bands (bounded, since the load is quantized by {@link #LOAD_BAND}).
+ * Nodes in the same band are considered equally loaded, so that the selected node is the one that best fits the task.
+ * Only the nodes rejected by the filter (or the last used node) are walked past inside a band.
+ *
+ * @since   1.5.2
+ */
+class NodeCapacityIndex {
+    /* Width of a load band: nodes whose loads differ by less than this are considered equally loaded */
+    static final double LOAD_BAND = 0.05;
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong((Entry e) -> e.availableMemory)
+                                                             .thenComparingDouble(e -> e.load)
+                                                             .thenComparing(e -> e.host);
+    private final ToDoubleFunction<NodeManager.NodeRuntime> loadFunction;
+    private final Map<String, Entry> entries;
+    private final Bands all;
+    private final Map<String, Bands> byOwner;
+    /* Memory reserved on each node since its runtime information was last refreshed */
+    private final Map<String, Long> reserved;
+
+    /**
+     * Creates an index.
+     *
+     * @param loadFunction  The function that computes the load of a node (the smaller, the more suitable the node)
+     */
+    NodeCapacityIndex(ToDoubleFunction<NodeManager.NodeRuntime> loadFunction) {
+        this.loadFunction = loadFunction;
+        this.entries = new HashMap<>();
+        this.all = new Bands();
+        this.byOwner = new HashMap<>();
+        this.reserved = new HashMap<>();
+    }
+
+    /**
+     * Adds a node to the index or, if already present, updates its position after its information was changed.
+     *
+     * @param runtime   The node runtime information
+     */
+    synchronized void update(NodeManager.NodeRuntime runtime) {
+        final NodeDescription node = runtime.getNode();
+        if (node == null) {
+            return;
+        }
+        final Entry previous = this.entries.get(node.getId());
+        if (previous != null && previous.runtimeInfo != runtime.getRuntimeInfo()) {
+            // refreshed information already accounts for the tasks that were actually submitted
+            this.reserved.remove(node.getId());
+        }
+        removeEntry(node.getId());
+        final Entry entry = new Entry(runtime, this.loadFunction.applyAsDouble(runtime));
+        this.entries.put(entry.host, entry);
+        this.all.add(entry);
+        if (entry.owner != null) {
+            this.byOwner.computeIfAbsent(entry.owner, o -> new Bands()).add(entry);
+        }
+    }
+
+    /**
+     * Removes a node from the index.
+     *
+     * @param host  The node host name
+     */
+    synchronized void remove(String host) {
+        removeEntry(host);
+        this.reserved.remove(host);
+    }
+
+    /**
+     * Retains in the index only the given nodes.
+     *
+     * @param hosts The host names of the nodes to retain
+     */
+    synchronized void retain(Set<String> hosts) {
+        new ArrayList<>(this.entries.keySet()).stream().filter(h -> !hosts.contains(h)).forEach(this::remove);
+    }
+
+    synchronized int size() { return this.entries.size(); }
+
+    /**
+     * Checks if there are nodes owned by the given user.
+     *
+     * @param owner The user
+     */
+    synchronized boolean hasNodesOwnedBy(String owner) {
+        final Bands owned = owner != null ? this.byOwner.get(owner) : null;
+        return owned != null && !owned.isEmpty();
+    }
+
+    /**
+     * Selects, from the least loaded band having a suitable node, the node with the least available memory that is
+     * at least the given one, and reserves that memory on it.
+     * A node different from the last used one is preferred. If there is a single node, it is selected regardless
+     * of its available memory.
+     *
+     * @param owner     If not null, only the nodes of this owner are considered
+     * @param memory    The memory to reserve
+     * @param lastUsed  The last node that was selected (may be null)
+     * @param filter    Additional condition that the selected node has to satisfy
+     * @return  The selected node or <code>null</code> if no node is suitable
+     */
+    synchronized NodeManager.NodeRuntime reserve(String owner, long memory, NodeManager.NodeRuntime lastUsed,
+                                                 Predicate<NodeManager.NodeRuntime> filter) {
+        final Bands candidates = owner != null ? this.byOwner.get(owner) : this.all;
+        if (candidates == null) {
+            return null;
+        }
+        Entry selected = null;
+        Entry fallback = null;
+        if (this.entries.size() == 1) {
+            final Entry single = this.entries.values().iterator().next();
+            if ((owner == null || owner.equals(single.owner)) && filter.test(single.runtime)) {
+                selected = single;
+            }
+        } else {
+            final Entry probe = new Entry(memory);
+            for (NavigableSet<Entry> band : candidates.bands.values()) {
+                // the first entries of the tail set are the ones that fit best the requested memory
+                for (Entry entry : band.tailSet(probe, true)) {
+                    if (filter.test(entry.runtime)) {
+                        if (entry.runtime != lastUsed) {
+                            selected = entry;
+                            break;
+                        } else if (fallback == null) {
+                            fallback = entry;
+                        }
+                    }
+                }
+                if (selected != null) {
+                    break;
+                }
+            }
+        }
+        if (selected == null) {
+            selected = fallback;
+        }
+        if (selected == null) {
+            return null;
+        }
+        final NodeManager.NodeRuntime runtime = selected.runtime;
+        runtime.getRuntimeInfo().setAvailableMemory(runtime.getRuntimeInfo().getAvailableMemory() - memory);
+        this.reserved.merge(selected.host, memory, Long::sum);
+        update(runtime);
+        return runtime;
+    }
+
+    /**
+     * Gives back memory reserved by {@link #reserve(String, long, NodeManager.NodeRuntime, Predicate)} for a task
+     * that was not submitted. Only the memory reserved since the last refresh of the node information is given back,
+     * since the refreshed information no longer includes the older reservations.
+     *
+     * @param host      The node host name
+     * @param memory    The memory to release
+     */
+    synchronized void release(String host, long memory) {
+        final Entry entry = this.entries.get(host);
+        final Long outstanding = this.reserved.get(host);
+        if (entry == null || outstanding == null || memory <= 0) {
+            return;
+        }
+        final long amount = Math.min(memory, outstanding);
+        if (amount == outstanding) {
+            this.reserved.remove(host);
+        } else {
+            this.reserved.put(host, outstanding - amount);
+        }
+        entry.runtimeInfo.setAvailableMemory(entry.runtimeInfo.getAvailableMemory() + amount);
+        update(entry.runtime);
+    }
+
+    private void removeEntry(String host) {
+        final Entry entry = this.entries.remove(host);
+        if (entry != null) {
+            this.all.remove(entry);
+            if (entry.owner != null) {
+                final Bands owned = this.byOwner.get(entry.owner);
+                if (owned != null) {
+                    owned.remove(entry);
+                    if (owned.isEmpty()) {
+                        this.byOwner.remove(entry.owner);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Nodes grouped by load band (from the least loaded one), each band being ordered by available memory.
+     */
+    private static final class Bands {
+        private final NavigableMap<Long, NavigableSet<Entry>> bands = new TreeMap<>();
+
+        private void add(Entry entry) {
+            this.bands.computeIfAbsent(entry.band, b -> new TreeSet<>(ORDER)).add(entry);
+        }
+
+        private void remove(Entry entry) {
+            final NavigableSet<Entry> band = this.bands.get(entry.band);
+            if (band != null) {
+                band.remove(entry);
+                if (band.isEmpty()) {
+                    this.bands.remove(entry.band);
+                }
+            }
+        }
+
+        private boolean isEmpty() { return this.bands.isEmpty(); }
+    }
+
+    /**
+     * Immutable view of a node at the moment it was (re)indexed, so that the ordering keys do not change while
+     * the entry is in the index.
+     */
+    private static final class Entry {
+        private final NodeManager.NodeRuntime runtime;
+        private final RuntimeInfo runtimeInfo;
+        private final String host;
+        private final String owner;
+        private final double load;
+        private final long band;
+        private final long availableMemory;
+
+        private Entry(NodeManager.NodeRuntime runtime, double load) {
+            this.runtime = runtime;
+            this.runtimeInfo = runtime.getRuntimeInfo();
+            this.host = runtime.getNode().getId();
+            this.owner = runtime.getNode().getOwner();
+            this.load = Double.isNaN(load) ? Double.MAX_VALUE : load;
+            // the cast saturates for very large loads
+            this.band = (long) Math.floor(this.load / LOAD_BAND);
+            this.availableMemory = this.runtimeInfo.getAvailableMemory();
+        }
+
+        /* Lookup key that precedes all the entries having at least the given available memory */
+        private Entry(long availableMemory) {
+            this.runtime = null;
+            this.runtimeInfo = null;
+            this.host = "";
+            this.owner = null;
+            this.load = Double.NEGATIVE_INFINITY;
+            this.band = Long.MIN_VALUE;
+            this.availableMemory = availableMemory;
+        }
+    }
+}
@@ -36,8 +36,10 @@ import java.nio.file.Path;
 import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -61,6 +63,9 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
     private static final String NODE_CONNECTION_RETRIES_KEY = "topology.node.connection.retries";
     //private static final String IDLE_NODE_POLLING_INTERVAL_KEY = "topology.node.without.tasks.polling.interval";
     private static final String SSH_KEY = "topology.node.ssh.key";
+    private static final String NODE_TELEMETRY_KEY = "topology.node.telemetry";
+    private static final String NODE_TELEMETRY_INTERVAL_KEY = "topology.node.telemetry.interval";
+    private static final String NODE_TELEMETRY_PROCESSES_KEY = "topology.node.telemetry.processes";
 
     private static final int concurrentCalls;
     private static final boolean isAvailable;
@@ -68,6 +73,7 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
     private static final int nodeCreationWaitTime;
     private static final long pollInterval;
     private static final NamedThreadPoolExecutor executor;
+    private static final NodeTelemetry telemetry;
     private static final int DEFAULT_NODE_WAIT_TIME = 20000;
 
     static {
@@ -78,10 +84,17 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
         pollInterval = Integer.parseInt(configurationManager.getValue(NODE_POLLING_INTERVAL_KEY, "15"));
         nodeCreationWaitTime = Integer.parseInt(configurationManager.getValue(NODE_CREATION_WAIT_TIME_KEY, "60"));
         executor = new NamedThreadPoolExecutor("node-manager", 1);
+        telemetry = Boolean.parseBoolean(configurationManager.getValue(NODE_TELEMETRY_KEY, "false"))
+                    ? new NodeTelemetry(Long.parseLong(configurationManager.getValue(NODE_TELEMETRY_INTERVAL_KEY,
+                                                                                     String.valueOf(pollInterval))),
+                                        Integer.parseInt(configurationManager.getValue(NODE_TELEMETRY_PROCESSES_KEY, "5")))
+                    : null;
     }
 
     private final Map<String, NodeRuntime> nodes;
     private final Map<String, LocalDateTime> nodeUpdates;
+    private final List<Runnable> capacityListeners;
+    private final NodeCapacityIndex capacityIndex;
     //private static final int POLLING_NODE_WITHOUT_TASKS_SECONDS = 20;
     private String appId;
     private int nodeLimit;
@@ -95,13 +108,16 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
     private NodeInspectTask nodeInspectTask;
     private NodeRefreshTask nodeRefreshTask;
     private volatile boolean refreshInProgress;
-    private NodeRuntime lastUsedNode;
+    private volatile NodeRuntime lastUsedNode;
 
     protected NodeManager() {
         this.nodes = new HashMap<>();
         this.refreshInProgress = false;
         this.nodeLimit = 0;
         this.nodeUpdates = new HashMap<>();
+        this.capacityListeners = new CopyOnWriteArrayList<>();
+        this.capacityIndex = new NodeCapacityIndex(n -> computeLoad(n.getNode(), n.getRuntimeInfo().getCpuTotal(),
+                                                                    n.getRuntimeInfo().getAvailableMemory()));
     }
 
     /**
@@ -203,6 +219,20 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
 
     public boolean canCreateNewNodes() { return this.nodeLimit >= 0; }
 
+    /**
+     * Registers a listener to be invoked when the resources of the managed nodes may have changed
+     * (i.e. after the nodes were inspected or refreshed, or when a new node was added).
+     *
+     * @param listener  The listener
+     */
+    public void addCapacityListener(Runnable listener) {
+        if (listener != null) {
+            this.capacityListeners.add(listener);
+        }
+    }
+
+    public void removeCapacityListener(Runnable listener) { this.capacityListeners.remove(listener); }
+
     /**
      * Initializes this instance with the list of registered topology nodes.
      */
@@ -254,6 +284,9 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
             this.nodeRefreshTimer.purge();
         }
         this.nodeUpdates.clear();
+        if (telemetry != null) {
+            telemetry.closeAll();
+        }
     }
 
     @Override
@@ -290,133 +323,152 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
      * This method blocks until a node is available.
      * If there is just a single node (i.e. the master) registered, it returns immediately the master node description.
      */
+    /**
+     * Gives back the memory reserved on a node by {@link #tryGetAvailableNode(String, int, long, ExecutionStrategy)}
+     * for a task that was not submitted to the node after all.
+     *
+     * @param host      The node host name
+     * @param memory    The reserved memory (see {@link NodeData#getReservedMemory()})
+     */
+    public void release(String host, long memory) {
+        if (host != null && memory > 0) {
+            this.capacityIndex.release(host, memory);
+        }
+    }
+
     public NodeData getMasterNode() {
         return new NodeData(TopologyManager.getInstance().getMasterNodeInfo(), 0, 0);
     }
 
     /**
      * Returns the description of the first node found available.
-     * This method blocks until a node is available, retrying to find it each 5 seconds.
-     * The node choice is made as follows:
-     *  1) The memory threshold is checked (i.e. find all nodes that have the available memory greater than or equal to the memory threshold).
-     *  2) The disk threshold is checked among the candidates from step 1.
-     *  3) The processor usage (per core) is checked among the candidates from step 2.
+     * This method blocks until a node is available, retrying to find it each 20 seconds.
+     * See {@link #tryGetAvailableNode(String, int, long, ExecutionStrategy)} for how the node is chosen.
      *
      * @param cpus 		The number of CPUs normally required by the component
      * @param memory    The memory threshold
      * @param strategy  The execution strategy (see {@link ExecutionStrategyType})
      */
     public NodeData getAvailableNode(String userId, int cpus, long memory, ExecutionStrategy strategy) {
+        NodeData nodeData;
+        while ((nodeData = tryGetAvailableNode(userId, cpus, memory, strategy)) == null) {
+            waitBeforeNextRetry();
+        }
+        return nodeData;
+    }
+
+    /**
+     * Returns the description of the first node found available, or <code>null</code> if no node is available
+     * at the moment of the call. Unlike {@link #getAvailableNode(String, int, long, ExecutionStrategy)}, this method
+     * does not wait for a node to become available.
+     * The node choice is made as follows:
+     *  1) The candidates are the nodes owned by the user or, if there are none and the nodes are shared, all the nodes.
+     *  2) The memory threshold is checked (i.e. the available memory of the node is greater than or equal to the memory threshold).
+     *  3) The least loaded candidate (preferably different from the last node used) is chosen.
+     * The memory threshold is subtracted from the available memory of the chosen node in the same step as the choice.
+     *
+     * @param cpus 		The number of CPUs normally required by the component
+     * @param memory    The memory threshold
+     * @param strategy  The execution strategy (see {@link ExecutionStrategyType})
+     */
+    public NodeData tryGetAvailableNode(String userId, int cpus, long memory, ExecutionStrategy strategy) {
 
         final ResourceSubscription subscription = this.resourceSubscriptionProvider.getUserOpenSubscription(userId);
         NodeData nodeData;
         if (subscription != null) {
             // User has a subscription, will try to use only nodes from it
-            do {
-                nodeData = getSubscriptionNodeCandidate(subscription, cpus, memory);
-                waitBeforeNextRetry();
-            } while (nodeData == null);
-            return nodeData;
+            return getSubscriptionNodeCandidate(subscription, cpus, memory);
         } else {
             final Principal principal = new UserPrincipal(userId);
             QuotaManager userQuotaManager = UserQuotaManager.getInstance();
             int requestedCPUs = cpus;
             NodeDescription availableNode = null;
+            long reservedMemory = 0;
             final boolean shouldPoolNodes = !ConfigurationManager.getInstance().getBooleanValue("topology.dedicated.user.nodes");
-            do {
-                // First check if there are nodes bound to this user
-                final List<Map.Entry<String, NodeRuntime>> userNodes = this.nodes.entrySet().stream()
-                                                                                 .filter(e -> userId.equals(e.getValue().getNode().getOwner()))
-                                                                                 .collect(Collectors.toList());
-                // If not, then use the pool of available nodes
-                if (userNodes.isEmpty() && shouldPoolNodes) {
-                    userNodes.addAll(this.nodes.entrySet());
-                    userNodes.removeIf(n -> (!useMasterNode() && n.getValue().getNode().getRole() == NodeRole.MASTER) ||
-                            (strategy.getType() == ExecutionStrategyType.SAME_NODE &&
-                                    strategy.getHostName() != null &&
-                                    !n.getValue().getNode().getId().equals(strategy.getHostName())));
-
-                }
-                try {
-                    // check if the user has any CPU limitation
-                    int availableCpu = userQuotaManager.getAvailableCpus(principal);
-                    if ((availableCpu == -1 || availableCpu > 0) && userQuotaManager.checkUserProcessingMemory(principal, (int) memory)) {
-                        requestedCPUs = (availableCpu == -1) ? cpus : Math.min(cpus, availableCpu);
-                        NodeRuntime result;
-                        // First try to find a node different from the last one used
-                        List<Map.Entry<String, NodeRuntime>> candidates = userNodes.stream()
-                                                                                   .filter(e -> {
-                                                                                       final NodeRuntime nrw = e.getValue();
-                                                                                       return nodes.size() == 1 || (!nrw.equals(lastUsedNode) && nrw.getRuntimeInfo().getAvailableMemory() >= memory);
-                                                                                   }).collect(Collectors.toList());
-                        Map.Entry<String, NodeRuntime> candidate = candidates.stream().min(Comparator.comparingDouble(e -> {
-                            NodeDescription node = nodes.get(e.getKey()).getNode();
-                            RuntimeInfo runtimeInfo = e.getValue().getRuntimeInfo();
-                            return computeLoad(node, runtimeInfo.getCpuTotal(), runtimeInfo.getAvailableMemory());
-                        })).orElse(null);
-                        if (candidate != null) {
-                            result = candidate.getValue();
-                        } else {
-                            // And if not available, the first suitable one (may also be the last one used)
-                            result = userNodes.stream()
-                                              // And if not available, the first suitable one (may also be the last one used)
-                                              .filter(e -> e.getValue().getRuntimeInfo().getAvailableMemory() >= memory)
-                                              .min(Comparator.comparingDouble(e -> {
-                                                  NodeDescription node = nodes.get(e.getKey()).getNode();
-                                                  RuntimeInfo runtimeInfo = e.getValue().getRuntimeInfo();
-                                                  return computeLoad(node, runtimeInfo.getCpuTotal(), runtimeInfo.getAvailableMemory());
-                                              }))
-                                              .map(Map.Entry::getValue).orElse(null);
-                        }
-                        if (result != null && (useMasterNode() || result.getNode().getRole() != NodeRole.MASTER)) {
-                            availableNode = result.getNode();
-                            lastUsedNode = result;
-                            result.getRuntimeInfo().setAvailableMemory(result.getRuntimeInfo().getAvailableMemory() - memory);
-                        }
+            // First check if there are nodes bound to this user. If not, then use the pool of available nodes
+            final boolean ownsNodes = this.capacityIndex.hasNodesOwnedBy(userId);
+            try {
+                // check if the user has any CPU limitation
+                int availableCpu = userQuotaManager.getAvailableCpus(principal);
+                if ((ownsNodes || shouldPoolNodes) &&
+                        (availableCpu == -1 || availableCpu > 0) && userQuotaManager.checkUserProcessingMemory(principal, (int) memory)) {
+                    requestedCPUs = (availableCpu == -1) ? cpus : Math.min(cpus, availableCpu);
+                    final boolean useMaster = useMasterNode();
+                    Predicate<NodeRuntime> filter = n -> useMaster || n.getNode().getRole() != NodeRole.MASTER;
+                    if (!ownsNodes && strategy.getType() == ExecutionStrategyType.SAME_NODE && strategy.getHostName() != null) {
+                        filter = filter.and(n -> n.getNode().getId().equals(strategy.getHostName()));
+                    }
+                    // The least loaded node (preferably different from the last one used) is selected
+                    // and the memory is reserved on it in a single step
+                    final NodeRuntime result = this.capacityIndex.reserve(ownsNodes ? userId : null, memory, lastUsedNode, filter);
+                    if (result != null) {
+                        availableNode = result.getNode();
+                        lastUsedNode = result;
+                        reservedMemory = memory;
                     }
-                } catch (QuotaException e) {
-                    logger.info(String.format("Error while computing the CPU and memory quota for the user %s. Error message: %s", principal.getName(), e.getMessage()));
                 }
-                if (availableNode == null) {
-                    final Map.Entry<String, NodeRuntime> entry = userNodes.stream().filter(e -> e.getValue().getNode().getId().equals(strategy.getHostName())).findFirst().orElse(null);
-                    if (entry == null) {
-                        int nodeUserLimit = Integer.parseInt(ConfigurationManager.getInstance().getValue(NODE_USER_LIMIT_KEY, "1"));
-                        if (canCreateNewNodes() && // if node creation is possible
-                                ((this.nodeLimit == 0 && userNodes.size() < nodeUserLimit) || // and the user hasn't reached the limit
-                                        (userNodes.size() < nodeUserLimit && userNodes.size() + 1 < this.nodeLimit))) { // or creating a new node is below the global limit
-                            try {
-                                availableNode = createNodeIfMatchingFlavor(userNodes, userId, cpus, memory);
-                            } catch (RuntimeException exception) {
-                                throw exception;
-                            } catch (Exception exception) {
-                                throw new IllegalStateException("Failed to create node.", exception);
-                            }
-                            if (availableNode == null) {
-                                logger.fine(String.format("No processing node matching the request was found. Will retry [%s]",
-                                                          this.nodes.values().stream()
-                                                                    .map(n -> n.getNode().getId() + " cpu:" + n.getRuntimeInfo().getCpuTotal() + ",mem:" + n.getRuntimeInfo().getAvailableMemory())
-                                                                    .collect(Collectors.joining("; "))));
-                                waitBeforeNextRetry();
-                            } else {
-                                // new node has been created
-                                addNewInstalledNode(availableNode);
-                            }
+            } catch (QuotaException e) {
+                logger.info(String.format("Error while computing the CPU and memory quota for the user %s. Error message: %s", principal.getName(), e.getMessage()));
+            }
+            if (availableNode == null) {
+                final List<Map.Entry<String, NodeRuntime>> userNodes = getUserNodes(userId, ownsNodes, shouldPoolNodes, strategy);
+                final Map.Entry<String, NodeRuntime> entry = userNodes.stream().filter(e -> e.getValue().getNode().getId().equals(strategy.getHostName())).findFirst().orElse(null);
+                if (entry == null) {
+                    int nodeUserLimit = Integer.parseInt(ConfigurationManager.getInstance().getValue(NODE_USER_LIMIT_KEY, "1"));
+                    if (canCreateNewNodes() && // if node creation is possible
+                            ((this.nodeLimit == 0 && userNodes.size() < nodeUserLimit) || // and the user hasn't reached the limit
+                                    (userNodes.size() < nodeUserLimit && userNodes.size() + 1 < this.nodeLimit))) { // or creating a new node is below the global limit
+                        try {
+                            availableNode = createNodeIfMatchingFlavor(userNodes, userId, cpus, memory);
+                        } catch (RuntimeException exception) {
+                            throw exception;
+                        } catch (Exception exception) {
+                            throw new IllegalStateException("Failed to create node.", exception);
+                        }
+                        if (availableNode == null) {
+                            logger.fine(String.format("No processing node matching the request was found [%s]",
+                                                      this.nodes.values().stream()
+                                                                .map(n -> n.getNode().getId() + " cpu:" + n.getRuntimeInfo().getCpuTotal() + ",mem:" + n.getRuntimeInfo().getAvailableMemory())
+                                                                .collect(Collectors.joining("; "))));
                         } else {
-                            logger.fine("No processing node was found to be available. Will retry.");
-                            waitBeforeNextRetry();
+                            // new node has been created
+                            addNewInstalledNode(availableNode);
                         }
                     } else {
-                        //logger.fine("No processing node was found to be available. Will retry.");
-                        //waitBeforeNextRetry();
-                        availableNode = entry.getValue().getNode();
+                        logger.fine("No processing node was found to be available.");
                     }
+                } else {
+                    //logger.fine("No processing node was found to be available. Will retry.");
+                    //waitBeforeNextRetry();
+                    availableNode = entry.getValue().getNode();
                 }
-            } while (availableNode == null);
-            nodeData = new NodeData(availableNode, Math.min(requestedCPUs, availableNode.getFlavor().getCpu()), memory);
+            }
+            if (availableNode == null) {
+                return null;
+            }
+            nodeData = new NodeData(availableNode, Math.min(requestedCPUs, availableNode.getFlavor().getCpu()), memory, reservedMemory);
         }
         return nodeData;
     }
 
+    private List<Map.Entry<String, NodeRuntime>> getUserNodes(String userId, boolean ownsNodes, boolean shouldPoolNodes,
+                                                              ExecutionStrategy strategy) {
+        final List<Map.Entry<String, NodeRuntime>> userNodes;
+        synchronized (this.nodes) {
+            userNodes = this.nodes.entrySet().stream()
+                                  .filter(e -> userId.equals(e.getValue().getNode().getOwner()))
+                                  .collect(Collectors.toList());
+            if (!ownsNodes && userNodes.isEmpty() && shouldPoolNodes) {
+                userNodes.addAll(this.nodes.entrySet());
+                userNodes.removeIf(n -> (!useMasterNode() && n.getValue().getNode().getRole() == NodeRole.MASTER) ||
+                        (strategy.getType() == ExecutionStrategyType.SAME_NODE &&
+                                strategy.getHostName() != null &&
+                                !n.getValue().getNode().getId().equals(strategy.getHostName())));
+            }
+        }
+        return userNodes;
+    }
+
     public NodeDescription createWorkerNode(String userId) throws TopologyException {
         if (TopologyManager.getInstance().isExternalProviderAvailable()) {
             final ConfigurationProvider cfgProvider = ConfigurationManager.getInstance();
@@ -624,15 +676,33 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
         synchronized (this.nodes) {
             this.nodes.remove(host);
             this.nodeUpdates.remove(host);
+            this.capacityIndex.remove(host);
+        }
+        if (telemetry != null) {
+            telemetry.close(host);
         }
     }
 
+    /**
+     * Returns the node telemetry, or <code>null</code> if the nodes are not streaming their runtime information.
+     */
+    public NodeTelemetry getTelemetry() { return telemetry; }
+
     protected void uninstallNode(NodeDescription node) {
         removeNode(node.getId());
         TopologyManager.getInstance().removeNode(node.getId());
     }
 
     protected RuntimeInfo readNodeRuntimeInfo(NodeDescription node) throws Exception {
+        if (telemetry != null) {
+            // the latest sample streamed by the node, if any
+            final RuntimeInfo info = telemetry.getRuntimeInfo(node);
+            if (info != null) {
+                // the samples are produced by the same commands as the polled information (the CPU being the load
+                // average), and computeLoad() already divides it by the number of CPUs
+                return info;
+            }
+        }
         AuthenticationType type = node.getSshKey() != null ? AuthenticationType.CERTIFICATE : AuthenticationType.PASSWORD;
         final NodeRuntimeInspector inspector = RuntimeInspectorFactory.getInstance()
                                                                       .get(node.getId(),
@@ -685,12 +755,25 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
         } finally {
             DRMAAExecutor.setQueueWorkers(getActiveNodesCount());
             nodeUpdates.put(node.getId(), LocalDateTime.now());
+            notifyCapacityListeners();
+        }
+    }
+
+    private void notifyCapacityListeners() {
+        for (Runnable listener : this.capacityListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.warning("Capacity listener failed: " + e.getMessage());
+            }
         }
     }
 
     private void addNode(NodeDescription node, RuntimeInfo runtimeInfo) {
         synchronized (this.nodes) {
-            this.nodes.put(node.getId(), new NodeRuntime(node, runtimeInfo));
+            final NodeRuntime nodeRuntime = new NodeRuntime(node, runtimeInfo);
+            this.nodes.put(node.getId(), nodeRuntime);
+            this.capacityIndex.update(nodeRuntime);
         }
     }
 
@@ -780,7 +863,7 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
                                     NodeDescription node = nodeRuntime.getNode();
                                     node.setActive(false);
                                     nodeProvider.update(node);
-                                    nodes.remove(h);
+                                    removeNode(h);
                                 } else {
                                     RuntimeInfo runtimeInfo = null;
                                     try {
@@ -797,6 +880,7 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
                                     }
                                     nodeRuntime.setRuntimeInfo(runtimeInfo);
                                     nodeRuntime.setLastUpdatedTimeMilliseconds(System.currentTimeMillis());
+                                    capacityIndex.update(nodeRuntime);
                                     Messaging.send(SystemPrincipal.instance(),
                                                    Topic.RESOURCES.getCategory(),
                                                    nodeRuntime.node.getId(),
@@ -808,6 +892,7 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
                             logger.log(Level.SEVERE, "Cannot update node information '" + h + "': " + ExceptionUtils.getExceptionLoggingMessage(exception, 1));
                         }
                     });
+                    notifyCapacityListeners();
                 }
             } catch (Exception exception) {
                 logger.log(Level.SEVERE, "Error during monitoring nodes: " + ExceptionUtils.getExceptionLoggingMessage(exception, 1));
@@ -853,17 +938,18 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
                                 final int recentTasks = taskProvider.countByHostSince(host, now.minusSeconds(keepAlive));
                                 if (recentTasks == 0 && lastUpdated != null && now.minusSeconds(keepAlive).isAfter(lastUpdated)) {
                                     uninstallNode(nodeRuntime.getNode());
-                                    nodes.remove(host);
                                 } else {
                                     if (recentTasks > 0) {
                                         NodeManager.this.nodeUpdates.put(host, taskProvider.getLastRunTask(host));
                                     }
                                     // refresh the node information
-                                    nodes.get(host).setNode(nodeProvider.getNode(host));
+                                    nodeRuntime.setNode(nodeProvider.getNode(host));
+                                    capacityIndex.update(nodeRuntime);
                                 }
                             } else {
                                 // refresh the node information
-                                nodes.get(host).setNode(nodeProvider.getNode(host));
+                                nodeRuntime.setNode(nodeProvider.getNode(host));
+                                capacityIndex.update(nodeRuntime);
                             }
                         }
                     }
@@ -871,11 +957,13 @@ public class NodeManager extends Notifiable implements NodeOperationListener {
                 }
                 synchronized (nodes) {
                     nodes.entrySet().removeIf(currentEntry -> !allMap.contains(currentEntry.getKey()));
+                    capacityIndex.retain(allMap);
                 }
             } catch (Exception exception) {
                 logger.log(Level.SEVERE, "Error during refreshing nodes list from database: " + ExceptionUtils.getExceptionLoggingMessage(exception, 1));
             } finally {
                 refreshInProgress = false;
+                notifyCapacityListeners();
             }
         }
     }
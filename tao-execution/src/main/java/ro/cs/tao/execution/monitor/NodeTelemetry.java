@@ -0,0 +1,337 @@
+package ro.cs.tao.execution.monitor;
+
+import com.jcraft.jsch.ChannelExec;
+import ro.cs.tao.topology.NodeDescription;
+import ro.cs.tao.utils.executors.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Streams the runtime information of the remote (Linux) nodes.
+ * Instead of connecting to a node and running commands at every inspection, a small shell loop is started once
+ * per node, on a pooled SSH session, and it keeps printing a sample (load, memory, disks and the most active
+ * processes) at a fixed rate. The samples are collected as they arrive, and the node manager reads the latest one
+ * without connecting to the node. A stream that ended (for example, because the node was restarted) is re-opened
+ * at most once per retry interval; until a stream delivers a sample, its node is inspected as before.
+ *
+ * @since   1.5.2
+ */
+public final class NodeTelemetry {
+    private static final String SAMPLE_END = "#tao-sample-end";
+    private static final String PROCESS_PREFIX = "#proc ";
+    private static final long RETRY_INTERVAL_MILLIS = 60000;
+    private final long intervalSeconds;
+    private final int processCount;
+    private final Map<String, Stream> streams;
+    private final Logger logger;
+    private final LongAdder samples;
+    private final LongAdder openedStreams;
+    private final LongAdder failedStreams;
+    private String localHost;
+
+    /**
+     * Creates the telemetry for the managed nodes.
+     *
+     * @param intervalSeconds   The interval between two samples of a node
+     * @param processCount      How many of the most active processes (by CPU) are reported in a sample
+     */
+    NodeTelemetry(long intervalSeconds, int processCount) {
+        this.intervalSeconds = Math.max(1, intervalSeconds);
+        this.processCount = Math.max(0, processCount);
+        this.streams = new ConcurrentHashMap<>();
+        this.logger = Logger.getLogger(NodeTelemetry.class.getName());
+        this.samples = new LongAdder();
+        this.openedStreams = new LongAdder();
+        this.failedStreams = new LongAdder();
+        try {
+            this.localHost = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            this.localHost = "localhost";
+        }
+    }
+
+    /**
+     * Returns the runtime information from the latest sample of the given node, or <code>null</code> if there is
+     * no recent sample (the stream of the node is opened if needed). The local host is not streamed.
+     *
+     * @param node  The node
+     */
+    RuntimeInfo getRuntimeInfo(NodeDescription node) {
+        if (node == null || this.localHost.equals(node.getId())) {
+            return null;
+        }
+        return this.streams.computeIfAbsent(node.getId(), Stream::new).latest(node);
+    }
+
+    /**
+     * Returns the most active processes (by CPU) of the given node, from its latest sample.
+     *
+     * @param host  The node host name
+     */
+    public List<ProcessUsage> getProcesses(String host) {
+        final Stream stream = this.streams.get(host);
+        return stream != null ? stream.getProcesses() : Collections.emptyList();
+    }
+
+    /**
+     * Stops the stream of the given node.
+     */
+    void close(String host) {
+        final Stream stream = this.streams.remove(host);
+        if (stream != null) {
+            stream.stop();
+        }
+    }
+
+    /**
+     * Stops the streams of all the nodes.
+     */
+    void closeAll() {
+        for (String host : new ArrayList<>(this.streams.keySet())) {
+            close(host);
+        }
+    }
+
+    public int getStreamCount() { return this.streams.size(); }
+
+    public long getSampleCount() { return this.samples.sum(); }
+
+    public long getOpenedStreamCount() { return this.openedStreams.sum(); }
+
+    public long getFailedStreamCount() { return this.failedStreams.sum(); }
+
+    private String command() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("while true; do uptime; ")
+               .append("grep -E '^(MemTotal|MemAvailable|Buffers|Cached|SwapTotal|SwapFree):' /proc/meminfo; ")
+               .append("df -k --total; ");
+        if (this.processCount > 0) {
+            builder.append("ps -eo pid=,pcpu=,rss=,comm= --sort=-pcpu | head -n ").append(this.processCount)
+                   .append(" | sed 's/^/").append(PROCESS_PREFIX).append("/'; ");
+        }
+        // when the channel is closed, the next write fails and the loop ends
+        builder.append("echo '").append(SAMPLE_END).append("' || exit; sleep ").append(this.intervalSeconds)
+               .append("; done");
+        return builder.toString();
+    }
+
+    /**
+     * The usage of a process, as reported by <code>ps</code>.
+     */
+    public static class ProcessUsage {
+        private final long pid;
+        private final double cpu;
+        private final long memoryMB;
+        private final String command;
+
+        ProcessUsage(long pid, double cpu, long memoryMB, String command) {
+            this.pid = pid;
+            this.cpu = cpu;
+            this.memoryMB = memoryMB;
+            this.command = command;
+        }
+
+        public long getPid() { return pid; }
+
+        /**
+         * Returns the CPU usage, in percents of one core.
+         */
+        public double getCpu() { return cpu; }
+
+        public long getMemoryMB() { return memoryMB; }
+
+        public String getCommand() { return command; }
+    }
+
+    /**
+     * Collects the output of the shell loop of a node and splits it into samples.
+     */
+    final class Stream extends OutputStream {
+        private final String host;
+        /* Guards the line assembly state (buffer, length and lines), which is written on the thread of the SSH
+           session and reset when the stream is re-opened. It is distinct from the stream monitor, which is held
+           while the channel is released, since releasing the channel may wait for the SSH session thread. */
+        private final Object lineLock;
+        private final byte[] buffer;
+        private int length;
+        private List<String> lines;
+        private SSHExecutor executor;
+        private ChannelExec channel;
+        private long lastAttempt;
+        private boolean closed;
+        private volatile List<String> latest;
+        private volatile long latestAt;
+        private volatile List<ProcessUsage> processes;
+
+        Stream(String host) {
+            this.host = host;
+            this.lineLock = new Object();
+            this.buffer = new byte[8192];
+            this.lines = new ArrayList<>();
+            this.processes = Collections.emptyList();
+        }
+
+        private synchronized RuntimeInfo latest(NodeDescription node) {
+            // the stream may have been closed after it was taken from the map, in which case it must not be re-opened
+            if (this.closed) {
+                return null;
+            }
+            final long now = System.currentTimeMillis();
+            if ((this.channel == null || this.channel.isClosed()) && now - this.lastAttempt >= RETRY_INTERVAL_MILLIS) {
+                this.lastAttempt = now;
+                open(node);
+            }
+            final List<String> sample = getSample();
+            if (sample == null) {
+                return null;
+            }
+            // a new instance at each call, since the caller may alter it
+            final RuntimeInfoEx runtimeInfo = new RuntimeInfoEx();
+            LinuxRuntimeInspector.parseOutput(sample, runtimeInfo);
+            return runtimeInfo;
+        }
+
+        /**
+         * Returns the latest sample (without the process lines), or <code>null</code> if there is no recent sample.
+         */
+        List<String> getSample() {
+            final List<String> sample = this.latest;
+            return sample != null && isRecent() ? sample : null;
+        }
+
+        /**
+         * Returns the processes of the latest sample, or an empty list if there is no recent sample.
+         */
+        List<ProcessUsage> getProcesses() {
+            final List<ProcessUsage> processes = this.processes;
+            return this.latest != null && isRecent() ? processes : Collections.emptyList();
+        }
+
+        private boolean isRecent() {
+            return System.currentTimeMillis() - this.latestAt <= 3 * intervalSeconds * 1000;
+        }
+
+        private void open(NodeDescription node) {
+            release();
+            // drop the partial line or sample left by the previous channel
+            reset();
+            final AuthenticationType type = node.getSshKey() != null ? AuthenticationType.CERTIFICATE : AuthenticationType.PASSWORD;
+            final Executor<?> executor = Executor.create(ExecutorType.SSH2, this.host, new ArrayList<>());
+            executor.setUser(node.getUserName());
+            if (type == AuthenticationType.CERTIFICATE) {
+                executor.setCertificate(node.getSshKey());
+            } else {
+                executor.setPassword(node.getUserPass());
+            }
+            try {
+                this.executor = (SSHExecutor) executor;
+                this.channel = this.executor.openExec(command(), this);
+                openedStreams.increment();
+                logger.fine(() -> String.format("Telemetry stream opened for node %s", this.host));
+            } catch (IOException e) {
+                failedStreams.increment();
+                this.channel = null;
+                logger.warning(String.format("Cannot open the telemetry stream of node %s: %s", this.host, e.getMessage()));
+            }
+        }
+
+        private synchronized void stop() {
+            this.closed = true;
+            release();
+            this.latest = null;
+        }
+
+        void reset() {
+            synchronized (this.lineLock) {
+                this.length = 0;
+                this.lines = new ArrayList<>();
+            }
+        }
+
+        private void release() {
+            if (this.channel != null) {
+                this.executor.release(this.channel);
+                this.channel = null;
+            }
+        }
+
+        // Called on the thread of the SSH session
+        @Override
+        public void write(int b) {
+            synchronized (this.lineLock) {
+                append(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            synchronized (this.lineLock) {
+                for (int i = off; i < off + len; i++) {
+                    append(b[i]);
+                }
+            }
+        }
+
+        private void append(int b) {
+            if (b == '\n') {
+                endLine();
+            } else if (b != '\r') {
+                if (this.length == this.buffer.length) {
+                    // an abnormally long line is truncated
+                    return;
+                }
+                this.buffer[this.length++] = (byte) b;
+            }
+        }
+
+        private void endLine() {
+            final String line = new String(this.buffer, 0, this.length, StandardCharsets.UTF_8);
+            this.length = 0;
+            if (SAMPLE_END.equals(line)) {
+                final List<ProcessUsage> processes = new ArrayList<>();
+                final List<String> sample = new ArrayList<>(this.lines.size());
+                for (String current : this.lines) {
+                    if (current.startsWith(PROCESS_PREFIX)) {
+                        final ProcessUsage usage = parseProcess(current.substring(PROCESS_PREFIX.length()));
+                        if (usage != null) {
+                            processes.add(usage);
+                        }
+                    } else {
+                        sample.add(current);
+                    }
+                }
+                this.lines = new ArrayList<>();
+                this.processes = processes;
+                this.latestAt = System.currentTimeMillis();
+                this.latest = sample;
+                samples.increment();
+            } else {
+                this.lines.add(line);
+            }
+        }
+    }
+
+    /**
+     * Parses a process line (<code>pid pcpu rss command</code>, as printed by <code>ps</code>),
+     * returning <code>null</code> if the line is malformed.
+     */
+    static ProcessUsage parseProcess(String line) {
+        final String[] tokens = line.trim().split("\\s+", 4);
+        if (tokens.length < 4) {
+            return null;
+        }
+        try {
+            return new ProcessUsage(Long.parseLong(tokens[0]), Double.parseDouble(tokens[1]),
+                                    Long.parseLong(tokens[2]) / MemoryUnit.KB.value(), tokens[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
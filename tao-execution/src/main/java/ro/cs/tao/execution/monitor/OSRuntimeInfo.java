@@ -286,6 +286,13 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
             super(host, authenticationType, user, authenticationToken, remote, clazz);
         }
 
+        /**
+         * The local host is inspected by reading /proc directly (see {@link ProcRuntimeInspector}).
+         */
+        private boolean inProcess() {
+            return !this.isRemote && ProcRuntimeInspector.isSupported();
+        }
+
         private Executor<?> buildExecutor(List<String> arguments) {
             Executor<?> executor = Executor.create(this.isRemote ? ExecutorType.SSH2 : ExecutorType.PROCESS, this.node, arguments);
             executor.setUser(this.user);
@@ -303,6 +310,24 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
         @Override
         public R getInfo() throws Exception {
             R runtimeInfo = this.runtimeClass.getConstructor().newInstance();
+            if (inProcess()) {
+                final RuntimeInfoEx info = (RuntimeInfoEx) ProcRuntimeInspector.getInstance().getInfo();
+                runtimeInfo.setCpuTotal(info.getCpuTotal());
+                runtimeInfo.setTotalMemory(info.getTotalMemory());
+                runtimeInfo.setAvailableMemory(info.getAvailableMemory());
+                runtimeInfo.setMemoryUnit(info.getMemoryUnit());
+                runtimeInfo.setDiskTotal(info.getDiskTotal());
+                runtimeInfo.setDiskUsed(info.getDiskUsed());
+                runtimeInfo.setDiskUnit(info.getDiskUnit());
+                if (runtimeInfo instanceof RuntimeInfoEx) {
+                    RuntimeInfoEx rex = (RuntimeInfoEx) runtimeInfo;
+                    rex.setBuffers(info.getBuffers());
+                    rex.setCached(info.getCached());
+                    rex.setSwapTotal(info.getSwapTotal());
+                    rex.setSwapFree(info.getSwapFree());
+                }
+                return runtimeInfo;
+            }
             Executor<?> executor = null;
             try {
                 List<String> args = new ArrayList<>();
@@ -379,6 +404,9 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
 
         @Override
         public double getProcessorUsage() throws IOException {
+            if (inProcess()) {
+                return ProcRuntimeInspector.getInstance().getProcessorUsage();
+            }
             double cpu = 0.0;
             try {
                 List<String> args = new ArrayList<>();
@@ -406,6 +434,9 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
 
         @Override
         public long getTotalMemoryMB() throws IOException{
+            if (inProcess()) {
+                return ProcRuntimeInspector.getInstance().getTotalMemoryMB();
+            }
             long mem = 0;
             try {
                 List<String> args = new ArrayList<>();
@@ -433,6 +464,9 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
 
         @Override
         public long getAvailableMemoryMB() throws IOException {
+            if (inProcess()) {
+                return ProcRuntimeInspector.getInstance().getAvailableMemoryMB();
+            }
             long mem = 0;
             try {
                 List<String> args = new ArrayList<>();
@@ -460,6 +494,9 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
 
         @Override
         public long getTotalDiskGB() throws IOException {
+            if (inProcess()) {
+                return ProcRuntimeInspector.getInstance().getTotalDiskGB();
+            }
             long mem = 0;
             try {
                 List<String> args = new ArrayList<>();
@@ -485,6 +522,9 @@ public abstract class OSRuntimeInfo<R extends RuntimeInfo> {
 
         @Override
         public long getUsedDiskGB() throws IOException {
+            if (inProcess()) {
+                return ProcRuntimeInspector.getInstance().getUsedDiskGB();
+            }
             long mem = 0;
             try {
                 List<String> args = new ArrayList<>();
@@ -0,0 +1,287 @@
+package ro.cs.tao.execution.monitor;
+
+import org.apache.commons.lang3.SystemUtils;
+import ro.cs.tao.component.SystemVariable;
+import ro.cs.tao.topology.NodeRole;
+import ro.cs.tao.utils.executors.AuthenticationType;
+import ro.cs.tao.utils.executors.MemoryUnit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Runtime inspector of the local (Linux) host, which reads <code>/proc/stat</code>, <code>/proc/meminfo</code>
+ * and <code>/proc/loadavg</code> directly, and the disk usage from the file stores of the TAO folders,
+ * instead of forking <code>uptime</code>, <code>cat</code> and <code>df</code> processes.
+ * The files are read in a buffer that is reused between calls, and parsed without creating strings.
+ * The CPU is reported, like the load average reported by {@link LinuxRuntimeInspector}, as the sum of the cores
+ * load (i.e. the number of busy cores); it is computed from the difference between two samples of
+ * <code>/proc/stat</code>, and the first call, having no previous sample, returns the 1-minute load average.
+ *
+ * @since   1.5.2
+ */
+public final class ProcRuntimeInspector implements NodeRuntimeInspector {
+    private static final Path STAT = Paths.get("/proc/stat");
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final Path LOADAVG = Paths.get("/proc/loadavg");
+    private static final byte[] CPU = "cpu ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEM_TOTAL = "MemTotal:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEM_AVAILABLE = "MemAvailable:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BUFFERS = "Buffers:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CACHED = "Cached:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SWAP_TOTAL = "SwapTotal:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SWAP_FREE = "SwapFree:".getBytes(StandardCharsets.US_ASCII);
+    private static final ProcRuntimeInspector instance = new ProcRuntimeInspector();
+
+    private final Path stat;
+    private final Path meminfo;
+    private final Path loadavg;
+    private final ByteBuffer buffer;
+    private final long[] cpuTimes;
+    private final int processors;
+    private final Logger logger;
+    private long previousTotal;
+    private long previousIdle;
+    private List<FileStore> fileStores;
+
+    /**
+     * Checks if this inspector can be used on the current host.
+     */
+    public static boolean isSupported() {
+        return SystemUtils.IS_OS_LINUX && Files.isReadable(STAT) && Files.isReadable(MEMINFO);
+    }
+
+    public static ProcRuntimeInspector getInstance() { return instance; }
+
+    private ProcRuntimeInspector() {
+        this(STAT, MEMINFO, LOADAVG);
+    }
+
+    /**
+     * Creates an inspector that reads the given files instead of the ones from <code>/proc</code>.
+     */
+    ProcRuntimeInspector(Path stat, Path meminfo, Path loadavg) {
+        this.stat = stat;
+        this.meminfo = meminfo;
+        this.loadavg = loadavg;
+        // /proc/stat has one line per core, hence it may be large on hosts with many cores
+        this.buffer = ByteBuffer.allocate(64 * 1024);
+        this.cpuTimes = new long[10];
+        this.processors = java.lang.Runtime.getRuntime().availableProcessors();
+        this.logger = Logger.getLogger(ProcRuntimeInspector.class.getName());
+    }
+
+    @Override
+    public boolean isIntendedFor(NodeRole role) {
+        return role != NodeRole.K8S;
+    }
+
+    @Override
+    public void initialize(String host, String user, String password, AuthenticationType authType) throws Exception {
+        // NO OP: it only inspects the local host
+    }
+
+    @Override
+    public synchronized double getProcessorUsage() throws IOException {
+        read(this.stat);
+        final int count = readValues(CPU, this.cpuTimes);
+        if (count < 4) {
+            throw new IOException("Unexpected format of " + this.stat);
+        }
+        long total = 0;
+        // guest times (if present) are already included in user and nice times
+        for (int i = 0; i < Math.min(count, 8); i++) {
+            total += this.cpuTimes[i];
+        }
+        // idle + iowait
+        final long idle = this.cpuTimes[3] + (count > 4 ? this.cpuTimes[4] : 0);
+        final long deltaTotal = total - this.previousTotal;
+        final long deltaIdle = idle - this.previousIdle;
+        final boolean first = this.previousTotal == 0;
+        this.previousTotal = total;
+        this.previousIdle = idle;
+        if (first || deltaTotal <= 0) {
+            return loadAverage();
+        }
+        return (double) (deltaTotal - deltaIdle) / deltaTotal * this.processors;
+    }
+
+    @Override
+    public synchronized long getTotalMemoryMB() throws IOException {
+        read(this.meminfo);
+        return readValue(MEM_TOTAL) / MemoryUnit.KB.value();
+    }
+
+    @Override
+    public synchronized long getAvailableMemoryMB() throws IOException {
+        read(this.meminfo);
+        return readValue(MEM_AVAILABLE) / MemoryUnit.KB.value();
+    }
+
+    @Override
+    public long getTotalDiskGB() throws IOException {
+        long total = 0;
+        for (FileStore store : fileStores()) {
+            total += store.getTotalSpace();
+        }
+        return total / MemoryUnit.GB.value();
+    }
+
+    @Override
+    public long getUsedDiskGB() throws IOException {
+        long used = 0;
+        for (FileStore store : fileStores()) {
+            used += store.getTotalSpace() - store.getUnallocatedSpace();
+        }
+        return used / MemoryUnit.GB.value();
+    }
+
+    @Override
+    public synchronized RuntimeInfo getInfo() throws Exception {
+        final RuntimeInfoEx runtimeInfo = new RuntimeInfoEx();
+        runtimeInfo.setCpuTotal(getProcessorUsage());
+        read(this.meminfo);
+        final long kb = MemoryUnit.KB.value();
+        runtimeInfo.setTotalMemory(readValue(MEM_TOTAL) / kb);
+        runtimeInfo.setAvailableMemory(readValue(MEM_AVAILABLE) / kb);
+        runtimeInfo.setBuffers(readValue(BUFFERS) / kb);
+        runtimeInfo.setCached(readValue(CACHED) / kb);
+        runtimeInfo.setSwapTotal(readValue(SWAP_TOTAL) / kb);
+        runtimeInfo.setSwapFree(readValue(SWAP_FREE) / kb);
+        runtimeInfo.setMemoryUnit(MemoryUnit.MB);
+        runtimeInfo.setDiskTotal(getTotalDiskGB());
+        runtimeInfo.setDiskUsed(getUsedDiskGB());
+        runtimeInfo.setDiskUnit(MemoryUnit.GB);
+        return runtimeInfo;
+    }
+
+    @Override
+    public RuntimeInfo getSnapshot() throws Exception {
+        return getInfo();
+    }
+
+    private double loadAverage() throws IOException {
+        read(this.loadavg);
+        // the first value is the 1-minute load average, as a decimal number
+        final int limit = this.buffer.limit();
+        long digits = 0;
+        int decimals = -1;
+        int index = 0;
+        for (; index < limit; index++) {
+            final byte b = this.buffer.get(index);
+            if (b >= '0' && b <= '9') {
+                digits = digits * 10 + (b - '0');
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        if (index == 0) {
+            throw new IOException("Unexpected format of " + this.loadavg);
+        }
+        return decimals > 0 ? digits / Math.pow(10, decimals) : digits;
+    }
+
+    /**
+     * Returns the file stores of the folders whose usage is reported (the parent and the grandparent
+     * of the TAO root folder, like {@link LinuxRuntimeInspector} does).
+     */
+    private synchronized List<FileStore> fileStores() throws IOException {
+        if (this.fileStores == null) {
+            final List<FileStore> stores = new ArrayList<>();
+            Path folder = Paths.get(SystemVariable.ROOT.value()).toAbsolutePath().getParent();
+            for (int i = 0; i < 2 && folder != null; i++, folder = folder.getParent()) {
+                if (Files.exists(folder)) {
+                    final FileStore store = Files.getFileStore(folder);
+                    if (!stores.contains(store)) {
+                        stores.add(store);
+                    }
+                }
+            }
+            if (stores.isEmpty()) {
+                this.logger.warning("Cannot determine the file store of " + SystemVariable.ROOT.value());
+            }
+            this.fileStores = stores;
+        }
+        return this.fileStores;
+    }
+
+    /**
+     * Reads the whole file in the (reused) buffer, which is then ready to be parsed.
+     */
+    private void read(Path file) throws IOException {
+        this.buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the size of the /proc files is not known in advance
+            while (this.buffer.hasRemaining() && channel.read(this.buffer) > 0) {
+                // continue reading
+            }
+        }
+        this.buffer.flip();
+    }
+
+    /**
+     * Returns the first number following the given key, at the beginning of a line, or 0 if the key is not found.
+     */
+    private long readValue(byte[] key) {
+        final long[] value = new long[1];
+        return readValues(key, value) > 0 ? value[0] : 0;
+    }
+
+    /**
+     * Parses the numbers following the given key, at the beginning of a line, into the given array.
+     * Returns the number of values read.
+     */
+    private int readValues(byte[] key, long[] values) {
+        final int limit = this.buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            if (startsWith(position, key)) {
+                int index = position + key.length;
+                int count = 0;
+                while (index < limit && this.buffer.get(index) != '\n' && count < values.length) {
+                    byte b = this.buffer.get(index);
+                    if (b >= '0' && b <= '9') {
+                        long value = 0;
+                        while (index < limit && (b = this.buffer.get(index)) >= '0' && b <= '9') {
+                            value = value * 10 + (b - '0');
+                            index++;
+                        }
+                        values[count++] = value;
+                    } else {
+                        index++;
+                    }
+                }
+                return count;
+            }
+            // next line
+            while (position < limit && this.buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    private boolean startsWith(int position, byte[] key) {
+        if (position + key.length > this.buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (this.buffer.get(position + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
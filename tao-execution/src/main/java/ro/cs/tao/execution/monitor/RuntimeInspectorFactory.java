@@ -4,11 +4,14 @@ import ro.cs.tao.spi.ServiceRegistryManager;
 import ro.cs.tao.topology.NodeRole;
 import ro.cs.tao.utils.executors.AuthenticationType;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Set;
 
 public final class RuntimeInspectorFactory {
     private static final RuntimeInspectorFactory instance;
     private final Set<NodeRuntimeInspector> inspectors;
+    private final String localHost;
 
     static {
         instance = new RuntimeInspectorFactory();
@@ -20,9 +23,21 @@ public final class RuntimeInspectorFactory {
 
     private RuntimeInspectorFactory() {
         this.inspectors = ServiceRegistryManager.getInstance().getServiceRegistry(NodeRuntimeInspector.class).getServices();
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        this.localHost = host;
     }
 
     public NodeRuntimeInspector get(String host, NodeRole nodeRole, AuthenticationType authType, String user, String secret) throws Exception {
+        // the local (Linux) host is inspected in-process, without forking commands
+        if (this.localHost.equals(host) && ProcRuntimeInspector.isSupported()
+                && ProcRuntimeInspector.getInstance().isIntendedFor(nodeRole)) {
+            return ProcRuntimeInspector.getInstance();
+        }
         final NodeRuntimeInspector inspector = this.inspectors.stream().filter(i -> i.isIntendedFor(nodeRole)).findFirst().orElse(null);
         if (inspector == null) {
             throw new RuntimeException("No runtime inspector found for role " + nodeRole.name());
@@ -37,6 +37,7 @@ import ro.cs.tao.messaging.Topic;
 import ro.cs.tao.persistence.ContainerProvider;
 import ro.cs.tao.persistence.GroupComponentProvider;
 import ro.cs.tao.persistence.ProcessingComponentProvider;
+import ro.cs.tao.persistence.WorkflowMetadataCache;
 import ro.cs.tao.persistence.WorkflowNodeProvider;
 import ro.cs.tao.serialization.StringListAdapter;
 import ro.cs.tao.services.bridge.spring.SpringContextBridge;
@@ -45,6 +46,7 @@ import ro.cs.tao.utils.FileUtilities;
 import ro.cs.tao.utils.Tuple;
 import ro.cs.tao.workflow.ParameterValue;
 import ro.cs.tao.workflow.WorkflowNodeDescriptor;
+import ro.cs.tao.workflow.enums.ComponentType;
 import ro.cs.tao.workflow.enums.TransitionBehavior;
 
 import java.nio.file.Files;
@@ -72,6 +74,7 @@ public class TaskUtilities {
     private static final ExecutionTaskProvider taskProvider;
     private static final ExecutionJobProvider jobProvider;
     private static final ContainerProvider containerProvider;
+    private static final WorkflowMetadataCache metadataCache = WorkflowMetadataCache.getInstance();
     private static final Logger logger = Logger.getLogger(TaskUtilities.class.getName());
     private static final String DOCKER_MOUNT_POINT;
     private static final String DOCKER_EODATA_MOUNT_POINT;
@@ -101,7 +104,23 @@ public class TaskUtilities {
         if (task == null || task.getWorkflowNodeId() == null) {
             return null;
         }
-        return workflowNodeProvider.get(task.getWorkflowNodeId());
+        return getWorkflowNode(task.getWorkflowNodeId());
+    }
+
+    /**
+     * Returns the workflow node with the given identifier.
+     * The nodes don't change while a job is executed, hence they are served from {@link WorkflowMetadataCache}.
+     * @param nodeId    The node identifier
+     */
+    public static WorkflowNodeDescriptor getWorkflowNode(Long nodeId) {
+        return metadataCache.getNode(nodeId, id -> {
+            final WorkflowNodeDescriptor node = workflowNodeProvider.get(id);
+            if (node != null && node.getIncomingLinks() != null) {
+                // the links are lazily loaded, and the cached node is shared between threads
+                node.getIncomingLinks().size();
+            }
+            return node;
+        });
     }
 
     /**
@@ -109,12 +128,13 @@ public class TaskUtilities {
      * @param node  The workflow node
      */
     public static Container getComponentContainer(WorkflowNodeDescriptor node) {
-        final ProcessingComponent component = processingComponentProvider.get(node.getComponentId());
-        return containerProvider.get(component.getContainerId());
+        final ProcessingComponent component = metadataCache.getComponent(ComponentType.PROCESSING, node.getComponentId(),
+                                                                          processingComponentProvider::get);
+        return metadataCache.getContainer(component.getContainerId(), containerProvider::get);
     }
 
     public static int getComponentMemoryRequirements(ProcessingComponent component) {
-        Container container = containerProvider.get(component.getContainerId());
+        Container container = metadataCache.getContainer(component.getContainerId(), containerProvider::get);
         Application app = container.getApplications().stream().filter(a -> a.getName().equals(component.getId())).findFirst().orElse(null);
         return app != null ? app.getMemoryRequirements() : 0;
     }
@@ -126,7 +146,11 @@ public class TaskUtilities {
     public static TransitionBehavior getTransitionBehavior(ExecutionTask task) {
         /*WorkflowNodeDescriptor node = getWorkflowNode(task);
         return node != null ? node.getBehavior() : TransitionBehavior.FAIL_ON_ERROR;*/
-        return taskProvider.getTransitionBehavior(task.getId());
+        // the behavior is that of the workflow node, hence it is the same for all the tasks of the node
+        return task.getWorkflowNodeId() != null
+               ? metadataCache.getTransitionBehavior(task.getWorkflowNodeId(),
+                                                     () -> taskProvider.getTransitionBehavior(task.getId()))
+               : taskProvider.getTransitionBehavior(task.getId());
     }
 
     /**
@@ -136,7 +160,7 @@ public class TaskUtilities {
     public static TaoComponent getComponentFor(ExecutionTask task) {
         TaoComponent component = null;
         if (task != null) {
-            WorkflowNodeDescriptor node = workflowNodeProvider.get(task.getWorkflowNodeId());
+            WorkflowNodeDescriptor node = getWorkflowNode(task.getWorkflowNodeId());
             component = getComponentFor(node);
         }
         return component;
@@ -150,13 +174,16 @@ public class TaskUtilities {
         if (node != null) {
             switch (node.getComponentType()) {
                 case PROCESSING:
-                    component = processingComponentProvider.get(node.getComponentId());
+                    component = metadataCache.getComponent(ComponentType.PROCESSING, node.getComponentId(),
+                                                           processingComponentProvider::get);
                     break;
                 case DATASOURCE:
-                    component = dataSourceComponentProvider.get(node.getComponentId());
+                    component = metadataCache.getComponent(ComponentType.DATASOURCE, node.getComponentId(),
+                                                           dataSourceComponentProvider::get);
                     break;
                 case GROUP:
-                    component = groupComponentProvider.get(node.getComponentId());
+                    component = metadataCache.getComponent(ComponentType.GROUP, node.getComponentId(),
+                                                           groupComponentProvider::get);
                     break;
             }
         }
@@ -226,11 +253,11 @@ public class TaskUtilities {
      * are the sourceTask's outputs.
      */
     public static Map<String, String> getConnectedInputs(ExecutionTask sourceTask, ExecutionTask targetTask) {
-        final WorkflowNodeDescriptor targetNode = workflowNodeProvider.get(targetTask.getWorkflowNodeId());
+        final WorkflowNodeDescriptor targetNode = getWorkflowNode(targetTask.getWorkflowNodeId());
         final Set<ComponentLink> links = targetNode.getIncomingLinks();
         if (links != null && !links.isEmpty()) {
             final Map<String, String> connections = new LinkedHashMap<>();
-            final WorkflowNodeDescriptor sourceNode = workflowNodeProvider.get(sourceTask.getWorkflowNodeId());
+            final WorkflowNodeDescriptor sourceNode = getWorkflowNode(sourceTask.getWorkflowNodeId());
             links.stream()
                     .filter(l -> l.getSourceNodeId() == sourceNode.getId())
                     .forEach(l -> connections.put(l.getOutput().getName(), l.getInput().getName()));
@@ -241,7 +268,10 @@ public class TaskUtilities {
     }
 
     public static boolean isTerminalTask(ExecutionTask task) {
-        return taskProvider.isTerminalTask(task.getId());
+        // a task is terminal if its workflow node is
+        return task.getWorkflowNodeId() != null
+               ? metadataCache.isTerminalNode(task.getWorkflowNodeId(), () -> taskProvider.isTerminalTask(task.getId()))
+               : taskProvider.isTerminalTask(task.getId());
     }
 
     /**
@@ -270,7 +300,7 @@ public class TaskUtilities {
         if (toTask instanceof DataSourceExecutionTask) {
             throw new IllegalArgumentException("DataSourceExecutionTask cannot accept incoming links");
         }
-        final WorkflowNodeDescriptor node = workflowNodeProvider.get(toTask.getWorkflowNodeId());
+        final WorkflowNodeDescriptor node = getWorkflowNode(toTask.getWorkflowNodeId());
         final Set<ComponentLink> links = node.getIncomingLinks();
         if (links != null && !links.isEmpty()) {
             for (ComponentLink link : links) {
@@ -305,7 +335,7 @@ public class TaskUtilities {
      * @param task  The data source task that is inspected
      */
     public static boolean isSynchronized(DataSourceExecutionTask task) {
-        final Set<ComponentLink> links = workflowNodeProvider.get(task.getWorkflowNodeId()).getIncomingLinks();
+        final Set<ComponentLink> links = getWorkflowNode(task.getWorkflowNodeId()).getIncomingLinks();
         if (links == null || links.isEmpty()) {
             return false;
         }
@@ -399,7 +429,7 @@ public class TaskUtilities {
      */
     public static boolean isExternal(ExecutionTask task) {
         if (task instanceof ProcessingExecutionTask) {
-            final List<ParameterValue> additionalInfo = workflowNodeProvider.get(task.getWorkflowNodeId()).getAdditionalInfo();
+            final List<ParameterValue> additionalInfo = getWorkflowNode(task.getWorkflowNodeId()).getAdditionalInfo();
             return additionalInfo != null && additionalInfo.stream().anyMatch(p -> "externalTaskId".equals(p.getParameterName()));
         }
         return false;
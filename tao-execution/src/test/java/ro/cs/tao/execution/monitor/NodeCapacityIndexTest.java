@@ -0,0 +1,139 @@
+package ro.cs.tao.execution.monitor;
+
+import org.junit.Test;
+import ro.cs.tao.topology.NodeDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class NodeCapacityIndexTest {
+
+    @Test
+    public void testSelection() {
+        final NodeCapacityIndex index = new NodeCapacityIndex(n -> n.getRuntimeInfo().getCpuTotal());
+        final NodeManager.NodeRuntime small = node("small", 0.10, 1000);
+        final NodeManager.NodeRuntime large = node("large", 0.11, 8000);
+        final NodeManager.NodeRuntime loaded = node("loaded", 0.90, 2000);
+        final NodeManager.NodeRuntime owned = node("owned", "user", 0.50, 4000);
+        index.update(small);
+        index.update(large);
+        index.update(loaded);
+        index.update(owned);
+        // same load band: the node that fits best is selected
+        assertSame(small, index.reserve(null, 500, null, n -> true));
+        assertSame(large, index.reserve(null, 1500, null, n -> true));
+        // the last used node is selected only if there is no other one
+        assertSame(large, index.reserve(null, 100, small, n -> true));
+        assertSame(small, index.reserve(null, 100, small, n -> n == small));
+        // a more loaded band is used when no node in the less loaded one is suitable
+        assertSame(owned, index.reserve(null, 3000, null, n -> n != large));
+        assertNull(index.reserve(null, 3000, null, n -> n != large));
+        // only the nodes of the owner
+        assertSame(owned, index.reserve("user", 1000, null, n -> true));
+        assertNull(index.reserve("other", 1000, null, n -> true));
+        assertNull(index.reserve(null, 100, null, n -> false));
+    }
+
+    @Test
+    public void testSelectionFromLeastLoadedBand() {
+        final Random random = new Random(42);
+        final NodeCapacityIndex index = new NodeCapacityIndex(n -> n.getRuntimeInfo().getCpuTotal());
+        final List<NodeManager.NodeRuntime> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final NodeManager.NodeRuntime node = node("node" + i, random.nextDouble(), random.nextInt(16000));
+            nodes.add(node);
+            index.update(node);
+        }
+        for (int i = 0; i < 500; i++) {
+            final long memory = random.nextInt(4000);
+            long expectedBand = Long.MAX_VALUE;
+            long expectedMemory = Long.MAX_VALUE;
+            for (NodeManager.NodeRuntime node : nodes) {
+                final long available = node.getRuntimeInfo().getAvailableMemory();
+                final long band = band(node);
+                if (available >= memory &&
+                        (band < expectedBand || (band == expectedBand && available < expectedMemory))) {
+                    expectedBand = band;
+                    expectedMemory = available;
+                }
+            }
+            final NodeManager.NodeRuntime selected = index.reserve(null, memory, null, n -> true);
+            if (expectedBand == Long.MAX_VALUE) {
+                assertNull(selected);
+            } else {
+                assertEquals(expectedBand, band(selected));
+                assertEquals(expectedMemory - memory, selected.getRuntimeInfo().getAvailableMemory());
+            }
+        }
+    }
+
+    @Test
+    public void testReleaseOnSingleNode() {
+        final NodeCapacityIndex index = new NodeCapacityIndex(n -> n.getRuntimeInfo().getCpuTotal());
+        final NodeManager.NodeRuntime node = node("node1", 1.0, 500);
+        index.update(node);
+        // a single node is selected even without enough memory
+        assertSame(node, index.reserve(null, 1000, null, n -> true));
+        assertEquals(-500, node.getRuntimeInfo().getAvailableMemory());
+        index.release("node1", 1000);
+        assertEquals(500, node.getRuntimeInfo().getAvailableMemory());
+        // nothing is left to release
+        index.release("node1", 1000);
+        assertEquals(500, node.getRuntimeInfo().getAvailableMemory());
+    }
+
+    @Test
+    public void testReleaseMakesNodeSelectable() {
+        final NodeCapacityIndex index = new NodeCapacityIndex(n -> n.getRuntimeInfo().getCpuTotal());
+        final NodeManager.NodeRuntime node1 = node("node1", 1.0, 1000);
+        final NodeManager.NodeRuntime node2 = node("node2", 2.0, 100);
+        index.update(node1);
+        index.update(node2);
+        assertSame(node1, index.reserve(null, 800, null, n -> true));
+        // the reservation of a task that was not submitted blocks the next one until it is released
+        assertNull(index.reserve(null, 800, null, n -> true));
+        index.release("node1", 800);
+        assertSame(node1, index.reserve(null, 800, null, n -> true));
+    }
+
+    @Test
+    public void testReleaseAfterRefresh() {
+        final NodeCapacityIndex index = new NodeCapacityIndex(n -> n.getRuntimeInfo().getCpuTotal());
+        final NodeManager.NodeRuntime node1 = node("node1", 1.0, 1000);
+        index.update(node1);
+        index.update(node("node2", 2.0, 100));
+        assertSame(node1, index.reserve(null, 800, null, n -> true));
+        // the refreshed information no longer includes the reservation
+        node1.setRuntimeInfo(runtimeInfo(1.0, 900));
+        index.update(node1);
+        index.release("node1", 800);
+        assertEquals(900, node1.getRuntimeInfo().getAvailableMemory());
+    }
+
+    private static long band(NodeManager.NodeRuntime node) {
+        return (long) Math.floor(node.getRuntimeInfo().getCpuTotal() / NodeCapacityIndex.LOAD_BAND);
+    }
+
+    static NodeManager.NodeRuntime node(String host, double cpu, long memory) {
+        return node(host, null, cpu, memory);
+    }
+
+    static NodeManager.NodeRuntime node(String host, String owner, double cpu, long memory) {
+        final NodeDescription node = new NodeDescription();
+        node.setId(host);
+        node.setOwner(owner);
+        return new NodeManager.NodeRuntime(node, runtimeInfo(cpu, memory));
+    }
+
+    private static RuntimeInfo runtimeInfo(double cpu, long memory) {
+        final RuntimeInfo info = new RuntimeInfo();
+        info.setCpuTotal(cpu);
+        info.setAvailableMemory(memory);
+        return info;
+    }
+}
@@ -0,0 +1,65 @@
+package ro.cs.tao.execution.monitor;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NodeTelemetryTest {
+
+    @Test
+    public void testSampleFraming() {
+        final NodeTelemetry telemetry = new NodeTelemetry(5, 2);
+        final NodeTelemetry.Stream stream = telemetry.new Stream("node1");
+        // no sample until the end marker is received
+        write(stream, "load line\r\nMemTotal: 100 kB\n#proc  12  5.5 2048 java\n#proc bad\nFilesystem");
+        assertNull(stream.getSample());
+        assertTrue(stream.getProcesses().isEmpty());
+        // the output comes in arbitrary chunks
+        write(stream, " 1K-blocks\n#tao-sample");
+        write(stream, "-end\n");
+        assertEquals(Arrays.asList("load line", "MemTotal: 100 kB", "Filesystem 1K-blocks"), stream.getSample());
+        final List<NodeTelemetry.ProcessUsage> processes = stream.getProcesses();
+        assertEquals(1, processes.size());
+        assertEquals(12, processes.get(0).getPid());
+        assertEquals(1, telemetry.getSampleCount());
+        // the next sample replaces the previous one
+        write(stream, "other line\n#tao-sample-end\n");
+        assertEquals(Arrays.asList("other line"), stream.getSample());
+        assertTrue(stream.getProcesses().isEmpty());
+        assertEquals(2, telemetry.getSampleCount());
+    }
+
+    @Test
+    public void testResetDropsPartialOutput() {
+        final NodeTelemetry telemetry = new NodeTelemetry(5, 2);
+        final NodeTelemetry.Stream stream = telemetry.new Stream("node1");
+        write(stream, "stale line\npartial");
+        // the stream is re-opened
+        stream.reset();
+        write(stream, "fresh line\n#tao-sample-end\n");
+        assertEquals(Arrays.asList("fresh line"), stream.getSample());
+    }
+
+    @Test
+    public void testParseProcess() {
+        final NodeTelemetry.ProcessUsage usage = NodeTelemetry.parseProcess("  4242  12.5  1048576 java -Xmx2g -jar app.jar");
+        assertEquals(4242, usage.getPid());
+        assertEquals(12.5, usage.getCpu(), 1e-9);
+        assertEquals(1024, usage.getMemoryMB());
+        assertEquals("java -Xmx2g -jar app.jar", usage.getCommand());
+        assertNull(NodeTelemetry.parseProcess("4242 12.5 1048576"));
+        assertNull(NodeTelemetry.parseProcess("pid 12.5 1048576 java"));
+        assertNull(NodeTelemetry.parseProcess(""));
+    }
+
+    private static void write(NodeTelemetry.Stream stream, String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        stream.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,76 @@
+package ro.cs.tao.execution.monitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProcRuntimeInspectorTest {
+    private static final String STAT =
+            "cpu  %d 10 100 %d 50 0 20 0 0 0\n" +
+            "cpu0 500 5 50 400 25 0 10 0 0 0\n" +
+            "intr 123456 0 0\n" +
+            "ctxt 987654\n";
+    private static final String MEMINFO =
+            "MemTotal:       16384000 kB\n" +
+            "MemFree:         1024000 kB\n" +
+            "MemAvailable:    8192000 kB\n" +
+            "Buffers:          204800 kB\n" +
+            "Cached:          4096000 kB\n" +
+            "SwapCached:            0 kB\n";
+    private static final String LOADAVG = "1.25 0.80 0.50 2/345 6789\n";
+    private Path folder;
+    private Path stat;
+    private ProcRuntimeInspector inspector;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("proc");
+        stat = folder.resolve("stat");
+        final Path meminfo = folder.resolve("meminfo");
+        final Path loadavg = folder.resolve("loadavg");
+        Files.writeString(meminfo, MEMINFO);
+        Files.writeString(loadavg, LOADAVG);
+        inspector = new ProcRuntimeInspector(stat, meminfo, loadavg);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> stream = Files.walk(folder)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testProcessorUsage() throws IOException {
+        final int processors = java.lang.Runtime.getRuntime().availableProcessors();
+        // user nice system idle iowait irq softirq steal (guest times are ignored)
+        Files.writeString(stat, String.format(STAT, 1000, 800));
+        // without a previous sample, the 1-minute load average is returned
+        assertEquals(1.25, inspector.getProcessorUsage(), 1e-9);
+        // 200 more jiffies, of which 50 idle
+        Files.writeString(stat, String.format(STAT, 1150, 850));
+        assertEquals(0.75 * processors, inspector.getProcessorUsage(), 1e-9);
+        // no time elapsed
+        assertEquals(1.25, inspector.getProcessorUsage(), 1e-9);
+        // fully idle
+        Files.writeString(stat, String.format(STAT, 1150, 950));
+        assertEquals(0, inspector.getProcessorUsage(), 1e-9);
+    }
+
+    @Test
+    public void testMemory() throws IOException {
+        assertEquals(16000, inspector.getTotalMemoryMB());
+        assertEquals(8000, inspector.getAvailableMemoryMB());
+        // a file without the expected keys
+        Files.writeString(folder.resolve("meminfo"), "MemFree: 1024 kB\n");
+        assertEquals(0, inspector.getTotalMemoryMB());
+    }
+}
@@ -0,0 +1,342 @@
+package ro.cs.eo.gdal.dataio;
+
+import ro.cs.eo.gdal.dataio.drivers.Band;
+import ro.cs.eo.gdal.dataio.drivers.Dataset;
+import ro.cs.eo.gdal.dataio.drivers.GDAL;
+import ro.cs.eo.gdal.dataio.drivers.GDALConst;
+import ro.cs.eo.gdal.dataio.drivers.GDALConstConstants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a raster band block by block, in the natural block layout of the file
+ * (as given by <code>GetBlockXSize</code> / <code>GetBlockYSize</code>), so that GDAL does not have to
+ * re-assemble arbitrary windows from several blocks.
+ * The blocks are read in parallel by a bounded pool of threads, each thread using its own dataset handle
+ * (GDAL dataset handles are not thread-safe), into a bounded pool of reusable direct buffers.
+ * The blocks are delivered in row-major order by {@link #blocks()}.
+ *
+ * @since   1.5.2
+ */
+public class BandBlockReader implements Closeable {
+    private static final Logger logger = Logger.getLogger(BandBlockReader.class.getName());
+    private static final AtomicInteger readerCount = new AtomicInteger();
+    /* How often a stream waiting for a free buffer checks if the reader was closed */
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final Path file;
+    private final int bandIndex;
+    private final int rasterWidth;
+    private final int rasterHeight;
+    private final int blockWidth;
+    private final int blockHeight;
+    private final int dataType;
+    private final int pixelSize;
+    private final int blocksX;
+    private final int blocksY;
+    private final ExecutorService executor;
+    private final ThreadLocal<Band> threadBand;
+    private final Queue<Dataset> openDatasets;
+    private final BlockingQueue<ByteBuffer> bufferPool;
+    private volatile boolean closed;
+
+    /**
+     * Creates a reader for the given band of a raster file.
+     *
+     * @param file          The raster file
+     * @param bandIndex     The (1-based) band index
+     * @param parallelism   The maximum number of blocks read concurrently
+     */
+    public BandBlockReader(Path file, int bandIndex, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.file = file;
+        this.bandIndex = bandIndex;
+        final Dataset dataset = openDataset();
+        try {
+            final Band band = dataset.getRasterBand(bandIndex);
+            if (band == null) {
+                throw new IOException(String.format("Band %d not found in %s", bandIndex, file));
+            }
+            this.rasterWidth = band.getXSize();
+            this.rasterHeight = band.getYSize();
+            this.blockWidth = band.getBlockXSize();
+            this.blockHeight = band.getBlockYSize();
+            this.dataType = band.getDataType();
+        } finally {
+            dataset.delete();
+        }
+        this.pixelSize = GDAL.getDataTypeSize(this.dataType) / Byte.SIZE;
+        this.blocksX = (this.rasterWidth + this.blockWidth - 1) / this.blockWidth;
+        this.blocksY = (this.rasterHeight + this.blockHeight - 1) / this.blockHeight;
+        this.openDatasets = new ConcurrentLinkedQueue<>();
+        this.threadBand = new ThreadLocal<>();
+        final int readerId = readerCount.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, "block-reader-" + readerId + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // two buffers per thread: one being read while the other one is consumed
+        final int buffers = Math.min(2 * parallelism, this.blocksX * this.blocksY);
+        this.bufferPool = new ArrayBlockingQueue<>(Math.max(buffers, 1));
+        for (int i = 0; i < buffers; i++) {
+            this.bufferPool.offer(ByteBuffer.allocateDirect(this.blockWidth * this.blockHeight * this.pixelSize)
+                                            .order(ByteOrder.nativeOrder()));
+        }
+    }
+
+    public int getRasterWidth() { return rasterWidth; }
+
+    public int getRasterHeight() { return rasterHeight; }
+
+    public int getBlockWidth() { return blockWidth; }
+
+    public int getBlockHeight() { return blockHeight; }
+
+    public int getBlocksX() { return blocksX; }
+
+    public int getBlocksY() { return blocksY; }
+
+    public int getDataType() { return dataType; }
+
+    /**
+     * Returns the blocks of the band, in row-major order.
+     * A block is valid until the stream advances to the next block (or is closed), hence callers that need
+     * to retain the pixels have to copy them. The stream should be closed after use.
+     */
+    public Stream<RasterBlock> blocks() {
+        checkOpen();
+        final BlockSpliterator spliterator = new BlockSpliterator();
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::cancel);
+    }
+
+    /**
+     * Reads a single block, on the calling thread, into a newly allocated buffer.
+     *
+     * @param blockX    The column of the block in the block grid
+     * @param blockY    The row of the block in the block grid
+     */
+    public RasterBlock readBlock(int blockX, int blockY) throws IOException {
+        checkOpen();
+        final Dataset dataset = openDataset();
+        try {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(this.blockWidth * this.blockHeight * this.pixelSize)
+                                                .order(ByteOrder.nativeOrder());
+            return read(band(dataset), blockX, blockY, buffer, false);
+        } finally {
+            dataset.delete();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            // the reads that did not start are cancelled, so that the streams waiting for them are released
+            for (Runnable read : this.executor.shutdownNow()) {
+                if (read instanceof Future) {
+                    ((Future<?>) read).cancel(false);
+                }
+            }
+            try {
+                if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    logger.warning(String.format("Block reads of %s did not terminate", this.file));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Dataset dataset;
+            while ((dataset = this.openDatasets.poll()) != null) {
+                dataset.delete();
+            }
+            this.bufferPool.clear();
+        }
+    }
+
+    void releaseBuffer(ByteBuffer buffer) {
+        if (!this.closed) {
+            buffer.clear();
+            this.bufferPool.offer(buffer);
+        }
+    }
+
+    private RasterBlock read(Band band, int blockX, int blockY, ByteBuffer buffer, boolean pooled) throws IOException {
+        final int result = band.readBlockDirect(blockX, blockY, buffer);
+        if (result != GDALConstConstants.ceNone()) {
+            throw new IOException(String.format("Cannot read block (%d,%d) of band %d of %s: %s",
+                                                blockX, blockY, this.bandIndex, this.file, GDAL.getLastErrorMsg()));
+        }
+        final int x = blockX * this.blockWidth;
+        final int y = blockY * this.blockHeight;
+        return new RasterBlock(this, blockX, blockY, x, y,
+                               Math.min(this.blockWidth, this.rasterWidth - x),
+                               Math.min(this.blockHeight, this.rasterHeight - y),
+                               this.blockWidth, this.dataType, buffer, pooled);
+    }
+
+    private RasterBlock readPooled(int blockX, int blockY, ByteBuffer buffer) throws IOException {
+        try {
+            Band band = this.threadBand.get();
+            if (band == null) {
+                final Dataset dataset = openDataset();
+                this.openDatasets.add(dataset);
+                band = band(dataset);
+                this.threadBand.set(band);
+            }
+            return read(band, blockX, blockY, buffer, true);
+        } catch (IOException | RuntimeException e) {
+            releaseBuffer(buffer);
+            throw e;
+        }
+    }
+
+    private Band band(Dataset dataset) throws IOException {
+        final Band band = dataset.getRasterBand(this.bandIndex);
+        if (band == null) {
+            throw new IOException(String.format("Band %d not found in %s", this.bandIndex, this.file));
+        }
+        return band;
+    }
+
+    private Dataset openDataset() throws IOException {
+        final Dataset dataset = GDAL.open(this.file.toString(), GDALConst.gaReadonly());
+        if (dataset == null) {
+            throw new IOException(String.format("Cannot open %s: %s", this.file, GDAL.getLastErrorMsg()));
+        }
+        return dataset;
+    }
+
+    private void checkOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("Reader closed");
+        }
+    }
+
+    /**
+     * Submits the block reads ahead of the consumer, as long as there are free buffers. The buffers are taken
+     * on the consumer thread, in block order, so that a pending read never waits for a buffer held by
+     * a later block.
+     */
+    private class BlockSpliterator extends Spliterators.AbstractSpliterator<RasterBlock> {
+        private final Queue<Future<RasterBlock>> pending = new ArrayDeque<>();
+        private final Queue<ByteBuffer> pendingBuffers = new ArrayDeque<>();
+        private int next;
+        private RasterBlock current;
+
+        BlockSpliterator() {
+            super((long) blocksX * blocksY,
+                  Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED | Spliterator.IMMUTABLE);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super RasterBlock> action) {
+            releaseCurrent();
+            final int total = blocksX * blocksY;
+            try {
+                if (this.pending.isEmpty() && this.next < total) {
+                    submit(takeBuffer());
+                }
+                ByteBuffer buffer;
+                while (this.next < total && (buffer = bufferPool.poll()) != null) {
+                    submit(buffer);
+                }
+                final Future<RasterBlock> future = this.pending.poll();
+                if (future == null) {
+                    return false;
+                }
+                this.pendingBuffers.poll();
+                this.current = future.get();
+            } catch (CancellationException e) {
+                cancel();
+                throw new IllegalStateException("Reader closed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new IllegalStateException("Interrupted while reading " + file, e);
+            } catch (ExecutionException e) {
+                cancel();
+                final Throwable cause = e.getCause();
+                throw cause instanceof IOException
+                        ? new UncheckedIOException((IOException) cause)
+                        : new RuntimeException(cause);
+            }
+            action.accept(this.current);
+            return true;
+        }
+
+        void cancel() {
+            releaseCurrent();
+            Future<RasterBlock> future;
+            while ((future = this.pending.poll()) != null) {
+                final ByteBuffer buffer = this.pendingBuffers.poll();
+                if (future.cancel(false)) {
+                    // the read will not run, so the buffer goes back to the pool from here
+                    releaseBuffer(buffer);
+                } else {
+                    try {
+                        future.get().release();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ignored) {
+                        // the buffer was returned by the failed read
+                    } catch (CancellationException ignored) {
+                        // the read was cancelled when the reader was closed, the buffers are discarded
+                    }
+                }
+            }
+            this.next = blocksX * blocksY;
+        }
+
+        /**
+         * Waits for a free buffer. The buffers are discarded when the reader is closed, hence the wait ends
+         * (with an exception) if the reader is closed meanwhile.
+         */
+        private ByteBuffer takeBuffer() throws InterruptedException {
+            ByteBuffer buffer;
+            while ((buffer = bufferPool.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (closed) {
+                    throw new IllegalStateException("Reader closed");
+                }
+            }
+            return buffer;
+        }
+
+        private void submit(ByteBuffer buffer) {
+            final int blockX = this.next % blocksX;
+            final int blockY = this.next / blocksX;
+            this.next++;
+            try {
+                this.pending.add(executor.submit(() -> readPooled(blockX, blockY, buffer)));
+                this.pendingBuffers.add(buffer);
+            } catch (RejectedExecutionException e) {
+                releaseBuffer(buffer);
+                throw new IllegalStateException("Reader closed", e);
+            }
+        }
+
+        private void releaseCurrent() {
+            if (this.current != null) {
+                this.current.release();
+                this.current = null;
+            }
+        }
+    }
+}
@@ -6,8 +6,17 @@ import java.io.IOException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Stream;
 
+/**
+ * Disk cache of the tiles rendered by GDAL.
+ * The cache is safe for concurrent use, is bounded by the total size of the tiles (and optionally by their age),
+ * evicts the least recently used tiles first, and, unless cleared at startup, is reloaded from the cache directory.
+ */
 public final class GDALTileCache {
 
     private final GDALTileCacheMap cachedTiles;
@@ -15,14 +24,27 @@ public final class GDALTileCache {
     private final boolean cacheEnabled;
     private Path cacheDirPath;
     private final boolean cacheClearAtStartup;
+    private final long maxAgeMillis;
 
 
     public GDALTileCache(boolean enabled, Path cachePath, int size, boolean cleanOnStrartup) {
+        this(enabled, cachePath, size, cleanOnStrartup, 0);
+    }
+
+    /**
+     * @param enabled           If the cache is enabled
+     * @param cachePath         The cache directory
+     * @param size              The maximum size of the cache, in MB
+     * @param cleanOnStrartup   If the cache directory should be cleared at startup
+     * @param maxAgeMillis      The maximum age of a tile, in milliseconds (0 for no limit)
+     */
+    public GDALTileCache(boolean enabled, Path cachePath, int size, boolean cleanOnStrartup, long maxAgeMillis) {
         this.cacheEnabled = enabled;
         this.cacheDirPath = cachePath;
         this.cacheClearAtStartup = cleanOnStrartup;
+        this.maxAgeMillis = maxAgeMillis;
         if (this.cacheEnabled) {
-            this.cachedTiles = new GDALTileCacheMap(size);
+            this.cachedTiles = new GDALTileCacheMap(size, maxAgeMillis);
             initCache();
         } else {
             this.cachedTiles = null;
@@ -60,11 +82,14 @@ public final class GDALTileCache {
 
     private void loadCache() {
         if (Files.exists(this.cacheDirPath)) {
+            final List<CachedFile> files = new ArrayList<>();
             try (Stream<Path> paths = Files.walk(this.cacheDirPath, FileVisitOption.FOLLOW_LINKS)) {
-                paths.filter(Files::isRegularFile).forEach(tilePath -> {
+                paths.forEach(tilePath -> {
                     try {
-                        final long fileSize = Files.size(tilePath);
-                        this.cachedTiles.putTileInCache(tilePath, fileSize);
+                        final BasicFileAttributes attributes = Files.readAttributes(tilePath, BasicFileAttributes.class);
+                        if (attributes.isRegularFile()) {
+                            files.add(new CachedFile(tilePath, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                        }
                     } catch (IOException e) {
                         System.err.println("Fail to load file from cache: " + tilePath);
                     }
@@ -72,6 +97,20 @@ public final class GDALTileCache {
             } catch (IOException e) {
                 System.err.println("Fail to load cache from: " + this.cacheDirPath);
             }
+            // oldest first, so that the most recent tiles survive if the cache is over its size limit
+            files.sort(Comparator.comparingLong(f -> f.modified));
+            final long now = System.currentTimeMillis();
+            for (CachedFile file : files) {
+                if (this.maxAgeMillis > 0 && now - file.modified > this.maxAgeMillis) {
+                    try {
+                        Files.deleteIfExists(file.path);
+                    } catch (IOException e) {
+                        System.err.println("Fail to delete file from cache: " + file.path);
+                    }
+                } else {
+                    this.cachedTiles.putTileInCache(file.path, file.size, file.modified);
+                }
+            }
         }
     }
 
@@ -80,12 +119,87 @@ public final class GDALTileCache {
     }
 
     public void putTile(Path tileFilePath, long tileSize) {
-        this.cachedTiles.putTileInCache(tileFilePath, tileSize);
+        if (this.cacheEnabled) {
+            this.cachedTiles.putTileInCache(tileFilePath, tileSize);
+        }
     }
 
     public Path getTilePath(String imageFileName, int x, int y, byte z, int pixelMinScale, int pixelMaxScale){
         return this.cacheDirPath.resolve(imageFileName).resolve("" + z).resolve("" + x).resolve(y + "-" + pixelMinScale + "_" + pixelMaxScale + ".PNG");
     }
 
+    /**
+     * Returns the path of the cached tile, or <code>null</code> if the tile is not cached (or is expired, or the cache
+     * is disabled).
+     * The lookup is counted as a hit or a miss.
+     */
+    public Path getCachedTile(String imageFileName, int x, int y, byte z, int pixelMinScale, int pixelMaxScale) {
+        if (!this.cacheEnabled) {
+            return null;
+        }
+        final Path tilePath = getTilePath(imageFileName, x, y, z, pixelMinScale, pixelMaxScale);
+        return this.cachedTiles.touchTile(tilePath) ? tilePath : null;
+    }
 
+    public void removeTile(Path tileFilePath) {
+        if (this.cacheEnabled) {
+            this.cachedTiles.removeTile(tileFilePath);
+        }
+    }
+
+    /**
+     * Evicts the tiles older than the maximum age. Expired tiles are otherwise evicted when looked up,
+     * or first when the cache is over its size limit.
+     */
+    public void evictExpiredTiles() {
+        if (this.cacheEnabled) {
+            this.cachedTiles.evictExpired();
+        }
+    }
+
+    public int getTileCount() {
+        return this.cacheEnabled ? this.cachedTiles.getTileCount() : 0;
+    }
+
+    public long getUsedBytes() {
+        return this.cacheEnabled ? this.cachedTiles.getUsedBytes() : 0;
+    }
+
+    public long getMaxBytes() {
+        return this.cacheEnabled ? this.cachedTiles.getMaxBytes() : 0;
+    }
+
+    public long getHitCount() {
+        return this.cacheEnabled ? this.cachedTiles.getHits() : 0;
+    }
+
+    public long getMissCount() {
+        return this.cacheEnabled ? this.cachedTiles.getMisses() : 0;
+    }
+
+    public long getEvictionCount() {
+        return this.cacheEnabled ? this.cachedTiles.getEvictions() : 0;
+    }
+
+    public long getEvictedBytes() {
+        return this.cacheEnabled ? this.cachedTiles.getEvictedBytes() : 0;
+    }
+
+    public double getHitRatio() {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    private static final class CachedFile {
+        private final Path path;
+        private final long size;
+        private final long modified;
+
+        private CachedFile(Path path, long size, long modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
 }
@@ -5,63 +5,204 @@ import ro.cs.tao.utils.executors.MemoryUnit;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
-final class GDALTileCacheMap extends LinkedHashMap<Path, Long> {
+/**
+ * Concurrent index of the tiles of a disk tile cache, bounded by the total size (in bytes) of the tiles and,
+ * optionally, by the age of the tiles.
+ * Lookups and insertions do not lock; when the cache grows over its size limit, the least recently used tiles
+ * are evicted (by a single thread at a time) until the cache is back under a low watermark, so that
+ * the eviction cost is amortized over several insertions. The evicted files are deleted asynchronously.
+ */
+final class GDALTileCacheMap {
 
-    private static final BlockingQueue<Path> evictionQueue = new LinkedBlockingQueue<>();
+    // after an eviction pass, the cache is filled up to this fraction of its size limit
+    private static final double LOW_WATERMARK = 0.9;
+    private static final ExecutorService tileEvictor = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "tile-cache-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private final int cacheSize;
-    private final AtomicLong usedCacheSize = new AtomicLong(0);
+    private final Map<Path, Tile> tiles = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
 
-    GDALTileCacheMap(int cacheSize) {
-        super();
-        this.cacheSize = cacheSize;
-        TileEvictor tileEvictor = new TileEvictor();
-        tileEvictor.setName("tile-cache-evictor");
-        tileEvictor.start();
+    /**
+     * @param cacheSize     The maximum size of the cache, in MB
+     * @param maxAgeMillis  The maximum age of a tile, in milliseconds (0 for no limit)
+     */
+    GDALTileCacheMap(int cacheSize, long maxAgeMillis) {
+        this.maxBytes = cacheSize * MemoryUnit.MB.value();
+        this.maxAgeMillis = maxAgeMillis;
     }
 
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<Path, Long> eldest) {
-        final boolean removeEldestEntry = this.usedCacheSize.get() / MemoryUnit.MB.value() >= this.cacheSize;
-        if(removeEldestEntry){
-            evictTileFromCache(eldest.getKey(), eldest.getValue());
+    void putTileInCache(Path key, long tileSize) {
+        putTileInCache(key, tileSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds (or replaces) a tile, as if created at the given time (used when reloading the cache from disk).
+     */
+    void putTileInCache(Path key, long tileSize, long createdTime) {
+        final Tile previous = this.tiles.put(key, new Tile(tileSize, createdTime));
+        this.usedBytes.getAndAdd(previous != null ? tileSize - previous.size : tileSize);
+        if (this.usedBytes.get() > this.maxBytes) {
+            evictLeastRecentlyUsed();
         }
-        return removeEldestEntry;
     }
 
-    void putTileInCache(Path key, long tileSize) {
-        this.usedCacheSize.getAndAdd(tileSize);
-        super.put(key, tileSize);
+    /**
+     * Returns <code>true</code> if the tile is cached and not expired, and marks it as recently used.
+     * An expired tile, or a tile whose file no longer exists, is evicted.
+     */
+    boolean touchTile(Path key) {
+        final Tile tile = this.tiles.get(key);
+        if (tile == null) {
+            this.misses.increment();
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        // a tile written concurrently with the eviction of its previous version may have been deleted
+        if (isExpired(tile, now) || !Files.exists(key)) {
+            evict(key, tile);
+            this.misses.increment();
+            return false;
+        }
+        tile.lastAccess = now;
+        this.hits.increment();
+        return true;
+    }
+
+    void removeTile(Path key) {
+        final Tile tile = this.tiles.get(key);
+        if (tile != null) {
+            evict(key, tile);
+        }
+    }
+
+    /**
+     * Evicts the tiles older than the maximum age.
+     */
+    void evictExpired() {
+        if (this.maxAgeMillis > 0) {
+            final long now = System.currentTimeMillis();
+            this.tiles.forEach((key, tile) -> {
+                if (isExpired(tile, now)) {
+                    evict(key, tile);
+                }
+            });
+        }
     }
 
-    private void evictTileFromCache(Path tilePath, Long tileSize) {
-        this.usedCacheSize.getAndAdd(-tileSize);
-        evictionQueue.add(tilePath);
+    void clear() {
+        this.tiles.clear();
+        this.usedBytes.set(0);
     }
 
-    private static class TileEvictor extends Thread {
+    int getTileCount() { return this.tiles.size(); }
+
+    long getUsedBytes() { return this.usedBytes.get(); }
+
+    long getMaxBytes() { return this.maxBytes; }
+
+    long getHits() { return this.hits.sum(); }
+
+    long getMisses() { return this.misses.sum(); }
 
-        @Override
-        public void run() {
-            while (this.isAlive()) {
-                evictTile();
+    long getEvictions() { return this.evictions.sum(); }
+
+    long getEvictedBytes() { return this.evictedBytes.sum(); }
+
+    private boolean isExpired(Tile tile, long now) {
+        return this.maxAgeMillis > 0 && now - tile.created > this.maxAgeMillis;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        // if another thread is already evicting, it will bring the cache under the limit
+        if (!this.evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final long target = (long) (this.maxBytes * LOW_WATERMARK);
+            if (this.usedBytes.get() <= target) {
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            // the access times are copied, since they may change while sorting
+            final List<Candidate> candidates = new ArrayList<>(this.tiles.size());
+            this.tiles.forEach((key, tile) -> candidates.add(new Candidate(key, tile,
+                                                                          isExpired(tile, now) ? Long.MIN_VALUE : tile.lastAccess)));
+            candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+            for (Candidate candidate : candidates) {
+                if (this.usedBytes.get() <= target) {
+                    break;
+                }
+                evict(candidate.key, candidate.tile);
             }
+        } finally {
+            this.evictionLock.unlock();
         }
+    }
 
-        private void evictTile() {
-            try {
-                final Path tileFileToEvict = evictionQueue.take();
-                Files.deleteIfExists(tileFileToEvict);
-            } catch (IOException | InterruptedException e) {
-                System.err.println("Fail to delete file from GDAL tile cache.");
-            }
+    private void evict(Path key, Tile tile) {
+        // only the thread that actually removes the entry accounts for it
+        if (this.tiles.remove(key, tile)) {
+            this.usedBytes.getAndAdd(-tile.size);
+            this.evictions.increment();
+            this.evictedBytes.add(tile.size);
+            final Instant evictedTime = Instant.now();
+            tileEvictor.submit(() -> {
+                // the tile may have been written again meanwhile (and may not be registered yet)
+                try {
+                    if (!this.tiles.containsKey(key) && Files.exists(key)
+                            && !Files.getLastModifiedTime(key).toInstant().isAfter(evictedTime)) {
+                        Files.deleteIfExists(key);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Fail to delete file from GDAL tile cache: " + key);
+                }
+            });
         }
+    }
+
+    private static final class Tile {
+        private final long size;
+        private final long created;
+        private volatile long lastAccess;
 
+        private Tile(long size, long created) {
+            this.size = size;
+            this.created = created;
+            this.lastAccess = created;
+        }
+    }
+
+    private static final class Candidate {
+        private final Path key;
+        private final Tile tile;
+        private final long lastAccess;
+
+        private Candidate(Path key, Tile tile, long lastAccess) {
+            this.key = key;
+            this.tile = tile;
+            this.lastAccess = lastAccess;
+        }
     }
 }
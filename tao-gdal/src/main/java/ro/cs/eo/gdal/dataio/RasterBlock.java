@@ -0,0 +1,149 @@
+package ro.cs.eo.gdal.dataio;
+
+import ro.cs.eo.gdal.dataio.drivers.GDALConstConstants;
+
+import java.nio.*;
+
+/**
+ * A block of a raster band, as read by {@link BandBlockReader}.
+ * The pixels are stored in native byte order, line by line, each line having {@link #getLineStride()} pixels,
+ * of which only the first {@link #getWidth()} are valid (the blocks on the right and bottom edges of the raster
+ * are only partially filled).
+ * The blocks delivered by {@link BandBlockReader#blocks()} hold a pooled buffer, hence they are valid only until
+ * they are released.
+ *
+ * @since   1.5.2
+ */
+public final class RasterBlock {
+    private final BandBlockReader reader;
+    private final int blockX;
+    private final int blockY;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int lineStride;
+    private final int dataType;
+    private final boolean pooled;
+    private ByteBuffer buffer;
+
+    RasterBlock(BandBlockReader reader, int blockX, int blockY, int x, int y, int width, int height,
+                int lineStride, int dataType, ByteBuffer buffer, boolean pooled) {
+        this.reader = reader;
+        this.blockX = blockX;
+        this.blockY = blockY;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.lineStride = lineStride;
+        this.dataType = dataType;
+        this.buffer = buffer;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Returns the column of this block in the block grid
+     */
+    public int getBlockX() { return blockX; }
+
+    /**
+     * Returns the row of this block in the block grid
+     */
+    public int getBlockY() { return blockY; }
+
+    /**
+     * Returns the raster column of the first pixel of this block
+     */
+    public int getX() { return x; }
+
+    /**
+     * Returns the raster row of the first pixel of this block
+     */
+    public int getY() { return y; }
+
+    /**
+     * Returns the number of valid pixels on a line of this block
+     */
+    public int getWidth() { return width; }
+
+    /**
+     * Returns the number of valid lines of this block
+     */
+    public int getHeight() { return height; }
+
+    /**
+     * Returns the number of pixels between the starts of two consecutive lines
+     */
+    public int getLineStride() { return lineStride; }
+
+    /**
+     * Returns the GDAL data type of the pixels
+     */
+    public int getDataType() { return dataType; }
+
+    /**
+     * Returns a read-only view of the block data (in native byte order)
+     */
+    public ByteBuffer getData() {
+        return data().asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    public ShortBuffer asShortBuffer() { return getData().asShortBuffer(); }
+
+    public IntBuffer asIntBuffer() { return getData().asIntBuffer(); }
+
+    public FloatBuffer asFloatBuffer() { return getData().asFloatBuffer(); }
+
+    public DoubleBuffer asDoubleBuffer() { return getData().asDoubleBuffer(); }
+
+    /**
+     * Returns the value of a pixel of this block, converted to double (unsigned types are handled).
+     *
+     * @param column    The column, relative to the block
+     * @param line      The line, relative to the block
+     */
+    public double getValue(int column, int line) {
+        final ByteBuffer data = data();
+        final int index = line * lineStride + column;
+        if (dataType == GDALConstConstants.gdtByte()) {
+            return data.get(index) & 0xFF;
+        } else if (dataType == GDALConstConstants.gdtInt16()) {
+            return data.getShort(index * Short.BYTES);
+        } else if (dataType == GDALConstConstants.gdtUint16()) {
+            return data.getShort(index * Short.BYTES) & 0xFFFF;
+        } else if (dataType == GDALConstConstants.gdtInt32()) {
+            return data.getInt(index * Integer.BYTES);
+        } else if (dataType == GDALConstConstants.gdtUint32()) {
+            return data.getInt(index * Integer.BYTES) & 0xFFFFFFFFL;
+        } else if (dataType == GDALConstConstants.gdtFloat32()) {
+            return data.getFloat(index * Float.BYTES);
+        } else if (dataType == GDALConstConstants.gdtFloat64()) {
+            return data.getDouble(index * Double.BYTES);
+        }
+        throw new UnsupportedOperationException("Unsupported data type " + dataType);
+    }
+
+    /**
+     * Returns the buffer of this block to the pool of the reader, if it was taken from it.
+     * The block cannot be used afterwards.
+     */
+    public void release() {
+        final ByteBuffer data;
+        synchronized (this) {
+            data = this.buffer;
+            this.buffer = null;
+        }
+        if (data != null && pooled) {
+            reader.releaseBuffer(data);
+        }
+    }
+
+    private ByteBuffer data() {
+        final ByteBuffer data = this.buffer;
+        if (data == null) {
+            throw new IllegalStateException("The block was released");
+        }
+        return data.order(ByteOrder.nativeOrder());
+    }
+}
@@ -17,44 +17,33 @@ public class Band extends GDALBase implements Closeable {
      */
     static final String CLASS_NAME = "org.gdal.gdal.Band";
     private static final Class<?> bandClass;
+    private static final MethodHandle deleteHandle;
+    private static final MethodHandle getDataTypeHandle;
+    private static final MethodHandle getBlockXSizeHandle;
+    private static final MethodHandle getBlockYSizeHandle;
+    private static final MethodHandle getXSizeHandle;
+    private static final MethodHandle getYSizeHandle;
+    private static final MethodHandle getOverviewCountHandle;
+    private static final MethodHandle getRasterColorInterpretationHandle;
+    private static final MethodHandle getRasterColorTableHandle;
+    private static final MethodHandle getDescriptionHandle;
+    private static final MethodHandle getOverviewHandle;
+    private static final MethodHandle getOffsetHandle;
+    private static final MethodHandle getScaleHandle;
+    private static final MethodHandle getUnitTypeHandle;
+    private static final MethodHandle getNoDataValueHandle;
+    private static final MethodHandle getMaskBandHandle;
+    private static final MethodHandle getMaskFlagsHandle;
+    private static final MethodHandle readBlockDirectHandle;
+    private static final MethodHandle readRasterDirectHandle;
+    private static final MethodHandle writeRasterByteHandle;
+    private static final MethodHandle writeRasterShortHandle;
+    private static final MethodHandle writeRasterIntHandle;
+    private static final MethodHandle writeRasterFloatHandle;
+    private static final MethodHandle writeRasterDoubleHandle;
 
     static {
         bandClass = GDALReflection.fetchGDALLibraryClass(CLASS_NAME);
-    }
-
-    private final Object jniBandInstance;
-    private final MethodHandle deleteHandle;
-    private final MethodHandle getDataTypeHandle;
-    private final MethodHandle getBlockXSizeHandle;
-    private final MethodHandle getBlockYSizeHandle;
-    private final MethodHandle getXSizeHandle;
-    private final MethodHandle getYSizeHandle;
-    private final MethodHandle getOverviewCountHandle;
-    private final MethodHandle getRasterColorInterpretationHandle;
-    private final MethodHandle getRasterColorTableHandle;
-    private final MethodHandle getDescriptionHandle;
-    private final MethodHandle getOverviewHandle;
-    private final MethodHandle getOffsetHandle;
-    private final MethodHandle getScaleHandle;
-    private final MethodHandle getUnitTypeHandle;
-    private final MethodHandle getNoDataValueHandle;
-    private final MethodHandle getMaskBandHandle;
-    private final MethodHandle getMaskFlagsHandle;
-    private final MethodHandle readBlockDirectHandle;
-    private final MethodHandle readRasterDirectHandle;
-    private final MethodHandle writeRasterByteHandle;
-    private final MethodHandle writeRasterShortHandle;
-    private final MethodHandle writeRasterIntHandle;
-    private final MethodHandle writeRasterFloatHandle;
-    private final MethodHandle writeRasterDoubleHandle;
-
-    /**
-     * Creates new instance for this driver
-     *
-     * @param jniBandInstance the JNI GDAL Band class instance
-     */
-    public Band(Object jniBandInstance) {
-        this.jniBandInstance = jniBandInstance;
         try {
             deleteHandle = createHandle(bandClass, "delete", void.class);
             getDataTypeHandle = createHandle(bandClass, "getDataType", int.class);
@@ -91,6 +80,17 @@ public class Band extends GDALBase implements Closeable {
         }
     }
 
+    private final Object jniBandInstance;
+
+    /**
+     * Creates new instance for this driver
+     *
+     * @param jniBandInstance the JNI GDAL Band class instance
+     */
+    public Band(Object jniBandInstance) {
+        this.jniBandInstance = jniBandInstance;
+    }
+
     /**
      * Calls the JNI GDAL Band class delete() method
      */
@@ -15,13 +15,18 @@ public class ColorTable extends GDALBase {
      */
     static final String CLASS_NAME = "org.gdal.gdal.ColorTable";
     private static final Class<?> colorTableClass;
+    private static final MethodHandle getIndexColorModelHandle;
 
     static {
         colorTableClass = GDALReflection.fetchGDALLibraryClass(CLASS_NAME);
+        try {
+            getIndexColorModelHandle = createHandle(colorTableClass, "getIndexColorModel", IndexColorModel.class, int.class);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private final Object jniColorTable;
-    private final MethodHandle getIndexColorModelHandle;
 
     /**
      * Creates new instance for this driver
@@ -30,11 +35,6 @@ public class ColorTable extends GDALBase {
      */
     ColorTable(Object jniColorTable) {
         this.jniColorTable = jniColorTable;
-        try {
-            getIndexColorModelHandle = createHandle(colorTableClass, "getIndexColorModel", IndexColorModel.class, int.class);
-        } catch (NoSuchMethodException | IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
     }
 
     /**
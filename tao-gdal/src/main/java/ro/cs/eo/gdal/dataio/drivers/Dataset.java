@@ -19,39 +19,27 @@ public class Dataset extends GDALBase implements Closeable {
     static final String CLASS_NAME = "org.gdal.gdal.Dataset";
     private static final Class<?> datasetClass;
 
+    private static final MethodHandle getFileListHandle;
+    private static final MethodHandle getRasterXSizeHandle;
+    private static final MethodHandle getRasterYSizeHandle;
+    private static final MethodHandle getRasterCountHandle;
+    private static final MethodHandle getRasterBandHandle;
+    private static final MethodHandle buildOverviewsHandle;
+    private static final MethodHandle deleteHandle;
+    private static final MethodHandle getProjectionRefHandle;
+    private static final MethodHandle getGCPProjectionHandle;
+    private static final MethodHandle getGeoTransformHandle;
+    private static final MethodHandle getDriverHandle;
+    private static final MethodHandle getMetadataDictHandle;
+    private static final MethodHandle getGCPsHandle;
+    private static final MethodHandle getGCPCountHandle;
+    private static final MethodHandle setProjectionHandle;
+    private static final MethodHandle setGeoTransformHandle;
+
     private final Object jniDatasetInstance;
-    private final MethodHandle getFileListHandle;
-    private final MethodHandle getRasterXSizeHandle;
-    private final MethodHandle getRasterYSizeHandle;
-    private final MethodHandle getRasterCountHandle;
-    private final MethodHandle getRasterBandHandle;
-    private final MethodHandle buildOverviewsHandle;
-    private final MethodHandle deleteHandle;
-    private final MethodHandle getProjectionRefHandle;
-    private final MethodHandle getGCPProjectionHandle;
-    private final MethodHandle getGeoTransformHandle;
-    private final MethodHandle getDriverHandle;
-    private final MethodHandle getMetadataDictHandle;
-    private final MethodHandle getGCPsHandle;
-    private final MethodHandle getGCPCountHandle;
-    private final MethodHandle setProjectionHandle;
-    private final MethodHandle setGeoTransformHandle;
 
     static {
         datasetClass = GDALReflection.fetchGDALLibraryClass(CLASS_NAME);
-    }
-
-    public Dataset() {
-        this(null);
-    }
-
-    /**
-     * Creates new instance for this driver
-     *
-     * @param jniDatasetInstance the JNI GDAL Dataset class instance
-     */
-    Dataset(Object jniDatasetInstance) {
-        this.jniDatasetInstance = jniDatasetInstance;
         try {
             getFileListHandle = createHandle(datasetClass, "GetFileList", Vector.class);
             getRasterXSizeHandle = createHandle(datasetClass, "GetRasterXSize", int.class);
@@ -74,6 +62,19 @@ public class Dataset extends GDALBase implements Closeable {
         }
     }
 
+    public Dataset() {
+        this(null);
+    }
+
+    /**
+     * Creates new instance for this driver
+     *
+     * @param jniDatasetInstance the JNI GDAL Dataset class instance
+     */
+    Dataset(Object jniDatasetInstance) {
+        this.jniDatasetInstance = jniDatasetInstance;
+    }
+
     public Object getJniDatasetInstance(){
         return jniDatasetInstance;
     }
@@ -14,26 +14,15 @@ public class Driver extends GDALBase {
      */
     static final String CLASS_NAME = "org.gdal.gdal.Driver";
     private static final Class<?> driverClass;
+    private static final MethodHandle getShortNameHandle;
+    private static final MethodHandle getLongNameHandle;
+    private static final MethodHandle create1Handle;
+    private static final MethodHandle create2Handle;
+    private static final MethodHandle createCopyHandle;
+    private static final MethodHandle deleteHandle;
 
     static {
         driverClass = GDALReflection.fetchGDALLibraryClass(CLASS_NAME);
-    }
-
-    private final Object jniDriverInstance;
-    private final MethodHandle getShortNameHandle;
-    private final MethodHandle getLongNameHandle;
-    private final MethodHandle create1Handle;
-    private final MethodHandle create2Handle;
-    private final MethodHandle createCopyHandle;
-    private final MethodHandle deleteHandle;
-
-    /**
-     * Creates new instance for this driver
-     *
-     * @param jniDriverInstance the JNI GDAL Driver class instance
-     */
-    Driver(Object jniDriverInstance) {
-        this.jniDriverInstance = jniDriverInstance;
         try {
             getShortNameHandle = createHandle(driverClass, "getShortName", String.class);
             getLongNameHandle = createHandle(driverClass, "getLongName", String.class);
@@ -49,6 +38,17 @@ public class Driver extends GDALBase {
         }
     }
 
+    private final Object jniDriverInstance;
+
+    /**
+     * Creates new instance for this driver
+     *
+     * @param jniDriverInstance the JNI GDAL Driver class instance
+     */
+    Driver(Object jniDriverInstance) {
+        this.jniDriverInstance = jniDriverInstance;
+    }
+
     /**
      * Calls the JNI GDAL Driver class getShortName() method
      *
@@ -14,17 +14,26 @@ public class GCP extends GDALBase {
      */
     static final String CLASS_NAME = "org.gdal.gdal.GCP";
     private static final Class<?> gcpClass;
+    private static final MethodHandle getGCPXHandle;
+    private static final MethodHandle getGCPYHandle;
+    private static final MethodHandle getGCPZHandle;
+    private static final MethodHandle getGCPPixelHandle;
+    private static final MethodHandle getGCPLineHandle;
 
     static {
         gcpClass = GDALReflection.fetchGDALLibraryClass(CLASS_NAME);
+        try {
+            getGCPXHandle = createHandle(gcpClass, "getGCPX", double.class);
+            getGCPYHandle = createHandle(gcpClass, "getGCPY", double.class);
+            getGCPZHandle = createHandle(gcpClass, "getGCPZ", double.class);
+            getGCPPixelHandle = createHandle(gcpClass, "getGCPPixel", double.class);
+            getGCPLineHandle = createHandle(gcpClass, "getGCPLine", double.class);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private final Object jniGCPInstance;
-    private final MethodHandle getGCPXHandle;
-    private final MethodHandle getGCPYHandle;
-    private final MethodHandle getGCPZHandle;
-    private final MethodHandle getGCPPixelHandle;
-    private final MethodHandle getGCPLineHandle;
 
     /**
      * Creates new instance for this driver
@@ -33,15 +42,6 @@ public class GCP extends GDALBase {
      */
     public GCP(Object jniGCPInstance) {
         this.jniGCPInstance = jniGCPInstance;
-        try {
-            getGCPXHandle = createHandle(gcpClass, "getGCPX", double.class);
-            getGCPYHandle = createHandle(gcpClass, "getGCPY", double.class);
-            getGCPZHandle = createHandle(gcpClass, "getGCPZ", double.class);
-            getGCPPixelHandle = createHandle(gcpClass, "getGCPPixel", double.class);
-            getGCPLineHandle = createHandle(gcpClass, "getGCPLine", double.class);
-        } catch (NoSuchMethodException | IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
     }
 
     static Class<?> getJNIInstanceClass() {
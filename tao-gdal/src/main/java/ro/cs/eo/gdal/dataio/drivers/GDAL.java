@@ -2,8 +2,6 @@ package ro.cs.eo.gdal.dataio.drivers;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 /**
  * GDAL gdal JNI driver class
@@ -87,12 +85,7 @@ public class GDAL extends GDALBase {
      * Calls the JNI GDAL gdal class AllRegister() method
      */
     public static void allRegister() {
-        try {
-            Method method = gdalClass.getMethod("AllRegister");
-            method.invoke(null);
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
+        GDALReflection.callGDALLibraryMethod(CLASS_NAME, "AllRegister", null, null, new Class[]{}, new Object[]{});
     }
 
     /**
@@ -4,23 +4,38 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 
+/**
+ * Base class for the wrappers of JNI GDAL classes.
+ * The method handles are created once per wrapper class (in static initializers) and are adapted to the
+ * <code>(Object[])Object</code> type, so that they are invoked with <code>invokeExact</code>, without any
+ * per-call type adaptation.
+ */
 public abstract class GDALBase {
 
-    protected MethodHandle createStaticHandle(Class<?> implClass, String method, Class<?> returnType, Class<?>... argTypes) throws NoSuchMethodException, IllegalAccessException {
+    protected static MethodHandle createStaticHandle(Class<?> implClass, String method, Class<?> returnType, Class<?>... argTypes) throws NoSuchMethodException, IllegalAccessException {
         final MethodHandles.Lookup lookup = MethodHandles.lookup();
         final MethodType methodType = MethodType.methodType(returnType, argTypes);
-        return lookup.findStatic(implClass, method, methodType).asSpreader(Object[].class, argTypes.length);
+        return toSpreader(lookup.findStatic(implClass, method, methodType));
     }
 
-    protected MethodHandle createHandle(Class<?> implClass, String method, Class<?> returnType, Class<?>... argTypes) throws NoSuchMethodException, IllegalAccessException {
+    protected static MethodHandle createHandle(Class<?> implClass, String method, Class<?> returnType, Class<?>... argTypes) throws NoSuchMethodException, IllegalAccessException {
         final MethodHandles.Lookup lookup = MethodHandles.lookup();
         final MethodType methodType = MethodType.methodType(returnType, argTypes);
-        return lookup.findVirtual(implClass, method, methodType).asSpreader(Object[].class, argTypes.length + 1);
+        return toSpreader(lookup.findVirtual(implClass, method, methodType));
+    }
+
+    /**
+     * Adapts a method handle to take all its arguments (including the receiver, if any) as an array of objects and
+     * to return an object (<code>null</code> for void methods).
+     */
+    static MethodHandle toSpreader(MethodHandle handle) {
+        final int count = handle.type().parameterCount();
+        return handle.asType(MethodType.genericMethodType(count)).asSpreader(Object[].class, count);
     }
 
     protected static Object invokeStatic(MethodHandle handle, Object... args) {
         try {
-            return handle.invoke(args);
+            return (Object) handle.invokeExact(args);
         } catch (Throwable e) {
             throw new RuntimeException(e);
         }
@@ -28,7 +43,7 @@ public abstract class GDALBase {
 
     protected static Object invoke(MethodHandle handle, Object instance, Object... args) {
         try {
-            return handle.invoke(prepareArguments(instance, args));
+            return (Object) handle.invokeExact(prepareArguments(instance, args));
         } catch (Throwable e) {
             throw new RuntimeException(e);
         }
@@ -2,17 +2,22 @@ package ro.cs.eo.gdal.dataio.drivers;
 
 import ro.cs.eo.gdal.dataio.GDALLoader;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * GDAL Reflection class which uses Java reflection API to invoke methods from JNI GDAL
+ * GDAL Reflection class which uses Java reflection API to invoke methods from JNI GDAL.
+ * The classes and the method handles resolved are cached for the lifetime of the process.
  */
 class GDALReflection {
     private static final Map<String, Integer> cachedConstants = Collections.synchronizedMap(new HashMap<>());
+    private static final Map<String, Class<?>> cachedClasses = new ConcurrentHashMap<>();
+    private static final Map<MethodKey, MethodHandle> cachedMethods = new ConcurrentHashMap<>();
     /**
      * Creates new instance for this class
      */
@@ -52,25 +57,31 @@ class GDALReflection {
      * @return the result returned by JNI GDAL class method
      */
     static <T> T callGDALLibraryMethod(String className, String methodName, Class<T> returnType, Object instance, Class[] argumentsTypes, Object[] arguments) {
+        final MethodHandle handle = cachedMethods.computeIfAbsent(new MethodKey(className, methodName, argumentsTypes),
+                                                                  GDALReflection::createMethodHandle);
+        final Object returnResult;
         try {
-            Class<?> gdalClass = fetchGDALLibraryClass(className);
-            Method gdalClassMethod = gdalClass.getMethod(methodName, argumentsTypes);
-            Object returnResult = gdalClassMethod.invoke(instance, arguments);
-            if (returnResult != null && returnType != null) {
-                return returnType.cast(returnResult);
-            }
-        } catch (Exception ex) {
+            final Object[] args = new Object[arguments.length + 1];
+            args[0] = instance;
+            System.arraycopy(arguments, 0, args, 1, arguments.length);
+            returnResult = (Object) handle.invokeExact(args);
+        } catch (Throwable ex) {
             throw new IllegalStateException(ex);
         }
+        if (returnResult != null && returnType != null) {
+            return returnType.cast(returnResult);
+        }
         return null;
     }
 
     static Class<?> fetchGDALLibraryClass(String className) {
-        try {
-            return Class.forName(className, false, GDALLoader.getInstance().getGDALVersionLoader());
-        } catch (Exception ex) {
-            throw new IllegalStateException(ex);
-        }
+        return cachedClasses.computeIfAbsent(className, name -> {
+            try {
+                return Class.forName(name, false, GDALLoader.getInstance().getGDALVersionLoader());
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
     }
 
     static Object fetchGDALLibraryClassInstance(String className, Class[] argumentsTypes, Object[] arguments) {
@@ -82,4 +93,44 @@ class GDALReflection {
             throw new IllegalStateException(ex);
         }
     }
+
+    private static MethodHandle createMethodHandle(MethodKey key) {
+        try {
+            final Method method = fetchGDALLibraryClass(key.className).getMethod(key.methodName, key.argumentsTypes);
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                // the first argument is always the instance, which is ignored for static methods (as by Method.invoke)
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return GDALBase.toSpreader(handle);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class MethodKey {
+        private final String className;
+        private final String methodName;
+        private final Class<?>[] argumentsTypes;
+
+        private MethodKey(String className, String methodName, Class<?>[] argumentsTypes) {
+            this.className = className;
+            this.methodName = methodName;
+            this.argumentsTypes = argumentsTypes != null ? argumentsTypes : new Class<?>[0];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final MethodKey other = (MethodKey) o;
+            return className.equals(other.className) && methodName.equals(other.methodName) &&
+                    Arrays.equals(argumentsTypes, other.argumentsTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * className.hashCode() + methodName.hashCode()) + Arrays.hashCode(argumentsTypes);
+        }
+    }
 }
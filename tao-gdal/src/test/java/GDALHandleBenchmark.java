@@ -0,0 +1,92 @@
+import ro.cs.eo.gdal.dataio.drivers.GDALBase;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the per-call overhead of the ways the GDAL bridge invokes the JNI GDAL classes, on a plain Java class
+ * having methods with the same signatures (so that no native library is needed):
+ * <ul>
+ *     <li>reflection: <code>Class.getMethod</code> and <code>Method.invoke</code> on every call (the former
+ *     <code>GDALReflection.callGDALLibraryMethod</code>)</li>
+ *     <li>per-instance handles: handles created for every wrapper instance and invoked with <code>invoke</code>
+ *     (the former <code>Band</code> constructor and <code>GDALBase.invoke</code>)</li>
+ *     <li>shared handles: handles created once and invoked with <code>invokeExact</code> (current)</li>
+ * </ul>
+ * Usage: GDALHandleBenchmark [calls] [wrapper instances]
+ */
+public class GDALHandleBenchmark extends GDALBase {
+
+    public static void main(String[] args) throws Throwable {
+        final int calls = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        final int instances = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        final FakeBand band = new FakeBand();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        final MethodHandle sharedXSize = createHandle(FakeBand.class, "GetXSize", int.class);
+        final MethodHandle sharedRead = createHandle(FakeBand.class, "ReadBlock_Direct", int.class,
+                                                     int.class, int.class, ByteBuffer.class);
+        for (int round = 0; round < 3; round++) {
+            long sum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                final Method method = FakeBand.class.getMethod("ReadBlock_Direct", int.class, int.class, ByteBuffer.class);
+                sum += (Integer) method.invoke(band, i, 1, buffer);
+            }
+            final double reflection = (System.nanoTime() - start) / (double) calls;
+
+            final MethodHandle legacyRead = legacyHandle(FakeBand.class, "ReadBlock_Direct", int.class,
+                                                         int.class, int.class, ByteBuffer.class);
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sum += (Integer) legacyRead.invoke(new Object[] { band, i, 1, buffer });
+            }
+            final double legacyCall = (System.nanoTime() - start) / (double) calls;
+
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sum += (Integer) invoke(sharedRead, band, i, 1, buffer);
+            }
+            final double sharedCall = (System.nanoTime() - start) / (double) calls;
+
+            // Creation of a wrapper: the former Band constructor created about 25 handles
+            start = System.nanoTime();
+            for (int i = 0; i < instances; i++) {
+                for (int h = 0; h < 25; h++) {
+                    sum += legacyHandle(FakeBand.class, "GetXSize", int.class).type().parameterCount();
+                }
+            }
+            final double legacyCreate = (System.nanoTime() - start) / (double) instances;
+            start = System.nanoTime();
+            for (int i = 0; i < instances; i++) {
+                sum += (Integer) invoke(sharedXSize, band);
+            }
+            final double sharedCreate = (System.nanoTime() - start) / (double) instances;
+
+            System.out.printf("round %d: call (ns) reflection=%.1f per-instance handle=%.1f shared handle=%.1f | " +
+                                      "wrapper creation + 1 call (ns) per-instance handles=%.0f shared handles=%.1f [%d]%n",
+                              round, reflection, legacyCall, sharedCall, legacyCreate, sharedCreate, sum);
+        }
+    }
+
+    private static MethodHandle legacyHandle(Class<?> implClass, String method, Class<?> returnType, Class<?>... argTypes)
+            throws NoSuchMethodException, IllegalAccessException {
+        final MethodType methodType = MethodType.methodType(returnType, argTypes);
+        return MethodHandles.lookup().findVirtual(implClass, method, methodType).asSpreader(Object[].class, argTypes.length + 1);
+    }
+
+    public static class FakeBand {
+        private int value;
+
+        public int GetXSize() {
+            return ++value;
+        }
+
+        public int ReadBlock_Direct(int nXBlockOff, int nYBlockOff, ByteBuffer nioBuffer) {
+            nioBuffer.put(0, (byte) nXBlockOff);
+            return nXBlockOff + nYBlockOff;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package ro.cs.tao.messaging;
+
+import ro.cs.tao.persistence.MessageProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind persister for messages.
+ * Messages are buffered in a bounded queue and saved by a background thread in batches, either when a batch is full
+ * or when the flush interval elapsed since the first message of the batch was received.
+ * When the queue is full, the sender waits (at most the configured timeout) for space to become available,
+ * after which the message is dropped (and counted as such).
+ * On shutdown, the messages still in the queue are saved before the writer thread ends.
+ *
+ * @since   1.5.2
+ */
+public class BatchingMessagePersister {
+    private final MessageProvider provider;
+    private final BlockingQueue<Message> queue;
+    private final int batchSize;
+    private final long flushInterval;
+    private final long offerTimeout;
+    private final Thread writer;
+    private final LongAdder enqueued;
+    private final LongAdder flushed;
+    private final AtomicLong dropped;
+    private final LongAdder failed;
+    private final LongAdder batches;
+    private final Logger logger = Logger.getLogger(BatchingMessagePersister.class.getName());
+    private volatile boolean stopped;
+
+    /**
+     * Creates and starts a persister.
+     *
+     * @param provider      The provider that saves the messages
+     * @param capacity      The maximum number of messages waiting to be saved
+     * @param batchSize     The maximum number of messages saved at once
+     * @param flushInterval The maximum time (in milliseconds) a message waits for its batch to be filled
+     * @param offerTimeout  The maximum time (in milliseconds) a sender waits when the queue is full
+     */
+    public BatchingMessagePersister(MessageProvider provider, int capacity, int batchSize, long flushInterval, long offerTimeout) {
+        if (provider == null) {
+            throw new IllegalArgumentException("provider");
+        }
+        this.provider = provider;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = Math.max(0, flushInterval);
+        this.offerTimeout = Math.max(0, offerTimeout);
+        this.enqueued = new LongAdder();
+        this.flushed = new LongAdder();
+        this.dropped = new AtomicLong();
+        this.failed = new LongAdder();
+        this.batches = new LongAdder();
+        this.writer = new Thread(this::writeLoop, "message-persister");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a message to be saved.
+     *
+     * @param message   The message
+     * @return  <code>false</code> if the message was dropped (the persister is stopped or the queue remained full)
+     */
+    public boolean enqueue(Message message) {
+        if (message == null) {
+            return true;
+        }
+        boolean accepted = false;
+        if (!this.stopped) {
+            try {
+                accepted = this.queue.offer(message, this.offerTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (accepted) {
+            this.enqueued.increment();
+        } else {
+            final long count = this.dropped.incrementAndGet();
+            // avoid flooding the log while the queue stays full
+            if (count == 1 || count % 1000 == 0) {
+                logger.warning(String.format("Message on topic %s was not persisted (%s). Messages dropped so far: %d",
+                                             message.getTopic(), this.stopped ? "persister stopped" : "queue full", count));
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Stops accepting messages and waits for the queued ones to be saved.
+     *
+     * @param timeout   The maximum time to wait
+     * @param unit      The unit of the timeout
+     * @return  <code>true</code> if all the queued messages were processed before the timeout elapsed
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        this.stopped = true;
+        this.writer.interrupt();
+        this.writer.join(Math.max(1, unit.toMillis(timeout)));
+        return !this.writer.isAlive();
+    }
+
+    /**
+     * Returns the number of messages waiting to be saved
+     */
+    public int getQueuedCount() { return this.queue.size(); }
+
+    /**
+     * Returns the number of messages accepted since the creation of this persister
+     */
+    public long getEnqueuedCount() { return this.enqueued.sum(); }
+
+    /**
+     * Returns the number of messages saved since the creation of this persister
+     */
+    public long getFlushedCount() { return this.flushed.sum(); }
+
+    /**
+     * Returns the number of messages that were not accepted (because the queue was full or the persister was stopped)
+     */
+    public long getDroppedCount() { return this.dropped.get(); }
+
+    /**
+     * Returns the number of messages that could not be saved
+     */
+    public long getFailedCount() { return this.failed.sum(); }
+
+    /**
+     * Returns the number of batches saved since the creation of this persister
+     */
+    public long getBatchCount() { return this.batches.sum(); }
+
+    private void writeLoop() {
+        final List<Message> batch = new ArrayList<>(this.batchSize);
+        while (!this.stopped) {
+            try {
+                final Message first = this.queue.poll(this.flushInterval > 0 ? this.flushInterval : 1000, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushInterval);
+                while (batch.size() < this.batchSize) {
+                    this.queue.drainTo(batch, this.batchSize - batch.size());
+                    final long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= this.batchSize || remaining <= 0) {
+                        break;
+                    }
+                    final Message next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (!this.stopped) {
+                    continue;
+                }
+            }
+            write(batch);
+        }
+        // Flush whatever is left in the queue (and in the current batch, if interrupted while filling it)
+        do {
+            this.queue.drainTo(batch, this.batchSize - batch.size());
+            write(batch);
+        } while (!this.queue.isEmpty());
+    }
+
+    private void write(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            this.provider.saveAll(batch);
+            this.flushed.add(batch.size());
+            this.batches.increment();
+        } catch (Exception e) {
+            logger.warning(String.format("Saving a batch of %d messages failed, messages will be saved individually. Reason: %s",
+                                         batch.size(), e.getMessage()));
+            // A single invalid message should not prevent the others from being saved
+            for (Message message : batch) {
+                try {
+                    // The failed batch may have assigned identifiers that were rolled back
+                    message.setId(null);
+                    this.provider.save(message);
+                    this.flushed.increment();
+                } catch (Exception ex) {
+                    this.failed.increment();
+                    logger.severe(ex.getMessage());
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+}
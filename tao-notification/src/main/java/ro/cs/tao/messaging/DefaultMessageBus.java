@@ -20,10 +20,15 @@ import reactor.bus.Event;
 import reactor.bus.EventBus;
 import reactor.core.Dispatcher;
 import reactor.core.dispatch.ThreadPoolExecutorDispatcher;
+import ro.cs.tao.configuration.ConfigurationManager;
+import ro.cs.tao.configuration.ConfigurationProvider;
 import ro.cs.tao.persistence.MessageProvider;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -33,18 +38,31 @@ import static reactor.bus.selector.Selectors.$;
 
 /**
  * Implementation for an in-memory message bus relying on the Reactor {@link EventBus}.
+ * Pattern subscribers are bound to a topic the first time a message is sent on it (or, for topics already in use,
+ * at subscription time). The topics already resolved against the patterns are remembered, hence sending on a known
+ * topic does not evaluate the patterns again and does not need any lock.
+ * Unless disabled, persistent messages are saved asynchronously, in batches, by a {@link BatchingMessagePersister}.
  *
  * @author Cosmin Cara
  */
 public class DefaultMessageBus implements ro.cs.tao.messaging.EventBus<Event<Message>> {
     private static final int MAX_THREADS = 2;
     private static final int CAPACITY = 1024;
+    private static final String ASYNC_PERSISTENCE_KEY = "notification.persistence.async";
+    private static final String PERSISTENCE_QUEUE_CAPACITY_KEY = "notification.persistence.queue.capacity";
+    private static final String PERSISTENCE_BATCH_SIZE_KEY = "notification.persistence.batch.size";
+    private static final String PERSISTENCE_FLUSH_INTERVAL_KEY = "notification.persistence.flush.interval";
+    private static final String PERSISTENCE_OFFER_TIMEOUT_KEY = "notification.persistence.offer.timeout";
 
     private final EventBus messageBus;
     private final Set<String> topics;
-    private final Map<String, Set<reactor.fn.Consumer<Event<Message>>>> patternSubscribers;
-    private final Set<String> matchedTopics;
-    private MessageProvider messagePersister;
+    private final Map<String, PatternSubscription> patternSubscribers;
+    // Topics for which the pattern subscribers were bound (whether any pattern matched or not)
+    private final Set<String> resolvedTopics;
+    // Guards the binding of pattern subscribers to topics
+    private final Object patternLock;
+    private volatile MessageProvider messagePersister;
+    private volatile BatchingMessagePersister batchingPersister;
     private final Logger logger;
 
     public DefaultMessageBus() {
@@ -55,22 +73,40 @@ public class DefaultMessageBus implements ro.cs.tao.messaging.EventBus<Event<Mes
                                           /*Environment.newDispatcher(CAPACITY,
                                                                     MAX_THREADS,
                                                                     DispatcherType.THREAD_POOL_EXECUTOR)*/);
-        this.topics = new HashSet<>();
-        this.patternSubscribers = new HashMap<>();
-        this.matchedTopics = new HashSet<>();
+        this.topics = ConcurrentHashMap.newKeySet();
+        this.patternSubscribers = new ConcurrentHashMap<>();
+        this.resolvedTopics = ConcurrentHashMap.newKeySet();
+        this.patternLock = new Object();
         this.logger = Logger.getLogger(DefaultMessageBus.class.getName());
     }
 
     @Override
     public void shutdown() {
+        stopBatchingPersister();
         Environment.terminate();
     }
 
     @Override
-    public void setPersister(MessageProvider messagePersister) {
+    public synchronized void setPersister(MessageProvider messagePersister) {
+        stopBatchingPersister();
         this.messagePersister = messagePersister;
+        final ConfigurationProvider configuration = ConfigurationManager.getInstance();
+        if (messagePersister != null &&
+                Boolean.parseBoolean(configuration.getValue(ASYNC_PERSISTENCE_KEY, "true"))) {
+            this.batchingPersister = new BatchingMessagePersister(messagePersister,
+                                                                  Integer.parseInt(configuration.getValue(PERSISTENCE_QUEUE_CAPACITY_KEY, "10000")),
+                                                                  Integer.parseInt(configuration.getValue(PERSISTENCE_BATCH_SIZE_KEY, "100")),
+                                                                  Long.parseLong(configuration.getValue(PERSISTENCE_FLUSH_INTERVAL_KEY, "500")),
+                                                                  Long.parseLong(configuration.getValue(PERSISTENCE_OFFER_TIMEOUT_KEY, "1000")));
+        }
     }
 
+    /**
+     * Returns the persister that saves the messages asynchronously, or <code>null</code> if messages are saved
+     * synchronously.
+     */
+    public BatchingMessagePersister getBatchingPersister() { return this.batchingPersister; }
+
     @Override
     public void subscribe(Consumer<Event<Message>> subscriber, String... topics) {
         if (subscriber == null) {
@@ -94,14 +130,15 @@ public class DefaultMessageBus implements ro.cs.tao.messaging.EventBus<Event<Mes
             throw new IllegalArgumentException("Invalid topic pattern");
         }
         reactor.fn.Consumer<Event<Message>> eventConsumer = ReactorConsumerAdapter.wrap(subscriber);
-        List<String> matched = this.topics.stream().filter(t -> topicPattern.matcher(t).matches()).collect(Collectors.toList());
-        for (String topic : matched) {
-            this.messageBus.on($(topic), eventConsumer);
-        }
-        if (!this.patternSubscribers.containsKey(topicPattern.pattern())) {
-            this.patternSubscribers.put(topicPattern.pattern(), new HashSet<>());
+        synchronized (this.patternLock) {
+            // Topics not yet resolved will be bound to all the pattern subscribers when first used
+            List<String> matched = this.resolvedTopics.stream().filter(t -> topicPattern.matcher(t).matches()).collect(Collectors.toList());
+            for (String topic : matched) {
+                this.messageBus.on($(topic), eventConsumer);
+            }
+            this.patternSubscribers.computeIfAbsent(topicPattern.pattern(), p -> new PatternSubscription(topicPattern))
+                                   .consumers.add(eventConsumer);
         }
-        this.patternSubscribers.get(topicPattern.pattern()).add(eventConsumer);
     }
 
     @Override
@@ -109,9 +146,11 @@ public class DefaultMessageBus implements ro.cs.tao.messaging.EventBus<Event<Mes
         if (topics == null) {
             return;
         }
-        for (String topic : topics) {
-            this.messageBus.getConsumerRegistry().unregister(topic);
-            this.matchedTopics.remove(topic);
+        synchronized (this.patternLock) {
+            for (String topic : topics) {
+                this.messageBus.getConsumerRegistry().unregister(topic);
+                this.resolvedTopics.remove(topic);
+            }
         }
     }
 
@@ -124,7 +163,12 @@ public class DefaultMessageBus implements ro.cs.tao.messaging.EventBus<Event<Mes
         try {
             if (messagePersister != null && message.isPersistent()) {
                 message.setId(null);
-                this.messagePersister.save(message);
+                final BatchingMessagePersister persister = this.batchingPersister;
+                if (persister != null) {
+                    persister.enqueue(message);
+                } else {
+                    this.messagePersister.save(message);
+                }
             }
         } catch (Exception e) {
             this.logger.severe(e.getMessage());
@@ -138,16 +182,45 @@ public class DefaultMessageBus implements ro.cs.tao.messaging.EventBus<Event<Mes
         send(principal, topic, Event.wrap(message));
     }
 
+    private void stopBatchingPersister() {
+        final BatchingMessagePersister persister = this.batchingPersister;
+        if (persister != null) {
+            this.batchingPersister = null;
+            try {
+                if (!persister.shutdown(30, TimeUnit.SECONDS)) {
+                    this.logger.warning(String.format("Not all the messages were persisted before shutdown (%d pending)",
+                                                      persister.getQueuedCount()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private void checkPatternConsumers(String topic) {
-        if (!this.matchedTopics.contains(topic)) {
-            Set<Set<reactor.fn.Consumer<Event<Message>>>> set = this.patternSubscribers.entrySet().stream()
-                    .filter(e -> Pattern.compile(e.getKey()).matcher(topic).matches())
-                    .map(Map.Entry::getValue)
-                    .collect(Collectors.toSet());
-            if (!set.isEmpty()) {
-                set.forEach(sub -> sub.forEach(s -> this.messageBus.on($(topic), s)));
-                this.matchedTopics.add(topic);
+        if (this.resolvedTopics.contains(topic)) {
+            return;
+        }
+        synchronized (this.patternLock) {
+            if (this.resolvedTopics.contains(topic)) {
+                return;
+            }
+            for (PatternSubscription subscription : this.patternSubscribers.values()) {
+                if (subscription.pattern.matcher(topic).matches()) {
+                    subscription.consumers.forEach(s -> this.messageBus.on($(topic), s));
+                }
             }
+            this.resolvedTopics.add(topic);
+        }
+    }
+
+    private static final class PatternSubscription {
+        private final Pattern pattern;
+        private final Set<reactor.fn.Consumer<Event<Message>>> consumers;
+
+        private PatternSubscription(Pattern pattern) {
+            this.pattern = pattern;
+            this.consumers = new CopyOnWriteArraySet<>();
         }
     }
 
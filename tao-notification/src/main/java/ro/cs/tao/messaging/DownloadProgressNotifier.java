@@ -35,7 +35,8 @@ public class DownloadProgressNotifier extends ProgressNotifier implements Downlo
     public void notifyProgress(double progressValue, double transferSpeed) {
         taskCounter = progressValue;
         if (taskCounter < 1) {
-            sendTransientMessage(new DownloadProgress(taskName, progressValue, transferSpeed, 0));
+            final String name = taskName;
+            sendProgressMessage(null, progressValue, () -> new DownloadProgress(name, progressValue, transferSpeed, 0));
         } else {
             ended();
         }
@@ -45,7 +46,8 @@ public class DownloadProgressNotifier extends ProgressNotifier implements Downlo
     public void notifyProgress(double progressValue, double transferSpeed, int queuedItems) {
         taskCounter = progressValue;
         if (taskCounter < 1) {
-            sendTransientMessage(new DownloadProgress(taskName, progressValue, transferSpeed, queuedItems));
+            final String name = taskName;
+            sendProgressMessage(null, progressValue, () -> new DownloadProgress(name, progressValue, transferSpeed, queuedItems));
         } else {
             ended();
         }
@@ -21,9 +21,11 @@ import ro.cs.tao.utils.executors.monitoring.ProgressListener;
 
 import java.security.Principal;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Default implementation for a progress listener that sends progress information on the message bus.
+ * The start and end messages are always sent, while the progress messages are coalesced by {@link ProgressThrottle}.
  *
  * @author Cosmin Cara
  */
@@ -36,6 +38,7 @@ public class ProgressNotifier implements ProgressListener {
     protected double taskCounter;
     private double subTaskCounter;
     private final ProgressListener subListener;
+    private final ProgressThrottle throttle;
 
     public ProgressNotifier(Object source, Topic topic) {
         this(SessionStore.currentContext().getPrincipal(), source, topic);
@@ -57,12 +60,14 @@ public class ProgressNotifier implements ProgressListener {
         }
         this.additionalInfo = additionalInfo;
         this.subListener = new SubListener();
+        this.throttle = ProgressThrottle.getInstance();
     }
 
     @Override
     public void started(String taskName) {
         this.taskCounter = 0;
         this.taskName = taskName;
+        this.throttle.complete(activityKey(), null);
         sendTransientMessage(createStartMessage());
     }
 
@@ -87,12 +92,14 @@ public class ProgressNotifier implements ProgressListener {
     @Override
     public void ended() {
         this.taskCounter = 1;
+        this.throttle.complete(activityKey(), null);
         sendTransientMessage(createEndMessage());
     }
 
     @Override
     public void ended(boolean succeeded) {
         this.taskCounter = 1;
+        this.throttle.complete(activityKey(), null);
         sendTransientMessage(createEndMessage(succeeded));
     }
 
@@ -105,7 +112,8 @@ public class ProgressNotifier implements ProgressListener {
         }*/
         taskCounter = progressValue;
         if (taskCounter < 1) {
-            sendTransientMessage(new ActivityProgress(taskName, progressValue));
+            final String name = taskName;
+            sendProgressMessage(null, progressValue, () -> new ActivityProgress(name, progressValue));
         } else {
             ended();
         }
@@ -126,7 +134,9 @@ public class ProgressNotifier implements ProgressListener {
         subTaskCounter = subTaskProgress;
         taskCounter = overallProgress;
         if (subTaskCounter < 1) {
-            sendTransientMessage(new SubActivityProgress(taskName, subTaskName, taskCounter, subTaskCounter));
+            final String name = taskName;
+            sendProgressMessage(subTaskName, subTaskProgress,
+                                () -> new SubActivityProgress(name, subTaskName, overallProgress, subTaskProgress));
         } else {
             subActivityEnded(subTaskName);
         }
@@ -137,6 +147,18 @@ public class ProgressNotifier implements ProgressListener {
         return this.subListener;
     }
 
+    /**
+     * Sends a progress message, unless it is superseded by a newer one before the minimum notification interval
+     * elapses. The message is created only when it is sent.
+     *
+     * @param subTaskName   The sub-activity name or <code>null</code> if the progress is of the activity itself
+     * @param value         The progress value
+     * @param message       The supplier of the message
+     */
+    protected void sendProgressMessage(String subTaskName, double value, Supplier<Message> message) {
+        this.throttle.submit(activityKey(), subTaskName, value, () -> sendTransientMessage(message.get()));
+    }
+
     protected void sendTransientMessage(Message message) {
         message.setId(System.currentTimeMillis());
         message.setTimestamp(System.currentTimeMillis());
@@ -156,6 +178,10 @@ public class ProgressNotifier implements ProgressListener {
         Messaging.send(this.principal, this.topic.value(), message, true);
     }
 
+    private String activityKey() {
+        return this.principal.getName() + "\n" + this.topic.value() + "\n" + this.taskName;
+    }
+
     private ActivityStart createStartMessage() {
         ActivityStart message;
         if (this.topic.equals(Topic.TRANSFER_PROGRESS)) {
@@ -238,16 +264,19 @@ public class ProgressNotifier implements ProgressListener {
             final int idx = taskName.lastIndexOf('/');
             final int idx2 = ProgressNotifier.this.taskName.lastIndexOf('/');
             theOnlyItem = idx < 0 || (idx2 > 0 && taskName.substring(idx).equals(ProgressNotifier.this.taskName.substring(idx2)));
+            throttle.complete(activityKey(), this.subTask);
             sendTransientMessage(createSubStartMessage(this.subTask));
         }
 
         @Override
         public void ended() {
+            throttle.complete(activityKey(), this.subTask);
             sendTransientMessage(createSubEndMessage(this.subTask));
         }
 
         @Override
         public void ended(boolean succeeded) {
+            throttle.complete(activityKey(), this.subTask);
             sendTransientMessage(createSubEndMessage(this.subTask, succeeded));
         }
 
@@ -0,0 +1,188 @@
+package ro.cs.tao.messaging;
+
+import ro.cs.tao.configuration.ConfigurationManager;
+import ro.cs.tao.configuration.ConfigurationProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the progress notifications of activities.
+ * For each activity (principal and task) and sub-activity, a progress notification is sent immediately only if
+ * the minimum interval elapsed since the previous one or if the progress changed significantly. Otherwise, only the
+ * latest notification is retained and it is sent when the interval elapses (unless a newer one replaces it).
+ * The start and end notifications are not handled by this class, hence they are always sent.
+ * Once an activity (sub-activity) is completed, none of its retained notifications is sent anymore, so that no
+ * progress notification follows the end notification.
+ *
+ * @since   1.5.2
+ */
+public final class ProgressThrottle {
+    private static final String MIN_INTERVAL_KEY = "notification.progress.min.interval";
+    private static final String MIN_DELTA_KEY = "notification.progress.min.delta";
+    /* Activities not updated for this long are considered abandoned (i.e. their end was never notified) */
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+    private static final ProgressThrottle instance;
+    private final Map<String, Map<String, State>> activities;
+    private final ScheduledExecutorService scheduler;
+    private final long minInterval;
+    private final double minDelta;
+    private final LongAdder emitted;
+    private final LongAdder suppressed;
+    private final Logger logger = Logger.getLogger(ProgressThrottle.class.getName());
+
+    static {
+        final ConfigurationProvider configuration = ConfigurationManager.getInstance();
+        instance = new ProgressThrottle(Long.parseLong(configuration.getValue(MIN_INTERVAL_KEY, "1000")),
+                                        Double.parseDouble(configuration.getValue(MIN_DELTA_KEY, "0.05")));
+    }
+
+    public static ProgressThrottle getInstance() { return instance; }
+
+    private ProgressThrottle(long minInterval, double minDelta) {
+        this.minInterval = Math.max(0, minInterval);
+        this.minDelta = minDelta > 0 ? minDelta : 1;
+        this.activities = new ConcurrentHashMap<>();
+        this.emitted = new LongAdder();
+        this.suppressed = new LongAdder();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "progress-throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::purgeIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Submits a progress notification.
+     *
+     * @param activity      The activity key (i.e. principal and task)
+     * @param subActivity   The sub-activity (<code>null</code> for the progress of the activity itself)
+     * @param value         The progress value
+     * @param sender        The action that sends the notification
+     */
+    public void submit(String activity, String subActivity, double value, Runnable sender) {
+        final State state = this.activities.computeIfAbsent(activity, k -> new ConcurrentHashMap<>())
+                                           .computeIfAbsent(subActivity != null ? subActivity : "", k -> new State());
+        synchronized (state) {
+            if (state.completed) {
+                // the activity ended while this notification was submitted
+                this.suppressed.increment();
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            if (now - state.lastEmit >= this.minInterval || Math.abs(value - state.lastValue) >= this.minDelta) {
+                if (state.pending != null) {
+                    // the pending notification is superseded by this one
+                    this.suppressed.increment();
+                    state.pending = null;
+                }
+                state.lastEmit = now;
+                state.lastValue = value;
+                this.emitted.increment();
+                sender.run();
+            } else {
+                if (state.pending != null) {
+                    this.suppressed.increment();
+                }
+                state.pending = sender;
+                state.pendingValue = value;
+                if (!state.flushScheduled) {
+                    state.flushScheduled = true;
+                    this.scheduler.schedule(() -> flush(state),
+                                            this.minInterval - (now - state.lastEmit), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the retained notifications of an activity (or of one of its sub-activities), typically because the
+     * activity (sub-activity) ended.
+     *
+     * @param activity      The activity key
+     * @param subActivity   The sub-activity or <code>null</code> for the whole activity
+     */
+    public void complete(String activity, String subActivity) {
+        if (subActivity == null) {
+            final Map<String, State> states = this.activities.remove(activity);
+            if (states != null) {
+                states.values().forEach(this::discard);
+            }
+        } else {
+            final Map<String, State> states = this.activities.get(activity);
+            if (states != null) {
+                discard(states.remove(subActivity));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of progress notifications sent
+     */
+    public long getEmittedCount() { return this.emitted.sum(); }
+
+    /**
+     * Returns the number of progress notifications that were not sent because newer ones replaced them
+     */
+    public long getSuppressedCount() { return this.suppressed.sum(); }
+
+    /**
+     * Returns the number of activities currently tracked
+     */
+    public int getActiveCount() { return this.activities.size(); }
+
+    private void flush(State state) {
+        // The notification is sent while holding the lock, so that completing the activity waits for it
+        synchronized (state) {
+            state.flushScheduled = false;
+            final Runnable sender = state.pending;
+            state.pending = null;
+            if (sender != null && !state.completed) {
+                state.lastEmit = System.currentTimeMillis();
+                state.lastValue = state.pendingValue;
+                this.emitted.increment();
+                try {
+                    sender.run();
+                } catch (Exception e) {
+                    logger.warning("Cannot send progress notification: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void discard(State state) {
+        if (state != null) {
+            synchronized (state) {
+                state.completed = true;
+                if (state.pending != null) {
+                    this.suppressed.increment();
+                    state.pending = null;
+                }
+            }
+        }
+    }
+
+    private void purgeIdle() {
+        final long threshold = System.currentTimeMillis() - IDLE_TIMEOUT;
+        this.activities.entrySet().removeIf(e -> e.getValue().values().stream().allMatch(s -> {
+            synchronized (s) {
+                return s.pending == null && s.lastEmit < threshold;
+            }
+        }));
+    }
+
+    private static final class State {
+        private long lastEmit;
+        private double lastValue = Double.NaN;
+        private double pendingValue;
+        private Runnable pending;
+        private boolean flushScheduled;
+        private boolean completed;
+    }
+}
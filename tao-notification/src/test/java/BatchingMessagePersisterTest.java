@@ -0,0 +1,89 @@
+import org.junit.Test;
+import ro.cs.tao.messaging.BatchingMessagePersister;
+import ro.cs.tao.messaging.Message;
+import ro.cs.tao.persistence.MessageProvider;
+import ro.cs.tao.persistence.PersistenceException;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingMessagePersisterTest {
+
+    @Test
+    public void testInvalidMessageInBatch() throws InterruptedException {
+        final List<Message> saved = new ArrayList<>();
+        final BatchingMessagePersister persister = new BatchingMessagePersister(provider(saved), 100, 10, 60000, 1000);
+        for (int i = 0; i < 10; i++) {
+            final Message message = Message.create("user", null, "message " + i);
+            if (i == 4) {
+                message.setTimestamp(0);
+            }
+            assertTrue(persister.enqueue(message));
+        }
+        assertTrue(persister.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(9, saved.size());
+        assertEquals(9, persister.getFlushedCount());
+        assertEquals(1, persister.getFailedCount());
+        assertEquals(0, persister.getBatchCount());
+    }
+
+    @Test
+    public void testValidBatch() throws InterruptedException {
+        final List<Message> saved = new ArrayList<>();
+        final BatchingMessagePersister persister = new BatchingMessagePersister(provider(saved), 100, 5, 60000, 1000);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(persister.enqueue(Message.create("user", null, "message " + i)));
+        }
+        assertTrue(persister.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(10, saved.size());
+        assertEquals(10, persister.getFlushedCount());
+        assertEquals(0, persister.getFailedCount());
+        assertEquals(2, persister.getBatchCount());
+    }
+
+    /**
+     * A provider that behaves like the database: identifiers are assigned when the rows are inserted, a batch is
+     * rolled back entirely if any of its messages is invalid, and a message that already has an identifier
+     * is not accepted as a new one.
+     */
+    private static MessageProvider provider(List<Message> saved) {
+        final AtomicLong sequence = new AtomicLong();
+        return (MessageProvider) Proxy.newProxyInstance(BatchingMessagePersisterTest.class.getClassLoader(),
+                                                        new Class[] { MessageProvider.class },
+                                                        (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "save":
+                    final Message message = (Message) args[0];
+                    if (message.getId() != null && message.getId() != 0) {
+                        throw new PersistenceException("Invalid identifier provided for adding new entity of type Message!");
+                    }
+                    insert(message, sequence);
+                    saved.add(message);
+                    return message;
+                case "saveAll":
+                    @SuppressWarnings("unchecked") final List<Message> messages = (List<Message>) args[0];
+                    for (Message m : messages) {
+                        insert(m, sequence);
+                    }
+                    saved.addAll(messages);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static void insert(Message message, AtomicLong sequence) throws PersistenceException {
+        // the identity value is consumed even if the insert fails
+        message.setId(sequence.incrementAndGet());
+        if (message.getTimestamp() == 0 || message.getData() == null) {
+            throw new PersistenceException("Invalid parameters provided for adding new entity of type Message!");
+        }
+    }
+}
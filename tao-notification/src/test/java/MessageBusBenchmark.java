@@ -0,0 +1,81 @@
+import ro.cs.tao.messaging.Message;
+import ro.cs.tao.messaging.Messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the throughput of {@link Messaging#send(String, String, Message)} from several threads, on a bus having
+ * both topic and pattern subscribers, as it happens with progress messages sent by downloads and executions.
+ * Each sender uses its own set of topics, some of them matched by the pattern subscribers. The number of delivered
+ * messages is verified against the expected one.
+ * Usage: MessageBusBenchmark [sender threads] [messages per thread] [topics per thread] [pattern subscribers]
+ */
+public class MessageBusBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int messages = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        final int topics = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        final int patterns = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        final LongAdder topicDeliveries = new LongAdder();
+        final LongAdder patternDeliveries = new LongAdder();
+        // Only the first pattern matches the benchmark topics ("progress.<thread>.<topic>"), the others never match
+        Messaging.subscribe(e -> patternDeliveries.increment(), Pattern.compile("progress\\.\\d+\\.\\d*0"));
+        for (int i = 1; i < patterns; i++) {
+            Messaging.subscribe(e -> patternDeliveries.increment(), Pattern.compile("other" + i + "\\..+"));
+        }
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < topics; i++) {
+                Messaging.subscribe(e -> topicDeliveries.increment(), topic(t, i));
+            }
+        }
+        final List<Thread> senders = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            final Thread sender = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    Messaging.send("bench", topic(thread, i % topics), Message.create("bench", null, "progress", false));
+                }
+            });
+            senders.add(sender);
+            sender.start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        final double sendTime = (System.nanoTime() - start) / 1e9;
+        final long total = (long) threads * messages;
+        // Every tenth topic (0, 10, 20, ...) is also matched by the first pattern
+        final long expectedPatternDeliveries = (long) threads * countMatching(messages, topics);
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while ((topicDeliveries.sum() < total || patternDeliveries.sum() < expectedPatternDeliveries) &&
+                System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        final double deliveryTime = (System.nanoTime() - start) / 1e9;
+        System.out.printf("threads=%d messages=%d send time=%.3f s send throughput=%.1f msg/s delivery throughput=%.1f msg/s%n",
+                          threads, total, sendTime, total / sendTime, total / deliveryTime);
+        System.out.printf("topic deliveries=%d (expected %d) pattern deliveries=%d (expected %d)%n",
+                          topicDeliveries.sum(), total, patternDeliveries.sum(), expectedPatternDeliveries);
+        System.exit(0);
+    }
+
+    private static String topic(int thread, int index) {
+        return "progress." + thread + "." + index;
+    }
+
+    private static long countMatching(int messages, int topics) {
+        long count = 0;
+        for (int i = 0; i < messages; i++) {
+            if ((i % topics) % 10 == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -119,6 +119,7 @@ public class DefaultJobFactory {
                     .map(n -> (WorkflowNodeGroupDescriptor) n)
                     .collect(Collectors.toSet());
             final boolean preComputeOutputs = job.getJobType() != JobType.EXECUTION;
+            final List<ExecutionTask> newTasks = new ArrayList<>();
             for (WorkflowNodeDescriptor node : nodes) {
                 // A workflow contains also the nodes of a node group.
                 // Hence, in order not to duplicate the tasks, the nodes from group are temporary removed from workflow.
@@ -138,37 +139,27 @@ public class DefaultJobFactory {
                     task.setLevel(node.getLevel());
                     task.setContext(context);
                     if (task.getId() == null) {
-                        task = taskProvider.save(task, job);
+                        addWithSubTasks(task, newTasks);
                     } else {
-                        task = taskProvider.update(task);
+                        taskProvider.update(task);
                     }
-                    // In the case of script tasks, outputs should be pre-computed as they will not be set by the Orchestrator
-                    if (preComputeOutputs && task instanceof ScriptTask) {
-                        ScriptTask scriptTask = (ScriptTask) task;
-                        final List<TargetDescriptor> targets = scriptTask.getComponent().getTargets();
-                        if (targets != null) {
-                            targets.forEach(t -> scriptTask.setOutputParameterValue(t.getName(),
-                                                                                    scriptTask.computeTargetOutput(t.getDataDescriptor().getLocation())));
-                            taskProvider.update(scriptTask);
-                        }
-
-                    }
-                    logger.finest(String.format("Created task %s.%s for node %s [id=%s, level %s]",
-                                                jobName, task.getId(), node.getName(), node.getId(), task.getLevel()));
                 }
             }
-            // re-iterate to determine task dependencies
-            final List<ExecutionTask> tasks = job.getTasks();
-            if (tasks != null) {
-                for (ExecutionTask task : tasks) {
-                    final List<Long> parentIds = TaskUtilities.getParentIds(task);
-                    if (parentIds != null) {
-                        for (Long parentId : parentIds) {
-                            job.addTaskDependency(task.getId(), parentId);
-                        }
+            // The tasks are inserted at once, and the job (with the task dependencies) is updated only once,
+            // instead of after every task
+            for (ExecutionTask task : taskProvider.saveAll(newTasks, job)) {
+                // In the case of script tasks, outputs should be pre-computed as they will not be set by the Orchestrator
+                if (preComputeOutputs && task instanceof ScriptTask) {
+                    ScriptTask scriptTask = (ScriptTask) task;
+                    final List<TargetDescriptor> targets = scriptTask.getComponent().getTargets();
+                    if (targets != null) {
+                        targets.forEach(t -> scriptTask.setOutputParameterValue(t.getName(),
+                                                                                scriptTask.computeTargetOutput(t.getDataDescriptor().getLocation())));
+                        taskProvider.update(scriptTask);
                     }
                 }
-                jobProvider.update(job);
+                logger.finest(String.format("Created task %s.%s for node %s [level %s]",
+                                            jobName, task.getId(), task.getWorkflowNodeId(), task.getLevel()));
             }
         }
         return job;
@@ -242,6 +233,22 @@ public class DefaultJobFactory {
         return job;
     }
 
+    /**
+     * Adds a new task to the given list, followed by its sub-tasks if the task is a group
+     * (the sub-tasks of a group are also tasks of the job).
+     */
+    private void addWithSubTasks(ExecutionTask task, List<ExecutionTask> tasks) {
+        tasks.add(task);
+        if (task instanceof ExecutionGroup) {
+            final List<ExecutionTask> subTasks = ((ExecutionGroup) task).getTasks();
+            if (subTasks != null) {
+                for (ExecutionTask subTask : subTasks) {
+                    addWithSubTasks(subTask, tasks);
+                }
+            }
+        }
+    }
+
     protected ExecutionTask createTaskGroup(ExecutionJob job, WorkflowDescriptor workflow, WorkflowNodeGroupDescriptor groupNode,
                                             Map<String, String> inputs)
             throws PersistenceException {
@@ -249,7 +256,7 @@ public class DefaultJobFactory {
         group.setWorkflowNodeId(groupNode.getId());
         group.setExecutionStatus(ExecutionStatus.UNDETERMINED);
         group.setResourceId("group-" + groupNode.getId() + "-" + job.getId());
-        taskProvider.save(group, job);
+        // the group and its sub-tasks are saved together with the other tasks of the job
         List<WorkflowNodeDescriptor> nodes = groupNode.getOrderedNodes();
         final GroupComponent component = groupComponentProvider.get(groupNode.getComponentId());
         final int parallelism = component != null ? component.getParallelism() : 1;
@@ -259,7 +266,6 @@ public class DefaultJobFactory {
                 //task.setLevel(groupNode.getLevel() + 1);
                 task.setLevel(node.getLevel());
                 task.setInstanceId(i);
-                taskProvider.save(task, job);
                 group.addTask(task);
             }
         }
@@ -285,7 +291,7 @@ public class DefaultJobFactory {
         group.setWorkflowNodeId(groupNode.getId());
         group.setExecutionStatus(ExecutionStatus.UNDETERMINED);
         group.setResourceId("group-" + groupNode.getId() + "-" + job.getId());
-        taskProvider.save(group, job);
+        // the group and its sub-tasks are saved together with the other tasks of the job
         DataSourceComponentGroup dscGroup = dataSourceComponentGroupProvider.get(groupNode.getComponentId());
         List<DataSourceComponent> components = dscGroup.getDataSourceComponents();
         for (DataSourceComponent component : components) {
@@ -294,7 +300,6 @@ public class DefaultJobFactory {
             if (query != null) {
                 ExecutionTask task = createDataSourceExecutionTask(job, groupNode, component, query);
                 task.setLevel(groupNode.getLevel());
-                taskProvider.save(task, job);
                 group.addTask(task);
             } else {
                 logger.warning(String.format("No query is associated with data source '%s'", component.getId()));
@@ -1,15 +1,18 @@
 package ro.cs.tao.orchestration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import ro.cs.tao.component.SystemVariable;
 import ro.cs.tao.configuration.ConfigurationManager;
+import ro.cs.tao.configuration.ConfigurationProvider;
 import ro.cs.tao.execution.model.ExecutionJob;
 import ro.cs.tao.execution.model.ExecutionStatus;
 import ro.cs.tao.execution.model.JobSelector;
 import ro.cs.tao.execution.persistence.ExecutionJobProvider;
 import ro.cs.tao.persistence.PersistenceException;
 import ro.cs.tao.utils.FileQueue;
+import ro.cs.tao.utils.PersistenceMode;
 import ro.cs.tao.utils.StringUtilities;
 import ro.cs.tao.utils.Tuple;
 
@@ -28,14 +31,19 @@ import java.util.stream.Collectors;
 public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
     private final FileQueue<Tuple<Long, String>> queue;
     private final ExecutionJobProvider jobProvider;
+    // Moment (System.nanoTime()) when each job was queued
+    private final Map<Long, Long> enqueueTimes;
     private JobSelector<Tuple<Long, String>> jobSelector;
-    private volatile boolean notEmpty;
     private final Logger logger = Logger.getLogger(DefaultJobQueue.class.getName());
 
     public DefaultJobQueue(ExecutionJobProvider jobProvider) {
         Tuple<Long, String> dummy = new Tuple<>(0L, "");
+        final ConfigurationProvider configuration = ConfigurationManager.getInstance();
+        final PersistenceMode persistenceMode = PersistenceMode.fromName(configuration.getValue("job.queue.persistence"));
+        final int compactionThreshold = Integer.parseInt(configuration.getValue("job.queue.journal.compaction", "1024"));
         this.queue = new FileQueue<>(Paths.get(SystemVariable.CACHE.value()).resolve("wait_jobs.json"),
-                                     (Class<Tuple<Long, String>>) dummy.getClass()) {
+                                     (Class<Tuple<Long, String>>) dummy.getClass(),
+                                     persistenceMode, compactionThreshold) {
             @Override
             protected List<Tuple<Long, String>> readItems() throws IOException {
                 final ObjectMapper mapper = new ObjectMapper();
@@ -47,9 +55,17 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
                 }
                 return casted;
             }
+
+            @Override
+            protected Tuple<Long, String> readItem(JsonNode node) {
+                return new Tuple<>(node.get("keyOne").asLong(), node.path("keyTwo").textValue());
+            }
         };
         this.jobProvider = jobProvider;
-        String jobSelectorClass = ConfigurationManager.getInstance().getValue("job.selector");
+        this.enqueueTimes = new HashMap<>();
+        final long now = System.nanoTime();
+        this.queue.forEach(t -> this.enqueueTimes.put(t.getKeyOne(), now));
+        String jobSelectorClass = configuration.getValue("job.selector");
         try {
             if (!StringUtilities.isNullOrEmpty(jobSelectorClass)) {
                 final Class<?> clazz = Class.forName(jobSelectorClass);
@@ -93,14 +109,16 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
 
     /**
      * Adds a job to the user queue and returns its position in the queue.
+     * Any consumer waiting for a job is woken up.
      * @param job   The job to be queued
      */
     @Override
     public synchronized int put(ExecutionJob job) {
         this.queue.offer(new Tuple<>(job.getId(), job.getUserId()));
+        this.enqueueTimes.put(job.getId(), System.nanoTime());
         logger.finest(String.format("Job [%s] for user '%s' was added to the queue with status %s",
                                     job.getName(), job.getUserId(), job.getExecutionStatus().name()));
-        notEmpty = true;
+        notifyAll();
         return this.queue.size();
     }
 
@@ -111,6 +129,7 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
      */
     @Override
     public synchronized boolean removeJob(long jobId) {
+        this.enqueueTimes.remove(jobId);
         return this.queue.removeIf(p -> p.getKeyOne().equals(jobId));
     }
 
@@ -122,7 +141,11 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
      */
     @Override
     public synchronized boolean removeJob(String userId, long jobId) {
-        return queue.removeIf(p -> p.getKeyOne().equals(jobId) && p.getKeyTwo().equals(userId));
+        final boolean removed = queue.removeIf(p -> p.getKeyOne().equals(jobId) && p.getKeyTwo().equals(userId));
+        if (removed) {
+            this.enqueueTimes.remove(jobId);
+        }
+        return removed;
     }
 
     /**
@@ -139,6 +162,7 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
             final Tuple<Long, String> next = iterator.next();
             if (userId == null || next.getKeyTwo().equals(userId)) {
                 iterator.remove();
+                this.enqueueTimes.remove(next.getKeyOne());
                 if (removedJobs == null) {
                     removedJobs = new ArrayList<>();
                 }
@@ -310,26 +334,20 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
         if (userId == null) {
             return take();
         }
-        ExecutionJob job = null;
-        while (this.queue.isEmpty()) {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        synchronized (this.queue) {
+        Long jobId = null;
+        synchronized (this) {
+            awaitJobs();
             final Iterator<Tuple<Long, String>> iterator = this.queue.iterator();
             while (iterator.hasNext()) {
                 final Tuple<Long, String> next = iterator.next();
                 if (next.getKeyTwo().equals(userId)) {
                     iterator.remove();
-                    job = this.jobProvider.get(next.getKeyOne());
+                    jobId = next.getKeyOne();
                     break;
                 }
             }
         }
-        return job;
+        return jobId != null ? this.jobProvider.get(jobId) : null;
     }
 
     @Override
@@ -337,30 +355,24 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
         if (userId == null) {
             return take();
         }
-        ExecutionJob job = null;
-        while (this.queue.isEmpty()) {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        synchronized (this.queue) {
+        Long jobId = null;
+        synchronized (this) {
+            awaitJobs();
             final Iterator<Tuple<Long, String>> iterator = this.queue.iterator();
             while (iterator.hasNext()) {
                 final Tuple<Long, String> next = iterator.next();
                 if (!next.getKeyTwo().equals(userId)) {
                     iterator.remove();
-                    job = this.jobProvider.get(next.getKeyOne());
+                    jobId = next.getKeyOne();
                     break;
                 }
             }
         }
         // All the queued jobs are of the same user, return the first one
-        if (job == null) {
+        if (jobId == null) {
             return take();
         }
-        return job;
+        return this.jobProvider.get(jobId);
     }
 
     /**
@@ -368,21 +380,12 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
      */
     @Override
     public ExecutionJob take() {
-        ExecutionJob job = null;
-        while (this.queue.isEmpty()) {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        synchronized (this.queue) {
-            final Tuple<Long, String> pair = this.jobSelector.chooseNext();
-            if (pair != null) {
-                job = this.jobProvider.get(pair.getKeyOne());
-            }
+        final Tuple<Long, String> pair;
+        synchronized (this) {
+            awaitJobs();
+            pair = this.jobSelector.chooseNext();
         }
-        return job;
+        return pair != null ? this.jobProvider.get(pair.getKeyOne()) : null;
     }
 
     /**
@@ -391,7 +394,27 @@ public class DefaultJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
      * @param userId  The user identifier
      */
     @Override
-    public boolean hasMoreJobs(String userId) {
+    public synchronized boolean hasMoreJobs(String userId) {
         return this.queue.stream().anyMatch(p -> p.getKeyTwo().equals(userId));
     }
+
+    @Override
+    public synchronized long pollEnqueueTime(long jobId) {
+        final Long time = this.enqueueTimes.remove(jobId);
+        return time != null ? time : -1;
+    }
+
+    /**
+     * Blocks the calling thread (that must own the queue monitor) until a job is queued.
+     */
+    private void awaitJobs() {
+        while (this.queue.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,512 @@
+package ro.cs.tao.orchestration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ro.cs.tao.component.SystemVariable;
+import ro.cs.tao.configuration.ConfigurationManager;
+import ro.cs.tao.execution.model.ExecutionJob;
+import ro.cs.tao.execution.model.ExecutionStatus;
+import ro.cs.tao.execution.model.JobSelector;
+import ro.cs.tao.execution.persistence.ExecutionJobProvider;
+import ro.cs.tao.persistence.PersistenceException;
+import ro.cs.tao.utils.FileBackedMap;
+import ro.cs.tao.utils.PersistenceMode;
+import ro.cs.tao.utils.StringUtilities;
+import ro.cs.tao.utils.Tuple;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of a job queue that keeps, besides the global ordering of the jobs, an index of the jobs of each user.
+ * Each queued job has a position (sequence number) in the global ordering. Moving a job closer to the head or to the
+ * tail of the queue (or of its user queue) swaps its position with the one of its neighbour, so that all the
+ * operations are O(log n) instead of scanning the whole queue.
+ * The per-user job counts are maintained incrementally, so the balanced selection strategy (the next job is picked
+ * from the user having the most queued jobs) is also O(log n).
+ * The queue state is persisted in a file-backed map (job id to [position, user]) in journal mode, so that each
+ * operation appends an entry instead of re-writing the whole map.
+ *
+ * @since 1.5.2
+ */
+public class IndexedJobQueue implements ro.cs.tao.orchestration.queue.JobQueue {
+    private final ExecutionJobProvider jobProvider;
+    private final FileBackedMap<String, Object> store;
+    // Global ordering: position -> job
+    private final TreeMap<Long, QueuedJob> queue;
+    // Job id -> job
+    private final Map<Long, QueuedJob> jobs;
+    // User id -> the user jobs, ordered by position
+    private final Map<String, UserQueue> userQueues;
+    // Position of the first job of each user -> user queue (used for picking the first job of another user)
+    private final TreeMap<Long, UserQueue> userHeads;
+    // User queues ordered by the number of queued jobs (descending), then by the position of their first job
+    private final TreeSet<UserQueue> userLoads;
+    // Moment (System.nanoTime()) when each job was queued
+    private final Map<Long, Long> enqueueTimes;
+    private final boolean balanced;
+    private JobSelector<Tuple<Long, String>> jobSelector;
+    private long nextPosition;
+    private final Logger logger = Logger.getLogger(IndexedJobQueue.class.getName());
+
+    public IndexedJobQueue(ExecutionJobProvider jobProvider) {
+        this(jobProvider,
+             Paths.get(SystemVariable.CACHE.value()).resolve("queued_jobs.json"),
+             Integer.parseInt(ConfigurationManager.getInstance().getValue("job.queue.journal.compaction", "1024")),
+             ConfigurationManager.getInstance().getValue("job.selector"));
+    }
+
+    /**
+     * Creates the queue.
+     *
+     * @param jobProvider           The provider of the queued jobs
+     * @param file                  The file in which the queue state is persisted
+     * @param compactionThreshold   The minimum number of journal entries before the journal is compacted
+     * @param jobSelectorClass      The job selector class name (if <code>null</code>, the default one is used)
+     */
+    IndexedJobQueue(ExecutionJobProvider jobProvider, Path file, int compactionThreshold, String jobSelectorClass) {
+        this.jobProvider = jobProvider;
+        this.queue = new TreeMap<>();
+        this.jobs = new HashMap<>();
+        this.userQueues = new HashMap<>();
+        this.enqueueTimes = new HashMap<>();
+        this.userHeads = new TreeMap<>();
+        this.userLoads = new TreeSet<>(Comparator.comparingInt((UserQueue q) -> q.jobs.size()).reversed()
+                                                 .thenComparingLong(UserQueue::headPosition)
+                                                 .thenComparing(q -> q.userId));
+        this.store = new FileBackedMap<>(file, PersistenceMode.JOURNAL, compactionThreshold);
+        restore();
+        this.balanced = BalancedJobSelector.class.getName().equals(jobSelectorClass);
+        if (!StringUtilities.isNullOrEmpty(jobSelectorClass) && !this.balanced &&
+                !DefaultJobSelector.class.getName().equals(jobSelectorClass)) {
+            try {
+                final Class<?> clazz = Class.forName(jobSelectorClass);
+                if (JobSelector.class.isAssignableFrom(clazz)) {
+                    this.jobSelector = (JobSelector<Tuple<Long, String>>) clazz.getConstructor(Queue.class).newInstance(new QueueView());
+                }
+            } catch (Exception e) {
+                logger.warning(String.format("Cannot instantiate job selector %s, the default one will be used. Reason: %s",
+                                             jobSelectorClass, e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Initializes the queue with the jobs that have not yet been executed.
+     */
+    @Override
+    public void initialize() {
+        final Set<ExecutionStatus> statuses = new HashSet<>() {{
+            add(ExecutionStatus.QUEUED_ACTIVE);
+            add(ExecutionStatus.RUNNING);
+        }};
+        final List<ExecutionJob> runnableJobs = this.jobProvider.list(statuses);
+        if (runnableJobs != null) {
+            for (ExecutionJob job : runnableJobs) {
+                job.setExecutionStatus(ExecutionStatus.UNDETERMINED);
+                job.setStartTime(null);
+                job.setEndTime(null);
+                try {
+                    this.jobProvider.update(job);
+                    logger.fine(String.format("Job [%s] was reset to UNDETERMINED", job.getName()));
+                } catch (PersistenceException e) {
+                    logger.warning(String.format("Error resetting job [%s]. Reason: %s", job.getName(), e.getMessage()));
+                }
+                put(job);
+            }
+        }
+    }
+
+    /**
+     * Adds a job to the user queue and returns its position in the queue.
+     * If the job is already queued, its position is not changed.
+     *
+     * @param job   The job to be queued
+     */
+    @Override
+    public synchronized int put(ExecutionJob job) {
+        if (!this.jobs.containsKey(job.getId())) {
+            add(new QueuedJob(job.getId(), job.getUserId(), this.nextPosition++));
+            this.enqueueTimes.put(job.getId(), System.nanoTime());
+            notifyAll();
+            logger.finest(String.format("Job [%s] for user '%s' was added to the queue with status %s",
+                                        job.getName(), job.getUserId(), job.getExecutionStatus().name()));
+        }
+        return this.queue.size();
+    }
+
+    @Override
+    public synchronized boolean removeJob(long jobId) {
+        this.enqueueTimes.remove(jobId);
+        return remove(jobId) != null;
+    }
+
+    @Override
+    public synchronized boolean removeJob(String userId, long jobId) {
+        final QueuedJob queuedJob = this.jobs.get(jobId);
+        if (queuedJob != null && queuedJob.userId.equals(userId)) {
+            this.enqueueTimes.remove(jobId);
+            return remove(jobId) != null;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized List<Long> removeUserJobs(String userId) {
+        List<Long> removedJobs = null;
+        final Collection<QueuedJob> toRemove;
+        if (userId == null) {
+            toRemove = new ArrayList<>(this.queue.values());
+        } else {
+            final UserQueue userQueue = this.userQueues.get(userId);
+            toRemove = userQueue != null ? new ArrayList<>(userQueue.jobs.values()) : Collections.emptyList();
+        }
+        for (QueuedJob queuedJob : toRemove) {
+            remove(queuedJob.jobId);
+            this.enqueueTimes.remove(queuedJob.jobId);
+            if (removedJobs == null) {
+                removedJobs = new ArrayList<>();
+            }
+            removedJobs.add(queuedJob.jobId);
+        }
+        return removedJobs;
+    }
+
+    @Override
+    public synchronized void moveJobToHead(long jobId) {
+        final QueuedJob queuedJob = this.jobs.get(jobId);
+        if (queuedJob != null) {
+            final Map.Entry<Long, QueuedJob> previous = this.queue.lowerEntry(queuedJob.position);
+            if (previous != null) {
+                swap(queuedJob, previous.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void moveJobToHead(String userId, long jobId) {
+        final QueuedJob queuedJob = this.jobs.get(jobId);
+        if (queuedJob != null && queuedJob.userId.equals(userId)) {
+            final Map.Entry<Long, QueuedJob> previous = this.userQueues.get(userId).jobs.lowerEntry(queuedJob.position);
+            if (previous != null) {
+                swap(queuedJob, previous.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void moveJobToTail(long jobId) {
+        final QueuedJob queuedJob = this.jobs.get(jobId);
+        if (queuedJob != null) {
+            final Map.Entry<Long, QueuedJob> next = this.queue.higherEntry(queuedJob.position);
+            if (next != null) {
+                swap(queuedJob, next.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void moveJobToTail(String userId, long jobId) {
+        final QueuedJob queuedJob = this.jobs.get(jobId);
+        if (queuedJob != null && queuedJob.userId.equals(userId)) {
+            final Map.Entry<Long, QueuedJob> next = this.userQueues.get(userId).jobs.higherEntry(queuedJob.position);
+            if (next != null) {
+                swap(queuedJob, next.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<Long> getUserJobs(String userId) {
+        final List<Long> userJobs = new ArrayList<>();
+        final UserQueue userQueue = this.userQueues.get(userId);
+        if (userQueue != null) {
+            for (QueuedJob queuedJob : userQueue.jobs.values()) {
+                userJobs.add(queuedJob.jobId);
+            }
+        }
+        return userJobs;
+    }
+
+    @Override
+    public synchronized Map<String, List<Long>> getUserQueues() {
+        final Map<String, List<Long>> result = new HashMap<>();
+        for (UserQueue userQueue : this.userQueues.values()) {
+            final List<Long> userJobs = new ArrayList<>(userQueue.jobs.size());
+            for (QueuedJob queuedJob : userQueue.jobs.values()) {
+                userJobs.add(queuedJob.jobId);
+            }
+            result.put(userQueue.userId, userJobs);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Queue<Tuple<Long, String>> getAllJobs() {
+        final Queue<Tuple<Long, String>> result = new ArrayDeque<>(this.queue.size());
+        for (QueuedJob queuedJob : this.queue.values()) {
+            result.offer(queuedJob.toTuple());
+        }
+        return result;
+    }
+
+    @Override
+    public ExecutionJob take(String userId) {
+        if (userId == null) {
+            return take();
+        }
+        final QueuedJob queuedJob;
+        synchronized (this) {
+            awaitJobs();
+            final UserQueue userQueue = this.userQueues.get(userId);
+            queuedJob = userQueue != null ? remove(userQueue.jobs.firstEntry().getValue().jobId) : null;
+        }
+        return queuedJob != null ? this.jobProvider.get(queuedJob.jobId) : null;
+    }
+
+    @Override
+    public ExecutionJob takeExcept(String userId) {
+        if (userId == null) {
+            return take();
+        }
+        QueuedJob queuedJob = null;
+        synchronized (this) {
+            awaitJobs();
+            // At most two user heads have to be inspected: the excluded user and the next one
+            for (UserQueue userQueue : this.userHeads.values()) {
+                if (!userQueue.userId.equals(userId)) {
+                    queuedJob = remove(userQueue.jobs.firstEntry().getValue().jobId);
+                    break;
+                }
+            }
+        }
+        // All the queued jobs are of the same user, return the first one
+        if (queuedJob == null) {
+            return take();
+        }
+        return this.jobProvider.get(queuedJob.jobId);
+    }
+
+    @Override
+    public ExecutionJob take() {
+        final Tuple<Long, String> next;
+        synchronized (this) {
+            awaitJobs();
+            next = chooseNext();
+        }
+        return next != null ? this.jobProvider.get(next.getKeyOne()) : null;
+    }
+
+    @Override
+    public synchronized boolean hasMoreJobs(String userId) {
+        return this.userQueues.containsKey(userId);
+    }
+
+    /**
+     * Returns the number of queued jobs of the given user.
+     *
+     * @param userId    The user identifier
+     */
+    public synchronized int getUserJobCount(String userId) {
+        final UserQueue userQueue = this.userQueues.get(userId);
+        return userQueue != null ? userQueue.jobs.size() : 0;
+    }
+
+    private Tuple<Long, String> chooseNext() {
+        final QueuedJob queuedJob;
+        if (this.jobSelector != null) {
+            final Tuple<Long, String> selected = this.jobSelector.chooseNext();
+            if (selected != null) {
+                // the selector may have already removed it
+                remove(selected.getKeyOne());
+            }
+            return selected;
+        } else if (this.balanced) {
+            queuedJob = this.userLoads.isEmpty() ? null : remove(this.userLoads.first().jobs.firstEntry().getValue().jobId);
+        } else {
+            queuedJob = this.queue.isEmpty() ? null : remove(this.queue.firstEntry().getValue().jobId);
+        }
+        return queuedJob != null ? queuedJob.toTuple() : null;
+    }
+
+    @Override
+    public synchronized long pollEnqueueTime(long jobId) {
+        final Long time = this.enqueueTimes.remove(jobId);
+        return time != null ? time : -1;
+    }
+
+    /**
+     * Blocks the calling thread (that must own the queue monitor) until a job is queued.
+     */
+    private void awaitJobs() {
+        while (this.queue.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void add(QueuedJob queuedJob) {
+        this.jobs.put(queuedJob.jobId, queuedJob);
+        this.queue.put(queuedJob.position, queuedJob);
+        final UserQueue userQueue = this.userQueues.computeIfAbsent(queuedJob.userId, UserQueue::new);
+        unindex(userQueue);
+        userQueue.jobs.put(queuedJob.position, queuedJob);
+        index(userQueue);
+        persist(queuedJob);
+    }
+
+    private QueuedJob remove(long jobId) {
+        final QueuedJob queuedJob = this.jobs.remove(jobId);
+        if (queuedJob != null) {
+            detach(queuedJob);
+            this.store.remove(String.valueOf(jobId));
+        }
+        return queuedJob;
+    }
+
+    private void detach(QueuedJob queuedJob) {
+        this.queue.remove(queuedJob.position);
+        final UserQueue userQueue = this.userQueues.get(queuedJob.userId);
+        unindex(userQueue);
+        userQueue.jobs.remove(queuedJob.position);
+        if (userQueue.jobs.isEmpty()) {
+            this.userQueues.remove(queuedJob.userId);
+        } else {
+            index(userQueue);
+        }
+    }
+
+    /**
+     * Exchanges the positions of two queued jobs.
+     */
+    private void swap(QueuedJob first, QueuedJob second) {
+        final long position = first.position;
+        detach(first);
+        detach(second);
+        first.position = second.position;
+        second.position = position;
+        add(first);
+        add(second);
+    }
+
+    private void index(UserQueue userQueue) {
+        this.userHeads.put(userQueue.headPosition(), userQueue);
+        this.userLoads.add(userQueue);
+    }
+
+    private void unindex(UserQueue userQueue) {
+        if (!userQueue.jobs.isEmpty()) {
+            this.userLoads.remove(userQueue);
+            this.userHeads.remove(userQueue.headPosition());
+        }
+    }
+
+    private void persist(QueuedJob queuedJob) {
+        this.store.put(String.valueOf(queuedJob.jobId), new Tuple<>(queuedJob.position, queuedJob.userId));
+    }
+
+    private void restore() {
+        final ObjectMapper mapper = new ObjectMapper();
+        final List<QueuedJob> restored = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : this.store.entrySet()) {
+            try {
+                final Tuple<?, ?> value = mapper.convertValue(entry.getValue(), Tuple.class);
+                restored.add(new QueuedJob(Long.parseLong(entry.getKey()),
+                                           String.valueOf(value.getKeyTwo()),
+                                           ((Number) value.getKeyOne()).longValue()));
+            } catch (Exception e) {
+                logger.warning(String.format("Invalid queue entry for job %s. Reason: %s", entry.getKey(), e.getMessage()));
+            }
+        }
+        restored.sort(Comparator.comparingLong(q -> q.position));
+        for (QueuedJob queuedJob : restored) {
+            this.jobs.put(queuedJob.jobId, queuedJob);
+            this.queue.put(queuedJob.position, queuedJob);
+            final UserQueue userQueue = this.userQueues.computeIfAbsent(queuedJob.userId, UserQueue::new);
+            unindex(userQueue);
+            userQueue.jobs.put(queuedJob.position, queuedJob);
+            index(userQueue);
+            this.enqueueTimes.put(queuedJob.jobId, System.nanoTime());
+            this.nextPosition = queuedJob.position + 1;
+        }
+    }
+
+    private static class QueuedJob {
+        private final long jobId;
+        private final String userId;
+        private long position;
+
+        private QueuedJob(long jobId, String userId, long position) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.position = position;
+        }
+
+        private Tuple<Long, String> toTuple() {
+            return new Tuple<>(this.jobId, this.userId);
+        }
+    }
+
+    private static class UserQueue {
+        private final String userId;
+        private final TreeMap<Long, QueuedJob> jobs;
+
+        private UserQueue(String userId) {
+            this.userId = userId;
+            this.jobs = new TreeMap<>();
+        }
+
+        private long headPosition() {
+            return this.jobs.firstKey();
+        }
+    }
+
+    /**
+     * Read-only view of the queue, handed to custom job selectors.
+     * Polling the view removes the head of the queue.
+     */
+    private class QueueView extends AbstractQueue<Tuple<Long, String>> {
+
+        @Override
+        public Iterator<Tuple<Long, String>> iterator() {
+            final Iterator<QueuedJob> iterator = queue.values().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Tuple<Long, String> next() {
+                    return iterator.next().toTuple();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean offer(Tuple<Long, String> tuple) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Tuple<Long, String> poll() {
+            final QueuedJob queuedJob = queue.isEmpty() ? null : IndexedJobQueue.this.remove(queue.firstEntry().getValue().jobId);
+            return queuedJob != null ? queuedJob.toTuple() : null;
+        }
+
+        @Override
+        public Tuple<Long, String> peek() {
+            return queue.isEmpty() ? null : queue.firstEntry().getValue().toTuple();
+        }
+    }
+}
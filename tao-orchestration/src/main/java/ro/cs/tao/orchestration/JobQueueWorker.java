@@ -6,16 +6,26 @@ import ro.cs.tao.execution.monitor.NodeManager;
 import ro.cs.tao.orchestration.commands.JobCommand;
 import ro.cs.tao.orchestration.queue.JobQueue;
 import ro.cs.tao.persistence.PersistenceException;
+import ro.cs.tao.utils.LatencyStatistics;
 
 import java.util.logging.Logger;
 
+/**
+ * Worker that dequeues jobs and starts them as long as the maximum number of active jobs is not reached.
+ * The worker blocks in the queue while there are no jobs, and on its monitor while there is no free slot
+ * (or it is paused). It is woken up by {@link #signal()} when a job completes or the work is resumed.
+ */
 public class JobQueueWorker extends Thread {
+    // Safety net for the cases in which a job leaves the running state without the worker being signalled
+    private static final long MAX_WAIT_MILLIS = 10000;
     private final JobQueue queue;
     private final Logger logger;
     private int maxJobs;
     private final Object monitor;
+    private final LatencyStatistics startLatency;
+    private boolean signalled;
     private Orchestrator orchestrator;
-    private String lastUserId;
+    private volatile String lastUserId;
     private volatile boolean paused;
     private volatile boolean stopped;
 
@@ -25,6 +35,7 @@ public class JobQueueWorker extends Thread {
         this.logger = Logger.getLogger(JobQueueWorker.class.getName());
         this.maxJobs = NodeManager.getInstance().getActiveNodesCount() * 2;
         this.monitor = new Object();
+        this.startLatency = new LatencyStatistics("job enqueue-to-start");
     }
 
     public void setOrchestrator(Orchestrator instance) {
@@ -51,6 +62,24 @@ public class JobQueueWorker extends Thread {
 
     public void resumeWork() {
         this.paused = false;
+        signal();
+    }
+
+    /**
+     * Wakes up the worker if it waits for a free slot (i.e. a job has completed) or for the work to be resumed.
+     */
+    public void signal() {
+        synchronized (this.monitor) {
+            this.signalled = true;
+            this.monitor.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the statistics of the time elapsed between queueing the jobs and starting them.
+     */
+    public LatencyStatistics getStartLatency() {
+        return this.startLatency;
     }
 
     public boolean isPaused() {
@@ -62,24 +91,24 @@ public class JobQueueWorker extends Thread {
         while (!this.stopped) {
             try {
                 if (this.paused) {
-                    synchronized (this.monitor) {
-                        this.monitor.wait(10000);
-                    }
+                    awaitSignal();
                 } else {
                     int count;
                     if ((count = this.orchestrator.getActiveJobsCount()) >= this.maxJobs) {
-                        synchronized (this.monitor) {
-                            logger.finest(String.format("Job queue has still %d active jobs (max. limit is %d)",
-                                                        count, this.maxJobs));
-                            this.monitor.wait(10000);
-                        }
+                        logger.finest(String.format("Job queue has still %d active jobs (max. limit is %d)",
+                                                    count, this.maxJobs));
+                        awaitSignal();
                     } else {
                         final ExecutionJob job = this.queue.takeExcept(this.lastUserId != null ? this.lastUserId : null);
                         if (job != null) {
+                            final long enqueueTime = this.queue.pollEnqueueTime(job.getId());
                             try {
                                 logger.finest(String.format("Job [%s] for user '%s' was dequeued",
                                                             job.getName(), job.getUserId()));
                                 JobCommand.START.applyTo(job);
+                                if (enqueueTime != -1) {
+                                    this.startLatency.recordSince(enqueueTime);
+                                }
                                 //this.orchestrator.incrementActiveJobs();
                             } catch (ExecutionException e) {
                                 try {
@@ -109,4 +138,17 @@ public class JobQueueWorker extends Thread {
     public void setLastUserId(String userId) {
         this.lastUserId = userId;
     }
+
+    /**
+     * Waits until the worker is signalled (or for at most {@link #MAX_WAIT_MILLIS}).
+     * A signal received while the worker was not waiting is not lost.
+     */
+    private void awaitSignal() throws InterruptedException {
+        synchronized (this.monitor) {
+            if (!this.signalled) {
+                this.monitor.wait(MAX_WAIT_MILLIS);
+            }
+            this.signalled = false;
+        }
+    }
 }
@@ -68,6 +68,7 @@ import ro.cs.tao.topology.NodeDescription;
 import ro.cs.tao.topology.TopologyManager;
 import ro.cs.tao.user.UserPreference;
 import ro.cs.tao.utils.*;
+import ro.cs.tao.utils.executors.PartitionedExecutor;
 import ro.cs.tao.workflow.ParameterValue;
 import ro.cs.tao.workflow.WorkflowDescriptor;
 import ro.cs.tao.workflow.WorkflowNodeDescriptor;
@@ -86,8 +87,8 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -105,6 +106,8 @@ public class Orchestrator extends Notifiable {
 
     private static final String GROUP_TASK_SELECTOR_KEY = "group.task.selector";
     private static final String JOB_TASK_SELECTOR_KEY = "job.task.selector";
+    private static final String JOB_QUEUE_KEY = "job.queue";
+    private static final String MESSAGE_LANES_KEY = "orchestrator.message.lanes";
     private static final Set<ExecutionStatus> notFurtherRunnableStatuses = EnumSet.of(ExecutionStatus.DONE,
                                                                                       ExecutionStatus.CANCELLED,
                                                                                       ExecutionStatus.FAILED);
@@ -127,7 +130,6 @@ public class Orchestrator extends Notifiable {
     private final JobQueue jobQueue;
     private final JobQueueWorker jobQueueWorker;
     private final WorkflowProvider workflowProvider;
-    private final WorkflowNodeProvider workflowNodeProvider;
     private final ExecutionJobProvider jobProvider;
     private final ExecutionTaskProvider taskProvider;
     private final ProcessingComponentProvider processingComponentProvider;
@@ -138,7 +140,7 @@ public class Orchestrator extends Notifiable {
     private TaskSelector<ExecutionJob> jobTaskSelector;
     private DefaultJobFactory jobFactory;
     private Set<MetadataInspector> metadataServices;
-    private final ExecutorService messageWorker = Executors.newFixedThreadPool(1);
+    private final PartitionedExecutor messageWorker;
     private final Set<Long> runningTasks;
     private final AtomicInteger activeJobs;
     private final List<JobCompletedListener> jobListeners;
@@ -148,24 +150,27 @@ public class Orchestrator extends Notifiable {
 
     private Orchestrator() {
         this.lock = new Object();
-        this.groupStateHandlers = new HashMap<>();
+        this.groupStateHandlers = new ConcurrentHashMap<>();
         this.messageQueue = new LinkedBlockingDeque<>();
         this.runningTasks = Collections.synchronizedSet(new HashSet<>());
+        // Messages of the same job are handled in order, by the same lane, while different jobs progress concurrently
+        this.messageWorker = new PartitionedExecutor("orchestrator-messages",
+                                                     Math.max(1, Integer.parseInt(ConfigurationManager.getInstance()
+                                                                                                      .getValue(MESSAGE_LANES_KEY, "4"))));
         this.listAdapter = new StringListAdapter();
         final SpringContextBridgedServices bridgedServices = SpringContextBridge.services();
         this.jobProvider = bridgedServices.getService(ExecutionJobProvider.class);
         this.taskProvider = bridgedServices.getService(ExecutionTaskProvider.class);
         this.workflowProvider = bridgedServices.getService(WorkflowProvider.class);
-        this.workflowNodeProvider = bridgedServices.getService(WorkflowNodeProvider.class);
         this.processingComponentProvider = bridgedServices.getService(ProcessingComponentProvider.class);
         this.groupComponentProvider = bridgedServices.getService(GroupComponentProvider.class);
         this.namingRuleProvider = bridgedServices.getService(NamingRuleProvider.class);
         this.userProvider = bridgedServices.getService(UserProvider.class);
-        this.jobQueue = new DefaultJobQueue(this.jobProvider);
+        this.jobQueue = createJobQueue();
         this.jobQueueWorker = new JobQueueWorker(this.jobQueue);
         this.jobQueueWorker.setOrchestrator(this);
         this.activeJobs = new AtomicInteger(0);
-        this.jobListeners = new ArrayList<>();
+        this.jobListeners = new CopyOnWriteArrayList<>();
         addJobListener(new JobListener(this));
         try {
             final NodeDescription masterNode = bridgedServices.getService(NodeDBProvider.class).get(Inet4Address.getLocalHost().getHostName());
@@ -182,7 +187,7 @@ public class Orchestrator extends Notifiable {
     }
 
     public void start() {
-        final Function<Long, WorkflowNodeDescriptor> workflowProvider = this.workflowNodeProvider::get;
+        final Function<Long, WorkflowNodeDescriptor> workflowProvider = TaskUtilities::getWorkflowNode;
         initializeJobSelector(workflowProvider, this.taskProvider::getByJobAndNode);
         initializeGroupSelector(workflowProvider, this.taskProvider::getByGroupAndNode);
         TaskStatusHandler.registerHandlers(jobProvider, taskProvider);
@@ -356,7 +361,7 @@ public class Orchestrator extends Notifiable {
             }
             final Principal principal = context.getPrincipal();
             // check if the user's disk quota is not reached
-            if (!checkProcessingQuota(principal)) {
+            if (!checkProcessingQuota(context)) {
                 // do not create any job
                 throw new ExecutionException("Quota exceeded for user " + principal.getName());
             }
@@ -496,6 +501,13 @@ public class Orchestrator extends Notifiable {
         return jobProvider.count(ExecutionStatus.RUNNING);
     }
 
+    /**
+     * Returns the statistics of the time elapsed between queueing the jobs and starting them.
+     */
+    public LatencyStatistics getJobStartLatency() {
+        return this.jobQueueWorker.getStartLatency();
+    }
+
     int getActiveJobsCount(String userId) {
         return jobProvider.count(userId, ExecutionStatus.RUNNING);
     }
@@ -572,6 +584,23 @@ public class Orchestrator extends Notifiable {
         return runningTasks;
     }
 
+    private JobQueue createJobQueue() {
+        final String jobQueueClass = ConfigurationManager.getInstance().getValue(JOB_QUEUE_KEY,
+                                                                                 DefaultJobQueue.class.getName());
+        try {
+            final Class<?> clazz = Class.forName(jobQueueClass);
+            if (JobQueue.class.isAssignableFrom(clazz)) {
+                return (JobQueue) clazz.getConstructor(ExecutionJobProvider.class).newInstance(this.jobProvider);
+            }
+            logger.warning(String.format("Class %s defined by %s in configuration is not a job queue",
+                                         jobQueueClass, JOB_QUEUE_KEY));
+        } catch (Exception e) {
+            logger.warning(String.format("Cannot instantiate the job queue class defined by %s in configuration. Reason: %s",
+                                         JOB_QUEUE_KEY, e.getMessage()));
+        }
+        return new DefaultJobQueue(this.jobProvider);
+    }
+
     private void initializeGroupSelector(Function<Long, WorkflowNodeDescriptor> workflowProvider,
                                          TriFunction<Long, Long, Integer, ExecutionTask> nodeProvider) {
         String groupTaskSelectorClass = ConfigurationManager.getInstance().getValue(GROUP_TASK_SELECTOR_KEY,
@@ -614,7 +643,7 @@ public class Orchestrator extends Notifiable {
         this.jobTaskSelector.setTaskByNodeProvider(nodeProvider);
     }
 
-    private synchronized void processMessage(Message message, SessionContext currentContext) {
+    private void processMessage(Message message, SessionContext currentContext) {
         final String taskId = message.getItem(Message.SOURCE_KEY);
         String payload = message.getPayload();
         if (StringUtilities.isNullOrEmpty(payload)) {
@@ -647,7 +676,7 @@ public class Orchestrator extends Notifiable {
             }
             if (completedOkStatuses.contains(status)) {
                 // Current task has completed somehow
-                final WorkflowNodeDescriptor taskNode = workflowNodeProvider.get(task.getWorkflowNodeId());
+                final WorkflowNodeDescriptor taskNode = TaskUtilities.getWorkflowNode(task.getWorkflowNodeId());
                 // For DataSourceExecutionTask, it is the Query executor that sets the outputs.
                 // Hence, we need to "confirm" here the outputs of a processing task.
                 if (task instanceof ProcessingExecutionTask && !(task instanceof ScriptTask)) {
@@ -658,7 +687,7 @@ public class Orchestrator extends Notifiable {
                 if (nextTasks != null && !nextTasks.isEmpty()) {
                     logger.finest(String.format("Has %s next tasks", nextTasks.size()));
                     for (ExecutionTask nextTask : nextTasks) {
-                        final WorkflowNodeDescriptor nextNode = workflowNodeProvider.get(nextTask.getWorkflowNodeId());
+                        final WorkflowNodeDescriptor nextNode = TaskUtilities.getWorkflowNode(nextTask.getWorkflowNodeId());
                         final List<ParameterValue> additionalInfo = taskNode != null ? taskNode.getAdditionalInfo() : null;
                         final Set<ComponentLink> links = nextNode.getIncomingLinks();
                         final boolean manyParents = links.size() > 1;
@@ -720,8 +749,7 @@ public class Orchestrator extends Notifiable {
                                 }
                                 TaskUtilities.transferParentOutputs(nextTask);
                                 nextTask.setContext(currentContext);
-                                if (!this.runningTasks.contains(nextTask.getId())) {
-                                    this.runningTasks.add(nextTask.getId());
+                                if (this.runningTasks.add(nextTask.getId())) {
                                     TaskCommand.START.applyTo(nextTask);
                                 }
                             } else {
@@ -729,8 +757,7 @@ public class Orchestrator extends Notifiable {
                             }
                         } else {
                             nextTask.setContext(currentContext);
-                            if (!this.runningTasks.contains(nextTask.getId())) {
-                                this.runningTasks.add(nextTask.getId());
+                            if (this.runningTasks.add(nextTask.getId())) {
                                 TaskCommand.START.applyTo(nextTask);
                             }
                         }
@@ -1139,7 +1166,7 @@ public class Orchestrator extends Notifiable {
                             .filter(i -> task.getId().equals(tasks.get(i).getId()))
                             .findFirst().orElse(0);
                     bulkSetStatus(tasks.subList(startIndex, taskCount), taskStatus);
-                    if (TransitionBehavior.FAIL_ON_ERROR == workflowNodeProvider.get(task.getWorkflowNodeId()).getBehavior()) {
+                    if (TransitionBehavior.FAIL_ON_ERROR == TaskUtilities.getWorkflowNode(task.getWorkflowNodeId()).getBehavior()) {
                         groupTask.setExecutionStatus(taskStatus);
                     } else {
                         if (groupTask.getStateHandler() == null) {
@@ -1365,7 +1392,7 @@ public class Orchestrator extends Notifiable {
                 return;
             }
             List<Variable> values = task.getOutputParameterValues();
-            WorkflowNodeDescriptor node = workflowNodeProvider.get(task.getWorkflowNodeId());
+            WorkflowNodeDescriptor node = TaskUtilities.getWorkflowNode(task.getWorkflowNodeId());
             TaoComponent component;
             if (node instanceof WorkflowNodeGroupDescriptor) {
                 component = groupComponentProvider.get(node.getComponentId());
@@ -1432,6 +1459,8 @@ public class Orchestrator extends Notifiable {
                 }
                 path = Paths.get(strPath).toAbsolutePath();
                 if (Files.exists(path)) {
+                    // the output may have been written on another node, whose changes are not seen by the watcher
+                    FolderSizeTracker.getInstance().update(path);
                     MetadataInspector metadataInspector = this.metadataServices.stream()
                                                                                .filter(s -> s.decodeQualification(path) == DecodeStatus.INTENDED)
                                                                                .findFirst().orElse(null);
@@ -1468,12 +1497,22 @@ public class Orchestrator extends Notifiable {
     /**
      * Check if the user still has disk processing quota available
      * 
-     * @param user the user for which the interrogation is made
+     * @param context the session context of the user for which the interrogation is made
      * 
      * @return true if the user stil has disk processing quota available, false otherwise. 
      * @throws QuotaException if the operation fails. 
      */
-    private boolean checkProcessingQuota(Principal user) throws QuotaException {
+    private boolean checkProcessingQuota(SessionContext context) throws QuotaException {
+        final Principal user = context.getPrincipal();
+        // the size of the workspace is kept up to date from then on, instead of being walked for every check
+        final Path workspace = context.getWorkspace();
+        if (workspace != null && Files.isDirectory(workspace)) {
+            try {
+                FolderSizeTracker.getInstance().watch(workspace);
+            } catch (IOException e) {
+                logger.warning(String.format("Cannot watch the workspace of user %s: %s", user.getName(), e.getMessage()));
+            }
+        }
         // update the quota before checking
         UserQuotaManager.getInstance().updateUserProcessingQuota(user);
         
@@ -1744,7 +1783,8 @@ public class Orchestrator extends Notifiable {
                 try {
                     AbstractMap.SimpleEntry<Message, SessionContext> entry = messageQueue.take();
                     logger.finest("Dequeued message " + entry.getKey());
-                    Orchestrator.this.messageWorker.submit(() -> processMessage(entry.getKey(), entry.getValue()));
+                    Orchestrator.this.messageWorker.execute(partitionKey(entry.getKey()),
+                                                            () -> processMessage(entry.getKey(), entry.getValue()));
                 } catch (InterruptedException e) {
                     logger.severe(e.getMessage());
                 }
@@ -1752,6 +1792,27 @@ public class Orchestrator extends Notifiable {
         }
     }
 
+    /**
+     * Returns the key used to route a message to a processing lane, which is the identifier of the job
+     * the message refers to. For messages not carrying the job identifier, the job is resolved from the source task.
+     */
+    private Object partitionKey(Message message) {
+        final String jobId = message.getItem(Message.JOB_KEY);
+        if (jobId != null) {
+            return jobId;
+        }
+        final String taskId = message.getItem(Message.SOURCE_KEY);
+        if (StringUtilities.isNullOrEmpty(message.getPayload()) || taskId == null) {
+            return taskId;
+        }
+        try {
+            final ExecutionTask task = taskProvider.get(Long.parseLong(taskId));
+            return task != null && task.getJob() != null ? String.valueOf(task.getJob().getId()) : taskId;
+        } catch (NumberFormatException e) {
+            return taskId;
+        }
+    }
+
     private class JobListener implements JobCompletedListener {
         private final Orchestrator instance;
 
@@ -1797,6 +1858,8 @@ public class Orchestrator extends Notifiable {
 			} catch (PersistenceException e) {
 				logger.severe(() -> String.format("Cannot remove volatile components. Reason: %s", e.getMessage()));
 			}
+            // a job slot was freed
+            instance.jobQueueWorker.signal();
         }
 
         private void notify(ExecutionJob job) throws PersistenceException {
@@ -103,12 +103,12 @@ public interface JobQueue {
     Queue<Tuple<Long, String>> getAllJobs();
 
     /**
-     * Retrieves the job that on the head of the queue.
+     * Retrieves the job that on the head of the queue, waiting for a job to be queued if the queue is empty.
      */
     ExecutionJob take();
 
     /**
-     * Retrieves the next job for a particular user.
+     * Retrieves the next job for a particular user, waiting for a job to be queued if the queue is empty.
      *
      * @param userId The user identifier
      */
@@ -117,7 +117,7 @@ public interface JobQueue {
     }
 
     /**
-     * Retrieves the next job for a user different than the argument
+     * Retrieves the next job for a user different than the argument, waiting for a job to be queued if the queue is empty.
      *
      * @param userId The user identifier to be excluded
      */
@@ -131,4 +131,14 @@ public interface JobQueue {
      * @param userId The user identifier
      */
     boolean hasMoreJobs(String userId);
+
+    /**
+     * Returns and forgets the moment (as given by {@link System#nanoTime()}) at which a job taken from the queue
+     * was queued, or -1 if not known.
+     *
+     * @param jobId The job identifier
+     */
+    default long pollEnqueueTime(long jobId) {
+        return -1;
+    }
 }
@@ -40,6 +40,7 @@ public class DoneStatusHandler extends TaskStatusHandler {
                                                    strMsg, ExecutionStatus.DONE.name(), true);
             message.setTopic(Topic.EXECUTION.value());
             message.addItem("host", task.getExecutionNodeHostName());
+            message.addItem(Message.JOB_KEY, String.valueOf(task.getJob().getId()));
             Messaging.send(message);
             logger.fine(strMsg);
         }
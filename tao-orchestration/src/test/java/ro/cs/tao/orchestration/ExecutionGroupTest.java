@@ -0,0 +1,60 @@
+package ro.cs.tao.orchestration;
+
+import org.junit.Test;
+import ro.cs.tao.execution.model.ExecutionGroup;
+import ro.cs.tao.execution.model.ExecutionTask;
+import ro.cs.tao.execution.model.ProcessingExecutionTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ExecutionGroupTest {
+
+    @Test
+    public void testUnsavedSubTasks() {
+        // the job factory adds the sub-tasks to a group before they are saved (i.e. while their ids are null)
+        final ExecutionGroup group = new ExecutionGroup();
+        final List<ExecutionTask> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            final ExecutionTask task = new ProcessingExecutionTask();
+            task.setInstanceId(i);
+            tasks.add(task);
+            group.addTask(task);
+        }
+        assertEquals(5, group.getTasks().size());
+        // adding the same task again doesn't duplicate it
+        group.addTask(tasks.get(2));
+        assertEquals(5, group.getTasks().size());
+        for (ExecutionTask task : tasks) {
+            assertSame(group, task.getGroupTask());
+        }
+        group.removeTask(tasks.get(3));
+        assertEquals(4, group.getTasks().size());
+        assertEquals(tasks.get(4), group.getTasks().get(3));
+        // an unsaved task that is not part of the group is not removed in place of another one
+        group.removeTask(new ProcessingExecutionTask());
+        assertEquals(4, group.getTasks().size());
+    }
+
+    @Test
+    public void testSavedSubTasks() {
+        final ExecutionGroup group = new ExecutionGroup();
+        group.addTask(new ProcessingExecutionTask());
+        for (long id = 1; id <= 3; id++) {
+            final ExecutionTask task = new ProcessingExecutionTask();
+            task.setId(id);
+            group.addTask(task);
+        }
+        assertEquals(4, group.getTasks().size());
+        // a task with the same id is seen as already added
+        final ExecutionTask copy = new ProcessingExecutionTask();
+        copy.setId(2L);
+        group.addTask(copy);
+        assertEquals(4, group.getTasks().size());
+        group.removeTask(copy);
+        assertEquals(3, group.getTasks().size());
+    }
+}
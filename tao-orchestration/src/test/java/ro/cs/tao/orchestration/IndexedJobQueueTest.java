@@ -0,0 +1,140 @@
+package ro.cs.tao.orchestration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.cs.tao.execution.model.ExecutionJob;
+import ro.cs.tao.execution.model.ExecutionStatus;
+import ro.cs.tao.execution.persistence.ExecutionJobProvider;
+import ro.cs.tao.utils.Tuple;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedJobQueueTest {
+    private Path folder;
+    private Path file;
+    private ExecutionJobProvider jobProvider;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("job-queue");
+        file = folder.resolve("queued_jobs.json");
+        // only get() is used by the queue when a job is taken
+        jobProvider = (ExecutionJobProvider) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                    new Class[] { ExecutionJobProvider.class },
+                                                                    (proxy, method, args) -> {
+            if ("get".equals(method.getName()) && args != null && args.length == 1 && args[0] instanceof Long) {
+                return job((Long) args[0], null);
+            }
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> stream = Files.walk(folder)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPerUserOrdering() {
+        final IndexedJobQueue queue = fill(newQueue());
+        assertEquals(Arrays.asList(1L, 3L, 5L), queue.getUserJobs("u1"));
+        assertEquals(Arrays.asList(2L, 4L), queue.getUserJobs("u2"));
+        assertEquals(3, queue.getUserJobCount("u1"));
+        // adding a queued job again doesn't change its position
+        queue.put(job(1L, "u1"));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), allJobs(queue));
+
+        assertEquals(2L, (long) queue.take("u2").getId());
+        assertEquals(1L, (long) queue.takeExcept("u2").getId());
+        assertEquals(3L, (long) queue.take().getId());
+        assertEquals(Arrays.asList(4L, 5L), allJobs(queue));
+        assertEquals(Collections.singletonList(5L), queue.getUserJobs("u1"));
+    }
+
+    @Test
+    public void testMoves() {
+        final IndexedJobQueue queue = fill(newQueue());
+        queue.moveJobToHead(3L);
+        assertEquals(Arrays.asList(1L, 3L, 2L, 4L, 5L), allJobs(queue));
+        queue.moveJobToTail("u1", 1L);
+        assertEquals(Arrays.asList(3L, 1L, 2L, 4L, 5L), allJobs(queue));
+        assertEquals(Arrays.asList(3L, 1L, 5L), queue.getUserJobs("u1"));
+        // a job cannot be moved on behalf of another user
+        queue.moveJobToHead("u2", 5L);
+        assertEquals(Arrays.asList(3L, 1L, 2L, 4L, 5L), allJobs(queue));
+    }
+
+    @Test
+    public void testRemoval() {
+        final IndexedJobQueue queue = fill(newQueue());
+        assertFalse(queue.removeJob("u2", 3L));
+        assertTrue(queue.removeJob("u1", 3L));
+        assertFalse(queue.removeJob(3L));
+        assertTrue(queue.removeJob(4L));
+        assertEquals(Arrays.asList(1L, 2L, 5L), allJobs(queue));
+        assertEquals(Arrays.asList(1L, 5L), queue.removeUserJobs("u1"));
+        assertFalse(queue.hasMoreJobs("u1"));
+        assertTrue(queue.hasMoreJobs("u2"));
+        assertEquals(Collections.singletonList(2L), allJobs(queue));
+        assertEquals(Collections.singletonList(2L), queue.removeUserJobs(null));
+        assertTrue(queue.getAllJobs().isEmpty());
+        assertTrue(queue.getUserQueues().isEmpty());
+    }
+
+    @Test
+    public void testReload() {
+        // a low compaction threshold, so that the state is partly in the snapshot and partly in the journal
+        final IndexedJobQueue queue = fill(new IndexedJobQueue(jobProvider, file, 2, null));
+        queue.removeJob(2L);
+        queue.moveJobToHead(5L);
+        queue.put(job(6L, "u2"));
+        final List<Long> expected = allJobs(queue);
+        final IndexedJobQueue restored = new IndexedJobQueue(jobProvider, file, 2, null);
+        assertEquals(expected, allJobs(restored));
+        assertEquals(queue.getUserQueues(), restored.getUserQueues());
+        // new jobs are queued after the restored ones
+        restored.put(job(7L, "u1"));
+        assertEquals(7L, (long) allJobs(restored).get(expected.size()));
+        assertEquals(1L, (long) restored.take().getId());
+    }
+
+    private IndexedJobQueue newQueue() {
+        return new IndexedJobQueue(jobProvider, file, 1024, null);
+    }
+
+    private IndexedJobQueue fill(IndexedJobQueue queue) {
+        for (long id = 1; id <= 5; id++) {
+            queue.put(job(id, id % 2 == 1 ? "u1" : "u2"));
+        }
+        return queue;
+    }
+
+    private static List<Long> allJobs(IndexedJobQueue queue) {
+        return queue.getAllJobs().stream().map(Tuple::getKeyOne).collect(Collectors.toList());
+    }
+
+    private static ExecutionJob job(long id, String userId) {
+        final ExecutionJob job = new ExecutionJob();
+        job.setId(id);
+        job.setUserId(userId);
+        job.setName("job-" + id);
+        job.setExecutionStatus(ExecutionStatus.QUEUED_ACTIVE);
+        return job;
+    }
+}
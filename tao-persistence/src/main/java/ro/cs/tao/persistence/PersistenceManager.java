@@ -24,6 +24,7 @@ import ro.cs.tao.persistence.managers.*;
 
 import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
+import java.util.Map;
 
 /**
  * DAO
@@ -188,6 +189,10 @@ public class PersistenceManager {
         return componentCache;
     }
 
+    public Map<String, SimpleCache.Statistics> getCacheStatistics() {
+        return SimpleCache.statistics();
+    }
+
     public WorkflowNodeDescriptorManager workflowNodes() { return workflowNodeDescriptorManager; }
 
     public WorkflowManager workflows() { return workflowManager; }
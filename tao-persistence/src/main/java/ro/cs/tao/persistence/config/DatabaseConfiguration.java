@@ -159,6 +159,14 @@ public class DatabaseConfiguration implements ApplicationListener<ContextClosedE
 
     private static final String PROPERTY_NAME_HIBERNATE_MERGE_ENTITIES = "hibernate.event.merge.entity_copy_observer";
 
+    /**
+     * Constants for the hibernate JDBC batching (the statements of the same type are sent to the database
+     * in batches when an entity graph is saved)
+     */
+    private static final String PROPERTY_NAME_HIBERNATE_BATCH_SIZE = "hibernate.jdbc.batch_size";
+    private static final String PROPERTY_NAME_HIBERNATE_ORDER_INSERTS = "hibernate.order_inserts";
+    private static final String PROPERTY_NAME_HIBERNATE_ORDER_UPDATES = "hibernate.order_updates";
+
     /**
      * Constant for the Entity Manager packages to scan property name (within
      * .properties file)
@@ -280,6 +288,12 @@ public class DatabaseConfiguration implements ApplicationListener<ContextClosedE
           environment.getRequiredProperty(PROPERTY_NAME_HIBERNATE_TRANSACTION_AUTO_CLOSE_SESSION));
         jpaProperties.put("hibernate.enable_lazy_load_no_trans",
           environment.getRequiredProperty("hibernate.enable_lazy_load_no_trans"));
+        jpaProperties.put(PROPERTY_NAME_HIBERNATE_BATCH_SIZE,
+          environment.getProperty(PROPERTY_NAME_HIBERNATE_BATCH_SIZE, "50"));
+        jpaProperties.put(PROPERTY_NAME_HIBERNATE_ORDER_INSERTS,
+          environment.getProperty(PROPERTY_NAME_HIBERNATE_ORDER_INSERTS, "true"));
+        jpaProperties.put(PROPERTY_NAME_HIBERNATE_ORDER_UPDATES,
+          environment.getProperty(PROPERTY_NAME_HIBERNATE_ORDER_UPDATES, "true"));
         entityManagerFactoryBean.setJpaProperties(jpaProperties);
         return entityManagerFactoryBean;
     }
@@ -24,6 +24,7 @@ import ro.cs.tao.docker.Container;
 import ro.cs.tao.docker.ContainerType;
 import ro.cs.tao.docker.ContainerVisibility;
 import ro.cs.tao.persistence.ContainerProvider;
+import ro.cs.tao.persistence.WorkflowMetadataCache;
 import ro.cs.tao.persistence.repository.ContainerRepository;
 
 import java.util.List;
@@ -61,6 +62,11 @@ public class ContainerManager extends EntityManager<Container, String, Container
     @Override
     protected String identifier() { return "id"; }
 
+    @Override
+    protected void onChanged(String id) {
+        WorkflowMetadataCache.getInstance().invalidateContainer(id);
+    }
+
     @Override
     protected boolean checkEntity(Container entity, boolean existingEntity) {
         return entity != null && checkEntity(entity);
@@ -26,6 +26,8 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ro.cs.tao.SortDirection;
 import ro.cs.tao.component.Identifiable;
 import ro.cs.tao.persistence.EntityProvider;
@@ -119,7 +121,9 @@ public abstract class EntityManager<T extends Identifiable<K>, K, R extends Pagi
                 throw new PersistenceException("There is already another entity with the identifier: " + entity.getId());
             }
         }*/
-        return repository.save(entity);
+        final T saved = repository.save(entity);
+        changed(saved.getId());
+        return saved;
     }
 
     @Transactional
@@ -134,7 +138,9 @@ public abstract class EntityManager<T extends Identifiable<K>, K, R extends Pagi
             throw new PersistenceException(String.format("There is no entity with the given identifier %s",
                                                          entity.getId()));
         }
-        return repository.save(entity);
+        final T updated = repository.save(entity);
+        changed(updated.getId());
+        return updated;
     }
 
     @Transactional
@@ -149,6 +155,7 @@ public abstract class EntityManager<T extends Identifiable<K>, K, R extends Pagi
         }
         T entity = existing.get();
         repository.delete(entity);
+        changed(id);
     }
 
     @Transactional
@@ -163,11 +170,42 @@ public abstract class EntityManager<T extends Identifiable<K>, K, R extends Pagi
     public void delete(Iterable<K> ids) throws PersistenceException {
         if (ids != null) {
             repository.deleteAllById(ids);
+            ids.forEach(this::changed);
         }
     }
 
     protected abstract String identifier();
 
+    /**
+     * Invoked after the entity with the given identifier was saved, updated or deleted (see {@link #changed(Object)}).
+     * Managers whose entities are also cached outside the persistence layer override it to discard the cached copy.
+     */
+    protected void onChanged(K id) {
+    }
+
+    /**
+     * Signals that the entity with the given identifier was saved, updated or deleted.
+     */
+    protected final void changed(K id) {
+        runNowAndAfterCommit(() -> onChanged(id));
+    }
+
+    /**
+     * Runs a cache invalidation now and, if a transaction is active, once more after it is committed.
+     * Until the commit, other threads still read the previous state from the database and may cache it again.
+     */
+    protected static void runNowAndAfterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
     protected abstract boolean checkEntity(T entity);
 
     protected boolean checkId(K entityId, boolean existingEntity) {
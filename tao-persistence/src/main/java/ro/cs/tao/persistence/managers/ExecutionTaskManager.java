@@ -33,8 +33,7 @@ import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -335,6 +334,89 @@ public class ExecutionTaskManager extends EntityManager<ExecutionTask, Long, Exe
         }
     }
 
+    /**
+     * Saves the new tasks of an existent job in a single transaction.
+     * Unlike saving the tasks one by one, the job (its task list and the dependencies between its tasks)
+     * is updated only once, after all the tasks were inserted.
+     *
+     * @param tasks - the new tasks (including the sub-tasks of the groups, if any)
+     * @param job - the existent job
+     * @return - the saved tasks
+     * @throws PersistenceException
+     */
+    @Transactional
+    @Override
+    public List<ExecutionTask> saveAll(List<ExecutionTask> tasks, ExecutionJob job) throws PersistenceException {
+        if (tasks == null) {
+            tasks = new ArrayList<>();
+        }
+        lock.lock();
+        try {
+            // check method parameters
+            if (!checkExecutionJob(job, true) || !existsJob(job.getId())) {
+                throw new PersistenceException("Invalid job was provided for adding new execution tasks !");
+            }
+            final Set<String> resourceIds = new HashSet<>();
+            for (ExecutionTask task : tasks) {
+                if (!checkEntity(task, false)) {
+                    throw new PersistenceException("Invalid parameters were provided for adding new execution task !");
+                }
+                if (!(task instanceof ProcessingExecutionTask || task instanceof DataSourceExecutionTask ||
+                        task instanceof ExecutionGroup || task instanceof WPSExecutionTask || task instanceof WMSExecutionTask)) {
+                    throw new PersistenceException("Unsupported execution task type: " + task.getClass().getSimpleName());
+                }
+                if (task.getResourceId() != null && !resourceIds.add(task.getResourceId())) {
+                    throw new PersistenceException("Duplicate task resource identifier: " + task.getResourceId());
+                }
+            }
+            // check, with a single query, if there are already tasks with the same resource identifiers
+            if (!resourceIds.isEmpty()) {
+                final List<String> existing = repository.findExistingResourceIds(resourceIds);
+                if (existing != null && !existing.isEmpty()) {
+                    throw new PersistenceException("There is already another task with the resource identifier: " + existing.get(0));
+                }
+            }
+            final List<ExecutionTask> savedTasks = new ArrayList<>(tasks.size());
+            if (!tasks.isEmpty()) {
+                for (ExecutionTask task : tasks) {
+                    task.setJob(job);
+                }
+                repository.saveAll(tasks).forEach(savedTasks::add);
+            }
+            for (ExecutionTask task : savedTasks) {
+                job.addTask(task);
+            }
+            // wire the dependencies of all the tasks of the job (also of the already existing ones),
+            // skipping the ones already recorded, since the job doesn't check for duplicates
+            final Map<String, List<String>> dependencies = job.getTaskDependencies();
+            for (Map.Entry<Long, List<Long>> entry : getParentIdsByJob(job.getId()).entrySet()) {
+                final List<String> known = dependencies != null ? dependencies.get(String.valueOf(entry.getKey())) : null;
+                for (Long parentId : entry.getValue()) {
+                    if (known == null || !known.contains(String.valueOf(parentId))) {
+                        job.addTaskDependency(entry.getKey(), parentId);
+                    }
+                }
+            }
+            executionJobManager.update(job);
+            return savedTasks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, List<Long>> getParentIdsByJob(long jobId) {
+        final Map<Long, List<Long>> parents = new LinkedHashMap<>();
+        final List<Object[]> rows = repository.findParentTaskIdsByJob(jobId);
+        if (rows != null) {
+            for (Object[] row : rows) {
+                parents.computeIfAbsent(((Number) row[0]).longValue(), k -> new ArrayList<>())
+                       .add(((Number) row[1]).longValue());
+            }
+        }
+        return parents;
+    }
+
     @Override
     public ExecutionTask save(ExecutionTask task, ExecutionGroup taskGroup) throws PersistenceException {
         lock.lock();
@@ -379,6 +461,7 @@ public class ExecutionTaskManager extends EntityManager<ExecutionTask, Long, Exe
         }
     }
 
+    @Transactional
     @Override
     public ExecutionTask saveWithSubTasks(ExecutionGroup taskGroup, ExecutionJob job) throws PersistenceException {
 
@@ -391,12 +474,39 @@ public class ExecutionTaskManager extends EntityManager<ExecutionTask, Long, Exe
 
         taskGroup.setTasks(null);
         taskGroup = (ExecutionGroup) save(taskGroup, job);
-
-        for (ExecutionTask subTask : subTasks){
-            save(subTask, taskGroup);
+        if (subTasks.isEmpty()) {
+            return taskGroup;
         }
 
-        return taskGroup;
+        lock.lock();
+        try {
+            final Set<String> resourceIds = new HashSet<>();
+            for (ExecutionTask subTask : subTasks) {
+                if (!checkEntity(subTask, false) ||
+                        !(subTask instanceof ProcessingExecutionTask || subTask instanceof DataSourceExecutionTask)) {
+                    throw new PersistenceException("Invalid parameters were provided for adding new execution task within task group " + taskGroup.getId() + "!");
+                }
+                if (subTask.getResourceId() != null && !resourceIds.add(subTask.getResourceId())) {
+                    throw new PersistenceException("Duplicate task resource identifier: " + subTask.getResourceId());
+                }
+            }
+            if (!resourceIds.isEmpty()) {
+                final List<String> existing = repository.findExistingResourceIds(resourceIds);
+                if (existing != null && !existing.isEmpty()) {
+                    throw new PersistenceException("There is already another task with the resource identifier: " + existing.get(0));
+                }
+            }
+            // the sub-tasks are saved at once, and the group is saved only once with all of them
+            for (ExecutionTask subTask : subTasks) {
+                subTask.setGroupTask(taskGroup);
+            }
+            final List<ExecutionTask> savedTasks = new ArrayList<>(subTasks.size());
+            repository.saveAll(subTasks).forEach(savedTasks::add);
+            taskGroup.setTasks(savedTasks);
+            return repository.save(taskGroup);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Transactional
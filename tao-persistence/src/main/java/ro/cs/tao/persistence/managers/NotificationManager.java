@@ -16,17 +16,32 @@
 
 package ro.cs.tao.persistence.managers;
 
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.Loadable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
 import ro.cs.tao.messaging.Message;
 import ro.cs.tao.persistence.MessageProvider;
+import ro.cs.tao.persistence.PersistenceException;
 import ro.cs.tao.persistence.repository.MessageRepository;
 
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableTransactionManagement
@@ -34,6 +49,14 @@ import java.util.List;
 @Component("notificationManager")
 public class NotificationManager extends EntityManager<Message, Long, MessageRepository> implements MessageProvider {
 
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Map<Class<?>, Object> discriminators = new ConcurrentHashMap<>();
+
     @Override
     public List<Message> getUserMessages(String userId, Integer pageNumber) {
         PageRequest pageRequest = PageRequest.of(pageNumber - 1, Constants.MESSAGES_PAGE_SIZE,
@@ -61,6 +84,43 @@ public class NotificationManager extends EntityManager<Message, Long, MessageRep
         repository.deleteAll(userId);
     }
 
+    /**
+     * Inserts the messages using a single JDBC batch.
+     * Unlike {@link #save(Message)}, the generated identifiers are not set back on the messages.
+     */
+    @Override
+    @Transactional
+    public void saveAll(List<Message> messages) throws PersistenceException {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        final List<Object> types = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (!checkEntity(message) || !checkId(message.getId(), false)) {
+                throw new PersistenceException("Invalid parameters provided for adding new entity of type Message!");
+            }
+            types.add(discriminator(message.getClass()));
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.batchUpdate("INSERT INTO common.notification (timestamp, topic, user_id, read, data, discriminator) " +
+                                 "VALUES (?, ?, ?, ?, ?, ?)",
+                                 new BatchPreparedStatementSetter() {
+                                     @Override
+                                     public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                         final Message message = messages.get(i);
+                                         statement.setLong(1, message.getTimestamp());
+                                         statement.setString(2, message.getTopic());
+                                         statement.setString(3, message.getUserId());
+                                         statement.setBoolean(4, message.isRead());
+                                         statement.setString(5, message.getData());
+                                         statement.setObject(6, types.get(i));
+                                     }
+
+                                     @Override
+                                     public int getBatchSize() { return messages.size(); }
+                                 });
+    }
+
     @Override
     protected String identifier() { return "id"; }
 
@@ -79,4 +139,22 @@ public class NotificationManager extends EntityManager<Message, Long, MessageRep
         return (!existingEntity && (entityId == null || entityId.equals(0L))) || (existingEntity && get(entityId) != null);
     }
 
+    /**
+     * Returns the value of the discriminator column of the given message type, as it is mapped in the ORM file.
+     */
+    private Object discriminator(Class<? extends Message> messageClass) throws PersistenceException {
+        Object value = discriminators.get(messageClass);
+        if (value == null) {
+            try {
+                final EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                                                                      .getMetamodel().entityPersister(messageClass);
+                value = ((Loadable) persister).getDiscriminatorValue();
+            } catch (RuntimeException e) {
+                throw new PersistenceException("Message type " + messageClass.getName() + " is not mapped", e);
+            }
+            discriminators.put(messageClass, value);
+        }
+        return value;
+    }
+
 }
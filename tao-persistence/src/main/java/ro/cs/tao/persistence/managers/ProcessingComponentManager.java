@@ -134,6 +134,7 @@ public class ProcessingComponentManager extends TaoComponentManager<ProcessingCo
             });
             map.clear();
         }
+        changed(entity.getId());
         return entity;
     }
 
@@ -161,9 +162,16 @@ public class ProcessingComponentManager extends TaoComponentManager<ProcessingCo
             expansionRuleRepository.save(rule);
         }
         repository.save(entity);
+        changed(entity.getId());
         return entity;
     }
 
+    @Override
+    protected void onChanged(String id) {
+        super.onChanged(id);
+        SimpleCache.invalidate(ProcessingComponent.class, id);
+    }
+
     @Override
     protected boolean checkEntity(ProcessingComponent entity) {
         return checkComponent(entity) && entity.getFileLocation() != null &&
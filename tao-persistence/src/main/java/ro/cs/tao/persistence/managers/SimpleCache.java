@@ -16,69 +16,282 @@
 
 package ro.cs.tao.persistence.managers;
 
-import java.util.HashMap;
+import ro.cs.tao.configuration.ConfigurationManager;
+import ro.cs.tao.configuration.ConfigurationProvider;
+
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 /**
  * Simple cache for entities.
+ * There is one cache per entity (value) type. The caches are safe for concurrent use: a value is loaded
+ * under the lock of its own key only, so a slow load does not block the readers of other keys.
+ * The maximum number of entries and the time to live (in seconds, 0 meaning no expiration) of a cache are read
+ * from the configuration keys <code>persistence.cache.[entity_type].size</code> and
+ * <code>persistence.cache.[entity_type].ttl</code> (the entity type being the lower case simple class name),
+ * falling back to <code>persistence.cache.size</code> and <code>persistence.cache.ttl</code>.
  *
  * @author Cosmin Cara
  */
 public class SimpleCache {
+    private static final int DEFAULT_SIZE = 100;
+    private static final long DEFAULT_TTL = 0;
     private static final Map<Class, Cache> cacheMap;
 
     static {
-        cacheMap = new HashMap<>();
+        cacheMap = new ConcurrentHashMap<>();
     }
 
     public static <K, V> Cache<K, V> create(Class<K> keyClass, Class<V> valueClass,
                                             Function<K, V> loader) {
-        Cache<K, V> cache = (Cache<K, V>) cacheMap.get(valueClass);
-        if (cache == null) {
-            cache = new Cache<>(100, loader);
-            cacheMap.put(valueClass, cache);
-        }
-        return cache;
+        return (Cache<K, V>) cacheMap.computeIfAbsent(valueClass,
+                                                      c -> new Cache<>(valueClass.getSimpleName(),
+                                                                       configuredSize(valueClass),
+                                                                       configuredTTL(valueClass),
+                                                                       loader));
     }
 
     public static <K, V> Cache<K, V> getCache(Class<V> valueClass) {
         return (Cache<K, V>) cacheMap.get(valueClass);
     }
 
+    /**
+     * Removes the entry with the given key from the cache of the given entity type (if such a cache exists).
+     * To be called by the managers after the entity was updated or deleted.
+     */
+    public static <K, V> void invalidate(Class<V> valueClass, K key) {
+        final Cache<K, V> cache = getCache(valueClass);
+        if (cache != null && key != null) {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * Returns the statistics of all the caches, by entity type.
+     */
+    public static Map<String, Statistics> statistics() {
+        final Map<String, Statistics> statistics = new LinkedHashMap<>();
+        for (Cache<?, ?> cache : cacheMap.values()) {
+            statistics.put(cache.name, cache.getStatistics());
+        }
+        return statistics;
+    }
+
+    private static int configuredSize(Class<?> valueClass) {
+        final ConfigurationProvider configuration = ConfigurationManager.getInstance();
+        final String value = configuration.getValue("persistence.cache." + valueClass.getSimpleName().toLowerCase() + ".size",
+                                                    configuration.getValue("persistence.cache.size",
+                                                                           String.valueOf(DEFAULT_SIZE)));
+        return Math.max(1, Integer.parseInt(value.trim()));
+    }
+
+    private static long configuredTTL(Class<?> valueClass) {
+        final ConfigurationProvider configuration = ConfigurationManager.getInstance();
+        final String value = configuration.getValue("persistence.cache." + valueClass.getSimpleName().toLowerCase() + ".ttl",
+                                                    configuration.getValue("persistence.cache.ttl",
+                                                                           String.valueOf(DEFAULT_TTL)));
+        return Math.max(0, Long.parseLong(value.trim())) * 1000;
+    }
+
     public static class Cache<K, V> {
-        private final LinkedHashMap<K, V> cacheMap;
+        private final String name;
+        private final ConcurrentHashMap<K, Entry<V>> cacheMap;
         private final int limit;
+        private final long ttlMillis;
         private final Function<K, V> loader;
+        private final AtomicBoolean evicting;
+        private final LongAdder hits;
+        private final LongAdder misses;
+        private final LongAdder loadFailures;
+        private final LongAdder loadTime;
+        private final LongAdder evictions;
+        private final LongAdder expirations;
 
-        private Cache(int maxEntries, Function<K, V> loader) {
+        private Cache(String name, int maxEntries, long ttlMillis, Function<K, V> loader) {
+            this.name = name;
             this.limit = maxEntries;
+            this.ttlMillis = ttlMillis;
             this.loader = loader;
-            this.cacheMap = new LinkedHashMap<K, V>() {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-                    return size() > limit;
-                }
-            };
+            this.cacheMap = new ConcurrentHashMap<>();
+            this.evicting = new AtomicBoolean();
+            this.hits = new LongAdder();
+            this.misses = new LongAdder();
+            this.loadFailures = new LongAdder();
+            this.loadTime = new LongAdder();
+            this.evictions = new LongAdder();
+            this.expirations = new LongAdder();
         }
 
         public V get(K key) {
-            synchronized (cacheMap) {
-                return cacheMap.computeIfAbsent(key, loader);
+            final Entry<V> entry = this.cacheMap.computeIfAbsent(key, k -> new Entry<>());
+            V value = entry.current(this.ttlMillis);
+            if (value != null) {
+                this.hits.increment();
+                entry.lastAccess = System.nanoTime();
+                return value;
             }
+            // only the threads asking for this key wait for the load
+            synchronized (entry) {
+                value = entry.current(this.ttlMillis);
+                if (value != null) {
+                    this.hits.increment();
+                    entry.lastAccess = System.nanoTime();
+                    return value;
+                }
+                if (entry.value != null) {
+                    this.expirations.increment();
+                }
+                this.misses.increment();
+                final long start = System.nanoTime();
+                try {
+                    value = this.loader.apply(key);
+                } catch (RuntimeException e) {
+                    this.loadFailures.increment();
+                    this.cacheMap.remove(key, entry);
+                    throw e;
+                } finally {
+                    this.loadTime.add(System.nanoTime() - start);
+                }
+                if (value == null) {
+                    // missing entities are not cached
+                    this.cacheMap.remove(key, entry);
+                    return null;
+                }
+                entry.set(value);
+            }
+            evictIfNeeded();
+            return value;
         }
 
         public void put(K key, V value) {
-            synchronized (cacheMap) {
-                cacheMap.put(key, value);
+            if (value == null) {
+                remove(key);
+                return;
             }
+            // a new entry, so that a load in progress for the same key does not overwrite the value
+            final Entry<V> entry = new Entry<>();
+            entry.set(value);
+            this.cacheMap.put(key, entry);
+            evictIfNeeded();
         }
 
         public void remove(K key) {
-            synchronized (cacheMap) {
-                cacheMap.remove(key);
+            this.cacheMap.remove(key);
+        }
+
+        public void clear() {
+            this.cacheMap.clear();
+        }
+
+        public int size() {
+            return this.cacheMap.size();
+        }
+
+        public Statistics getStatistics() {
+            return new Statistics(this.cacheMap.size(), this.limit, this.ttlMillis / 1000,
+                                  this.hits.sum(), this.misses.sum(), this.loadFailures.sum(),
+                                  this.loadTime.sum() / 1000000, this.evictions.sum(), this.expirations.sum());
+        }
+
+        private void evictIfNeeded() {
+            // one thread evicts, the others don't wait for it
+            if (this.cacheMap.size() <= this.limit || !this.evicting.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                while (this.cacheMap.size() > this.limit) {
+                    K eldest = null;
+                    long eldestAccess = Long.MAX_VALUE;
+                    for (Map.Entry<K, Entry<V>> e : this.cacheMap.entrySet()) {
+                        final Entry<V> entry = e.getValue();
+                        // entries being loaded are skipped
+                        if (entry.value != null && entry.lastAccess < eldestAccess) {
+                            eldestAccess = entry.lastAccess;
+                            eldest = e.getKey();
+                        }
+                    }
+                    if (eldest == null) {
+                        break;
+                    }
+                    this.cacheMap.remove(eldest);
+                    this.evictions.increment();
+                }
+            } finally {
+                this.evicting.set(false);
             }
         }
     }
+
+    /**
+     * Counters of a cache. The times are in milliseconds, the time to live in seconds (0 meaning no expiration).
+     */
+    public static class Statistics {
+        private final int size;
+        private final int maxSize;
+        private final long ttl;
+        private final long hits;
+        private final long misses;
+        private final long loadFailures;
+        private final long loadTime;
+        private final long evictions;
+        private final long expirations;
+
+        private Statistics(int size, int maxSize, long ttl, long hits, long misses, long loadFailures,
+                           long loadTime, long evictions, long expirations) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+            this.hits = hits;
+            this.misses = misses;
+            this.loadFailures = loadFailures;
+            this.loadTime = loadTime;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        public int getSize() { return size; }
+
+        public int getMaxSize() { return maxSize; }
+
+        public long getTtl() { return ttl; }
+
+        public long getHits() { return hits; }
+
+        public long getMisses() { return misses; }
+
+        public long getLoadFailures() { return loadFailures; }
+
+        public long getLoadTime() { return loadTime; }
+
+        public long getEvictions() { return evictions; }
+
+        public long getExpirations() { return expirations; }
+
+        public double getHitRatio() {
+            final long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0;
+        }
+    }
+
+    private static class Entry<V> {
+        private volatile V value;
+        private volatile long loadedAt;
+        private volatile long lastAccess;
+
+        private V current(long ttlMillis) {
+            final V current = this.value;
+            return current != null && (ttlMillis == 0 || System.currentTimeMillis() - this.loadedAt < ttlMillis)
+                   ? current : null;
+        }
+
+        private void set(V value) {
+            this.loadedAt = System.currentTimeMillis();
+            this.lastAccess = System.nanoTime();
+            this.value = value;
+        }
+    }
 }
@@ -19,6 +19,7 @@ package ro.cs.tao.persistence.managers;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import ro.cs.tao.component.ParameterDescriptor;
 import ro.cs.tao.component.TaoComponent;
+import ro.cs.tao.persistence.WorkflowMetadataCache;
 
 import java.util.UUID;
 
@@ -38,6 +39,11 @@ public abstract class TaoComponentManager<T extends TaoComponent, R extends Pagi
         return entity != null && checkEntity(entity);
     }
 
+    @Override
+    protected void onChanged(String id) {
+        WorkflowMetadataCache.getInstance().invalidateComponent(id);
+    }
+
     protected boolean checkComponent(TaoComponent component) {
         return component.getLabel() != null && component.getVersion() != null &&
                 component.getDescription() != null && component.getAuthors() != null &&
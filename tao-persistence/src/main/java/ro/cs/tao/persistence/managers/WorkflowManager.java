@@ -26,6 +26,7 @@ import ro.cs.tao.datasource.DataSourceComponent;
 import ro.cs.tao.datasource.beans.Query;
 import ro.cs.tao.eodata.enums.Visibility;
 import ro.cs.tao.persistence.PersistenceException;
+import ro.cs.tao.persistence.WorkflowMetadataCache;
 import ro.cs.tao.persistence.WorkflowProvider;
 import ro.cs.tao.persistence.repository.WorkflowDescriptorRepository;
 import ro.cs.tao.utils.StringUtilities;
@@ -162,7 +163,9 @@ public class WorkflowManager extends EntityManager<WorkflowDescriptor, Long, Wor
         // by default a new workflow is active
         workflow.setActive(true);
         // save the new WorkflowDescriptor entity and return it
-        return repository.save(workflow);
+        final WorkflowDescriptor saved = repository.save(workflow);
+        changed(saved.getId());
+        return saved;
     }
 
     @Override
@@ -186,6 +189,7 @@ public class WorkflowManager extends EntityManager<WorkflowDescriptor, Long, Wor
             }
         }
         repository.delete(entity);
+        changed(entity.getId());
     }
 
     @Override
@@ -206,6 +210,7 @@ public class WorkflowManager extends EntityManager<WorkflowDescriptor, Long, Wor
         workflowEnt.setActive(false);
         // save it
         repository.save(workflowEnt);
+        changed(workflowId);
     }
 
     @Override
@@ -239,6 +244,11 @@ public class WorkflowManager extends EntityManager<WorkflowDescriptor, Long, Wor
     @Override
     protected String identifier() { return "id"; }
 
+    @Override
+    protected void onChanged(Long id) {
+        WorkflowMetadataCache.getInstance().invalidateWorkflow(id);
+    }
+
     @Override
     protected boolean checkEntity(WorkflowDescriptor entity) {
         return entity != null && !StringUtilities.isNullOrEmpty(entity.getName()) &&
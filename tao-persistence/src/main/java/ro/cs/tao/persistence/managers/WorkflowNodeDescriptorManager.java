@@ -21,6 +21,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import ro.cs.tao.persistence.PersistenceException;
+import ro.cs.tao.persistence.WorkflowMetadataCache;
 import ro.cs.tao.persistence.WorkflowNodeProvider;
 import ro.cs.tao.persistence.repository.WorkflowDescriptorRepository;
 import ro.cs.tao.persistence.repository.WorkflowNodeDescriptorRepository;
@@ -60,6 +61,8 @@ public class WorkflowNodeDescriptorManager extends EntityManager<WorkflowNodeDes
         node = repository.save(node);
         workflow.addNode(node);
         workflowDescriptorRepository.save(workflow);
+        final Long workflowId = workflow.getId();
+        runNowAndAfterCommit(() -> WorkflowMetadataCache.getInstance().invalidateWorkflow(workflowId));
         return node;
     }
 
@@ -76,6 +79,12 @@ public class WorkflowNodeDescriptorManager extends EntityManager<WorkflowNodeDes
     @Override
     protected String identifier() { return "id"; }
 
+    @Override
+    protected void onChanged(Long id) {
+        WorkflowMetadataCache.getInstance().invalidateNode(id);
+        SimpleCache.invalidate(WorkflowNodeDescriptor.class, id);
+    }
+
     @Override
     protected boolean checkId(Long entityId, boolean existingEntity) {
         return (existingEntity && entityId != null && entityId != 0) ||
@@ -10,6 +10,7 @@ import org.springframework.transaction.annotation.Transactional;
 import ro.cs.tao.execution.model.ExecutionTask;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -45,6 +46,24 @@ public interface ExecutionTaskRepository extends PagingAndSortingRepository<Exec
             "WHERE c.id = :taskId ORDER BY p.id", nativeQuery = true)
     List<Long> findParentTaskIds(@Param("taskId") long taskId);
 
+    /**
+     * Returns the (task id, parent task id) pairs of all the tasks of a job
+     *
+     * @param jobId - the job identifier
+     */
+    @Query(value = "SELECT c.id, p.id FROM execution.task p JOIN workflow.component_link l ON l.source_graph_node_id = p.graph_node_id " +
+            "JOIN execution.task c ON c.graph_node_id = l.target_graph_node_id AND c.job_id = p.job_id " +
+            "WHERE c.job_id = :jobId ORDER BY c.id, p.id", nativeQuery = true)
+    List<Object[]> findParentTaskIdsByJob(@Param("jobId") long jobId);
+
+    /**
+     * Returns which of the given resource identifiers are already used by tasks
+     *
+     * @param resourceIds - the resource identifiers to check
+     */
+    @Query(value = "SELECT resource_id FROM execution.task WHERE resource_id IN (:resourceIds)", nativeQuery = true)
+    List<String> findExistingResourceIds(@Param("resourceIds") Collection<String> resourceIds);
+
     @Query(value = "SELECT * from execution.task where execution_status_id = 2", nativeQuery = true)
     @Transactional(readOnly = true)
     List<ExecutionTask> getRunningTasks();
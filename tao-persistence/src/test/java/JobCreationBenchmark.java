@@ -0,0 +1,95 @@
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import ro.cs.tao.component.ProcessingComponent;
+import ro.cs.tao.component.Variable;
+import ro.cs.tao.execution.model.*;
+import ro.cs.tao.persistence.PersistenceManager;
+import ro.cs.tao.workflow.WorkflowDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the time needed to create a job with N processing tasks, against the database configured for
+ * the persistence module (the same one used by PersistenceManagerTest, which needs at least one workflow,
+ * one processing component and one user):
+ * <ul>
+ *     <li>one by one: <code>ExecutionTaskManager.save(task, job)</code> for every task (the former
+ *     <code>DefaultJobFactory.createJob</code>), which updates the job after each task</li>
+ *     <li>bulk: <code>ExecutionTaskManager.saveAll(tasks, job)</code> (current), which updates the job once</li>
+ * </ul>
+ * The created jobs (named benchmark_*) are deleted at the end, together with their tasks (the task rows are
+ * removed by the cascading foreign key of the execution schema).
+ * Usage: JobCreationBenchmark [task counts, comma separated]
+ */
+public class JobCreationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final String[] counts = (args.length > 0 ? args[0] : "100,500,1000,2000").split(",");
+        try (ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("tao-persistence-context.xml")) {
+            final PersistenceManager persistenceManager = context.getBean(PersistenceManager.class);
+            final ProcessingComponent component = persistenceManager.processingComponents().list().get(0);
+            final WorkflowDescriptor workflow = persistenceManager.workflows().list().get(0);
+            final String userId = persistenceManager.users().getByName("admin").getId();
+            final List<Long> jobIds = new ArrayList<>();
+            try {
+                for (String count : counts) {
+                    final int tasks = Integer.parseInt(count.trim());
+                    ExecutionJob job = newJob(persistenceManager, workflow, userId, "one_by_one_" + tasks);
+                    jobIds.add(job.getId());
+                    long start = System.nanoTime();
+                    for (ExecutionTask task : newTasks(component, workflow, tasks)) {
+                        persistenceManager.tasks().save(task, job);
+                    }
+                    final double oneByOne = (System.nanoTime() - start) / 1e6;
+
+                    job = newJob(persistenceManager, workflow, userId, "bulk_" + tasks);
+                    jobIds.add(job.getId());
+                    start = System.nanoTime();
+                    persistenceManager.tasks().saveAll(newTasks(component, workflow, tasks), job);
+                    final double bulk = (System.nanoTime() - start) / 1e6;
+
+                    System.out.printf("%d tasks: one by one=%.0f ms (%.2f ms/task) bulk=%.0f ms (%.2f ms/task)%n",
+                                      tasks, oneByOne, oneByOne / tasks, bulk, bulk / tasks);
+                }
+            } finally {
+                for (Long jobId : jobIds) {
+                    try {
+                        persistenceManager.jobs().delete(jobId);
+                    } catch (Exception e) {
+                        System.err.printf("Cannot delete job %d: %s%n", jobId, e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private static ExecutionJob newJob(PersistenceManager persistenceManager, WorkflowDescriptor workflow,
+                                       String userId, String name) throws Exception {
+        final ExecutionJob job = new ExecutionJob();
+        job.setExecutionStatus(ExecutionStatus.UNDETERMINED);
+        job.setName("benchmark_" + name);
+        job.setWorkflowId(workflow.getId());
+        job.setJobOutputPath("/output");
+        job.setJobType(JobType.EXECUTION);
+        job.setUserId(userId);
+        return persistenceManager.jobs().save(job);
+    }
+
+    private static List<ExecutionTask> newTasks(ProcessingComponent component, WorkflowDescriptor workflow, int count) {
+        final List<ExecutionTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final ProcessingExecutionTask task = new ProcessingExecutionTask();
+            task.setExecutionStatus(ExecutionStatus.UNDETERMINED);
+            task.setComponent(component);
+            task.setWorkflowNodeId(workflow.getNodes().get(0).getId());
+            task.setInstanceId(i + 1);
+            task.setLevel(1);
+            final List<Variable> inputs = new ArrayList<>();
+            inputs.add(new Variable("input1", "value" + i));
+            inputs.add(new Variable("input2", "value" + i));
+            task.setInputParameterValues(inputs);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
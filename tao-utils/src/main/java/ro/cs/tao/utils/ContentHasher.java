@@ -0,0 +1,255 @@
+package ro.cs.tao.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computes content digests of files and folders.
+ * The files of a folder are hashed in parallel (large files are memory-mapped, small files are read into
+ * a direct buffer), and the folder digest is combined Merkle-style: the digest of a folder is the digest of
+ * the sorted list of its entries (type, name and digest of each entry), hence it does not depend on the order
+ * in which the files were hashed, nor on the location of the folder.
+ * The digests of the files are remembered together with their size and modification time, so that hashing
+ * a folder again only reads the files that changed.
+ * The digest of a single file is the plain digest of its content (the same as computed by <code>sha1sum</code>
+ * and the like).
+ *
+ * @since   1.5.2
+ */
+public class ContentHasher {
+    private static final int MAPPED_THRESHOLD = 1 << 20;
+    private static final int MAPPED_REGION_SIZE = 1 << 26;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_CACHED_FILES = 200_000;
+    private static final Map<String, ContentHasher> instances = new ConcurrentHashMap<>();
+    private static final ExecutorService executor;
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private final String algorithm;
+    private final Map<Path, FileDigest> digests;
+    private final LongAdder bytesHashed;
+    private final LongAdder filesHashed;
+    private final LongAdder filesReused;
+    private final LongAdder hashingNanos;
+
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            final Thread thread = new Thread(r, "content-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the hasher for the given digest algorithm (for example "SHA-1", "SHA-256" or "MD5").
+     */
+    public static ContentHasher getInstance(String algorithm) throws NoSuchAlgorithmException {
+        // fail early for an unknown algorithm
+        MessageDigest.getInstance(algorithm);
+        return instances.computeIfAbsent(algorithm.toUpperCase(), ContentHasher::new);
+    }
+
+    private ContentHasher(String algorithm) {
+        this.algorithm = algorithm;
+        this.digests = new ConcurrentHashMap<>();
+        this.bytesHashed = new LongAdder();
+        this.filesHashed = new LongAdder();
+        this.filesReused = new LongAdder();
+        this.hashingNanos = new LongAdder();
+    }
+
+    /**
+     * Computes the hexadecimal digest of a file or of a folder (including its subfolders).
+     *
+     * @param path  The file or folder
+     */
+    public String hash(Path path) throws IOException {
+        return toHex(digest(path));
+    }
+
+    /**
+     * Computes the digest of a file or of a folder (including its subfolders).
+     *
+     * @param path  The file or folder
+     */
+    public byte[] digest(Path path) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isDirectory()) {
+            return fileDigest(path, attributes);
+        }
+        // enumerate once, then hash all the files of the tree in parallel
+        final Map<Path, Future<byte[]>> files = new HashMap<>();
+        final Map<Path, SortedMap<String, Path>> folders = new HashMap<>();
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    folders.put(dir, new TreeMap<>());
+                    if (!dir.equals(path)) {
+                        folders.get(dir.getParent()).put(dir.getFileName().toString(), dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        folders.get(file.getParent()).put(file.getFileName().toString(), file);
+                        files.put(file, executor.submit(() -> fileDigest(file, attrs)));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return folderDigest(path, folders, files);
+        } finally {
+            files.values().forEach(f -> f.cancel(false));
+        }
+    }
+
+    /**
+     * Forgets the remembered digests of the files under the given path.
+     */
+    public void invalidate(Path path) {
+        this.digests.keySet().removeIf(p -> p.startsWith(path));
+    }
+
+    public long getBytesHashed() { return this.bytesHashed.sum(); }
+
+    public long getFilesHashed() { return this.filesHashed.sum(); }
+
+    /**
+     * Returns the number of files whose remembered digest was used, because they did not change
+     */
+    public long getFilesReused() { return this.filesReused.sum(); }
+
+    /**
+     * Returns the hashing throughput of a single thread, in MB/s
+     */
+    public double getThroughput() {
+        final long nanos = this.hashingNanos.sum();
+        return nanos > 0 ? this.bytesHashed.sum() / 1048576.0 / (nanos / 1e9) : 0;
+    }
+
+    private byte[] folderDigest(Path folder, Map<Path, SortedMap<String, Path>> folders,
+                                Map<Path, Future<byte[]>> files) throws IOException {
+        final MessageDigest digest = newDigest();
+        for (Map.Entry<String, Path> entry : folders.get(folder).entrySet()) {
+            final Path child = entry.getValue();
+            final byte[] childDigest;
+            if (folders.containsKey(child)) {
+                digest.update((byte) 'D');
+                childDigest = folderDigest(child, folders, files);
+            } else {
+                digest.update((byte) 'F');
+                childDigest = get(files.get(child));
+            }
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(childDigest);
+        }
+        return digest.digest();
+    }
+
+    private byte[] fileDigest(Path file, BasicFileAttributes attributes) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        final long size = attributes.size();
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final FileDigest known = this.digests.get(key);
+        if (known != null && known.size == size && known.modified == modified) {
+            this.filesReused.increment();
+            return known.digest;
+        }
+        final long start = System.nanoTime();
+        final MessageDigest digest = newDigest();
+        long read = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length >= MAPPED_THRESHOLD) {
+                for (long position = 0; position < length; position += MAPPED_REGION_SIZE) {
+                    final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                                                Math.min(MAPPED_REGION_SIZE, length - position));
+                    read += region.remaining();
+                    digest.update(region);
+                }
+            } else {
+                final ByteBuffer buffer = buffers.get();
+                buffer.clear();
+                int count;
+                while ((count = channel.read(buffer)) != -1) {
+                    read += count;
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        final byte[] value = digest.digest();
+        this.hashingNanos.add(System.nanoTime() - start);
+        this.bytesHashed.add(read);
+        this.filesHashed.increment();
+        if (this.digests.size() >= MAX_CACHED_FILES) {
+            this.digests.clear();
+        }
+        this.digests.put(key, new FileDigest(size, modified, value));
+        return value;
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(this.algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // checked when the instance was created
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] get(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        final StringBuilder builder = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static final class FileDigest {
+        private final long size;
+        private final long modified;
+        private final byte[] digest;
+
+        private FileDigest(long size, long modified, byte[] digest) {
+            this.size = size;
+            this.modified = modified;
+            this.digest = digest;
+        }
+    }
+}
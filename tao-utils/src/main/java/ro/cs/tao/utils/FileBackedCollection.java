@@ -1,23 +1,31 @@
 package ro.cs.tao.utils;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Spliterator;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 /**
  * Base class for file-backed collections (collections that persist their state to disk).
+ * In {@link PersistenceMode#SNAPSHOT} mode, the whole collection is re-written after each modification.
+ * In {@link PersistenceMode#JOURNAL} mode, each modification is appended to a journal which is periodically
+ * compacted into the backing file and replayed when the collection is re-created.
  *
  * @param <E>   The type of the collection elements
  * @param <V>   The type of the collection
@@ -25,17 +33,44 @@ import java.util.stream.Stream;
  * @author  Cosmin Cara
  * @since   1.4.3
  */
-public abstract class FileBackedCollection<E, V extends Collection<E>> implements Collection<E> {
+public abstract class FileBackedCollection<E, V extends Collection<E>> implements Collection<E>, Closeable {
     protected final Path file;
     protected final V collection;
     protected final Class<E> elementClass;
+    protected final PersistenceMode mode;
+    private final ObjectMapper mapper;
+    private final OperationJournal journal;
+    private final Logger logger = Logger.getLogger(FileBackedCollection.class.getName());
 
     public FileBackedCollection(Path file, Class<E> elementClass) {
+        this(file, elementClass, PersistenceMode.SNAPSHOT);
+    }
+
+    public FileBackedCollection(Path file, Class<E> elementClass, PersistenceMode mode) {
+        this(file, elementClass, mode, OperationJournal.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new file-backed collection.
+     * If the given file (and, in journal mode, its journal) already contains state, the collection will be re-populated.
+     *
+     * @param file                  The backing file
+     * @param elementClass          The class of the elements
+     * @param mode                  The persistence mode
+     * @param compactionThreshold   The minimum number of journal entries before the journal is compacted
+     *                              (used only in journal mode)
+     */
+    public FileBackedCollection(Path file, Class<E> elementClass, PersistenceMode mode, int compactionThreshold) {
         if (file == null) {
             throw new NullPointerException("file");
         }
         this.file = file;
         this.elementClass = elementClass;
+        this.mode = mode != null ? mode : PersistenceMode.SNAPSHOT;
+        this.mapper = new ObjectMapper();
+        this.journal = this.mode == PersistenceMode.JOURNAL
+                       ? new OperationJournal(file, this.mapper, compactionThreshold)
+                       : null;
         this.collection = newCollection();
         try {
             FileUtilities.createDirectories(this.file.getParent());
@@ -47,6 +82,10 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
             } else if (Files.notExists(this.file)){
                 Files.createFile(this.file);
             }
+            if (this.journal != null) {
+                replay(this.journal.read());
+                this.journal.compact(serialize());
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -69,7 +108,7 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
 
     @Override
     public Iterator<E> iterator() {
-        return collection.iterator();
+        return new TrackingIterator(collection.iterator());
     }
 
     @Override
@@ -89,12 +128,12 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
 
     @Override
     public boolean add(E e) {
-        return wrapBoolean(collection.add(e));
+        return wrapAdded(e, collection.add(e));
     }
 
     @Override
     public boolean remove(Object o) {
-        return wrapBoolean(collection.remove(o));
+        return wrapRemoved(o, collection.remove(o));
     }
 
     @Override
@@ -104,22 +143,43 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
 
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        return wrapBoolean(collection.addAll(c));
+        if (this.journal == null) {
+            return wrapBoolean(collection.addAll(c));
+        }
+        boolean changed = false;
+        for (E e : c) {
+            changed |= wrapAdded(e, collection.add(e));
+        }
+        return changed;
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        return wrapBoolean(collection.removeAll(c));
+        return this.journal == null ? wrapBoolean(collection.removeAll(c)) : removeIf(c::contains);
     }
 
     @Override
     public boolean removeIf(Predicate<? super E> filter) {
-        return wrapBoolean(collection.removeIf(filter));
+        if (this.journal == null) {
+            return wrapBoolean(collection.removeIf(filter));
+        }
+        final List<E> removed = new ArrayList<>();
+        collection.removeIf(e -> {
+            if (filter.test(e)) {
+                removed.add(e);
+                return true;
+            }
+            return false;
+        });
+        for (E e : removed) {
+            wrapRemoved(e, true);
+        }
+        return !removed.isEmpty();
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        return wrapBoolean(collection.retainAll(c));
+        return this.journal == null ? wrapBoolean(collection.retainAll(c)) : removeIf(e -> !c.contains(e));
     }
 
     @Override
@@ -153,19 +213,42 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
         return collection.parallelStream();
     }
 
+    /**
+     * Compacts the journal (if any) and releases the journal file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.journal != null) {
+            this.journal.compact(serialize());
+            this.journal.close();
+        }
+    }
+
     /**
      * Creates an instance of the inner collection
      */
     protected abstract V newCollection();
 
     protected List<E> readItems() throws IOException {
-        final ObjectReader reader = new ObjectMapper().readerFor(new TypeReference<List<E>>() {});
+        final ObjectReader reader = this.elementClass != null
+                                    ? this.mapper.readerFor(this.mapper.getTypeFactory().constructCollectionType(List.class, this.elementClass))
+                                    : this.mapper.readerFor(new TypeReference<List<E>>() {});
         return reader.readValue(this.file.toFile());
     }
 
+    /**
+     * Converts a journal entry value to an element of the collection.
+     *
+     * @param node  The Json value of the element
+     */
+    protected E readItem(JsonNode node) throws IOException {
+        return this.mapper.treeToValue(node, this.elementClass);
+    }
+
     /**
      * Helper method to wrap actual collection methods and flush the collection to disk
      * only if the collection operation was successful.
+     * Since the actual modification is not known, in journal mode this forces a compaction.
      *
      * @param value The result of the collection method
      */
@@ -179,6 +262,7 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
     /**
      * Helper method to wrap actual collection methods and flush the collection to disk
      * only if the collection operation was successful.
+     * Since the actual modification is not known, in journal mode this forces a compaction.
      *
      * @param element The result of the collection method
      */
@@ -189,12 +273,132 @@ public abstract class FileBackedCollection<E, V extends Collection<E>> implement
         return element;
     }
 
+    /**
+     * Helper method to persist the addition of an element only if the collection operation was successful.
+     *
+     * @param element   The added element
+     * @param value     The result of the collection method
+     */
+    protected boolean wrapAdded(E element, boolean value) {
+        if (value) {
+            record(OperationJournal.ADD, element);
+        }
+        return value;
+    }
+
+    /**
+     * Helper method to persist the removal of an element only if the collection operation was successful.
+     *
+     * @param element   The removed element
+     * @param value     The result of the collection method
+     */
+    protected boolean wrapRemoved(Object element, boolean value) {
+        if (value) {
+            record(OperationJournal.REMOVE, element);
+        }
+        return value;
+    }
+
+    /**
+     * Helper method to persist the removal of the first element of the collection only if the collection
+     * operation was successful.
+     *
+     * @param element The result of the collection method
+     */
+    protected E wrapHeadRemoved(E element) {
+        if (element != null) {
+            record(OperationJournal.POLL, null);
+        }
+        return element;
+    }
+
     protected void flush() {
         try {
-            Files.write(this.file, new ObjectMapper().writerFor(collection.getClass())
-                                                     .writeValueAsBytes(this.collection), StandardOpenOption.TRUNCATE_EXISTING);
+            if (this.journal != null) {
+                this.journal.compact(serialize());
+            } else {
+                Files.write(this.file, serialize(), StandardOpenOption.TRUNCATE_EXISTING);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    private byte[] serialize() throws IOException {
+        return this.mapper.writerFor(collection.getClass()).writeValueAsBytes(this.collection);
+    }
+
+    private void record(String operation, Object element) {
+        if (this.journal == null) {
+            flush();
+            return;
+        }
+        try {
+            final ObjectNode entry = this.journal.newEntry(operation);
+            if (element != null) {
+                entry.set(OperationJournal.VALUE, this.mapper.valueToTree(element));
+            }
+            this.journal.append(entry);
+            if (this.journal.shouldCompact(collection.size())) {
+                this.journal.compact(serialize());
+            }
+        } catch (IOException e) {
+            logger.warning(String.format("Cannot append to the journal of %s. Reason: %s", this.file, e.getMessage()));
+            flush();
+        }
+    }
+
+    private void replay(List<JsonNode> entries) throws IOException {
+        for (JsonNode entry : entries) {
+            final String operation = entry.path(OperationJournal.OPERATION).asText();
+            switch (operation) {
+                case OperationJournal.ADD:
+                    collection.add(readItem(entry.get(OperationJournal.VALUE)));
+                    break;
+                case OperationJournal.REMOVE:
+                    collection.remove(readItem(entry.get(OperationJournal.VALUE)));
+                    break;
+                case OperationJournal.POLL:
+                    final Iterator<E> iterator = collection.iterator();
+                    if (iterator.hasNext()) {
+                        iterator.next();
+                        iterator.remove();
+                    }
+                    break;
+                default:
+                    logger.warning(String.format("Unknown journal operation '%s' for %s", operation, this.file));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Iterator that persists the removals performed through it.
+     */
+    protected class TrackingIterator implements Iterator<E> {
+        private final Iterator<E> iterator;
+        private E current;
+
+        protected TrackingIterator(Iterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+            this.current = this.iterator.next();
+            return this.current;
+        }
+
+        @Override
+        public void remove() {
+            this.iterator.remove();
+            wrapRemoved(this.current, true);
+            this.current = null;
+        }
+    }
 }
@@ -1,21 +1,28 @@
 package ro.cs.tao.utils;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Logger;
 
 /**
  * A map that is backed by a file.
  * The map persists its state on any modification and can restore itself from a file.
  * The keys and the values of the map are serialized as Json.
+ * In {@link PersistenceMode#JOURNAL} mode, the modifications are appended to a journal which is periodically
+ * compacted into the backing file, instead of re-writing the whole map on each modification.
  *
  * @param <K>   The key type
  * @param <V>   The value type
@@ -23,9 +30,12 @@ import java.util.Set;
  * @author Cosmin Cara
  * @since  1.4.1
  */
-public class FileBackedMap<K, V>  implements Map<K, V> {
+public class FileBackedMap<K, V>  implements Map<K, V>, Closeable {
     private final Path file;
     private final Map<K, V> map;
+    private final ObjectMapper mapper;
+    private final OperationJournal journal;
+    private final Logger logger = Logger.getLogger(FileBackedMap.class.getName());
 
     /**
      * Constructs a new file-backed map.
@@ -34,19 +44,44 @@ public class FileBackedMap<K, V>  implements Map<K, V> {
      * @param file  The backing file
      */
     public FileBackedMap(Path file) {
+        this(file, PersistenceMode.SNAPSHOT);
+    }
+
+    public FileBackedMap(Path file, PersistenceMode mode) {
+        this(file, mode, OperationJournal.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new file-backed map.
+     * If the given file (and, in journal mode, its journal) already contains map state, the map will be re-populated.
+     *
+     * @param file                  The backing file
+     * @param mode                  The persistence mode
+     * @param compactionThreshold   The minimum number of journal entries before the journal is compacted
+     *                              (used only in journal mode)
+     */
+    public FileBackedMap(Path file, PersistenceMode mode, int compactionThreshold) {
         if (file == null) {
             throw new NullPointerException("file");
         }
         this.file = file;
         this.map = new LinkedHashMap<>();
+        this.mapper = new ObjectMapper();
+        this.journal = mode == PersistenceMode.JOURNAL
+                       ? new OperationJournal(file, this.mapper, compactionThreshold)
+                       : null;
         try {
             FileUtilities.createDirectories(this.file.getParent());
             if (Files.exists(this.file) && Files.size(this.file) > 2) {
-                final ObjectReader reader = new ObjectMapper().readerFor(LinkedHashMap.class);
+                final ObjectReader reader = this.mapper.readerFor(LinkedHashMap.class);
                 this.map.putAll(reader.readValue(this.file.toFile()));
             } else if (Files.notExists(this.file)){
                 Files.createFile(this.file);
             }
+            if (this.journal != null) {
+                replay(this.journal.read());
+                this.journal.compact(serialize());
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -81,30 +116,43 @@ public class FileBackedMap<K, V>  implements Map<K, V> {
     @Override
     public V put(K key, V value) {
         V retVal = this.map.put(key, value);
-        flush();
+        record(OperationJournal.PUT, key, value);
         return retVal;
     }
 
     @Override
     public V remove(Object key) {
+        final boolean existing = this.map.containsKey(key);
         final V result = this.map.remove(key);
-        flush();
+        if (existing || this.journal == null) {
+            record(OperationJournal.REMOVE, key, null);
+        }
         return result;
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> other) {
-        this.map.putAll(other);
-        flush();
+        if (this.journal == null) {
+            this.map.putAll(other);
+            flush();
+        } else {
+            for (Entry<? extends K, ? extends V> entry : other.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
     @Override
     public void clear() {
         this.map.clear();
-        try {
-            Files.deleteIfExists(this.file);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (this.journal != null) {
+            flush();
+        } else {
+            try {
+                Files.deleteIfExists(this.file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
@@ -123,11 +171,72 @@ public class FileBackedMap<K, V>  implements Map<K, V> {
         return this.map.entrySet();
     }
 
+    /**
+     * Compacts the journal (if any) and releases the journal file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.journal != null) {
+            this.journal.compact(serialize());
+            this.journal.close();
+        }
+    }
+
     private void flush() {
         try {
-            Files.write(this.file, new ObjectMapper().writer().writeValueAsBytes(this.map), StandardOpenOption.TRUNCATE_EXISTING);
+            if (this.journal != null) {
+                this.journal.compact(serialize());
+            } else {
+                Files.write(this.file, serialize(), StandardOpenOption.TRUNCATE_EXISTING);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    private byte[] serialize() throws IOException {
+        return this.mapper.writer().writeValueAsBytes(this.map);
+    }
+
+    private void record(String operation, Object key, V value) {
+        if (this.journal == null) {
+            flush();
+            return;
+        }
+        try {
+            final ObjectNode entry = this.journal.newEntry(operation);
+            // Keys are recorded in the same form as Jackson writes map keys in the snapshot
+            entry.put(OperationJournal.KEY, String.valueOf(key));
+            if (value != null) {
+                entry.set(OperationJournal.VALUE, this.mapper.valueToTree(value));
+            }
+            this.journal.append(entry);
+            if (this.journal.shouldCompact(this.map.size())) {
+                this.journal.compact(serialize());
+            }
+        } catch (IOException e) {
+            logger.warning(String.format("Cannot append to the journal of %s. Reason: %s", this.file, e.getMessage()));
+            flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay(List<JsonNode> entries) throws IOException {
+        for (JsonNode entry : entries) {
+            final String operation = entry.path(OperationJournal.OPERATION).asText();
+            final K key = (K) entry.path(OperationJournal.KEY).asText();
+            switch (operation) {
+                case OperationJournal.PUT:
+                    final JsonNode value = entry.get(OperationJournal.VALUE);
+                    this.map.put(key, value != null ? (V) this.mapper.treeToValue(value, Object.class) : null);
+                    break;
+                case OperationJournal.REMOVE:
+                    this.map.remove(key);
+                    break;
+                default:
+                    logger.warning(String.format("Unknown journal operation '%s' for %s", operation, this.file));
+                    break;
+            }
+        }
+    }
 }
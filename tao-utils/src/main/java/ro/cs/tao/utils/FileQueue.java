@@ -11,19 +11,27 @@ public class FileQueue<E> extends FileBackedCollection<E, Queue<E>> implements Q
         super(file, elementClass);
     }
 
+    public FileQueue(Path file, Class<E> elementClass, PersistenceMode mode) {
+        super(file, elementClass, mode);
+    }
+
+    public FileQueue(Path file, Class<E> elementClass, PersistenceMode mode, int compactionThreshold) {
+        super(file, elementClass, mode, compactionThreshold);
+    }
+
     @Override
     public boolean offer(E e) {
-        return wrapBoolean(this.collection.offer(e));
+        return wrapAdded(e, this.collection.offer(e));
     }
 
     @Override
     public E remove() {
-        return wrapElement(this.collection.remove());
+        return wrapHeadRemoved(this.collection.remove());
     }
 
     @Override
     public E poll() {
-        return wrapElement(this.collection.poll());
+        return wrapHeadRemoved(this.collection.poll());
     }
 
     @Override
@@ -37,7 +45,7 @@ public class FileQueue<E> extends FileBackedCollection<E, Queue<E>> implements Q
     }
 
     public Iterator<E> descendingIterator() {
-        return ((ArrayDeque<E>) this.collection).descendingIterator();
+        return new TrackingIterator(((ArrayDeque<E>) this.collection).descendingIterator());
     }
 
     public E getLast() {
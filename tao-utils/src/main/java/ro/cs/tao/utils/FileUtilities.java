@@ -25,6 +25,7 @@ import ro.cs.tao.utils.executors.Executor;
 import ro.cs.tao.utils.executors.ExecutorType;
 import ro.cs.tao.utils.executors.MemoryUnit;
 import ro.cs.tao.utils.executors.OutputAccumulator;
+import ro.cs.tao.utils.executors.monitoring.DownloadProgressListener;
 import ro.cs.tao.utils.executors.monitoring.ListenableInputStream;
 import ro.cs.tao.utils.executors.monitoring.ProgressListener;
 
@@ -35,7 +36,6 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
-import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileSystem;
 import java.nio.file.*;
@@ -43,7 +43,6 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.time.Instant;
@@ -637,92 +636,45 @@ public class FileUtilities {
         }
     }
 
+    /**
+     * Copies the file or folder in the given destination.
+     * The files of a folder are copied in parallel by a {@link TreeCopier}.
+     * @param source        The source file or folder
+     * @param destination   The destination file (if the source is a file) or folder
+     * @return              The number of actual copied files.
+     */
     public static int copy(Path source, Path destination) throws IOException {
-        final AtomicInteger copied = new AtomicInteger(0);
+        int copied = 0;
         if (source != null && destination != null) {
             if (Files.isRegularFile(source)) {
                 Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
             } else {
-                Path targetFolder = destination.resolve(source.getFileName());
-                createDirectories(targetFolder);
-                Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                        Path target = targetFolder.resolve(source.relativize(dir));
-                        createDirectories(target);
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        Path targetFile = targetFolder.resolve(source.relativize(file));
-                        Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
-                        ensurePermissions(targetFile);
-                        copied.incrementAndGet();
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                        if (exc == null) {
-                            return FileVisitResult.CONTINUE;
-                        } else {
-                            throw exc;
-                        }
-                    }
-                });
+                copied = new TreeCopier(source, destination, null, true).copy();
             }
         }
-        return copied.intValue();
+        return copied;
     }
     /**
      * Copies the file or folder in the given destination with progress reporting.
+     * The files of a folder are copied in parallel by a {@link TreeCopier}, and the transfer speed is reported
+     * if the listener is a {@link DownloadProgressListener}.
      * @param source        The source file or folder
      * @param destination   The destination folder
      * @param listener      The progress listener
      * @return              The number of actual copied files.
      */
     public static int copy(Path source, Path destination, ProgressListener listener) throws IOException {
-        final AtomicInteger copied = new AtomicInteger(0);
+        int copied = 0;
         try {
             if (source != null && destination != null) {
                 listener.started(source.getFileName().toString());
                 if (Files.isRegularFile(source)) {
                     copyFileWithProgress(source, destination, listener);
                 } else {
-                    Path targetFolder = destination.resolve(source.getFileName());
-                    createDirectories(targetFolder);
-                    double total = folderSize(source);
-                    AtomicLong current = new AtomicLong(0);
-                    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
-                        @Override
-                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                            Path target = targetFolder.resolve(source.relativize(dir));
-                            createDirectories(target);
-                            return FileVisitResult.CONTINUE;
-                        }
-
-                        @Override
-                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                            Path targetFile = targetFolder.resolve(source.relativize(file));
-                            Files.copy(file, targetFile);
-                            listener.notifyProgress((double) current.addAndGet(Files.size(file)) / total);
-                            copied.incrementAndGet();
-                            return FileVisitResult.CONTINUE;
-                        }
-
-                        @Override
-                        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                            if (exc == null) {
-                                return FileVisitResult.CONTINUE;
-                            } else {
-                                throw exc;
-                            }
-                        }
-                    });
+                    copied = new TreeCopier(source, destination, listener, false).copy();
                 }
             }
-            return copied.intValue();
+            return copied;
         } finally {
             listener.ended();
         }
@@ -839,6 +791,8 @@ public class FileUtilities {
                 });
                 //Files.delete(source);
             }
+            FolderSizeTracker.getInstance().update(source);
+            FolderSizeTracker.getInstance().update(destination);
         }
     }
 
@@ -926,6 +880,8 @@ public class FileUtilities {
                 });
                 //Files.delete(source);
             }
+            FolderSizeTracker.getInstance().update(source);
+            FolderSizeTracker.getInstance().update(destination);
         }
     }
 
@@ -991,6 +947,7 @@ public class FileUtilities {
                 }
             });
             Files.delete(root);
+            FolderSizeTracker.getInstance().update(root);
         }
     }
 
@@ -1009,6 +966,7 @@ public class FileUtilities {
             } catch (Exception e) {
                 throw new IOException(e);
             }
+            FolderSizeTracker.getInstance().update(root);
         }
     }
 
@@ -1048,12 +1006,14 @@ public class FileUtilities {
         }
     }
 
+    /**
+     * Returns the total size of the regular files of a folder.
+     * The sizes of the folders of the watched trees (such as the user workspaces) are tracked by the
+     * {@link FolderSizeTracker}, hence such a folder is walked only if its size is not already known.
+     * The other folders are walked every time.
+     */
     public static long folderSize(Path folder) throws IOException {
-        try (Stream<Path> stream = Files.walk(folder)) {
-            return stream.filter(f -> Files.isRegularFile(f, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(f))
-                         .mapToLong(p -> p.toFile().length())
-                         .sum();
-        }
+        return FolderSizeTracker.getInstance().size(folder);
     }
 
     public static String toReadableString(long value) {
@@ -1394,43 +1354,12 @@ public class FileUtilities {
         }
     }
 
+    /**
+     * Computes the hexadecimal digest of a file, or the combined digest of the files of a folder.
+     * @see ContentHasher
+     */
     public static String computeHash(Path path, String algo) throws IOException, NoSuchAlgorithmException {
-        String hash = null;
-        if (path != null) {
-            final MessageDigest shaDigest = MessageDigest.getInstance(algo);
-            final ByteBuffer buffer = ByteBuffer.allocate(MemoryUnit.MB.value().intValue());
-            int read;
-            if (Files.isRegularFile(path)) {
-                try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
-                    while (channel.read(buffer) != -1) {
-                        shaDigest.update(buffer);
-                        buffer.clear();
-                    }
-                }
-            } else {
-                Files.walkFileTree(path, new SimpleFileVisitor<>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        if (attrs != null && !attrs.isDirectory()) {
-                            try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
-                                while (channel.read(buffer) != -1) {
-                                    shaDigest.update(buffer);
-                                    buffer.clear();
-                                }
-                            }
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-            }
-            final byte[] digest = shaDigest.digest();
-            final StringBuilder builder = new StringBuilder();
-            for (byte b : digest) {
-                builder.append(String.format("%02x", b));
-            }
-            hash = builder.toString();
-        }
-        return hash;
+        return path != null ? ContentHasher.getInstance(algo).hash(path) : null;
     }
 
     public static String ensureValidFileName(String name) {
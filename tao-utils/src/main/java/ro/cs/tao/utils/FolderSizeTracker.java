@@ -0,0 +1,480 @@
+package ro.cs.tao.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps track of the size of folders, so that they are not walked every time their size is needed
+ * (for quota checks, or for checking already downloaded products).
+ * Only the trees registered with {@link #watch(Path)} (for example the user workspaces) are tracked: the total
+ * size of each of their folders is remembered, and is updated incrementally:
+ * <ul>
+ *     <li>by file system events, hence also for the changes made by external processes;</li>
+ *     <li>by the framework write paths (copy, move, delete, downloads), which call {@link #update(Path)}
+ *     for the paths they changed, so that the change is visible before its events are processed.</li>
+ * </ul>
+ * The size of a folder outside the watched trees (or of a folder that could not be watched) is never cached,
+ * the folder is walked (in parallel) every time, hence it is always current.
+ * Like the previous implementation of {@link FileUtilities#folderSize(Path)}, only regular files are counted
+ * and symbolic links are not followed.
+ *
+ * @since   1.5.2
+ */
+public final class FolderSizeTracker {
+    private static final int MAX_TRACKED_FOLDERS = 500_000;
+    private static final FolderSizeTracker instance = new FolderSizeTracker();
+
+    private final Map<Path, FolderEntry> entries;
+    private final Set<Path> watchedRoots;
+    private final Map<Path, WatchKey> watchKeys;
+    private final ForkJoinPool pool;
+    private final Object lock;
+    private final LongAdder hits;
+    private final LongAdder walks;
+    private final LongAdder updates;
+    private final Logger logger = Logger.getLogger(FolderSizeTracker.class.getName());
+    private WatchService watchService;
+
+    public static FolderSizeTracker getInstance() { return instance; }
+
+    private FolderSizeTracker() {
+        this.entries = new ConcurrentHashMap<>();
+        this.watchedRoots = ConcurrentHashMap.newKeySet();
+        this.watchKeys = new HashMap<>();
+        this.lock = new Object();
+        this.hits = new LongAdder();
+        this.walks = new LongAdder();
+        this.updates = new LongAdder();
+        // walking is I/O bound, hence the walk does not use the common pool
+        this.pool = new ForkJoinPool(Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors())), p -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("folder-size-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Returns the total size, in bytes, of the regular files of a folder (including its subfolders).
+     * If the path is a file, its size is returned.
+     *
+     * @param folder    The folder
+     */
+    public long size(Path folder) throws IOException {
+        final Path key = normalize(folder);
+        final FolderEntry entry = this.entries.get(key);
+        if (entry != null && entry.watched) {
+            this.hits.increment();
+            return entry.totalBytes;
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory()) {
+            return attributes.isRegularFile() ? attributes.size() : 0;
+        }
+        if (!isWatched(key)) {
+            this.walks.increment();
+            return scan(key).get(key).totalBytes;
+        }
+        return rescan(key).totalBytes;
+    }
+
+    /**
+     * Informs the tracker that a file or folder was written, changed or removed.
+     * The sizes of the tracked folders containing the path are updated (this is cheap if the path is
+     * not in a tracked folder).
+     *
+     * @param path  The file or folder that changed
+     */
+    public void update(Path path) {
+        if (path == null) {
+            return;
+        }
+        final Path key = normalize(path);
+        final Path parent = key.getParent();
+        try {
+            if (this.entries.containsKey(key) || (parent != null && this.entries.containsKey(parent))) {
+                this.updates.increment();
+                if (Files.isDirectory(key, LinkOption.NOFOLLOW_LINKS)) {
+                    rescan(key);
+                } else if (parent != null && this.entries.containsKey(parent)) {
+                    refresh(parent);
+                } else {
+                    synchronized (this.lock) {
+                        removeTree(key);
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // the next query will walk the folder again
+            this.logger.fine(String.format("Cannot update the size of %s: %s", key, e.getMessage()));
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Forgets the size of a folder (and of the folders containing it).
+     */
+    public void invalidate(Path path) {
+        final Path key = normalize(path);
+        synchronized (this.lock) {
+            removeTree(key);
+            Path ancestor = key.getParent();
+            while (ancestor != null) {
+                this.entries.remove(ancestor);
+                ancestor = ancestor.getParent();
+            }
+        }
+    }
+
+    /**
+     * Keeps the size of the given folder up to date from file system events, also for the changes not made
+     * by the framework. Since watching consumes system resources (one watch per folder), this should be
+     * used for the trees whose size is often needed, such as the user workspaces.
+     * Watching an already watched tree has no effect.
+     *
+     * @param root  The root of the tree to watch
+     */
+    public void watch(Path root) throws IOException {
+        final Path key = normalize(root);
+        synchronized (this.lock) {
+            if (this.watchedRoots.contains(key)) {
+                return;
+            }
+            if (this.watchService == null) {
+                this.watchService = key.getFileSystem().newWatchService();
+                final Thread thread = new Thread(this::processEvents, "folder-size-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            this.watchedRoots.add(key);
+        }
+        // the tree is walked again, so that it is registered
+        invalidate(key);
+        size(key);
+    }
+
+    /**
+     * Stops watching the given folder. Its size is no longer tracked, it will be walked every time it is needed.
+     */
+    public void unwatch(Path root) {
+        final Path key = normalize(root);
+        synchronized (this.lock) {
+            if (this.watchedRoots.remove(key)) {
+                for (Path folder : new ArrayList<>(this.entries.keySet())) {
+                    if (folder.startsWith(key) && !isWatched(folder)) {
+                        this.entries.remove(folder);
+                        final WatchKey watchKey = this.watchKeys.remove(folder);
+                        if (watchKey != null) {
+                            watchKey.cancel();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int getTrackedFolders() { return this.entries.size(); }
+
+    /**
+     * Returns the number of queries answered without walking a folder
+     */
+    public long getHitCount() { return this.hits.sum(); }
+
+    /**
+     * Returns the number of folders walked because their size was not known or is not tracked
+     */
+    public long getWalkCount() { return this.walks.sum(); }
+
+    /**
+     * Returns the number of incremental updates (from the write paths or from file system events)
+     */
+    public long getUpdateCount() { return this.updates.sum(); }
+
+    /**
+     * Walks a folder in parallel and replaces its tracked subtree.
+     */
+    private FolderEntry rescan(Path folder) throws IOException {
+        this.walks.increment();
+        final Map<Path, FolderEntry> scanned = scan(folder);
+        final FolderEntry entry = scanned.get(folder);
+        synchronized (this.lock) {
+            final FolderEntry previous = this.entries.get(folder);
+            final long delta = entry.totalBytes - (previous != null ? previous.totalBytes : 0);
+            removeTree(folder);
+            install(scanned);
+            final Path parent = folder.getParent();
+            final FolderEntry parentEntry = parent != null ? this.entries.get(parent) : null;
+            if (parentEntry != null) {
+                parentEntry.children.add(folder);
+                propagate(parent, delta);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Lists a single folder and applies the difference to its tracked size: the size of its files is
+     * computed again, the removed subfolders are subtracted and the new ones are walked.
+     */
+    private void refresh(Path folder) throws IOException {
+        final FolderEntry current = this.entries.get(folder);
+        if (current == null) {
+            return;
+        }
+        if (!Files.isDirectory(folder, LinkOption.NOFOLLOW_LINKS)) {
+            final Path parent = folder.getParent();
+            if (parent != null && this.entries.containsKey(parent)) {
+                refresh(parent);
+            } else {
+                synchronized (this.lock) {
+                    removeTree(folder);
+                }
+            }
+            return;
+        }
+        final Listing listing = list(folder);
+        final Map<Path, FolderEntry> added = new HashMap<>();
+        for (Path subfolder : listing.subfolders) {
+            if (!current.children.contains(subfolder)) {
+                added.putAll(scan(subfolder));
+            }
+        }
+        synchronized (this.lock) {
+            final FolderEntry entry = this.entries.get(folder);
+            if (entry == null) {
+                return;
+            }
+            long delta = listing.ownBytes - entry.ownBytes;
+            for (Path child : entry.children) {
+                if (!listing.subfolders.contains(child)) {
+                    final FolderEntry childEntry = this.entries.get(child);
+                    if (childEntry != null) {
+                        delta -= childEntry.totalBytes;
+                    }
+                    removeTree(child);
+                }
+            }
+            for (Path subfolder : listing.subfolders) {
+                final FolderEntry subEntry = added.get(subfolder);
+                if (subEntry != null && !entry.children.contains(subfolder)) {
+                    delta += subEntry.totalBytes;
+                }
+            }
+            install(added);
+            entry.children.clear();
+            entry.children.addAll(listing.subfolders);
+            entry.ownBytes = listing.ownBytes;
+            propagate(folder, delta);
+        }
+    }
+
+    private Map<Path, FolderEntry> scan(Path folder) throws IOException {
+        final Map<Path, FolderEntry> scanned = new ConcurrentHashMap<>();
+        try {
+            this.pool.invoke(new FolderScan(folder, scanned));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return scanned;
+    }
+
+    /**
+     * Adds the delta to the size of the folder and of its tracked ancestors. Must be called under the lock.
+     */
+    private void propagate(Path folder, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        Path current = folder;
+        FolderEntry entry;
+        while (current != null && (entry = this.entries.get(current)) != null) {
+            entry.totalBytes += delta;
+            current = current.getParent();
+        }
+    }
+
+    /**
+     * Adds the scanned folders to the tracked ones, and registers them for events if they are in
+     * a watched tree. Must be called under the lock.
+     */
+    private void install(Map<Path, FolderEntry> scanned) {
+        if (this.entries.size() + scanned.size() > MAX_TRACKED_FOLDERS) {
+            // the watched trees are kept, the other folders will be walked again when needed
+            this.entries.values().removeIf(e -> !e.watched);
+        }
+        final List<Path> unwatched = new ArrayList<>();
+        for (Map.Entry<Path, FolderEntry> item : scanned.entrySet()) {
+            final Path folder = item.getKey();
+            final FolderEntry entry = item.getValue();
+            if (isWatched(folder) && this.watchService != null) {
+                try {
+                    if (!this.watchKeys.containsKey(folder)) {
+                        this.watchKeys.put(folder, folder.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+                    }
+                    entry.watched = true;
+                } catch (IOException e) {
+                    // for example, the limit of watches was reached; the folder will be walked when needed
+                    this.logger.warning(String.format("Cannot watch %s: %s", folder, e.getMessage()));
+                    unwatched.add(folder);
+                }
+            }
+            this.entries.put(folder, entry);
+        }
+        // the changes of a folder that is not watched are not seen by its ancestors either
+        for (Path folder : unwatched) {
+            Path current = folder;
+            FolderEntry entry;
+            while (current != null && (entry = this.entries.get(current)) != null) {
+                entry.watched = false;
+                current = current.getParent();
+            }
+        }
+    }
+
+    /**
+     * Forgets a folder and its tracked subfolders. Must be called under the lock.
+     */
+    private void removeTree(Path folder) {
+        final FolderEntry entry = this.entries.remove(folder);
+        final WatchKey watchKey = this.watchKeys.remove(folder);
+        if (watchKey != null) {
+            watchKey.cancel();
+        }
+        if (entry != null) {
+            for (Path child : entry.children) {
+                removeTree(child);
+            }
+        }
+    }
+
+    private boolean isWatched(Path folder) {
+        for (Path root : this.watchedRoots) {
+            if (folder.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void processEvents() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            final Path folder = (Path) key.watchable();
+            boolean overflow = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                overflow |= event.kind() == OVERFLOW;
+            }
+            // all the events of a folder are applied by listing it once
+            if (overflow) {
+                invalidate(folder);
+            } else {
+                this.updates.increment();
+                try {
+                    refresh(folder);
+                } catch (IOException | UncheckedIOException e) {
+                    this.logger.fine(String.format("Cannot update the size of %s: %s", folder, e.getMessage()));
+                    invalidate(folder);
+                }
+            }
+            if (!key.reset()) {
+                synchronized (this.lock) {
+                    this.watchKeys.remove(folder, key);
+                }
+            }
+        }
+    }
+
+    private static Listing list(Path folder) throws IOException {
+        final Listing listing = new Listing();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path path : stream) {
+                final BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    // removed meanwhile
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    listing.subfolders.add(path);
+                } else if (attributes.isRegularFile()) {
+                    listing.ownBytes += attributes.size();
+                }
+            }
+        }
+        return listing;
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static final class FolderEntry {
+        private final Set<Path> children;
+        private long ownBytes;
+        private volatile long totalBytes;
+        private volatile boolean watched;
+
+        private FolderEntry(Set<Path> children, long ownBytes) {
+            this.children = children;
+            this.ownBytes = ownBytes;
+        }
+    }
+
+    private static final class Listing {
+        private final Set<Path> subfolders = new HashSet<>();
+        private long ownBytes;
+    }
+
+    private static final class FolderScan extends RecursiveTask<Long> {
+        private final Path folder;
+        private final Map<Path, FolderEntry> scanned;
+
+        private FolderScan(Path folder, Map<Path, FolderEntry> scanned) {
+            this.folder = folder;
+            this.scanned = scanned;
+        }
+
+        @Override
+        protected Long compute() {
+            final Listing listing;
+            try {
+                listing = list(this.folder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final List<FolderScan> tasks = new ArrayList<>(listing.subfolders.size());
+            for (Path subfolder : listing.subfolders) {
+                tasks.add(new FolderScan(subfolder, this.scanned));
+            }
+            long total = listing.ownBytes;
+            for (FolderScan task : invokeAll(tasks)) {
+                total += task.join();
+            }
+            final FolderEntry entry = new FolderEntry(ConcurrentHashMap.newKeySet(), listing.ownBytes);
+            entry.children.addAll(listing.subfolders);
+            entry.totalBytes = total;
+            this.scanned.put(this.folder, entry);
+            return total;
+        }
+    }
+}
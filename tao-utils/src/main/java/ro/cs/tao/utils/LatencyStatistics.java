@@ -0,0 +1,89 @@
+package ro.cs.tao.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe accumulator of latency samples (count, total, minimum, maximum and last value).
+ *
+ * @since   1.5.2
+ */
+public class LatencyStatistics {
+    private final String name;
+    private final LongAdder count;
+    private final LongAdder total;
+    private final LongAccumulator min;
+    private final LongAccumulator max;
+    private final AtomicLong last;
+
+    public LatencyStatistics(String name) {
+        this.name = name;
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        this.max = new LongAccumulator(Math::max, 0L);
+        this.last = new AtomicLong();
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param nanos The measured latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        this.count.increment();
+        this.total.add(nanos);
+        this.min.accumulate(nanos);
+        this.max.accumulate(nanos);
+        this.last.set(nanos);
+    }
+
+    /**
+     * Records the time elapsed since the given moment.
+     *
+     * @param startNanos    The start moment, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public String getName() { return name; }
+
+    public long getCount() { return this.count.sum(); }
+
+    public double getAverageMillis() {
+        final long samples = this.count.sum();
+        return samples > 0 ? (double) this.total.sum() / samples / TimeUnit.MILLISECONDS.toNanos(1) : 0.0;
+    }
+
+    public double getMinMillis() {
+        final long value = this.min.get();
+        return value == Long.MAX_VALUE ? 0.0 : (double) value / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() { return (double) this.max.get() / TimeUnit.MILLISECONDS.toNanos(1); }
+
+    public double getLastMillis() { return (double) this.last.get() / TimeUnit.MILLISECONDS.toNanos(1); }
+
+    /**
+     * Discards all the recorded samples.
+     */
+    public void reset() {
+        this.count.reset();
+        this.total.reset();
+        this.min.reset();
+        this.max.reset();
+        this.last.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d, avg=%.3fms, min=%.3fms, max=%.3fms, last=%.3fms",
+                             this.name, getCount(), getAverageMillis(), getMinMillis(), getMaxMillis(), getLastMillis());
+    }
+}
@@ -0,0 +1,186 @@
+package ro.cs.tao.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the modifications of a file-backed structure.
+ * The journal lives next to the snapshot file (with the <code>.journal</code> extension). Its first line is a header
+ * holding the checksum of the snapshot it applies to, so that a journal left behind by an interrupted compaction
+ * is never replayed over a snapshot that already contains its operations. Each subsequent line is a Json object
+ * describing one operation. An incomplete last line (i.e. the process died while appending) is ignored on replay.
+ *
+ * @since   1.5.2
+ */
+final class OperationJournal implements Closeable {
+    static final int DEFAULT_COMPACTION_THRESHOLD = 1024;
+    static final String OPERATION = "op";
+    static final String KEY = "key";
+    static final String VALUE = "value";
+    static final String ADD = "add";
+    static final String PUT = "put";
+    static final String REMOVE = "remove";
+    static final String POLL = "poll";
+    private static final String EXTENSION = ".journal";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String SNAPSHOT_CHECKSUM = "snapshot";
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final ObjectMapper mapper;
+    private final int compactionThreshold;
+    private final Logger logger = Logger.getLogger(OperationJournal.class.getName());
+    private FileChannel channel;
+    private int entries;
+
+    OperationJournal(Path snapshotFile, ObjectMapper mapper, int compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold");
+        }
+        this.snapshotFile = snapshotFile;
+        this.journalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + EXTENSION);
+        this.mapper = mapper;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Reads the operations recorded since the last compaction.
+     * If the journal does not exist or it does not correspond to the current snapshot, an empty list is returned.
+     */
+    List<JsonNode> read() throws IOException {
+        final List<JsonNode> operations = new ArrayList<>();
+        if (Files.notExists(this.journalFile)) {
+            return operations;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(this.journalFile, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                return operations;
+            }
+            final long expected;
+            try {
+                expected = this.mapper.readTree(line).path(SNAPSHOT_CHECKSUM).asLong(-1);
+            } catch (JsonProcessingException e) {
+                logger.warning(String.format("Invalid header in journal %s, the journal will be discarded", this.journalFile));
+                return operations;
+            }
+            if (expected != checksum(Files.exists(this.snapshotFile) ? Files.readAllBytes(this.snapshotFile) : new byte[0])) {
+                logger.fine(String.format("Journal %s does not correspond to the current snapshot and will be discarded",
+                                          this.journalFile));
+                return operations;
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    operations.add(this.mapper.readTree(line));
+                } catch (JsonProcessingException e) {
+                    logger.warning(String.format("Incomplete entry found in journal %s after %d operations, the remaining entries are ignored",
+                                                 this.journalFile, operations.size()));
+                    break;
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Creates a new (empty) journal entry for the given operation.
+     *
+     * @param operation The operation name
+     */
+    ObjectNode newEntry(String operation) {
+        final ObjectNode entry = this.mapper.createObjectNode();
+        entry.put(OPERATION, operation);
+        return entry;
+    }
+
+    /**
+     * Appends an entry at the end of the journal.
+     *
+     * @param entry The entry
+     */
+    void append(ObjectNode entry) throws IOException {
+        if (this.channel == null) {
+            throw new IOException(String.format("Journal %s was not initialized", this.journalFile));
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap((this.mapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+        this.entries++;
+    }
+
+    /**
+     * Checks if the journal has grown enough (relative to the size of the structure) to be folded into the snapshot.
+     *
+     * @param size  The current number of elements of the backed structure
+     */
+    boolean shouldCompact(int size) {
+        return this.entries >= this.compactionThreshold && this.entries >= size;
+    }
+
+    /**
+     * Replaces the snapshot with the given state and starts a new, empty, journal.
+     * The new snapshot and journal are first written to temporary files and then moved over the existing ones,
+     * so that a crash at any point leaves either the old or the new state on disk.
+     *
+     * @param state The serialized state of the backed structure
+     */
+    void compact(byte[] state) throws IOException {
+        close();
+        final Path tempSnapshot = this.snapshotFile.resolveSibling(this.snapshotFile.getFileName() + TEMP_EXTENSION);
+        final Path tempJournal = this.journalFile.resolveSibling(this.journalFile.getFileName() + TEMP_EXTENSION);
+        Files.write(tempSnapshot, state, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        final ObjectNode header = this.mapper.createObjectNode();
+        header.put(SNAPSHOT_CHECKSUM, checksum(state));
+        Files.write(tempJournal, (this.mapper.writeValueAsString(header) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        move(tempSnapshot, this.snapshotFile);
+        move(tempJournal, this.journalFile);
+        this.channel = FileChannel.open(this.journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.entries = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
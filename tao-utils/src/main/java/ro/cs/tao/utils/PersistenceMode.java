@@ -0,0 +1,35 @@
+package ro.cs.tao.utils;
+
+/**
+ * The way in which a file-backed structure persists its state.
+ *
+ * @since   1.5.2
+ */
+public enum PersistenceMode {
+    /**
+     * The whole state is re-written to the backing file after each successful modification.
+     */
+    SNAPSHOT,
+    /**
+     * Each modification is appended to an operation log (journal) next to the backing file.
+     * The journal is periodically folded into the backing file (compaction) and is replayed on startup.
+     */
+    JOURNAL;
+
+    /**
+     * Returns the mode corresponding to the given name (case insensitive), or the <code>SNAPSHOT</code> mode if
+     * the name is empty or unknown.
+     *
+     * @param name  The name of the mode
+     */
+    public static PersistenceMode fromName(String name) {
+        if (name != null) {
+            for (PersistenceMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return SNAPSHOT;
+    }
+}
@@ -0,0 +1,194 @@
+package ro.cs.tao.utils;
+
+import ro.cs.tao.utils.executors.monitoring.DownloadProgressListener;
+import ro.cs.tao.utils.executors.monitoring.ProgressListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies folder trees with several threads.
+ * The source tree is enumerated only once: the folders are created while enumerating, and each file is
+ * submitted for copying as soon as it is found. The files are copied with {@link FileChannel#transferTo},
+ * which lets the operating system move the data without copying it to the Java heap.
+ * Since the total size is not computed beforehand, the progress is reported against the size of the files
+ * enumerated so far (the enumeration is much faster than the copy, hence the estimate converges quickly).
+ *
+ * @since   1.5.2
+ */
+public class TreeCopier {
+    private static final long TRANSFER_CHUNK = 1L << 26;
+    private static final long PROGRESS_INTERVAL_MILLIS = 500;
+    private static final ExecutorService executor;
+
+    private final Path source;
+    private final Path targetFolder;
+    private final ProgressListener listener;
+    private final boolean ensurePermissions;
+    private final AtomicInteger files;
+    private final AtomicLong enumeratedBytes;
+    private final AtomicLong copiedBytes;
+    private final AtomicLong lastReport;
+    private volatile double lastProgress;
+    private long startNanos;
+    private long elapsedNanos;
+
+    static {
+        final AtomicInteger count = new AtomicInteger();
+        // copying is I/O bound, a few threads are enough to keep the storage busy
+        executor = Executors.newFixedThreadPool(Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors())), r -> {
+            final Thread thread = new Thread(r, "tree-copy-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Prepares the copy of a folder into a destination folder (the result being destination/folder_name).
+     *
+     * @param source            The folder to copy
+     * @param destination       The destination (parent) folder
+     * @param listener          The progress listener (may be <code>null</code>)
+     * @param ensurePermissions If the permissions of the copied files should be set by
+     *                          {@link FileUtilities#ensurePermissions(Path)}
+     */
+    public TreeCopier(Path source, Path destination, ProgressListener listener, boolean ensurePermissions) {
+        this.source = source;
+        this.targetFolder = destination.resolve(source.getFileName());
+        this.listener = listener;
+        this.ensurePermissions = ensurePermissions;
+        this.files = new AtomicInteger();
+        this.enumeratedBytes = new AtomicLong();
+        this.copiedBytes = new AtomicLong();
+        this.lastReport = new AtomicLong();
+    }
+
+    /**
+     * Copies the tree and returns the number of copied files.
+     */
+    public int copy() throws IOException {
+        this.startNanos = System.nanoTime();
+        final List<Future<?>> tasks = new ArrayList<>();
+        try {
+            FileUtilities.createDirectories(this.targetFolder);
+            Files.walkFileTree(this.source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    FileUtilities.createDirectories(targetFolder.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    enumeratedBytes.addAndGet(attrs.size());
+                    final Path target = targetFolder.resolve(source.relativize(file));
+                    tasks.add(executor.submit(() -> {
+                        copyFile(file, target);
+                        return null;
+                    }));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (Future<?> task : tasks) {
+                await(task);
+            }
+        } finally {
+            // on failure, the files not yet copied are abandoned
+            tasks.forEach(t -> t.cancel(false));
+            this.elapsedNanos = System.nanoTime() - this.startNanos;
+            FolderSizeTracker.getInstance().update(this.targetFolder);
+        }
+        report(true);
+        return this.files.get();
+    }
+
+    public int getCopiedFiles() { return this.files.get(); }
+
+    public long getCopiedBytes() { return this.copiedBytes.get(); }
+
+    /**
+     * Returns the average copy speed, in MB/s
+     */
+    public double getTransferSpeed() {
+        final long nanos = this.elapsedNanos > 0 ? this.elapsedNanos : System.nanoTime() - this.startNanos;
+        return nanos > 0 ? this.copiedBytes.get() / 1048576.0 / (nanos / 1e9) : 0;
+    }
+
+    private void copyFile(Path file, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = in.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), out);
+                if (transferred <= 0) {
+                    // the file was truncated meanwhile
+                    break;
+                }
+                position += transferred;
+                this.copiedBytes.addAndGet(transferred);
+                report(false);
+            }
+        }
+        if (this.ensurePermissions) {
+            FileUtilities.ensurePermissions(target);
+        }
+        this.files.incrementAndGet();
+    }
+
+    private void report(boolean last) {
+        if (this.listener == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long previous = this.lastReport.get();
+        if (!last && (now - previous < PROGRESS_INTERVAL_MILLIS || !this.lastReport.compareAndSet(previous, now))) {
+            return;
+        }
+        final long total = this.enumeratedBytes.get();
+        // the total may still grow, but the reported progress does not go back
+        final double progress = last ? 1.0 : Math.max(this.lastProgress, total > 0 ? (double) this.copiedBytes.get() / total : 0);
+        this.lastProgress = progress;
+        synchronized (this.listener) {
+            if (this.listener instanceof DownloadProgressListener) {
+                ((DownloadProgressListener) this.listener).notifyProgress(progress, getTransferSpeed());
+            } else {
+                this.listener.notifyProgress(progress);
+            }
+        }
+    }
+
+    private static void await(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -78,6 +78,7 @@ public abstract class Executor<T> implements Runnable {
     ActivityListener monitor;
 
     private volatile int retCode = Integer.MAX_VALUE;
+    private volatile Runnable completionCallback;
     private CountDownLatch counter;
 
     public static void setLocalSudoUser(String localSudoUser) {
@@ -444,6 +445,19 @@ public abstract class Executor<T> implements Runnable {
 
     public void setMonitor(ActivityListener monitor) { this.monitor = monitor; }
 
+    /**
+     * Sets an action to be invoked when the execution ends.
+     * If the execution has already ended, the action is invoked immediately.
+     *
+     * @param callback  The action
+     */
+    public void setCompletionCallback(Runnable callback) {
+        this.completionCallback = callback;
+        if (callback != null && this.isStopped && hasCompleted()) {
+            callback.run();
+        }
+    }
+
     /**
      * Returns the process exit code.
      */
@@ -515,6 +529,14 @@ public abstract class Executor<T> implements Runnable {
             }
             requestedMemory.get(this.host).getAndAdd(-memoryRequirements.remove(this));
             isStopped = true;
+            final Runnable callback = this.completionCallback;
+            if (callback != null) {
+                try {
+                    callback.run();
+                } catch (Exception e) {
+                    logger.warning(e.getMessage());
+                }
+            }
         }
     }
 
@@ -1,7 +1,7 @@
 package ro.cs.tao.utils.executors;
 
-import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
 import org.apache.commons.lang3.StringUtils;
@@ -13,7 +13,6 @@ import java.net.UnknownHostException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,6 +23,10 @@ import java.util.stream.Stream;
  */
 public class FileProcessFactory implements AutoCloseable {
     private static final String localhost;
+    private static final int MAX_SFTP_CHANNELS = 4;
+    private static final long SFTP_CHANNEL_IDLE_TIMEOUT = 60000;
+    // keeps the batched remote commands well under the command line length limit
+    private static final int MAX_BATCH_COMMAND_LENGTH = 65536;
     private final String host;
     private final String user;
     private final String token;
@@ -126,6 +129,32 @@ public class FileProcessFactory implements AutoCloseable {
         void ensurePermissions(Path path) throws IOException;
         void close();
         List<Path> list(Path folder) throws IOException;
+
+        /**
+         * Returns the sizes of the given paths, in a single batch. The paths that do not exist are not in the result.
+         */
+        default Map<Path, Long> sizes(Collection<Path> paths) throws IOException {
+            final Map<Path, Long> sizes = new LinkedHashMap<>();
+            for (Path path : paths) {
+                if (exists(path)) {
+                    sizes.put(path, size(path));
+                }
+            }
+            return sizes;
+        }
+
+        /**
+         * Deletes the given files and folders (recursively), in a single batch. Missing paths are ignored.
+         */
+        default void deleteAll(Collection<Path> paths) throws IOException {
+            for (Path path : paths) {
+                if (isDirectory(path)) {
+                    deleteFolder(path);
+                } else {
+                    deleteIfExists(path);
+                }
+            }
+        }
     }
 
     /**
@@ -284,10 +313,12 @@ public class FileProcessFactory implements AutoCloseable {
     private class RemoteFileManager implements FileManager {
         private final SSHExecutor executor;
         private final OutputAccumulator accumulator;
+        private final SftpChannelPool channelPool;
 
         private RemoteFileManager(boolean keepAlive) throws IOException {
             this.executor = new SSHExecutor(host, new ArrayList<>(), false, SSHMode.EXEC);
             this.accumulator = new OutputAccumulator();
+            this.accumulator.preserveLineSeparator(true);
             this.executor.setUser(user);
             this.executor.setPassword(token);
             this.executor.setOutputConsumer(this.accumulator);
@@ -298,13 +329,17 @@ public class FileProcessFactory implements AutoCloseable {
             if (!this.executor.canConnect()) {
                 throw new IOException("Cannot connect to " + host);
             }
+            this.channelPool = new SftpChannelPool(this.executor, MAX_SFTP_CHANNELS, SFTP_CHANNEL_IDLE_TIMEOUT);
         }
 
         public void deleteFile(Path file) throws IOException {
             //execute("/bin/bash", "-c", "\"rm -f " + file.toString() + "\"");
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().cd(file.getParent().toString());
-                channel.getChannel().rm(file.getFileName().toString());
+            try {
+                sftp(channel -> {
+                    channel.cd(file.getParent().toString());
+                    channel.rm(file.getFileName().toString());
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -312,8 +347,11 @@ public class FileProcessFactory implements AutoCloseable {
 
         public void deleteFolder(Path folder) throws IOException {
             //execute("/bin/bash", "-c", "\"rm -rf " + folder.toString() + "\"");
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                deleteFolderInner(folder.toString(), channel.getChannel());
+            try {
+                sftp(channel -> {
+                    deleteFolderInner(folder.toString(), channel);
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -321,8 +359,11 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public void cleanup(Path folder, Set<String> excludedExtensions, String... patterns) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                cleanup(folder.toString(), excludedExtensions, channel.getChannel(), patterns);
+            try {
+                sftp(channel -> {
+                    cleanup(folder.toString(), excludedExtensions, channel, patterns);
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -367,16 +408,19 @@ public class FileProcessFactory implements AutoCloseable {
         }
 
         public void move(Path source, Path destination) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().rename(source.toString(), destination.toString());
+            try {
+                sftp(channel -> {
+                    channel.rename(source.toString(), destination.toString());
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
         }
 
         public boolean exists(Path path) {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().ls(path.toString());
+            try {
+                sftp(channel -> channel.ls(path.toString()));
                 return true;
             } catch (Exception e) {
                 return false;
@@ -385,33 +429,38 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public boolean isDirectory(Path path) {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().cd(path.getParent().toString());
-                final String fileName = path.getFileName().toString();
-                final SftpATTRS attrs = channel.getChannel().lstat(fileName);
-                return attrs.isDir();
+            try {
+                return sftp(channel -> {
+                    channel.cd(path.getParent().toString());
+                    final String fileName = path.getFileName().toString();
+                    final SftpATTRS attrs = channel.lstat(fileName);
+                    return attrs.isDir();
+                });
             } catch (Exception e) {
                 return false;
             }
         }
 
         public void ensureExists(Path path) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                Path current = path.getRoot().resolve(path.getName(0));
-                channel.getChannel().cd(current.toString());
-                for (int i = 1; i < path.getNameCount(); i++) {
-                    current = current.resolve(path.getName(i));
-                    try {
-                        channel.getChannel().ls(current.toString());
-                    } catch (SftpException e) {
-                        if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
-                            channel.getChannel().mkdir(current.getFileName().toString());
-                        } else {
-                            throw e;
+            try {
+                sftp(channel -> {
+                    Path current = path.getRoot().resolve(path.getName(0));
+                    channel.cd(current.toString());
+                    for (int i = 1; i < path.getNameCount(); i++) {
+                        current = current.resolve(path.getName(i));
+                        try {
+                            channel.ls(current.toString());
+                        } catch (SftpException e) {
+                            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                                channel.mkdir(current.getFileName().toString());
+                            } else {
+                                throw e;
+                            }
                         }
+                        channel.cd(current.toString());
                     }
-                    channel.getChannel().cd(current.toString());
-                }
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -431,9 +480,10 @@ public class FileProcessFactory implements AutoCloseable {
         }
 
         private void copyFile(Path source, Path destination, ChannelSftp uploadChannel) throws Exception {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().put(uploadChannel.get(source.toString()), destination.toString());
-            }
+            sftp(channel -> {
+                channel.put(uploadChannel.get(source.toString()), destination.toString());
+                return null;
+            });
         }
 
         @Override
@@ -448,8 +498,8 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public long size(Path path) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                return FileUtilities.size(path, channel.getChannel());
+            try {
+                return sftp(channel -> FileUtilities.size(path, channel));
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -457,11 +507,63 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public long folderSize(Path folder) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                return FileUtilities.size(folder, channel.getChannel());
+            // the sizes are summed on the remote host, hence a single round trip regardless of the number of files
+            // the size of a missing folder is an error, not 0 (the exit status of the pipe is the one of awk)
+            final String out = execute("test", "-d", quote(folder.toString()), "&&",
+                                       "find", quote(folder.toString()), "-type", "f", "-printf", "'%s\\n'",
+                                       "|", "awk", "'{ s += $1 } END { print \"size=\" s + 0 }'");
+            for (String line : out.split("\n")) {
+                if (line.startsWith("size=")) {
+                    return Long.parseLong(line.substring(5).trim());
+                }
+            }
+            throw new IOException("Cannot compute the size of " + folder + ": " + out);
+        }
+
+        @Override
+        public Map<Path, Long> sizes(Collection<Path> paths) throws IOException {
+            // all the paths are queried on the same channel
+            final Map<Path, Long> sizes = new LinkedHashMap<>();
+            try {
+                sftp(channel -> {
+                    for (Path path : paths) {
+                        try {
+                            sizes.put(path, channel.lstat(path.toString()).getSize());
+                        } catch (SftpException e) {
+                            if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                                throw e;
+                            }
+                        }
+                    }
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
+            return sizes;
+        }
+
+        @Override
+        public void deleteAll(Collection<Path> paths) throws IOException {
+            // as few 'rm' commands as the command line length allows
+            final List<String> command = new ArrayList<>();
+            int length = 0;
+            for (Path path : paths) {
+                final String argument = quote(path.toString());
+                if (!command.isEmpty() && length + argument.length() > MAX_BATCH_COMMAND_LENGTH) {
+                    execute(command.toArray(new String[0]));
+                    command.clear();
+                }
+                if (command.isEmpty()) {
+                    command.addAll(Arrays.asList("rm", "-rf", "--"));
+                    length = 0;
+                }
+                command.add(argument);
+                length += argument.length() + 1;
+            }
+            if (!command.isEmpty()) {
+                execute(command.toArray(new String[0]));
+            }
         }
 
         @Override
@@ -489,19 +591,21 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public List<String> readAllLines(Path file) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().cd(file.getParent().toString());
-                try (InputStream stream = channel.getChannel().get(file.getFileName().toString());
-                     BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-                    final List<String> result = new ArrayList<>();
-                    for (; ; ) {
-                        String line = reader.readLine();
-                        if (line == null)
-                            break;
-                        result.add(line);
+            try {
+                return sftp(channel -> {
+                    channel.cd(file.getParent().toString());
+                    try (InputStream stream = channel.get(file.getFileName().toString());
+                         BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                        final List<String> result = new ArrayList<>();
+                        for (; ; ) {
+                            String line = reader.readLine();
+                            if (line == null)
+                                break;
+                            result.add(line);
+                        }
+                        return result;
                     }
-                    return result;
-                }
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -509,12 +613,14 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public void write(Path file, byte[] bytes) throws IOException {
-            try (InputStream stm = new ByteArrayInputStream(bytes);
-                 ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))){
-                //ensureExists(file.getParent());
-                channel.getChannel().cd(file.getParent().toString());
-                channel.getChannel().put(stm, file.getFileName().toString());
-                channel.getChannel().chmod(Integer.parseInt("777", 8), file.getFileName().toString());
+            try (InputStream stm = new ByteArrayInputStream(bytes)) {
+                sftp(channel -> {
+                    //ensureExists(file.getParent());
+                    channel.cd(file.getParent().toString());
+                    channel.put(stm, file.getFileName().toString());
+                    channel.chmod(Integer.parseInt("777", 8), file.getFileName().toString());
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -522,16 +628,19 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public void ensurePermissions(Path path) throws IOException {
-            try (ChannelWrapper<ChannelSftp> channel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                channel.getChannel().cd(path.getParent().toString());
-                final String filePart = path.getFileName().toString();
-                /*if (uid != null) {
-                    this.channel.chown(uid, filePart);
-                }
-                if (gid != null) {
-                    this.channel.chgrp(gid, filePart);
-                }*/
-                channel.getChannel().chmod(Integer.parseInt("777", 8), filePart);
+            try {
+                sftp(channel -> {
+                    channel.cd(path.getParent().toString());
+                    final String filePart = path.getFileName().toString();
+                    /*if (uid != null) {
+                        this.channel.chown(uid, filePart);
+                    }
+                    if (gid != null) {
+                        this.channel.chgrp(gid, filePart);
+                    }*/
+                    channel.chmod(Integer.parseInt("777", 8), filePart);
+                    return null;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -539,30 +648,32 @@ public class FileProcessFactory implements AutoCloseable {
 
         @Override
         public void close() {
+            this.channelPool.close();
             this.executor.stop();
             this.executor.close();
         }
 
         @Override
         public List<Path> list(Path folder) throws IOException {
-            try (ChannelWrapper<ChannelSftp> sftpChannel = new ChannelWrapper<>(this.executor.open(SSHMode.SFTP))) {
-                final List<Path> files = new ArrayList<>();
-                ChannelSftp channel = sftpChannel.getChannel();
-                final String path = folder.toString();
-                channel.cd(path);
-                Vector<ChannelSftp.LsEntry> fileAndFolderList = channel.ls(path);
-                for (ChannelSftp.LsEntry item : fileAndFolderList) {
-                    if (!(".".equals(item.getFilename()) || "..".equals(item.getFilename()))) {
-                        files.add(folder.resolve(item.getFilename()));
+            try {
+                return sftp(channel -> {
+                    final List<Path> files = new ArrayList<>();
+                    final String path = folder.toString();
+                    channel.cd(path);
+                    Vector<ChannelSftp.LsEntry> fileAndFolderList = channel.ls(path);
+                    for (ChannelSftp.LsEntry item : fileAndFolderList) {
+                        if (!(".".equals(item.getFilename()) || "..".equals(item.getFilename()))) {
+                            files.add(folder.resolve(item.getFilename()));
+                        }
                     }
-                }
-                return files;
+                    return files;
+                });
             } catch (Exception e) {
                 throw new IOException(e);
             }
         }
 
-        private String execute(String...commands) throws IOException {
+        private synchronized String execute(String...commands) throws IOException {
             this.executor.arguments.clear();
             this.accumulator.reset();
             this.executor.isStopped = false;
@@ -577,6 +688,41 @@ public class FileProcessFactory implements AutoCloseable {
                 throw new IOException(e);
             }
         }
+
+        private String quote(String argument) {
+            return "'" + argument.replace("'", "'\\''") + "'";
+        }
+
+        /**
+         * Runs an operation on a SFTP channel borrowed from the pool of this manager.
+         * The channel is given back to the pool, unless the operation failed because of the channel or of the
+         * connection, in which case the channel is closed.
+         */
+        private <T> T sftp(SftpOperation<T> operation) throws Exception {
+            final ChannelSftp channel = channelPool.acquire();
+            boolean broken = false;
+            try {
+                return operation.execute(channel);
+            } catch (Exception e) {
+                broken = e instanceof JSchException || (e instanceof SftpException && !isStatus((SftpException) e));
+                throw e;
+            } finally {
+                if (broken) {
+                    channelPool.invalidate(channel);
+                } else {
+                    channelPool.release(channel);
+                }
+            }
+        }
+
+        /**
+         * Checks if the exception only reports the (negative) status of a file operation, as answered by the
+         * server, which means the channel is still usable.
+         */
+        private boolean isStatus(SftpException e) {
+            return e.getCause() == null &&
+                    (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE || e.id == ChannelSftp.SSH_FX_PERMISSION_DENIED);
+        }
     }
     /**
      * Implementation for a local process operations wrapper.
@@ -619,26 +765,11 @@ public class FileProcessFactory implements AutoCloseable {
         }
     }
 
-    private static class ChannelWrapper<T extends Channel> implements AutoCloseable {
-        private final T channel;
-
-        public ChannelWrapper(Channel channel) {
-            this.channel = (T) channel;
-        }
-
-        public T getChannel() {
-            return channel;
-        }
-
-        @Override
-        public void close() throws Exception {
-            if (channel != null) {
-                try {
-                    channel.disconnect();
-                    Logger.getLogger(FileProcessFactory.class.getName()).finest(String.format("Channel %d disconnected", channel.getId()));
-                } catch (Exception ignored) {
-                }
-            }
-        }
+    /**
+     * An operation performed on a SFTP channel.
+     */
+    @FunctionalInterface
+    private interface SftpOperation<T> {
+        T execute(ChannelSftp channel) throws Exception;
     }
 }
@@ -0,0 +1,101 @@
+package ro.cs.tao.utils.executors;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Executor that distributes work items on a fixed number of single-threaded lanes, based on a partition key.
+ * Items having the same key are always handled by the same lane, hence in the order in which they were submitted,
+ * while items having different keys may be handled concurrently.
+ *
+ * @since   1.5.2
+ */
+public class PartitionedExecutor {
+    private final NamedThreadPoolExecutor[] lanes;
+    private final AtomicInteger pending;
+    private final LongAdder completed;
+    private final Logger logger = Logger.getLogger(PartitionedExecutor.class.getName());
+
+    /**
+     * Creates a partitioned executor.
+     *
+     * @param name  The name of the executor (the lane threads are named after it)
+     * @param lanes The number of lanes (threads)
+     */
+    public PartitionedExecutor(String name, int lanes) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("lanes");
+        }
+        this.lanes = new NamedThreadPoolExecutor[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new NamedThreadPoolExecutor(name + "-" + (i + 1), 1);
+        }
+        this.pending = new AtomicInteger(0);
+        this.completed = new LongAdder();
+    }
+
+    /**
+     * Submits a work item to the lane corresponding to the given key.
+     *
+     * @param key   The partition key
+     * @param work  The work item
+     */
+    public void execute(Object key, Runnable work) {
+        this.pending.incrementAndGet();
+        this.lanes[laneOf(key)].execute(() -> {
+            try {
+                work.run();
+            } catch (Throwable t) {
+                logger.severe(String.format("Work item for key %s failed: %s", key, t.getMessage()));
+            } finally {
+                this.pending.decrementAndGet();
+                this.completed.increment();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of lanes of this executor
+     */
+    public int getLanes() { return this.lanes.length; }
+
+    /**
+     * Returns the number of submitted items that were not yet completed
+     */
+    public int getPendingCount() { return this.pending.get(); }
+
+    /**
+     * Returns the number of items completed since the creation of this executor
+     */
+    public long getCompletedCount() { return this.completed.sum(); }
+
+    /**
+     * Stops accepting new items and waits for the already submitted ones to complete.
+     *
+     * @param timeout   The maximum time to wait
+     * @param unit      The unit of the timeout
+     * @return  <code>true</code> if all the lanes terminated before the timeout elapsed
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (NamedThreadPoolExecutor lane : this.lanes) {
+            lane.shutdown();
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (NamedThreadPoolExecutor lane : this.lanes) {
+            terminated &= lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        return terminated;
+    }
+
+    private int laneOf(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        // spread the hash so that sequential identifiers do not cluster when the lane count is a power of two
+        final int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), this.lanes.length);
+    }
+}
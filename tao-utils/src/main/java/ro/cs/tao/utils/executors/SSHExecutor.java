@@ -23,8 +23,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -38,9 +36,7 @@ public class SSHExecutor extends Executor<Channel> {
 
     private final SSHMode mode;
     private final int port;
-    private Session singleSession;
     private boolean keepAlive;
-    private Timer keepAliveTimer;
     
     /** Perform asynchronous execution. Default: false. */
     private final boolean asyncExecution;
@@ -107,46 +103,40 @@ public class SSHExecutor extends Executor<Channel> {
         this.asyncFileName = String.format(ASYNC_FILE_NAME_FORMAT, taskName);
     }
     
+    /**
+     * Sets if this executor can be reused after an execution.
+     * The SSH sessions are always shared and kept alive by the {@link SSHSessionPool}.
+     */
     public void setKeepAlive(boolean value) {
         this.keepAlive = value;
-        if (this.keepAlive) {
-            this.keepAliveTimer = new Timer();
-            this.keepAliveTimer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    try {
-                        getSession();
-                    } catch (Exception e) {
-                        logger.severe(ExceptionUtils.getStackTrace(logger, e));
-                    }
-                }
-            }, 60000, 60000);
-        } else if (this.keepAliveTimer != null) {
-            this.keepAliveTimer.cancel();
-            this.keepAliveTimer.purge();
-            this.keepAliveTimer = null;
-        }
     }
 
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Leases a pooled session for opening one channel. The session has to be given back by
+     * {@link #releaseSession(Session)}.
+     */
     private Session getSession() throws Exception {
-        if (keepAlive) {
-            try {
-                if (singleSession == null) {
-                    singleSession = createSession();
-                } else if (!singleSession.isConnected()) {
-                    singleSession.connect();
-                }
-                ChannelExec testChannel = (ChannelExec) singleSession.openChannel(SSHMode.EXEC.toString());
-                testChannel.setCommand("true");
-                testChannel.connect();
-                testChannel.disconnect();
-            } catch (Throwable t) {
-                logger.fine("Session terminated. Create a new one.");
-                singleSession = createSession();
-            }
-            return singleSession;
-        } else {
-            return createSession();
+        final String credentials = this.certificate != null ? "key:" + this.certificate : "password:" + this.password;
+        return SSHSessionPool.getInstance().acquire(this.host, this.port, this.user, credentials, this::createSession);
+    }
+
+    private void releaseSession(Session session) {
+        SSHSessionPool.getInstance().release(session);
+    }
+
+    /**
+     * Opens an exec channel on a leased session. If the channel cannot be opened, the session is given back.
+     */
+    private ChannelExec openExecChannel(Session session) throws JSchException {
+        try {
+            return (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        } catch (JSchException | RuntimeException e) {
+            releaseSession(session);
+            throw e;
         }
     }
 
@@ -177,20 +167,20 @@ public class SSHExecutor extends Executor<Channel> {
         }
         boolean ret = false;
         Session session = null;
+        Channel channel = null;
         try {
             session = getSession();
-            final Channel channel = session.openChannel(this.mode.toString());
+            channel = session.openChannel(this.mode.toString());
             channel.connect();
-            channel.disconnect();
             ret = true;
         } catch (Exception e) {
             logger.severe(String.format("[%s] failed: %s", host, e.getMessage()));
         } finally {
             //resetChannel();
-            if (session != null && !keepAlive) {
-                session.disconnect();
-                //this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
+            if (channel != null) {
+                channel.disconnect();
             }
+            releaseSession(session);
         }
         return ret;
     }
@@ -372,22 +362,66 @@ public class SSHExecutor extends Executor<Channel> {
             return channel;
         } catch (Exception e) {
             stop(channel);
-            if (session != null && !keepAlive) {
-                session.disconnect();
-                //this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            releaseSession(session);
             throw new IOException(e);
         }
     }
 
-    public void close() {
-        if (singleSession != null) {
-            singleSession.disconnect();
-            //this.logger.finest(String.format("Session %d disconnected", singleSession.hashCode()));
-            singleSession = null;
+    /**
+     * Starts a (long running) command on a pooled session and returns its channel, without waiting for the command
+     * to complete. The output of the command is written to the given stream, on the thread of the session,
+     * hence the stream should not block. The channel has to be closed by {@link #release(Channel)}.
+     *
+     * @param command   The command line
+     * @param output    The stream receiving the standard output of the command
+     */
+    public ChannelExec openExec(String command, OutputStream output) throws IOException {
+        Session session = null;
+        ChannelExec channel = null;
+        try {
+            session = getSession();
+            channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+            channel.setCommand(command);
+            channel.setOutputStream(output, true);
+            channel.setErrStream(new ByteArrayOutputStream() {
+                @Override
+                public synchronized void write(byte[] b, int off, int len) {
+                    String message = new String(b, off, len).replaceAll("\n", "");
+                    if (message.length() > 0) {
+                        SSHExecutor.this.logger.fine("[" + SSHExecutor.this.host + "] " + message);
+                    }
+                }
+            }, true);
+            channel.connect();
+            return channel;
+        } catch (Exception e) {
+            stop(channel);
+            releaseSession(session);
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Closes a channel obtained by {@link #open(SSHMode)} or {@link #openExec(String, OutputStream)}
+     * and gives back its session to the pool.
+     */
+    public void release(Channel channel) {
+        if (channel != null) {
+            Session session = null;
+            try {
+                session = channel.getSession();
+            } catch (JSchException e) {
+                this.logger.warning(e.getMessage());
+            }
+            channel.disconnect();
+            releaseSession(session);
         }
     }
 
+    public void close() {
+        // NOOP: the sessions are shared and closed by the pool when idle
+    }
+
     private void stop(Channel channel) {
         if (channel != null && !channel.isClosed() && channel.isConnected()) {
             try {
@@ -435,7 +469,7 @@ public class SSHExecutor extends Executor<Channel> {
             logger.fine("[" + host + "] " + cmdLine);
         }
         final Session session = getSession();
-        ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        ChannelExec channel = openExecChannel(session);
         try {
         	// Configure channel
         	final String command = "screen";// -L -Logfile " + this.asyncFileName;
@@ -490,10 +524,8 @@ public class SSHExecutor extends Executor<Channel> {
                 }
             }
         } finally {
-            if (!keepAlive) {
-                session.disconnect();
-                //this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            channel.disconnect();
+            releaseSession(session);
         }
 
         // Execution still running
@@ -517,7 +549,7 @@ public class SSHExecutor extends Executor<Channel> {
         	return false;
         }
         final Session session = getSession();
-        ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        ChannelExec channel = openExecChannel(session);
         try {
         	// Configure the channel
         	final String command = "screen -ls " + this.asyncScreenID;
@@ -545,11 +577,8 @@ public class SSHExecutor extends Executor<Channel> {
                 }
             }
         } finally {
-            if (!keepAlive) {
-                session.disconnect();
-                logger.finest("Completed check for screen session " + this.asyncScreenID + " on host [" + this.host + "]");
-                //this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            channel.disconnect();
+            releaseSession(session);
         }
         
         this.isStopped = !sessionRunning;
@@ -576,7 +605,7 @@ public class SSHExecutor extends Executor<Channel> {
     	
         int result = Integer.MIN_VALUE;
         final Session session = getSession();
-        ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        ChannelExec channel = openExecChannel(session);
         try {
         	// Configure the channel
         	final String command = "cat " + this.asyncFileName + " && rm " + this.asyncFileName;
@@ -613,10 +642,8 @@ public class SSHExecutor extends Executor<Channel> {
                 }
             }
         } finally {
-            if (!keepAlive) {
-                session.disconnect();
-                this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            channel.disconnect();
+            releaseSession(session);
         }
 
         return result;
@@ -629,7 +656,7 @@ public class SSHExecutor extends Executor<Channel> {
      */
     public void updateDockerId() throws Exception {
         final Session session = getSession();
-        ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        ChannelExec channel = openExecChannel(session);
         try {
         	// Configure the channel
         	final String command = "docker ps --format=\"{{.ID}}:{{.Command}}\" --no-trunc | grep -G \\\".*" + this.arguments.get(this.arguments.size() - 1) + "\\\"";
@@ -660,10 +687,8 @@ public class SSHExecutor extends Executor<Channel> {
                 }
             }
         } finally {
-            if (!keepAlive) {
-                session.disconnect();
-                this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            channel.disconnect();
+            releaseSession(session);
         }
     }
     
@@ -679,7 +704,7 @@ public class SSHExecutor extends Executor<Channel> {
         	}
         	
             final Session session = getSession();
-            ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+            ChannelExec channel = openExecChannel(session);
             try {
             	// stop all docker images
             	String command;
@@ -718,10 +743,8 @@ public class SSHExecutor extends Executor<Channel> {
                     }
                 }
             } finally {
-                if (!keepAlive) {
-                    session.disconnect();
-                    this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-                }
+                channel.disconnect();
+                releaseSession(session);
             }
 
     	} catch(Exception e) {
@@ -738,7 +761,7 @@ public class SSHExecutor extends Executor<Channel> {
     public int reconnectAsyncSSH(String screenID, boolean logMessages) throws Exception {
         
         final Session session = getSession();
-        ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        ChannelExec channel = openExecChannel(session);
         try {
         	final String command = "screen -r " + screenID; 
         	final InputStream inputStream = configureAndConnectChannel(channel, command, logMessages, true);
@@ -768,10 +791,8 @@ public class SSHExecutor extends Executor<Channel> {
                 }
             }
         } finally {
-            if (!keepAlive) {
-                session.disconnect();
-                this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            channel.disconnect();
+            releaseSession(session);
         }
 
         return channel.getExitStatus();
@@ -839,7 +860,7 @@ public class SSHExecutor extends Executor<Channel> {
             logger.finest("[" + host + "] " + cmdLine);
         }
         final Session session = getSession();
-        ChannelExec channel = (ChannelExec) session.openChannel(SSHMode.EXEC.toString());
+        ChannelExec channel = openExecChannel(session);
         try {
             channel.setCommand(cmdLine);
             channel.setInputStream(null);
@@ -892,10 +913,8 @@ public class SSHExecutor extends Executor<Channel> {
                 }
             }
         } finally {
-            if (!keepAlive) {
-                session.disconnect();
-                this.logger.finest(String.format("Session %d disconnected", session.hashCode()));
-            }
+            channel.disconnect();
+            releaseSession(session);
         }
         return channel.getExitStatus();
     }
@@ -913,35 +932,44 @@ public class SSHExecutor extends Executor<Channel> {
         if(this.arguments.size() < 2) {
             throw new IllegalArgumentException("Invalid number of arguments. It should be at least file and target dir");
         }
-        ChannelSftp channelSftp = (ChannelSftp) getSession().openChannel(SSHMode.SFTP.toString());
-        //channel.setInputStream(null);
-        //channelSftp.setPty(asSuperUser);
-        channelSftp.setOutputStream(new ByteArrayOutputStream() {
-            @Override
-            public synchronized void write(byte[] b, int off, int len) {
-                String message = new String(b, off, len).replaceAll("\n", "");
-                if (message.length() > 0) {
-                    SSHExecutor.this.logger.fine("[" + SSHExecutor.this.host + "] " + message);
+        final Session session = getSession();
+        ChannelSftp channelSftp = null;
+        try {
+            channelSftp = (ChannelSftp) session.openChannel(SSHMode.SFTP.toString());
+            //channel.setInputStream(null);
+            //channelSftp.setPty(asSuperUser);
+            channelSftp.setOutputStream(new ByteArrayOutputStream() {
+                @Override
+                public synchronized void write(byte[] b, int off, int len) {
+                    String message = new String(b, off, len).replaceAll("\n", "");
+                    if (message.length() > 0) {
+                        SSHExecutor.this.logger.fine("[" + SSHExecutor.this.host + "] " + message);
+                    }
                 }
-            }
-        });
-
-        channelSftp.connect();
+            });
 
-        String fileToTransfer = this.arguments.get(0);
-        String workingDir = this.arguments.get(1);
-        channelSftp.cd(workingDir);
-        Path file = Paths.get(fileToTransfer);
-        if(Files.isDirectory(file)) {
-            recursiveFolderUpload(channelSftp, fileToTransfer, workingDir);
-        } else {
-            this.logger.fine("Uploading file " + file.getFileName());
-            try (InputStream stream = Files.newInputStream(file)) {
-                channelSftp.put(stream, file.getFileName().toString(), ChannelSftp.OVERWRITE);
+            channelSftp.connect();
+
+            String fileToTransfer = this.arguments.get(0);
+            String workingDir = this.arguments.get(1);
+            channelSftp.cd(workingDir);
+            Path file = Paths.get(fileToTransfer);
+            if(Files.isDirectory(file)) {
+                recursiveFolderUpload(channelSftp, fileToTransfer, workingDir);
+            } else {
+                this.logger.fine("Uploading file " + file.getFileName());
+                try (InputStream stream = Files.newInputStream(file)) {
+                    channelSftp.put(stream, file.getFileName().toString(), ChannelSftp.OVERWRITE);
+                }
+            }
+            channelSftp.disconnect();
+            return channelSftp.getExitStatus();
+        } finally {
+            if (channelSftp != null) {
+                channelSftp.disconnect();
             }
+            releaseSession(session);
         }
-        channelSftp.disconnect();
-        return channelSftp.getExitStatus();
     }
 
     /**
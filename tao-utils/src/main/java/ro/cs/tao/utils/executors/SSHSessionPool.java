@@ -0,0 +1,274 @@
+package ro.cs.tao.utils.executors;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Pool of SSH sessions shared by all the {@link SSHExecutor} instances of the JVM, keyed by (user, host, port) and
+ * by a fingerprint of the credentials, so that a session authenticated with other credentials is never reused.
+ * A session is leased for each channel opened on it, and serves at most {@link #MAX_CHANNELS_PER_SESSION}
+ * channels at the same time (the SSH servers limit the number of channels per connection). A new session is
+ * opened only when all the sessions to a host are busy.
+ * The idle sessions are checked periodically (by a keep-alive message) in a background thread, instead of
+ * being validated on every use, and are closed after being idle for {@link #IDLE_TIMEOUT_MILLIS}.
+ *
+ * @since   1.5.2
+ */
+public final class SSHSessionPool {
+    // OpenSSH accepts by default at most 10 channels per connection (MaxSessions)
+    private static final int MAX_CHANNELS_PER_SESSION = 8;
+    private static final long IDLE_TIMEOUT_MILLIS = 300000;
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 30000;
+    private static final SSHSessionPool instance = new SSHSessionPool();
+
+    private final Map<String, List<PooledSession>> hosts;
+    private final Map<Session, PooledSession> leased;
+    private final ScheduledExecutorService maintenance;
+    private final LongAdder created;
+    private final LongAdder leases;
+    private final LongAdder evicted;
+    private final LongAdder failed;
+    private final Logger logger = Logger.getLogger(SSHSessionPool.class.getName());
+
+    /**
+     * Creates (and connects) a session when the pool needs a new one.
+     */
+    @FunctionalInterface
+    interface SessionFactory {
+        Session create() throws JSchException;
+    }
+
+    public static SSHSessionPool getInstance() { return instance; }
+
+    private SSHSessionPool() {
+        this.hosts = new ConcurrentHashMap<>();
+        this.leased = new ConcurrentHashMap<>();
+        this.created = new LongAdder();
+        this.leases = new LongAdder();
+        this.evicted = new LongAdder();
+        this.failed = new LongAdder();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ssh-session-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance.scheduleWithFixedDelay(this::checkSessions, HEALTH_CHECK_INTERVAL_MILLIS,
+                                                HEALTH_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a session to the given host, for opening one channel. The session has to be given back by
+     * {@link #release(Session)} after the channel is closed.
+     *
+     * @param host      The remote host
+     * @param port      The SSH port
+     * @param user          The remote user
+     * @param credentials   The credentials used to authenticate (password or identity file)
+     * @param factory       Creates a new session, if none of the pooled ones can be used
+     */
+    Session acquire(String host, int port, String user, String credentials, SessionFactory factory) throws JSchException {
+        final List<PooledSession> sessions = this.hosts.computeIfAbsent(user + "@" + host + ":" + port + "#" + fingerprint(credentials),
+                                                                        k -> new ArrayList<>());
+        this.leases.increment();
+        synchronized (sessions) {
+            PooledSession candidate = null;
+            final Iterator<PooledSession> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                final PooledSession pooled = iterator.next();
+                if (!pooled.session.isConnected()) {
+                    if (pooled.channels == 0) {
+                        iterator.remove();
+                        this.failed.increment();
+                    }
+                } else if (pooled.channels < MAX_CHANNELS_PER_SESSION
+                        && (candidate == null || pooled.channels < candidate.channels)) {
+                    // the least loaded session
+                    candidate = pooled;
+                }
+            }
+            if (candidate != null) {
+                candidate.channels++;
+                candidate.lastUsed = System.currentTimeMillis();
+                return candidate.session;
+            }
+        }
+        // all the sessions are busy (or there is none), a new one is connected outside the lock
+        final Session session = factory.create();
+        this.created.increment();
+        final PooledSession pooled = new PooledSession(sessions, session);
+        this.leased.put(session, pooled);
+        synchronized (sessions) {
+            sessions.add(pooled);
+        }
+        return session;
+    }
+
+    /**
+     * Gives back a session leased by {@link #acquire(String, int, String, String, SessionFactory)}.
+     * Sessions that were not obtained from the pool are disconnected.
+     */
+    void release(Session session) {
+        if (session == null) {
+            return;
+        }
+        final PooledSession pooled = this.leased.get(session);
+        if (pooled == null) {
+            session.disconnect();
+            return;
+        }
+        boolean remove = false;
+        synchronized (pooled.owner) {
+            if (pooled.channels > 0) {
+                pooled.channels--;
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            if (!session.isConnected() && pooled.channels == 0) {
+                remove = pooled.owner.remove(pooled);
+            }
+        }
+        if (remove) {
+            this.leased.remove(session);
+            this.failed.increment();
+        }
+    }
+
+    /**
+     * Returns the number of sessions currently open
+     */
+    public int getSessionCount() { return this.leased.size(); }
+
+    /**
+     * Returns the number of channels currently open on the pooled sessions
+     */
+    public int getActiveChannels() {
+        int count = 0;
+        for (List<PooledSession> sessions : this.hosts.values()) {
+            synchronized (sessions) {
+                for (PooledSession pooled : sessions) {
+                    count += pooled.channels;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of sessions opened since the pool was created
+     */
+    public long getCreatedCount() { return this.created.sum(); }
+
+    /**
+     * Returns the number of leases served by already open sessions
+     */
+    public long getReusedCount() { return this.leases.sum() - this.created.sum(); }
+
+    /**
+     * Returns the number of sessions closed because they were idle
+     */
+    public long getEvictedCount() { return this.evicted.sum(); }
+
+    /**
+     * Returns the number of sessions dropped because they were found disconnected
+     */
+    public long getFailedCount() { return this.failed.sum(); }
+
+    /**
+     * Closes the idle sessions that expired and sends a keep-alive message on the other idle sessions
+     * (the sessions in use are checked by their channels).
+     */
+    private void checkSessions() {
+        final long now = System.currentTimeMillis();
+        for (List<PooledSession> sessions : this.hosts.values()) {
+            final List<PooledSession> expired = new ArrayList<>();
+            final List<PooledSession> idle = new ArrayList<>();
+            synchronized (sessions) {
+                final Iterator<PooledSession> iterator = sessions.iterator();
+                while (iterator.hasNext()) {
+                    final PooledSession pooled = iterator.next();
+                    if (pooled.channels == 0) {
+                        if (!pooled.session.isConnected() || now - pooled.lastUsed > IDLE_TIMEOUT_MILLIS) {
+                            iterator.remove();
+                            expired.add(pooled);
+                        } else {
+                            idle.add(pooled);
+                        }
+                    }
+                }
+            }
+            for (PooledSession pooled : expired) {
+                if (pooled.session.isConnected()) {
+                    this.evicted.increment();
+                } else {
+                    this.failed.increment();
+                }
+                this.leased.remove(pooled.session);
+                pooled.session.disconnect();
+            }
+            for (PooledSession pooled : idle) {
+                try {
+                    pooled.session.sendKeepAliveMsg();
+                } catch (Exception e) {
+                    this.logger.fine(String.format("[%s] Session no longer usable: %s",
+                                                   pooled.session.getHost(), e.getMessage()));
+                    boolean removed;
+                    synchronized (sessions) {
+                        removed = pooled.channels == 0 && sessions.remove(pooled);
+                    }
+                    if (removed) {
+                        this.failed.increment();
+                        this.leased.remove(pooled.session);
+                        pooled.session.disconnect();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a digest of the credentials, so that the secrets are not kept in the keys of the pool.
+     */
+    private static String fingerprint(String credentials) {
+        if (credentials == null) {
+            return "";
+        }
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(credentials.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class PooledSession {
+        private final List<PooledSession> owner;
+        private final Session session;
+        private int channels;
+        private long lastUsed;
+
+        private PooledSession(List<PooledSession> owner, Session session) {
+            this.owner = owner;
+            this.session = session;
+            this.channels = 1;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ro.cs.tao.utils.executors;
+
+import com.jcraft.jsch.ChannelSftp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of connected SFTP channels to a host, opened through an {@link SSHExecutor}.
+ * Channels are reused across operations (opening a SFTP channel costs several round trips), are validated when
+ * borrowed and are closed after being idle for longer than the idle timeout (checked whenever a channel is borrowed
+ * or given back). A channel that failed is not given back to the pool, but invalidated.
+ * Each open channel holds a lease on a session of the {@link SSHSessionPool}.
+ *
+ * @since   1.5.2
+ */
+class SftpChannelPool implements AutoCloseable {
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 60;
+    private final SSHExecutor executor;
+    private final long idleTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<IdleChannel> idle;
+    private final LongAdder created;
+    private final LongAdder reused;
+    private final Logger logger = Logger.getLogger(SftpChannelPool.class.getName());
+    private volatile boolean closed;
+
+    /**
+     * @param executor          The executor used to open the channels
+     * @param maxChannels       The maximum number of channels open at the same time
+     * @param idleTimeoutMillis The time after which an unused channel is closed
+     */
+    SftpChannelPool(SSHExecutor executor, int maxChannels, long idleTimeoutMillis) {
+        if (maxChannels <= 0) {
+            throw new IllegalArgumentException("maxChannels");
+        }
+        this.executor = executor;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxChannels, true);
+        this.idle = new ArrayDeque<>();
+        this.created = new LongAdder();
+        this.reused = new LongAdder();
+    }
+
+    /**
+     * Borrows a channel from the pool, opening a new one if no idle channel is available.
+     * The channel has to be given back by {@link #release(ChannelSftp)} or, if it is no longer usable,
+     * by {@link #invalidate(ChannelSftp)}.
+     */
+    ChannelSftp acquire() throws IOException {
+        if (this.closed) {
+            throw new IOException("Channel pool closed");
+        }
+        try {
+            if (!this.permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out waiting for a SFTP channel to " + this.executor.host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        try {
+            ChannelSftp channel;
+            while ((channel = pollIdle()) != null) {
+                if (channel.isConnected() && !channel.isClosed()) {
+                    this.reused.increment();
+                    return channel;
+                }
+                disconnect(channel);
+            }
+            channel = (ChannelSftp) this.executor.open(SSHMode.SFTP);
+            this.created.increment();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back a channel to the pool.
+     */
+    void release(ChannelSftp channel) {
+        if (channel == null) {
+            return;
+        }
+        if (this.closed || !channel.isConnected()) {
+            disconnect(channel);
+        } else {
+            final long now = System.currentTimeMillis();
+            synchronized (this.idle) {
+                this.idle.push(new IdleChannel(channel, now));
+                evictIdle(now);
+            }
+        }
+        this.permits.release();
+    }
+
+    /**
+     * Closes a borrowed channel that failed and frees its slot in the pool.
+     */
+    void invalidate(ChannelSftp channel) {
+        disconnect(channel);
+        this.permits.release();
+    }
+
+    long getCreatedCount() { return this.created.sum(); }
+
+    long getReusedCount() { return this.reused.sum(); }
+
+    int getIdleCount() {
+        synchronized (this.idle) {
+            return this.idle.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        synchronized (this.idle) {
+            IdleChannel entry;
+            while ((entry = this.idle.poll()) != null) {
+                disconnect(entry.channel);
+            }
+        }
+    }
+
+    /**
+     * Returns the most recently used idle channel, after closing the channels idle for too long.
+     */
+    private ChannelSftp pollIdle() {
+        final long now = System.currentTimeMillis();
+        synchronized (this.idle) {
+            evictIdle(now);
+            final IdleChannel entry = this.idle.poll();
+            return entry != null ? entry.channel : null;
+        }
+    }
+
+    /**
+     * Closes the channels idle for longer than the idle timeout. Must be called while holding the lock on the
+     * idle channels.
+     */
+    private void evictIdle(long now) {
+        // the least recently used channels are at the tail
+        IdleChannel last;
+        while ((last = this.idle.peekLast()) != null && now - last.since > this.idleTimeoutMillis) {
+            this.idle.pollLast();
+            disconnect(last.channel);
+        }
+    }
+
+    private void disconnect(ChannelSftp channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            // also gives back the session of the channel
+            this.executor.release(channel);
+        } catch (Exception e) {
+            this.logger.finest(String.format("[%s] %s", this.executor.host, e.getMessage()));
+        }
+    }
+
+    private static final class IdleChannel {
+        private final ChannelSftp channel;
+        private final long since;
+
+        private IdleChannel(ChannelSftp channel, long since) {
+            this.channel = channel;
+            this.since = since;
+        }
+    }
+}
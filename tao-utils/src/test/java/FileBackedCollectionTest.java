@@ -0,0 +1,137 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.cs.tao.utils.FileBackedMap;
+import ro.cs.tao.utils.FileQueue;
+import ro.cs.tao.utils.PersistenceMode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileBackedCollectionTest {
+    private Path folder;
+    private Path file;
+    private Path journal;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("file-backed");
+        file = folder.resolve("queue.json");
+        journal = folder.resolve("queue.json.journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> stream = Files.walk(folder)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testJournalReplayAfterUncleanStop() {
+        final FileQueue<String> queue = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+        queue.poll();
+        queue.remove("c");
+        queue.offer("d");
+        // not closed: the snapshot is still empty and the state is only in the journal
+        final FileQueue<String> restored = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        assertEquals(Arrays.asList("b", "d"), new ArrayList<>(restored));
+    }
+
+    @Test
+    public void testIncompleteJournalEntryIsIgnored() throws IOException {
+        final FileQueue<String> queue = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        queue.offer("a");
+        queue.offer("b");
+        // the process died while appending the next entry
+        Files.write(journal, "{\"op\":\"add\",\"val".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        final FileQueue<String> restored = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(restored));
+    }
+
+    @Test
+    public void testStaleJournalIsNotReplayed() throws IOException {
+        final FileQueue<String> queue = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        queue.offer("a");
+        queue.offer("b");
+        final byte[] staleJournal = Files.readAllBytes(journal);
+        queue.close();
+        // a compaction that was interrupted after the snapshot was replaced leaves the old journal behind
+        Files.write(journal, staleJournal);
+        final FileQueue<String> restored = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(restored));
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        final FileQueue<String> queue = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL, 4);
+        for (int i = 0; i < 3; i++) {
+            queue.offer(String.valueOf(i));
+        }
+        // header + 3 entries, below the threshold
+        assertEquals(4, Files.readAllLines(journal).size());
+        queue.offer("3");
+        // the 4th entry triggered the compaction: only the header is left
+        assertEquals(1, Files.readAllLines(journal).size());
+        assertEquals("[\"0\",\"1\",\"2\",\"3\"]", Files.readString(file));
+        queue.poll();
+        final FileQueue<String> restored = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL, 4);
+        assertEquals(Arrays.asList("1", "2", "3"), new ArrayList<>(restored));
+    }
+
+    @Test
+    public void testReloadAfterClose() throws IOException {
+        final FileQueue<String> queue = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            queue.offer("item" + i);
+            expected.add("item" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.poll();
+            expected.remove(0);
+        }
+        queue.close();
+        assertEquals(1, Files.readAllLines(journal).size());
+        final FileQueue<String> restored = new FileQueue<>(file, String.class, PersistenceMode.JOURNAL);
+        assertEquals(expected, new ArrayList<>(restored));
+        // a snapshot written in journal mode can be read in snapshot mode
+        restored.close();
+        final FileQueue<String> snapshot = new FileQueue<>(file, String.class, PersistenceMode.SNAPSHOT);
+        assertEquals(expected, new ArrayList<>(snapshot));
+    }
+
+    @Test
+    public void testMapJournalReplay() {
+        final Path mapFile = folder.resolve("map.json");
+        final FileBackedMap<String, Object> map = new FileBackedMap<>(mapFile, PersistenceMode.JOURNAL, 4);
+        map.put("1", "one");
+        map.put("2", "two");
+        map.put("3", "three");
+        map.remove("2");
+        map.put("1", "uno");
+        map.put("4", "four");
+        // not closed
+        final FileBackedMap<String, Object> restored = new FileBackedMap<>(mapFile, PersistenceMode.JOURNAL, 4);
+        assertEquals(3, restored.size());
+        assertEquals("uno", restored.get("1"));
+        assertFalse(restored.containsKey("2"));
+        assertEquals("three", restored.get("3"));
+        assertTrue(restored.containsKey("4"));
+    }
+}
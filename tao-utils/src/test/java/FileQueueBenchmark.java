@@ -0,0 +1,56 @@
+import ro.cs.tao.utils.FileQueue;
+import ro.cs.tao.utils.PersistenceMode;
+import ro.cs.tao.utils.Tuple;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compares the cost of enqueue/dequeue operations of a file queue in snapshot and in journal mode.
+ * Usage: FileQueueBenchmark [queue size] [operations]
+ */
+public class FileQueueBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        final Path folder = Files.createTempDirectory("queue-bench");
+        try {
+            for (PersistenceMode mode : PersistenceMode.values()) {
+                run(folder.resolve(mode.name().toLowerCase() + ".json"), mode, size, operations);
+            }
+        } finally {
+            try (Stream<Path> stream = Files.walk(folder)) {
+                stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void run(Path file, PersistenceMode mode, int size, int operations) throws IOException {
+        final Class<Tuple<Long, String>> clazz = (Class<Tuple<Long, String>>) new Tuple<>(0L, "").getClass();
+        final FileQueue<Tuple<Long, String>> queue = new FileQueue<>(file, clazz, mode);
+        long start = System.nanoTime();
+        for (long i = 0; i < size; i++) {
+            queue.offer(new Tuple<>(i, "user" + (i % 10)));
+        }
+        final long fill = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (long i = 0; i < operations; i++) {
+            queue.poll();
+            queue.offer(new Tuple<>(size + i, "user" + (i % 10)));
+        }
+        final long steady = System.nanoTime() - start;
+        queue.close();
+        start = System.nanoTime();
+        final FileQueue<Tuple<Long, String>> restored = new FileQueue<>(file, clazz, mode);
+        final long reload = System.nanoTime() - start;
+        System.out.printf("%-8s fill(%d): %8.1f ms | poll+offer(%d): %8.1f ms (%.3f ms/op) | reload(%d): %6.1f ms%n",
+                          mode, size, fill / 1e6, operations, steady / 1e6, steady / 1e6 / (2.0 * operations),
+                          restored.size(), reload / 1e6);
+        restored.close();
+    }
+}
@@ -0,0 +1,64 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ro.cs.tao.utils.FileUtilities;
+import ro.cs.tao.utils.FolderSizeTracker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class FolderSizeTrackerTest {
+    private Path folder;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("size");
+        Files.createDirectories(folder.resolve("a/b"));
+        Files.write(folder.resolve("file1"), new byte[100]);
+        Files.write(folder.resolve("a/b/file2"), new byte[50]);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FolderSizeTracker.getInstance().unwatch(folder);
+        try (Stream<Path> stream = Files.walk(folder)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testFolderNotWatched() throws IOException {
+        assertEquals(150, FileUtilities.folderSize(folder));
+        assertEquals(50, FileUtilities.folderSize(folder.resolve("a")));
+        // the size is not cached, hence changes made outside the framework are seen at once
+        Files.write(folder.resolve("a/file3"), new byte[25]);
+        assertEquals(175, FileUtilities.folderSize(folder));
+        assertEquals(75, FileUtilities.folderSize(folder.resolve("a")));
+    }
+
+    @Test
+    public void testWatchedFolder() throws IOException {
+        final FolderSizeTracker tracker = FolderSizeTracker.getInstance();
+        tracker.watch(folder);
+        final long walks = tracker.getWalkCount();
+        assertEquals(150, tracker.size(folder));
+        assertEquals(50, tracker.size(folder.resolve("a/b")));
+        assertEquals(walks, tracker.getWalkCount());
+        // the change is applied without walking the whole tree
+        Files.write(folder.resolve("a/b/file3"), new byte[25]);
+        tracker.update(folder.resolve("a/b/file3"));
+        assertEquals(175, tracker.size(folder));
+        Files.delete(folder.resolve("file1"));
+        tracker.update(folder.resolve("file1"));
+        assertEquals(75, tracker.size(folder));
+        // once no longer watched, the folder is walked again
+        tracker.unwatch(folder);
+        Files.write(folder.resolve("file1"), new byte[10]);
+        assertEquals(85, tracker.size(folder));
+    }
+}
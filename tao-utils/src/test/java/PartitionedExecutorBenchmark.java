@@ -0,0 +1,52 @@
+import ro.cs.tao.utils.executors.PartitionedExecutor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the throughput of status message processing for synthetic workflows, when messages are handled by
+ * a single lane (as a globally serialized handler would) and by several job-partitioned lanes.
+ * Each job emits a sequence of status messages for its tasks; handling a message simulates the database round-trips
+ * of the orchestrator. The per-job ordering of the messages is verified.
+ * Usage: PartitionedExecutorBenchmark [jobs] [tasks per job] [handling time in microseconds] [lanes]
+ */
+public class PartitionedExecutorBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        final int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        final int tasks = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final long handlingMicros = args.length > 2 ? Long.parseLong(args[2]) : 500;
+        final int maxLanes = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        for (int lanes = 1; lanes <= maxLanes; lanes *= 2) {
+            run(lanes, jobs, tasks, handlingMicros);
+        }
+    }
+
+    private static void run(int lanes, int jobs, int tasks, long handlingMicros) throws InterruptedException {
+        final PartitionedExecutor executor = new PartitionedExecutor("bench", lanes);
+        final ConcurrentHashMap<Long, Integer> lastSeen = new ConcurrentHashMap<>();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final long start = System.nanoTime();
+        // Messages of different jobs are interleaved, as they would arrive from concurrently running jobs
+        for (int task = 0; task < tasks; task++) {
+            for (long job = 0; job < jobs; job++) {
+                final long jobId = job;
+                final int sequence = task;
+                executor.execute(jobId, () -> {
+                    final Integer previous = lastSeen.put(jobId, sequence);
+                    if ((previous == null ? -1 : previous) != sequence - 1) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(handlingMicros));
+                });
+            }
+        }
+        executor.shutdown(10, TimeUnit.MINUTES);
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+        final long messages = executor.getCompletedCount();
+        System.out.printf("lanes=%2d messages=%6d time=%8.3f s throughput=%10.1f msg/s out-of-order=%d%n",
+                          lanes, messages, elapsed, messages / elapsed, outOfOrder.get());
+    }
+}